@@ -0,0 +1,364 @@
+/*
+ Copyright (c) 2019, Stephen Gold
+ All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright
+ notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright
+ notice, this list of conditions and the following disclaimer in the
+ documentation and/or other materials provided with the distribution.
+ * Neither the name of the copyright holder nor the names of its contributors
+ may be used to endorse or promote products derived from this software without
+ specific prior written permission.
+
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jme3utilities.sky;
+
+import com.jme3.math.FastMath;
+import com.jme3.math.Vector2f;
+import com.jme3.math.Vector3f;
+import com.jme3.texture.Image;
+import com.jme3.texture.Texture;
+import com.jme3.texture.Texture2D;
+import com.jme3.texture.image.ColorSpace;
+import com.jme3.util.BufferUtils;
+import java.nio.ByteBuffer;
+import java.util.logging.Logger;
+import jme3utilities.Validate;
+import jme3utilities.mesh.DomeMesh;
+
+/**
+ * Low-resolution map of the shadows cast on the ground by the clouds of a
+ * SkyControl, generated on the CPU.
+ * <p>
+ * The map covers a square region of the X-Z plane centered on the observer.
+ * Each texel holds the fraction of the main light transmitted through the
+ * clouds. Since the sky moves with the camera, the map is expressed relative
+ * to the observer rather than to any fixed world location: columns advance in
+ * the +X direction and rows in the +Z direction, so materials should sample it
+ * using texture coordinates u=(x-cameraX)/groundExtent+0.5 and
+ * v=(z-cameraZ)/groundExtent+0.5, where (x,z) is the fragment's world location.
+ * <p>
+ * The sky coordinates of each texel depend only on the light direction and
+ * the map's geometry, so they are cached and recalculated only when one of
+ * those changes. In between, each update merely resamples the (moving) cloud
+ * layers.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+public class CloudShadowMap {
+    // *************************************************************************
+    // constants and loggers
+
+    /**
+     * angle the light must move before the sky coordinates are recalculated
+     * (in radians)
+     */
+    final private static float directionTolerance = 0.002f;
+    /**
+     * smallest sine of the light's altitude used for projection, to avoid
+     * dividing by zero
+     */
+    final private static float minSineAltitude = 0.01f;
+    /**
+     * message logger for this class
+     */
+    final private static Logger logger
+            = Logger.getLogger(CloudShadowMap.class.getName());
+    // *************************************************************************
+    // fields
+
+    /**
+     * true if the cached sky coordinates are invalid
+     */
+    private boolean coordinatesStale = true;
+    /**
+     * true if the map should be resampled during the next update
+     */
+    private boolean updateRequested = true;
+    /**
+     * height of the clouds above the ground (in world units, &gt;0)
+     */
+    private float cloudAltitude;
+    /**
+     * width (and depth) of the region covered (in world units, &gt;0)
+     */
+    private float groundExtent;
+    /**
+     * time since the map was last resampled (in seconds, &ge;0)
+     */
+    private float timeSinceUpdate = 0f;
+    /**
+     * minimum time between resamplings (in seconds, &ge;0, default=0.1)
+     */
+    private float updateInterval = 0.1f;
+    /**
+     * cached sky coordinates of each texel (u0, v0, u1, v1, ...)
+     */
+    final private float[] skyCoordinates;
+    /**
+     * transmission of each texel (each &le;1, &ge;0)
+     */
+    final private float[] transmissions;
+    /**
+     * size of the map (texels per side, &gt;0)
+     */
+    final private int resolution;
+    /**
+     * image data of the map
+     */
+    final private ByteBuffer data;
+    /**
+     * image of the map
+     */
+    final private Image image;
+    /**
+     * sky whose clouds cast the shadows
+     */
+    final private SkyControl skyControl;
+    /**
+     * texture for materials to sample
+     */
+    final private Texture texture;
+    /**
+     * light direction used to calculate the cached sky coordinates (unit
+     * vector)
+     */
+    final private Vector3f coordinatesDirection = new Vector3f();
+    // *************************************************************************
+    // constructors
+
+    /**
+     * Instantiate a map for the specified sky.
+     *
+     * @param skyControl the sky whose clouds cast the shadows (not null)
+     * @param resolution size of the map (texels per side, &gt;0)
+     * @param groundExtent width (and depth) of the region covered (in world
+     * units, &gt;0)
+     * @param cloudAltitude height of the clouds above the ground (in world
+     * units, &gt;0)
+     */
+    public CloudShadowMap(SkyControl skyControl, int resolution,
+            float groundExtent, float cloudAltitude) {
+        Validate.nonNull(skyControl, "sky control");
+        Validate.positive(resolution, "resolution");
+        Validate.positive(groundExtent, "ground extent");
+        Validate.positive(cloudAltitude, "cloud altitude");
+
+        this.skyControl = skyControl;
+        this.resolution = resolution;
+        this.groundExtent = groundExtent;
+        this.cloudAltitude = cloudAltitude;
+
+        int numTexels = resolution * resolution;
+        skyCoordinates = new float[2 * numTexels];
+        transmissions = new float[numTexels];
+
+        data = BufferUtils.createByteBuffer(numTexels);
+        image = new Image(Image.Format.Luminance8, resolution, resolution,
+                data, ColorSpace.Linear);
+        texture = new Texture2D(image);
+        texture.setWrap(Texture.WrapMode.EdgeClamp);
+    }
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Read the height of the clouds above the ground.
+     *
+     * @return height (in world units, &gt;0)
+     */
+    public float getCloudAltitude() {
+        assert cloudAltitude > 0f : cloudAltitude;
+        return cloudAltitude;
+    }
+
+    /**
+     * Read the width (and depth) of the region covered.
+     *
+     * @return extent (in world units, &gt;0)
+     */
+    public float getGroundExtent() {
+        assert groundExtent > 0f : groundExtent;
+        return groundExtent;
+    }
+
+    /**
+     * Read the size of the map.
+     *
+     * @return texels per side (&gt;0)
+     */
+    public int getResolution() {
+        assert resolution > 0 : resolution;
+        return resolution;
+    }
+
+    /**
+     * Access the texture of the map.
+     *
+     * @return the pre-existing instance (not null)
+     */
+    public Texture getTexture() {
+        assert texture != null;
+        return texture;
+    }
+
+    /**
+     * Read the minimum time between resamplings.
+     *
+     * @return interval (in seconds, &ge;0)
+     */
+    public float getUpdateInterval() {
+        assert updateInterval >= 0f : updateInterval;
+        return updateInterval;
+    }
+
+    /**
+     * Alter the height of the clouds above the ground.
+     *
+     * @param newAltitude height (in world units, &gt;0)
+     */
+    public void setCloudAltitude(float newAltitude) {
+        Validate.positive(newAltitude, "new altitude");
+
+        if (cloudAltitude != newAltitude) {
+            cloudAltitude = newAltitude;
+            coordinatesStale = true;
+        }
+    }
+
+    /**
+     * Alter the width (and depth) of the region covered.
+     *
+     * @param newExtent extent (in world units, &gt;0)
+     */
+    public void setGroundExtent(float newExtent) {
+        Validate.positive(newExtent, "new extent");
+
+        if (groundExtent != newExtent) {
+            groundExtent = newExtent;
+            coordinatesStale = true;
+        }
+    }
+
+    /**
+     * Alter the minimum time between resamplings. Resampling a 128x128 map
+     * costs roughly one millisecond per cloud layer.
+     *
+     * @param newInterval interval (in seconds, &ge;0)
+     */
+    public void setUpdateInterval(float newInterval) {
+        Validate.nonNegative(newInterval, "new interval");
+        updateInterval = newInterval;
+    }
+
+    /**
+     * Update the map if the update interval has elapsed. Invoke once per
+     * frame, after the SkyControl has been updated.
+     *
+     * @param tpf time interval between frames (in seconds, &ge;0)
+     */
+    public void update(float tpf) {
+        Validate.nonNegative(tpf, "time per frame");
+
+        timeSinceUpdate += tpf;
+        if (updateRequested || timeSinceUpdate >= updateInterval) {
+            updateNow();
+        }
+    }
+
+    /**
+     * Update the map immediately, regardless of the update interval.
+     */
+    public void updateNow() {
+        Vector3f lightDirection = skyControl.getUpdater().getDirection();
+        if (lightDirection == null) {
+            /*
+             * The sky hasn't been updated yet.
+             */
+            return;
+        }
+
+        if (!coordinatesStale) {
+            float minDot = FastMath.cos(directionTolerance);
+            if (lightDirection.dot(coordinatesDirection) < minDot) {
+                coordinatesStale = true;
+            }
+        }
+        if (coordinatesStale) {
+            calculateCoordinates(lightDirection);
+            coordinatesDirection.set(lightDirection);
+            coordinatesStale = false;
+        }
+
+        SkyMaterial cloudsMaterial = skyControl.getCloudsMaterial();
+        cloudsMaterial.getTransmission(skyCoordinates, transmissions);
+
+        data.clear();
+        for (float transmission : transmissions) {
+            int level = Math.round(255f * transmission);
+            data.put((byte) level);
+        }
+        data.flip();
+        image.setUpdateNeeded();
+
+        timeSinceUpdate = 0f;
+        updateRequested = false;
+    }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Calculate the sky coordinates of each texel by projecting its ground
+     * location (relative to the observer) along the light direction onto the
+     * cloud layer.
+     *
+     * @param lightDirection world direction to the main light (unit vector,
+     * unaffected)
+     */
+    private void calculateCoordinates(Vector3f lightDirection) {
+        assert lightDirection.isUnitVector() : lightDirection;
+
+        float sineAltitude = Math.max(lightDirection.y, minSineAltitude);
+        float distance = cloudAltitude / sineAltitude;
+        float offsetX = distance * lightDirection.x;
+        float offsetZ = distance * lightDirection.z;
+
+        DomeMesh cloudsMesh = skyControl.getCloudsMesh();
+        float texelSize = groundExtent / resolution;
+        Vector3f direction = new Vector3f();
+        int coordIndex = 0;
+        for (int row = 0; row < resolution; row++) {
+            float z = (row + 0.5f) * texelSize - 0.5f * groundExtent;
+            for (int column = 0; column < resolution; column++) {
+                float x = (column + 0.5f) * texelSize - 0.5f * groundExtent;
+                /*
+                 * Find the direction from the observer to where the
+                 * texel's shadow ray meets the cloud layer.
+                 */
+                direction.set(x + offsetX, cloudAltitude, z + offsetZ);
+                direction.normalizeLocal();
+                Vector3f intersection
+                        = skyControl.intersectCloudDome(direction);
+                Vector2f uv = cloudsMesh.directionUV(intersection);
+                assert uv != null : intersection;
+
+                skyCoordinates[coordIndex] = uv.x;
+                skyCoordinates[coordIndex + 1] = uv.y;
+                coordIndex += 2;
+            }
+        }
+    }
+}
@@ -0,0 +1,468 @@
+/*
+ Copyright (c) 2019, Stephen Gold
+ All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright
+ notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright
+ notice, this list of conditions and the following disclaimer in the
+ documentation and/or other materials provided with the distribution.
+ * Neither the name of the copyright holder nor the names of its contributors
+ may be used to endorse or promote products derived from this software without
+ specific prior written permission.
+
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jme3utilities.sky;
+
+import com.jme3.math.FastMath;
+import com.jme3.math.Quaternion;
+import com.jme3.math.Vector3f;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import jme3utilities.Validate;
+import jme3utilities.math.MyMath;
+
+/**
+ * Immutable table of sun directions and sky orientations for an observer at a
+ * fixed latitude, sampled across a day (and optionally across a year), which
+ * answers queries by interpolation without any trigonometry.
+ * <p>
+ * Install an ephemeris using
+ * {@link SunAndStars#setEphemeris(jme3utilities.sky.Ephemeris)}, or query it
+ * directly, for instance to export an entire time-lapse sequence.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+public class Ephemeris {
+    // *************************************************************************
+    // constants and loggers
+
+    /**
+     * message logger for this class
+     */
+    final private static Logger logger
+            = Logger.getLogger(Ephemeris.class.getName());
+    /**
+     * per-thread storage for a single interpolated sample, so that instances
+     * can be shared between threads without allocating on every query
+     */
+    final private static ThreadLocal<float[]> perThreadSample
+            = new ThreadLocal<float[]>() {
+        @Override
+        protected float[] initialValue() {
+            return new float[4];
+        }
+    };
+    // *************************************************************************
+    // fields
+
+    /**
+     * observer's latitude (radians north of the equator)
+     */
+    final private float observerLatitude;
+    /**
+     * celestial longitude of the sun for a single-day table (radians east of
+     * the March equinox) or NaN for a full-year table
+     */
+    final private float solarLongitude;
+    /**
+     * rotation from equatorial to world coordinates at each sample (x, y, z,
+     * w)
+     */
+    final private float[] orientations;
+    /**
+     * world direction to the sun at each sample (x, y, z)
+     */
+    final private float[] sunDirections;
+    /**
+     * number of samples per (solar) day (&ge;2)
+     */
+    final private int samplesPerDay;
+    /**
+     * number of solar longitudes sampled (&ge;1)
+     */
+    final private int samplesPerYear;
+    // *************************************************************************
+    // constructors
+
+    /**
+     * Tabulate a single day, during which the sun's celestial longitude is
+     * fixed.
+     *
+     * @param observerLatitude radians north of the equator (&le;Pi/2,
+     * &ge;-Pi/2)
+     * @param solarLongitude radians east of the March equinox (&le;2*Pi,
+     * &ge;0)
+     * @param samplesPerDay number of samples per day (&ge;2, 1440 &rarr; one
+     * per minute)
+     */
+    public Ephemeris(float observerLatitude, float solarLongitude,
+            int samplesPerDay) {
+        Validate.inRange(observerLatitude, "observer latitude",
+                -FastMath.HALF_PI, FastMath.HALF_PI);
+        Validate.inRange(solarLongitude, "solar longitude",
+                0f, FastMath.TWO_PI);
+        Validate.inRange(samplesPerDay, "samples per day",
+                2, Integer.MAX_VALUE);
+
+        this.observerLatitude = observerLatitude;
+        this.solarLongitude = solarLongitude;
+        this.samplesPerDay = samplesPerDay;
+        samplesPerYear = 1;
+
+        orientations = new float[4 * samplesPerDay];
+        sunDirections = new float[3 * samplesPerDay];
+        tabulate();
+    }
+
+    /**
+     * Tabulate a full year, sampling the sun's celestial longitude at regular
+     * intervals.
+     *
+     * @param observerLatitude radians north of the equator (&le;Pi/2,
+     * &ge;-Pi/2)
+     * @param samplesPerDay number of samples per day (&ge;2)
+     * @param samplesPerYear number of solar longitudes to sample (&ge;2, 365
+     * &rarr; about one per day)
+     */
+    public Ephemeris(float observerLatitude, int samplesPerDay,
+            int samplesPerYear) {
+        Validate.inRange(observerLatitude, "observer latitude",
+                -FastMath.HALF_PI, FastMath.HALF_PI);
+        Validate.inRange(samplesPerDay, "samples per day",
+                2, Integer.MAX_VALUE);
+        Validate.inRange(samplesPerYear, "samples per year",
+                2, Integer.MAX_VALUE);
+
+        this.observerLatitude = observerLatitude;
+        solarLongitude = Float.NaN;
+        this.samplesPerDay = samplesPerDay;
+        this.samplesPerYear = samplesPerYear;
+
+        int numSamples = samplesPerDay * samplesPerYear;
+        orientations = new float[4 * numSamples];
+        sunDirections = new float[3 * numSamples];
+        tabulate();
+    }
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Test whether this table applies to the specified observer latitude and
+     * solar longitude.
+     *
+     * @param latitude radians north of the equator
+     * @param longitude radians east of the March equinox
+     * @return true if it applies, otherwise false
+     */
+    public boolean covers(float latitude, float longitude) {
+        if (latitude != observerLatitude) {
+            return false;
+        } else if (samplesPerYear == 1 && longitude != solarLongitude) {
+            return false;
+        } else {
+            return true;
+        }
+    }
+
+    /**
+     * Interpolate the orientations for a sequence of times, for instance the
+     * frames of a time-lapse animation.
+     *
+     * @param startHour solar time of the 1st frame (hours since midnight)
+     * @param hourStep solar time between frames (in hours)
+     * @param startLongitude solar longitude of the 1st frame (radians east of
+     * the March equinox)
+     * @param longitudeStep change in solar longitude between frames (in
+     * radians, 0 for a single-day table)
+     * @param count number of frames (&ge;0)
+     * @param storeResult storage for the results (length &ge;4*count) or null
+     * @return rotations from equatorial to world coordinates (x, y, z, w for
+     * each frame; either storeResult or a new array)
+     */
+    public float[] exportOrientations(float startHour, float hourStep,
+            float startLongitude, float longitudeStep, int count,
+            float[] storeResult) {
+        float[] result = export(orientations, 4, startHour, hourStep,
+                startLongitude, longitudeStep, count, storeResult);
+        return result;
+    }
+
+    /**
+     * Interpolate the sun directions for a sequence of times, for instance the
+     * frames of a time-lapse animation.
+     *
+     * @param startHour solar time of the 1st frame (hours since midnight)
+     * @param hourStep solar time between frames (in hours)
+     * @param startLongitude solar longitude of the 1st frame (radians east of
+     * the March equinox)
+     * @param longitudeStep change in solar longitude between frames (in
+     * radians, 0 for a single-day table)
+     * @param count number of frames (&ge;0)
+     * @param storeResult storage for the results (length &ge;3*count) or null
+     * @return world directions to the sun (x, y, z for each frame; either
+     * storeResult or a new array)
+     */
+    public float[] exportSunDirections(float startHour, float hourStep,
+            float startLongitude, float longitudeStep, int count,
+            float[] storeResult) {
+        float[] result = export(sunDirections, 3, startHour, hourStep,
+                startLongitude, longitudeStep, count, storeResult);
+        return result;
+    }
+
+    /**
+     * Read the observer's latitude.
+     *
+     * @return radians north of the equator (&le;Pi/2, &ge;-Pi/2)
+     */
+    public float getObserverLatitude() {
+        return observerLatitude;
+    }
+
+    /**
+     * Read the number of samples per day.
+     *
+     * @return count (&ge;2)
+     */
+    public int getSamplesPerDay() {
+        assert samplesPerDay >= 2 : samplesPerDay;
+        return samplesPerDay;
+    }
+
+    /**
+     * Read the number of solar longitudes sampled.
+     *
+     * @return count (&ge;1, 1 for a single-day table)
+     */
+    public int getSamplesPerYear() {
+        assert samplesPerYear >= 1 : samplesPerYear;
+        return samplesPerYear;
+    }
+
+    /**
+     * Interpolate the rotation from equatorial coordinates to world
+     * coordinates.
+     *
+     * @param hour solar time (hours since midnight)
+     * @param longitude the sun's celestial longitude (radians east of the
+     * March equinox)
+     * @param storeResult (modified if not null)
+     * @return a unit quaternion (either storeResult or a new instance)
+     */
+    public Quaternion orientation(float hour, float longitude,
+            Quaternion storeResult) {
+        Quaternion result
+                = (storeResult == null) ? new Quaternion() : storeResult;
+
+        float[] sample = perThreadSample.get();
+        interpolate(orientations, 4, hour, longitude, sample, 0);
+        result.set(sample[0], sample[1], sample[2], sample[3]);
+
+        return result;
+    }
+
+    /**
+     * Interpolate the direction to the center of the sun.
+     *
+     * @param hour solar time (hours since midnight)
+     * @param longitude the sun's celestial longitude (radians east of the
+     * March equinox)
+     * @param storeResult (modified if not null)
+     * @return a unit vector in world (horizontal) coordinates (either
+     * storeResult or a new instance)
+     */
+    public Vector3f sunDirection(float hour, float longitude,
+            Vector3f storeResult) {
+        Vector3f result = (storeResult == null) ? new Vector3f() : storeResult;
+
+        float[] sample = perThreadSample.get();
+        interpolate(sunDirections, 3, hour, longitude, sample, 0);
+        result.set(sample[0], sample[1], sample[2]);
+
+        return result;
+    }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Flip the sign of a quaternion sample's weight if the sample lies in the
+     * opposite hemisphere from the reference sample.
+     *
+     * @param table the table of quaternions (not null, unaffected)
+     * @param referenceBase index of the reference sample's 1st component
+     * @param base index of the other sample's 1st component
+     * @param weight the other sample's weight
+     * @return the weight to use
+     */
+    private static float alignedWeight(float[] table, int referenceBase,
+            int base, float weight) {
+        float dot = 0f;
+        for (int k = 0; k < 4; k++) {
+            dot += table[referenceBase + k] * table[base + k];
+        }
+        float result = (dot < 0f) ? -weight : weight;
+
+        return result;
+    }
+
+    /**
+     * Interpolate a table for a sequence of times.
+     *
+     * @param table the table to interpolate (not null, unaffected)
+     * @param width number of components per sample (3 or 4)
+     * @param startHour solar time of the 1st frame (hours since midnight)
+     * @param hourStep solar time between frames (in hours)
+     * @param startLongitude solar longitude of the 1st frame (radians)
+     * @param longitudeStep change in solar longitude between frames (radians)
+     * @param count number of frames (&ge;0)
+     * @param storeResult storage for the results or null
+     * @return either storeResult or a new array
+     */
+    private float[] export(float[] table, int width, float startHour,
+            float hourStep, float startLongitude, float longitudeStep,
+            int count, float[] storeResult) {
+        Validate.nonNegative(count, "count");
+        float[] result;
+        if (storeResult == null) {
+            result = new float[width * count];
+        } else {
+            Validate.inRange(storeResult.length, "length of result array",
+                    width * count, Integer.MAX_VALUE);
+            result = storeResult;
+        }
+
+        for (int frameIndex = 0; frameIndex < count; frameIndex++) {
+            float hour = startHour + frameIndex * hourStep;
+            float longitude = startLongitude + frameIndex * longitudeStep;
+            interpolate(table, width, hour, longitude, result,
+                    width * frameIndex);
+        }
+
+        return result;
+    }
+
+    /**
+     * Interpolate a table bilinearly in time of day and solar longitude, then
+     * normalize the result.
+     *
+     * @param table the table to interpolate (not null, unaffected)
+     * @param width number of components per sample (3 for a vector, 4 for a
+     * quaternion)
+     * @param hour solar time (hours since midnight)
+     * @param longitude the sun's celestial longitude (radians east of the
+     * March equinox)
+     * @param storeResult storage for the result (not null)
+     * @param storeOffset index of the result's 1st component in storeResult
+     * (&ge;0)
+     */
+    private void interpolate(float[] table, int width, float hour,
+            float longitude, float[] storeResult, int storeOffset) {
+        /*
+         * Locate the samples that bracket the specified time.
+         */
+        float h = MyMath.modulo(hour, Constants.hoursPerDay)
+                * samplesPerDay / Constants.hoursPerDay;
+        int i0 = Math.min((int) h, samplesPerDay - 1);
+        float hourFraction = h - i0;
+        int i1 = (i0 + 1) % samplesPerDay;
+
+        int j0;
+        int j1;
+        float yearFraction;
+        if (samplesPerYear == 1) {
+            if (longitude != solarLongitude) {
+                logger.log(Level.SEVERE, "longitude={0}", longitude);
+                throw new IllegalArgumentException(
+                        "longitude not covered by this table");
+            }
+            j0 = 0;
+            j1 = 0;
+            yearFraction = 0f;
+        } else {
+            float l = MyMath.modulo(longitude, FastMath.TWO_PI)
+                    * samplesPerYear / FastMath.TWO_PI;
+            j0 = Math.min((int) l, samplesPerYear - 1);
+            yearFraction = l - j0;
+            j1 = (j0 + 1) % samplesPerYear;
+        }
+
+        int base00 = width * (i0 + samplesPerDay * j0);
+        int base01 = width * (i1 + samplesPerDay * j0);
+        int base10 = width * (i0 + samplesPerDay * j1);
+        int base11 = width * (i1 + samplesPerDay * j1);
+        float w00 = (1f - hourFraction) * (1f - yearFraction);
+        float w01 = hourFraction * (1f - yearFraction);
+        float w10 = (1f - hourFraction) * yearFraction;
+        float w11 = hourFraction * yearFraction;
+        if (width == 4) {
+            /*
+             * Quaternions q and -q represent the same rotation, so align
+             * each sample with the 1st before blending.
+             */
+            w01 = alignedWeight(table, base00, base01, w01);
+            w10 = alignedWeight(table, base00, base10, w10);
+            w11 = alignedWeight(table, base00, base11, w11);
+        }
+
+        double sumSquares = 0.0;
+        for (int k = 0; k < width; k++) {
+            float value = w00 * table[base00 + k] + w01 * table[base01 + k]
+                    + w10 * table[base10 + k] + w11 * table[base11 + k];
+            storeResult[storeOffset + k] = value;
+            sumSquares += value * value;
+        }
+        float scale = (float) (1.0 / Math.sqrt(sumSquares));
+        for (int k = 0; k < width; k++) {
+            storeResult[storeOffset + k] *= scale;
+        }
+    }
+
+    /**
+     * Fill the tables using trigonometry.
+     */
+    private void tabulate() {
+        SunAndStars sunAndStars = new SunAndStars();
+        sunAndStars.setObserverLatitude(observerLatitude);
+        Quaternion orientation = new Quaternion();
+
+        for (int j = 0; j < samplesPerYear; j++) {
+            float longitude;
+            if (samplesPerYear == 1) {
+                longitude = solarLongitude;
+            } else {
+                longitude = FastMath.TWO_PI * j / samplesPerYear;
+            }
+            sunAndStars.setSolarLongitude(longitude);
+
+            for (int i = 0; i < samplesPerDay; i++) {
+                float hour = (float) Constants.hoursPerDay * i / samplesPerDay;
+                sunAndStars.setHour(hour);
+                int sampleIndex = i + samplesPerDay * j;
+
+                Vector3f sun = sunAndStars.sunDirection();
+                sunDirections[3 * sampleIndex] = sun.x;
+                sunDirections[3 * sampleIndex + 1] = sun.y;
+                sunDirections[3 * sampleIndex + 2] = sun.z;
+
+                sunAndStars.equatorialToWorld(orientation);
+                orientations[4 * sampleIndex] = orientation.getX();
+                orientations[4 * sampleIndex + 1] = orientation.getY();
+                orientations[4 * sampleIndex + 2] = orientation.getZ();
+                orientations[4 * sampleIndex + 3] = orientation.getW();
+            }
+        }
+    }
+}
@@ -58,6 +58,12 @@ import jme3utilities.math.MyMath;
  * A simple app state to generate a dynamic texture for an object by rendering
  * an off-screen globe. Each instance has its own camera and root node.
  * <p>
+ * The off-screen pass is skipped during frames in which the globe's
+ * appearance doesn't change, and while the renderer is disabled. To further
+ * reduce the number of passes, the phase is quantized (by default to 256
+ * steps per revolution, see setPhaseSteps()). Changes to the globe material
+ * aren't detected: after altering the material, invoke requestRender().
+ * <p>
  * Each instance is enabled at creation.
  *
  * @author Stephen Gold sgold@sonic.net
@@ -78,6 +84,10 @@ public class GlobeRenderer extends SimpleAppState {
      * initial radius of the globe (in world units)
      */
     final private static float initialGlobeRadius = 1.738e6f;
+    /**
+     * default number of quantization steps per 2*Pi radians of phase
+     */
+    final private static int defaultPhaseSteps = 256;
     /**
      * message logger for this class
      */
@@ -114,10 +124,25 @@ public class GlobeRenderer extends SimpleAppState {
      * light source for the scene (set by constructor)
      */
     private DirectionalLight light;
+    /**
+     * true if the globe's appearance has changed since the last off-screen
+     * pass
+     */
+    private boolean renderNeeded = true;
     /**
      * exponent to set in initialize(): afterwards it's ignored
      */
     private float initialExponent = 0.5f;
+    /**
+     * 1st polar coordinate of the light direction, after quantization (in
+     * radians, &le;2*Pi, &ge;0, set by constructor)
+     */
+    private float phaseTheta = 0f;
+    /**
+     * 2nd polar coordinate of the light direction, after quantization (in
+     * radians, &le;Pi/2, &ge;-Pi/2, set by constructor)
+     */
+    private float phasePhi = 0f;
     /**
      * spin rate (in radians per second, default is 0)
      */
@@ -134,6 +159,11 @@ public class GlobeRenderer extends SimpleAppState {
      * image format for off-screen render (set by constructor)
      */
     final private Image.Format outputFormat;
+    /**
+     * number of quantization steps per 2*Pi radians of phase (&ge;0, 0
+     * &rarr; no quantization, default is 256)
+     */
+    private int phaseSteps = defaultPhaseSteps;
     /**
      * root of the off-screen scene graph
      */
@@ -146,10 +176,18 @@ public class GlobeRenderer extends SimpleAppState {
      * dynamic output texture: set by constructor
      */
     final private Texture2D outputTexture;
+    /**
+     * reusable rotation for spinning the globe
+     */
+    final private Quaternion spin = new Quaternion();
     /**
      * spin axis (length=1)
      */
     final private Vector3f spinAxis = new Vector3f(0f, 0f, 1f);
+    /**
+     * viewport for the off-screen pass: set by initialize()
+     */
+    private ViewPort offscreenViewPort = null;
     // *************************************************************************
     // constructors
 
@@ -220,6 +258,41 @@ public class GlobeRenderer extends SimpleAppState {
         return result;
     }
 
+    /**
+     * Read the 2nd polar coordinate of the light direction, after
+     * quantization.
+     *
+     * @return angle (in radians, &le;Pi/2, &ge;-Pi/2)
+     */
+    public float getPhasePhi() {
+        assert phasePhi >= -FastMath.HALF_PI : phasePhi;
+        assert phasePhi <= FastMath.HALF_PI : phasePhi;
+        return phasePhi;
+    }
+
+    /**
+     * Read the number of quantization steps for the phase.
+     *
+     * @return number of steps per 2*Pi radians (&ge;0, 0 &rarr; no
+     * quantization)
+     */
+    public int getPhaseSteps() {
+        assert phaseSteps >= 0 : phaseSteps;
+        return phaseSteps;
+    }
+
+    /**
+     * Read the 1st polar coordinate of the light direction, after
+     * quantization.
+     *
+     * @return angle (in radians, &le;2*Pi, &ge;0)
+     */
+    public float getPhaseTheta() {
+        assert phaseTheta >= 0f : phaseTheta;
+        assert phaseTheta <= FastMath.TWO_PI : phaseTheta;
+        return phaseTheta;
+    }
+
     /**
      * Access the output texture.
      *
@@ -243,6 +316,15 @@ public class GlobeRenderer extends SimpleAppState {
 
         camera.setLocation(newLocation.clone());
         camera.lookAt(globeCenter, newUpDirection);
+        renderNeeded = true;
+    }
+
+    /**
+     * Request an off-screen pass during the next update, for instance after
+     * altering the globe material.
+     */
+    public void requestRender() {
+        renderNeeded = true;
     }
 
     /**
@@ -259,6 +341,7 @@ public class GlobeRenderer extends SimpleAppState {
             assert filter == null : filter;
             initialExponent = newGamma;
         }
+        renderNeeded = true;
     }
 
     /**
@@ -270,6 +353,7 @@ public class GlobeRenderer extends SimpleAppState {
         Validate.positive(newRadius, "radius");
 
         MySpatial.setWorldScale(globe, newRadius);
+        renderNeeded = true;
     }
 
     /**
@@ -281,11 +365,16 @@ public class GlobeRenderer extends SimpleAppState {
         Validate.nonNegative(intensity, "intensity");
 
         ColorRGBA lightColor = ColorRGBA.White.mult(intensity);
-        light.setColor(lightColor);
+        if (!lightColor.equals(light.getColor())) {
+            light.setColor(lightColor);
+            renderNeeded = true;
+        }
     }
 
     /**
-     * Alter the light direction.
+     * Alter the light direction. If phase quantization is enabled, each angle
+     * is rounded to the nearest step, so the globe is re-rendered only when
+     * the phase crosses into a different step.
      *
      * @param theta 1st polar coordinate (in radians, &le;2*Pi, &ge;0)
      * @param phi 2nd polar coordinate (in radians, &le;Pi/2, &ge;-Pi/2)
@@ -294,6 +383,20 @@ public class GlobeRenderer extends SimpleAppState {
         Validate.inRange(theta, "theta", 0f, FastMath.TWO_PI);
         Validate.inRange(phi, "phi", -FastMath.HALF_PI, FastMath.HALF_PI);
 
+        if (phaseSteps > 0) {
+            float step = FastMath.TWO_PI / phaseSteps;
+            theta = step * Math.round(theta / step);
+            theta = FastMath.clamp(theta, 0f, FastMath.TWO_PI);
+            phi = step * Math.round(phi / step);
+            phi = FastMath.clamp(phi, -FastMath.HALF_PI, FastMath.HALF_PI);
+        }
+        if (theta == phaseTheta && phi == phasePhi) {
+            return;
+        }
+        phaseTheta = theta;
+        phasePhi = phi;
+        renderNeeded = true;
+
         Quaternion xRot = new Quaternion();
         xRot.fromAngleNormalAxis(-theta, unitX);
         Quaternion yRot = new Quaternion();
@@ -304,6 +407,18 @@ public class GlobeRenderer extends SimpleAppState {
         light.setDirection(lightDirection);
     }
 
+    /**
+     * Alter the quantization of the phase, which applies to subsequent
+     * invocations of setPhase().
+     *
+     * @param newSteps number of steps per 2*Pi radians (&ge;0, 0 &rarr; no
+     * quantization)
+     */
+    public void setPhaseSteps(int newSteps) {
+        Validate.nonNegative(newSteps, "number of steps");
+        phaseSteps = newSteps;
+    }
+
     /**
      * Alter the spin axis of the globe.
      *
@@ -314,6 +429,7 @@ public class GlobeRenderer extends SimpleAppState {
         Validate.nonZero(newAxis, "axis");
         Vector3f norm = newAxis.normalize();
         spinAxis.set(norm);
+        renderNeeded = true;
     }
 
     /**
@@ -352,8 +468,7 @@ public class GlobeRenderer extends SimpleAppState {
             Application application) {
         super.initialize(stateManager, application);
 
-        ViewPort offscreenViewPort = renderManager.createPreView(
-                preViewName, camera);
+        offscreenViewPort = renderManager.createPreView(preViewName, camera);
         offscreenViewPort.attachScene(offscreenRootNode);
         offscreenViewPort.setClearFlags(true, true, true);
         offscreenViewPort.setOutputFrameBuffer(frameBuffer);
@@ -369,10 +484,30 @@ public class GlobeRenderer extends SimpleAppState {
         fpp.setFrameBufferFormat(outputFormat);
         filter = new ContrastAdjustmentFilter(initialExponent);
         fpp.addFilter(filter);
+        offscreenViewPort.setEnabled(isEnabled());
+    }
+
+    /**
+     * Enable or disable this renderer. While disabled, no off-screen passes
+     * occur and the output texture retains its most recent render.
+     *
+     * @param newSetting true &rarr; enable, false &rarr; disable
+     */
+    @Override
+    public void setEnabled(boolean newSetting) {
+        super.setEnabled(newSetting);
+
+        if (offscreenViewPort != null) {
+            offscreenViewPort.setEnabled(newSetting);
+        }
+        if (newSetting) {
+            renderNeeded = true;
+        }
     }
 
     /**
-     * Update the off-screen scene.
+     * Update the off-screen scene, enabling the off-screen pass only if the
+     * globe's appearance has changed.
      *
      * @param tpf time interval between frames (in seconds, &ge;0)
      */
@@ -383,13 +518,19 @@ public class GlobeRenderer extends SimpleAppState {
          * spin the globe on its axis
          */
         float angle = spinRate * tpf;
-        Quaternion spin = new Quaternion().fromAngleNormalAxis(angle, spinAxis);
-        globe.rotate(spin);
-
-        updateFrustum();
+        if (angle != 0f) {
+            spin.fromAngleNormalAxis(angle, spinAxis);
+            globe.rotate(spin);
+            renderNeeded = true;
+        }
 
-        offscreenRootNode.updateLogicalState(tpf);
-        offscreenRootNode.updateGeometricState();
+        offscreenViewPort.setEnabled(renderNeeded);
+        if (renderNeeded) {
+            updateFrustum();
+            offscreenRootNode.updateLogicalState(tpf);
+            offscreenRootNode.updateGeometricState();
+            renderNeeded = false;
+        }
     }
     // *************************************************************************
     // private methods
@@ -82,6 +82,122 @@ import jme3utilities.mesh.DomeMesh;
  * @author Stephen Gold sgold@sonic.net
  */
 public class SkyControl extends SkyControlCore {
+    // *************************************************************************
+    // nested classes
+
+    /**
+     * Colors, intensities, and direction to be passed to the Updater.
+     */
+    static private class LightingSample {
+        /**
+         * color of the ambient light
+         */
+        final private ColorRGBA ambient = new ColorRGBA();
+        /**
+         * color for the haze, bottom dome, and viewport backgrounds
+         */
+        final private ColorRGBA base = new ColorRGBA();
+        /**
+         * color of the main light
+         */
+        final private ColorRGBA main = new ColorRGBA();
+        /**
+         * recommended bloom intensity (&ge;0)
+         */
+        private float bloomIntensity = 0f;
+        /**
+         * recommended shadow intensity (&le;1, &ge;0)
+         */
+        private float shadowIntensity = 0f;
+        /**
+         * world direction to the main light source (unit vector)
+         */
+        final private Vector3f direction = new Vector3f(0f, 1f, 0f);
+
+        /**
+         * Create a copy of this sample.
+         *
+         * @return a new instance, equivalent to this one
+         */
+        LightingSample copy() {
+            LightingSample result = new LightingSample();
+            result.set(this);
+            return result;
+        }
+
+        /**
+         * Interpolate between 2 samples and store the result in this one.
+         *
+         * @param fraction (&le;1, &ge;0)
+         * @param start sample for fraction=0 (not null, unaffected)
+         * @param end sample for fraction=1 (not null, unaffected)
+         */
+        void interpolate(float fraction, LightingSample start,
+                LightingSample end) {
+            if (fraction >= 1f) {
+                set(end);
+                return;
+            }
+
+            ambient.set(MyColor.interpolateLinear(fraction, start.ambient,
+                    end.ambient));
+            base.set(MyColor.interpolateLinear(fraction, start.base,
+                    end.base));
+            main.set(MyColor.interpolateLinear(fraction, start.main,
+                    end.main));
+            bloomIntensity = MyMath.lerp(fraction, start.bloomIntensity,
+                    end.bloomIntensity);
+            shadowIntensity = MyMath.lerp(fraction, start.shadowIntensity,
+                    end.shadowIntensity);
+            /*
+             * When the main light switches between sources, the interpolated
+             * direction may be too short to normalize.
+             */
+            direction.interpolateLocal(start.direction, end.direction,
+                    fraction);
+            if (direction.lengthSquared() > 0.01f) {
+                direction.normalizeLocal();
+            } else {
+                direction.set(end.direction);
+            }
+        }
+
+        /**
+         * Copy the specified sample to this one.
+         *
+         * @param source (not null, unaffected)
+         */
+        void set(LightingSample source) {
+            ambient.set(source.ambient);
+            base.set(source.base);
+            main.set(source.main);
+            bloomIntensity = source.bloomIntensity;
+            shadowIntensity = source.shadowIntensity;
+            direction.set(source.direction);
+        }
+
+        /**
+         * Alter all components of this sample.
+         *
+         * @param ambient color of the ambient light (not null, unaffected)
+         * @param base color for haze and backgrounds (not null, unaffected)
+         * @param main color of the main light (not null, unaffected)
+         * @param bloomIntensity recommended bloom intensity (&ge;0)
+         * @param shadowIntensity recommended shadow intensity (&le;1, &ge;0)
+         * @param direction world direction to the main light source (unit
+         * vector, unaffected)
+         */
+        void set(ColorRGBA ambient, ColorRGBA base, ColorRGBA main,
+                float bloomIntensity, float shadowIntensity,
+                Vector3f direction) {
+            this.ambient.set(ambient);
+            this.base.set(base);
+            this.main.set(main);
+            this.bloomIntensity = bloomIntensity;
+            this.shadowIntensity = shadowIntensity;
+            this.direction.set(direction);
+        }
+    }
     // *************************************************************************
     // constants and loggers
 
@@ -142,6 +258,11 @@ public class SkyControl extends SkyControlCore {
      * default)
      */
     private boolean cloudModulationFlag = false;
+    /**
+     * true if colors and lighting should be recomputed during the next update,
+     * regardless of the update policy
+     */
+    private boolean updateRequested = true;
     /**
      * texture scale for moon images; larger value gives a larger moon
      * <p>
@@ -154,10 +275,36 @@ public class SkyControl extends SkyControlCore {
      * The default value (0.08) exaggerates the sun's size by a factor of 8.
      */
     private float sunScale = 0.08f;
+    /**
+     * time since colors and lighting were last recomputed (in seconds, &ge;0)
+     */
+    private float timeSinceUpdate = 0f;
+    /**
+     * rate for recomputing colors and lighting under the FixedRate policy (in
+     * Hertz, &gt;0, default=10)
+     */
+    private float updateRate = 10f;
+    /**
+     * angle the sun or moon must move before colors and lighting are
+     * recomputed under the Threshold policy (in radians, &ge;0, default=0.005)
+     */
+    private float updateThreshold = 0.005f;
     /**
      * off-screen renderer for the moon
      */
     private GlobeRenderer moonRenderer = null;
+    /**
+     * lighting applied to the Updater during the most recent update
+     */
+    private LightingSample appliedLighting = new LightingSample();
+    /**
+     * lighting from which interpolation begins
+     */
+    private LightingSample previousLighting = new LightingSample();
+    /**
+     * lighting from the most recent recomputation
+     */
+    private LightingSample targetLighting = new LightingSample();
     /**
      * phase-of-the-moon preset (default is FULL)
      */
@@ -170,6 +317,21 @@ public class SkyControl extends SkyControlCore {
      * lights, shadows, and viewports to update
      */
     private Updater updater = null;
+    /**
+     * policy for scheduling recomputation of colors and lighting (default is
+     * EveryFrame)
+     */
+    private UpdatePolicy updatePolicy = UpdatePolicy.EveryFrame;
+    /**
+     * world direction to the moon at the most recent recomputation (unit
+     * vector or null)
+     */
+    private Vector3f lastMoonDirection = null;
+    /**
+     * world direction to the sun at the most recent recomputation (unit vector
+     * or null)
+     */
+    private Vector3f lastSunDirection = null;
     // *************************************************************************
     // constructors
 
@@ -276,6 +438,36 @@ public class SkyControl extends SkyControlCore {
         return updater;
     }
 
+    /**
+     * Read the policy for scheduling recomputation of colors and lighting.
+     *
+     * @return an enum value (not null)
+     */
+    public UpdatePolicy getUpdatePolicy() {
+        assert updatePolicy != null;
+        return updatePolicy;
+    }
+
+    /**
+     * Read the recomputation rate for the FixedRate policy.
+     *
+     * @return rate (in Hertz, &gt;0)
+     */
+    public float getUpdateRate() {
+        assert updateRate > 0f : updateRate;
+        return updateRate;
+    }
+
+    /**
+     * Read the threshold angle for the Threshold policy.
+     *
+     * @return angle (in radians, &ge;0)
+     */
+    public float getUpdateThreshold() {
+        assert updateThreshold >= 0f : updateThreshold;
+        return updateThreshold;
+    }
+
     /**
      * Calculate the angular diameter of the moon.
      *
@@ -304,6 +496,16 @@ public class SkyControl extends SkyControlCore {
         return worldDirection;
     }
 
+    /**
+     * Request that colors and lighting be recomputed during the next update,
+     * regardless of the update policy. Invoke this after altering the
+     * cloudiness or other parameters that affect lighting, unless the policy
+     * is EveryFrame.
+     */
+    public void requestUpdate() {
+        updateRequested = true;
+    }
+
     /**
      * Alter the cloud modulation flag.
      *
@@ -312,6 +514,7 @@ public class SkyControl extends SkyControlCore {
      */
     public void setCloudModulation(boolean newValue) {
         cloudModulationFlag = newValue;
+        updateRequested = true;
     }
 
     /**
@@ -365,6 +568,7 @@ public class SkyControl extends SkyControlCore {
             moonRenderer.setEnabled(false);
         }
         phase = newPreset;
+        updateRequested = true;
         if (newPreset != null) {
             longitudeDifference = newPreset.longitudeDifference();
             SkyMaterial topMaterial = getTopMaterial();
@@ -396,6 +600,7 @@ public class SkyControl extends SkyControlCore {
 
         moonRenderer.setEnabled(true);
         phase = LunarPhase.CUSTOM;
+        updateRequested = true;
         this.longitudeDifference = longitudeDifference;
         this.lunarLatitude = lunarLatitude;
 
@@ -432,6 +637,38 @@ public class SkyControl extends SkyControlCore {
         topMaterial.addObject(sunIndex, assetPath);
     }
 
+    /**
+     * Alter the policy for scheduling recomputation of colors and lighting.
+     *
+     * @param newPolicy (not null)
+     */
+    public void setUpdatePolicy(UpdatePolicy newPolicy) {
+        Validate.nonNull(newPolicy, "policy");
+
+        updatePolicy = newPolicy;
+        updateRequested = true;
+    }
+
+    /**
+     * Alter the recomputation rate for the FixedRate policy.
+     *
+     * @param newRate rate (in Hertz, &gt;0)
+     */
+    public void setUpdateRate(float newRate) {
+        Validate.positive(newRate, "rate");
+        updateRate = newRate;
+    }
+
+    /**
+     * Alter the threshold angle for the Threshold policy.
+     *
+     * @param newThreshold angle (in radians, &ge;0)
+     */
+    public void setUpdateThreshold(float newThreshold) {
+        Validate.nonNegative(newThreshold, "threshold");
+        updateThreshold = newThreshold;
+    }
+
     /**
      * Calculate the angular diameter of the sun.
      *
@@ -472,8 +709,13 @@ public class SkyControl extends SkyControlCore {
         super.cloneFields(cloner, original);
 
         moonRenderer = cloner.clone(moonRenderer);
+        appliedLighting = appliedLighting.copy();
+        previousLighting = previousLighting.copy();
+        targetLighting = targetLighting.copy();
         sunAndStars = cloner.clone(sunAndStars);
         updater = cloner.clone(updater);
+        lastMoonDirection = cloner.clone(lastMoonDirection);
+        lastSunDirection = cloner.clone(lastSunDirection);
     }
 
     /**
@@ -484,7 +726,7 @@ public class SkyControl extends SkyControlCore {
     @Override
     public void controlUpdate(float tpf) {
         super.controlUpdate(tpf);
-        updateAll();
+        updateAll(tpf);
     }
 
     /**
@@ -501,10 +743,15 @@ public class SkyControl extends SkyControlCore {
         cloudModulationFlag = ic.readBoolean("cloudModulationFlag", false);
         moonScale = ic.readFloat("moonScale", 0.02f);
         sunScale = ic.readFloat("sunScale", 0.08f);
+        updateRate = ic.readFloat("updateRate", 10f);
+        updateThreshold = ic.readFloat("updateThreshold", 0.005f);
         /* moon renderer not serialized */
         phase = ic.readEnum("phase", LunarPhase.class, LunarPhase.FULL);
         sunAndStars = (SunAndStars) ic.readSavable("sunAndStars", null);
         updater = (Updater) ic.readSavable("updater", null);
+        updatePolicy = ic.readEnum("updatePolicy", UpdatePolicy.class,
+                UpdatePolicy.EveryFrame);
+        updateRequested = true;
     }
 
     /**
@@ -521,14 +768,42 @@ public class SkyControl extends SkyControlCore {
         oc.write(cloudModulationFlag, "cloudModulationFlag", false);
         oc.write(moonScale, "moonScale", 0.02f);
         oc.write(sunScale, "sunScale", 0.08f);
+        oc.write(updateRate, "updateRate", 10f);
+        oc.write(updateThreshold, "updateThreshold", 0.005f);
         /* moon renderer not serialized */
         oc.write(phase, "phase", LunarPhase.FULL);
         oc.write(sunAndStars, "sunAndStars", null);
         oc.write(updater, "updater", null);
+        oc.write(updatePolicy, "updatePolicy", UpdatePolicy.EveryFrame);
     }
     // *************************************************************************
     // private methods
 
+    /**
+     * Apply the most recent lighting to the haze, bottom dome, and Updater,
+     * interpolating between recomputations if the policy is FixedRate.
+     */
+    private void applyLighting() {
+        float fraction = 1f;
+        if (updatePolicy == UpdatePolicy.FixedRate) {
+            fraction = FastMath.saturate(timeSinceUpdate * updateRate);
+        }
+        appliedLighting.interpolate(fraction, previousLighting,
+                targetLighting);
+
+        ColorRGBA baseColor = appliedLighting.base;
+        SkyMaterial topMaterial = getTopMaterial();
+        topMaterial.setHazeColor(baseColor);
+        Material bottomMaterial = getBottomMaterial();
+        if (bottomMaterial != null) {
+            bottomMaterial.setColor("Color", baseColor.clone());
+        }
+
+        updater.update(appliedLighting.ambient, baseColor,
+                appliedLighting.main, appliedLighting.bloomIntensity,
+                appliedLighting.shadowIntensity, appliedLighting.direction);
+    }
+
     /**
      * Compute where mainDirection intersects the cloud dome in the dome's local
      * coordinates, accounting for the dome's flattening and vertical offset.
@@ -536,7 +811,7 @@ public class SkyControl extends SkyControlCore {
      * @param mainDirection (unit vector with non-negative y-component)
      * @return new unit vector
      */
-    private Vector3f intersectCloudDome(Vector3f mainDirection) {
+    Vector3f intersectCloudDome(Vector3f mainDirection) {
         assert mainDirection != null;
         assert mainDirection.isUnitVector() : mainDirection;
         assert mainDirection.y >= 0f : mainDirection;
@@ -600,6 +875,54 @@ public class SkyControl extends SkyControlCore {
         return result;
     }
 
+    /**
+     * Test whether colors and lighting should be recomputed, based on the
+     * update policy.
+     *
+     * @param sunDirection world direction to the sun (length=1)
+     * @param moonDirection world direction to the moon (length=1 or null)
+     * @return true if recomputation is due, otherwise false
+     */
+    private boolean isRecomputeDue(Vector3f sunDirection,
+            Vector3f moonDirection) {
+        if (updateRequested || lastSunDirection == null) {
+            return true;
+        }
+
+        boolean result;
+        switch (updatePolicy) {
+            case EveryFrame:
+                result = true;
+                break;
+
+            case FixedRate:
+                result = timeSinceUpdate * updateRate >= 1f;
+                break;
+
+            case Manual:
+                result = false;
+                break;
+
+            case Threshold:
+                float minDot = FastMath.cos(updateThreshold);
+                if (sunDirection.dot(lastSunDirection) < minDot) {
+                    result = true;
+                } else if (moonDirection == null) {
+                    result = lastMoonDirection != null;
+                } else if (lastMoonDirection == null) {
+                    result = true;
+                } else {
+                    result = moonDirection.dot(lastMoonDirection) < minDot;
+                }
+                break;
+
+            default:
+                throw new IllegalStateException(updatePolicy.toString());
+        }
+
+        return result;
+    }
+
     /**
      * Compute the clockwise (left-handed) rotation of the moon's texture
      * relative to the sky's texture.
@@ -649,8 +972,10 @@ public class SkyControl extends SkyControlCore {
 
     /**
      * Update astronomical objects, sky color, lighting, and stars.
+     *
+     * @param tpf time interval between frames (in seconds, &ge;0)
      */
-    private void updateAll() {
+    private void updateAll(float tpf) {
         /*
          * Daytime sky color is phased in during the twilight periods
          * before sunrise and after sunset. Update the sky material's
@@ -663,7 +988,24 @@ public class SkyControl extends SkyControlCore {
         topMaterial.setClearColor(clearColor);
 
         Vector3f moonDirection = updateMoon();
-        updateLighting(sunDirection, moonDirection);
+        /*
+         * Recompute colors and lighting only as often as the policy requires.
+         */
+        timeSinceUpdate += tpf;
+        if (isRecomputeDue(sunDirection, moonDirection)) {
+            boolean firstTime = lastSunDirection == null;
+            updateLighting(sunDirection, moonDirection);
+            if (firstTime) {
+                previousLighting.set(targetLighting);
+            } else {
+                previousLighting.set(appliedLighting);
+            }
+            lastMoonDirection = moonDirection;
+            lastSunDirection = sunDirection;
+            timeSinceUpdate = 0f;
+            updateRequested = false;
+        }
+        applyLighting();
 
         Node starsNode = getStarsNode();
         if (starsNode != null) {
@@ -672,8 +1014,8 @@ public class SkyControl extends SkyControlCore {
     }
 
     /**
-     * Update background colors, cloud colors, haze color, sun color, lights,
-     * and shadows.
+     * Recompute background colors, cloud colors, haze color, sun color,
+     * lights, and shadows, storing the results in targetLighting.
      *
      * @param sunDirection world direction to the sun (length=1)
      * @param moonDirection world direction to the moon (length=1 or null)
@@ -734,13 +1076,6 @@ public class SkyControl extends SkyControlCore {
             float nightWeight = FastMath.saturate(-sineSolarAltitude / 0.04f);
             baseColor = MyColor.interpolateLinear(nightWeight, twilight, blend);
         }
-        SkyMaterial topMaterial = getTopMaterial();
-        topMaterial.setHazeColor(baseColor);
-        Material bottomMaterial = getBottomMaterial();
-        if (bottomMaterial != null) {
-            bottomMaterial.setColor("Color", baseColor.clone());
-        }
-
         ColorRGBA cloudsColor = updateCloudsColor(baseColor, sunUp, moonUp);
         /*
          * Determine what fraction of the main light passes through the clouds.
@@ -805,7 +1140,7 @@ public class SkyControl extends SkyControlCore {
         float bloomIntensity = 6f * sineSolarAltitude;
         bloomIntensity = FastMath.clamp(bloomIntensity, 0f, 1.7f);
 
-        updater.update(ambient, baseColor, main, bloomIntensity,
+        targetLighting.set(ambient, baseColor, main, bloomIntensity,
                 shadowIntensity, mainDirection);
     }
 
@@ -823,10 +1158,14 @@ public class SkyControl extends SkyControlCore {
         }
         if (phase == LunarPhase.CUSTOM) {
             assert moonRenderer != null;
-            float intensity;
-            intensity = 2f + FastMath.abs(longitudeDifference - FastMath.PI);
-            moonRenderer.setLightIntensity(intensity);
             moonRenderer.setPhase(longitudeDifference, lunarLatitude);
+            /*
+             * Base the intensity on the (possibly quantized) phase, so that
+             * the renderer can skip frames in which the phase is unchanged.
+             */
+            float theta = moonRenderer.getPhaseTheta();
+            float intensity = 2f + FastMath.abs(theta - FastMath.PI);
+            moonRenderer.setLightIntensity(intensity);
         }
         /*
          * Compute the UV coordinates of the center of the moon.
@@ -43,11 +43,15 @@ import com.jme3.renderer.ViewPort;
 import com.jme3.renderer.queue.RenderQueue.Bucket;
 import com.jme3.renderer.queue.RenderQueue.ShadowMode;
 import com.jme3.scene.Geometry;
+import com.jme3.scene.Mesh;
 import com.jme3.scene.Node;
 import com.jme3.scene.Spatial;
 import com.jme3.texture.Texture;
 import com.jme3.util.clone.Cloner;
 import java.io.IOException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import jme3utilities.MyAsset;
@@ -74,7 +78,15 @@ import jme3utilities.mesh.DomeMesh;
  * To simulate star motion, additional geometries are added: either 2 domes or a
  * cube.
  * <p>
+ * Star maps can be loaded from assets by invoking setStarMaps() or generated
+ * from a StarCatalog by invoking generateStarMaps().
+ * <p>
  * For scenes with low horizons, an optional "bottom" dome can also be added.
+ * <p>
+ * The domes are generated with several levels of detail. For each viewport,
+ * the control selects a level based on the viewport's height and an optional
+ * triangle budget, so that small render targets (such as reflections and
+ * minimaps) render coarser domes.
  *
  * @author Stephen Gold sgold@sonic.net
  */
@@ -86,6 +98,10 @@ public class SkyControlCore extends SubtreeControl {
      * maximum number of cloud layers
      */
     final protected static int numCloudLayers = 6;
+    /**
+     * number of levels of detail to generate for each dome (&ge;1)
+     */
+    final private static int numLodLevels = 3;
     /**
      * number of samples in each longitudinal arc of a major dome, including
      * both its top and its rim (&ge;2)
@@ -176,6 +192,11 @@ public class SkyControlCore extends SubtreeControl {
      * rate of motion for cloud layer animations (default is 1, may be negative)
      */
     private float cloudsRate = 1f;
+    /**
+     * dome geometries whose levels of detail are selected per viewport
+     * (found lazily, null until first needed)
+     */
+    private Geometry[] lodDomes = null;
     /**
      * the difference in celestial longitude (lambda) between the moon and the
      * sun (in radians, measured eastward from the sun, default is Pi)
@@ -187,10 +208,26 @@ public class SkyControlCore extends SubtreeControl {
      * 0.09)
      */
     protected float lunarLatitude = 0f;
+    /**
+     * viewport height (in pixels) at or above which the domes are rendered at
+     * full detail; each halving of the height selects the next coarser level
+     * (&ge;0, default is 0, 0 &rarr; always full detail)
+     */
+    private int lodFullHeight = 0;
+    /**
+     * maximum number of dome triangles to render in each viewport (&ge;0,
+     * default is 0, 0 &rarr; no limit)
+     */
+    private int lodTriangleBudget = 0;
     /**
      * how stars are rendered: set by constructor
      */
     protected StarsOption starsOption;
+    /**
+     * star maps being generated, to be swapped in during an update once they
+     * are done (null if none)
+     */
+    private FutureTask<Texture[]> starMapTask = null;
     // *************************************************************************
     // constructors
 
@@ -324,6 +361,7 @@ public class SkyControlCore extends SubtreeControl {
      * Clear the star maps.
      */
     public void clearStarMaps() {
+        cancelStarMapTask();
         switch (starsOption) {
             case Cube:
             case TwoDomes:
@@ -340,6 +378,55 @@ public class SkyControlCore extends SubtreeControl {
         }
     }
 
+    /**
+     * Generate star maps from a catalog, replacing any existing star maps, for
+     * instance to simulate an observer latitude for which no pre-generated
+     * maps exist. If an executor is specified, the maps are generated
+     * asynchronously and swapped in during the first update (while enabled)
+     * after they are done. Any previous generation still in progress is
+     * canceled. Not implemented for starsOption==Cube.
+     *
+     * @param catalog the stars to plot (not null, alias created)
+     * @param latitude the observer's latitude, used only if
+     * starsOption==TopDome (radians north of the equator, &le;Pi/2, &ge;-Pi/2)
+     * @param siderealHour hours since sidereal midnight, used only if
+     * starsOption==TopDome (&ge;0, &lt;24)
+     * @param textureSize size of each texture map (pixels per side, &gt;2)
+     * @param executor executor for the worker thread, or null to generate the
+     * maps on the current thread and swap them in immediately
+     */
+    public void generateStarMaps(StarCatalog catalog, float latitude,
+            float siderealHour, int textureSize, Executor executor) {
+        Validate.nonNull(catalog, "catalog");
+        Validate.inRange(latitude, "latitude", -FastMath.HALF_PI,
+                FastMath.HALF_PI);
+        if (!(siderealHour >= 0f && siderealHour < Constants.hoursPerDay)) {
+            logger.log(Level.SEVERE, "siderealHour={0}", siderealHour);
+            throw new IllegalArgumentException(
+                    "sidereal hour should be between 0 and 24");
+        }
+        Validate.inRange(textureSize, "texture size", 3, Integer.MAX_VALUE);
+        if (starsOption == StarsOption.Cube) {
+            throw new IllegalStateException(
+                    "star-map generation not implemented for cubes");
+        }
+
+        cancelStarMapTask();
+        float siderealTime
+                = siderealHour * FastMath.TWO_PI / Constants.hoursPerDay;
+        StarMapTask callable = new StarMapTask(catalog, starsOption, latitude,
+                siderealTime, textureSize);
+        FutureTask<Texture[]> task = new FutureTask<>(callable);
+        if (executor == null) {
+            task.run();
+            starMapTask = task;
+            swapInStarMaps();
+        } else {
+            starMapTask = task;
+            executor.execute(task);
+        }
+    }
+
     /**
      * Access the indexed cloud layer.
      *
@@ -380,6 +467,28 @@ public class SkyControlCore extends SubtreeControl {
         return result;
     }
 
+    /**
+     * Read the viewport height for full-detail domes.
+     *
+     * @return height (in pixels, &ge;0, 0 &rarr; always full detail)
+     * @see #setLodFullHeight(int)
+     */
+    public int getLodFullHeight() {
+        assert lodFullHeight >= 0 : lodFullHeight;
+        return lodFullHeight;
+    }
+
+    /**
+     * Read the triangle budget for the domes.
+     *
+     * @return number of triangles per viewport (&ge;0, 0 &rarr; no limit)
+     * @see #setLodTriangleBudget(int)
+     */
+    public int getLodTriangleBudget() {
+        assert lodTriangleBudget >= 0 : lodTriangleBudget;
+        return lodTriangleBudget;
+    }
+
     /**
      * Read the difference in celestial longitude (lambda) between the moon and
      * the sun.
@@ -436,6 +545,71 @@ public class SkyControlCore extends SubtreeControl {
         return result;
     }
 
+    /**
+     * Select a level of detail for each of the specified domes, based on the
+     * viewport's height and the triangle budget. Invoked once per viewport,
+     * just before the domes are rendered to it.
+     *
+     * @param geometries the dome geometries of the sky node or a sky-view node
+     * (not null, not empty)
+     * @param viewPort the viewport where the domes will be rendered (not null)
+     */
+    void selectLodLevels(Geometry[] geometries, ViewPort viewPort) {
+        if (lodFullHeight == 0 && lodTriangleBudget == 0) {
+            /*
+             * Restore full detail, in case the domes were coarsened
+             * before LOD selection was disabled.
+             */
+            for (Geometry geometry : geometries) {
+                if (geometry.getLodLevel() != 0) {
+                    geometry.setLodLevel(0);
+                }
+            }
+            return;
+        }
+
+        int maxLevel = 0;
+        for (Geometry geometry : geometries) {
+            int numLevels = geometry.getMesh().getNumLodLevels();
+            maxLevel = Math.max(maxLevel, numLevels - 1);
+        }
+        if (maxLevel == 0) {
+            return;
+        }
+        /*
+         * Coarsen the domes by one level for each halving of the
+         * viewport's height.
+         */
+        int level = 0;
+        if (lodFullHeight > 0) {
+            Camera viewCamera = viewPort.getCamera();
+            float fraction = viewCamera.getViewPortTop()
+                    - viewCamera.getViewPortBottom();
+            float height = Math.max(1f, fraction * viewCamera.getHeight());
+            while (level < maxLevel && 2f * height <= lodFullHeight) {
+                height *= 2f;
+                ++level;
+            }
+        }
+        /*
+         * Coarsen them further until they fit the triangle budget.
+         */
+        if (lodTriangleBudget > 0) {
+            while (level < maxLevel
+                    && countTriangles(geometries, level) > lodTriangleBudget) {
+                ++level;
+            }
+        }
+
+        for (Geometry geometry : geometries) {
+            int numLevels = geometry.getMesh().getNumLodLevels();
+            if (numLevels > 0) {
+                int geometryLevel = Math.min(level, numLevels - 1);
+                geometry.setLodLevel(geometryLevel);
+            }
+        }
+    }
+
     /**
      * Alter which camera to track.
      *
@@ -509,6 +683,32 @@ public class SkyControlCore extends SubtreeControl {
         topMaterial.addObject(objectIndex, newColorMap);
     }
 
+    /**
+     * Alter the viewport height for full-detail domes. Viewports at least this
+     * tall render the domes at full detail. Each halving of the height selects
+     * the next coarser level of detail.
+     *
+     * @param newHeight height (in pixels, &ge;0, 0 &rarr; always full detail,
+     * default is 0)
+     */
+    public void setLodFullHeight(int newHeight) {
+        Validate.nonNegative(newHeight, "new height");
+        lodFullHeight = newHeight;
+    }
+
+    /**
+     * Alter the triangle budget for the domes. In each viewport, the finest
+     * level of detail that fits the budget is used, unless the viewport's
+     * height selects an even coarser one.
+     *
+     * @param newBudget number of triangles per viewport (&ge;0, 0 &rarr; no
+     * limit, default is 0)
+     */
+    public void setLodTriangleBudget(int newBudget) {
+        Validate.nonNegative(newBudget, "new budget");
+        lodTriangleBudget = newBudget;
+    }
+
     /**
      * Alter the stabilize flag.
      *
@@ -530,6 +730,7 @@ public class SkyControlCore extends SubtreeControl {
      */
     final public void setStarMaps(String assetName) {
         Validate.nonEmpty(assetName, "asset name");
+        cancelStarMapTask();
 
         Node starNode;
         switch (starsOption) {
@@ -777,6 +978,8 @@ public class SkyControlCore extends SubtreeControl {
 
         camera = cloner.clone(camera);
         cloudLayers = cloner.clone(cloudLayers);
+        lodDomes = null;
+        starMapTask = null;
     }
 
     /**
@@ -788,6 +991,7 @@ public class SkyControlCore extends SubtreeControl {
     @Override
     public void controlUpdate(float updateInterval) {
         super.controlUpdate(updateInterval);
+        swapInStarMaps();
 
         if (camera == null) {
             return;
@@ -842,6 +1046,8 @@ public class SkyControlCore extends SubtreeControl {
 
         cloudsAnimationTime = ic.readFloat("cloudsAnimationTime", 0f);
         cloudsRate = ic.readFloat("cloudsRelativeSpeed", 1f);
+        lodFullHeight = ic.readInt("lodFullHeight", 0);
+        lodTriangleBudget = ic.readInt("lodTriangleBudget", 0);
         lunarLatitude = ic.readFloat("lunarLatitude", 0f);
         longitudeDifference = ic.readFloat("phaseAngle", FastMath.PI);
     }
@@ -858,6 +1064,7 @@ public class SkyControlCore extends SubtreeControl {
             final ViewPort viewPort) {
         super.render(renderManager, viewPort);
         camera = viewPort.getCamera();
+        selectLodLevels(getLodDomes(), viewPort);
     }
 
     /**
@@ -877,12 +1084,74 @@ public class SkyControlCore extends SubtreeControl {
         oc.write(cloudLayers, "cloudLayers", null);
         oc.write(cloudsAnimationTime, "cloudsAnimationTime", 0f);
         oc.write(cloudsRate, "cloudsRelativeSpeed", 1f);
+        oc.write(lodFullHeight, "lodFullHeight", 0);
+        oc.write(lodTriangleBudget, "lodTriangleBudget", 0);
         oc.write(lunarLatitude, "lunarLatitude", 0f);
         oc.write(longitudeDifference, "phaseAngle", FastMath.PI);
     }
     // *************************************************************************
     // private methods
 
+    /**
+     * Apply generated star maps.
+     *
+     * @param textures one texture for TopDome or northern and southern
+     * textures for TwoDomes (not null)
+     */
+    private void applyStarMaps(Texture[] textures) {
+        assert textures != null;
+
+        switch (starsOption) {
+            case TopDome:
+                SkyMaterial topMaterial = getTopMaterial();
+                topMaterial.addStars(textures[0]);
+                break;
+
+            case TwoDomes:
+                removeStarsNode();
+                Node starNode = createStarMapDomes(textures[0], textures[1]);
+                subtree.attachChildAt(starNode, 0);
+                break;
+
+            default:
+                throw new IllegalStateException();
+        }
+    }
+
+    /**
+     * Cancel any star-map generation in progress.
+     */
+    private void cancelStarMapTask() {
+        if (starMapTask != null) {
+            starMapTask.cancel(false);
+            starMapTask = null;
+        }
+    }
+
+    /**
+     * Count the triangles the specified geometries would render at the
+     * specified level of detail.
+     *
+     * @param geometries the geometries to count (not null, unaffected)
+     * @param level the level of detail (&ge;0)
+     * @return the total count (&ge;0)
+     */
+    private static int countTriangles(Geometry[] geometries, int level) {
+        int result = 0;
+        for (Geometry geometry : geometries) {
+            Mesh mesh = geometry.getMesh();
+            int numLevels = mesh.getNumLodLevels();
+            if (numLevels > 0) {
+                int meshLevel = Math.min(level, numLevels - 1);
+                result += mesh.getTriangleCount(meshLevel);
+            } else {
+                result += mesh.getTriangleCount();
+            }
+        }
+
+        return result;
+    }
+
     /**
      * Create and initialize the sky node and all its dome geometries.
      *
@@ -914,6 +1183,7 @@ public class SkyControlCore extends SubtreeControl {
                 setStarMaps("Textures/skies/star-maps");
                 break;
         }
+        hemisphereMesh.setMaxLodLevels(numLodLevels);
         Geometry topDome = new Geometry(topName, hemisphereMesh.clone());
         subtree.attachChild(topDome);
         topDome.setMaterial(topMaterial);
@@ -921,6 +1191,7 @@ public class SkyControlCore extends SubtreeControl {
         if (bottomDomeFlag) {
             DomeMesh bottomMesh = new DomeMesh(numRimSamples, 2, Constants.topU,
                     Constants.topV, Constants.uvScale, true);
+            bottomMesh.setMaxLodLevels(numLodLevels);
             Geometry bottomDome = new Geometry(bottomName, bottomMesh);
             subtree.attachChild(bottomDome);
 
@@ -957,13 +1228,33 @@ public class SkyControlCore extends SubtreeControl {
     private Node createStarMapDomes(String assetPath) {
         assert assetPath != null;
 
+        String northAssetPath = assetPath + "/northern.png";
+        Texture northMap = MyAsset.loadTexture(assetManager, northAssetPath);
+        String southAssetPath = assetPath + "/southern.png";
+        Texture southMap = MyAsset.loadTexture(assetManager, southAssetPath);
+        Node starNode = createStarMapDomes(northMap, southMap);
+
+        return starNode;
+    }
+
+    /**
+     * Apply star maps to a sphere formed by 2 domes, one for the northern
+     * hemisphere and one for the southern hemisphere.
+     *
+     * @param northMap texture for the northern hemisphere (not null)
+     * @param southMap texture for the southern hemisphere (not null)
+     * @return a new, orphan node
+     */
+    private Node createStarMapDomes(Texture northMap, Texture southMap) {
+        assert northMap != null;
+        assert southMap != null;
+
         Node starNode = new Node(starsNodeName);
 
         Geometry northGeometry = new Geometry("northern stars", hemisphereMesh);
         starNode.attachChild(northGeometry);
-        String northAssetPath = assetPath + "/northern.png";
         Material northMaterial
-                = MyAsset.createUnshadedMaterial(assetManager, northAssetPath);
+                = MyAsset.createUnshadedMaterial(assetManager, northMap);
         northGeometry.setMaterial(northMaterial);
 
         Quaternion orientNorth = new Quaternion();
@@ -973,9 +1264,8 @@ public class SkyControlCore extends SubtreeControl {
         Geometry southGeometry
                 = new Geometry("southern stars", hemisphereMesh);
         starNode.attachChild(southGeometry);
-        String southAssetPath = assetPath + "/southern.png";
         Material southMaterial
-                = MyAsset.createUnshadedMaterial(assetManager, southAssetPath);
+                = MyAsset.createUnshadedMaterial(assetManager, southMap);
         southGeometry.setMaterial(southMaterial);
 
         Quaternion orientSouth = new Quaternion();
@@ -985,6 +1275,44 @@ public class SkyControlCore extends SubtreeControl {
         return starNode;
     }
 
+    /**
+     * Access the dome geometries whose levels of detail are selected per
+     * viewport, finding them on first use. The domes are created along with
+     * the sky node and never replaced, so the result remains valid until the
+     * control is cloned.
+     *
+     * @return the internal array (not null, not empty)
+     */
+    private Geometry[] getLodDomes() {
+        if (lodDomes == null) {
+            Geometry topDome = getTopDome();
+            Geometry bottomDome = getBottomDome();
+            Geometry cloudsOnlyDome = getCloudsOnlyDome();
+
+            int numDomes = 1;
+            if (bottomDome != null) {
+                ++numDomes;
+            }
+            if (cloudsOnlyDome != null) {
+                ++numDomes;
+            }
+            lodDomes = new Geometry[numDomes];
+
+            int domeIndex = 0;
+            lodDomes[domeIndex] = topDome;
+            if (bottomDome != null) {
+                ++domeIndex;
+                lodDomes[domeIndex] = bottomDome;
+            }
+            if (cloudsOnlyDome != null) {
+                ++domeIndex;
+                lodDomes[domeIndex] = cloudsOnlyDome;
+            }
+        }
+
+        return lodDomes;
+    }
+
     /**
      * Remove the stars node (if it exists) from the scene graph.
      */
@@ -996,6 +1324,27 @@ public class SkyControlCore extends SubtreeControl {
         }
     }
 
+    /**
+     * If star-map generation is done, swap in the new maps.
+     */
+    private void swapInStarMaps() {
+        if (starMapTask == null || !starMapTask.isDone()) {
+            return;
+        }
+
+        FutureTask<Texture[]> task = starMapTask;
+        starMapTask = null;
+        try {
+            Texture[] textures = task.get();
+            applyStarMaps(textures);
+        } catch (ExecutionException exception) {
+            logger.log(Level.WARNING, "star-map generation failed",
+                    exception.getCause());
+        } catch (InterruptedException exception) {
+            logger.log(Level.WARNING, "interrupted", exception);
+        }
+    }
+
     /**
      * Update the cloud layers. (Invoked once per frame.)
      *
@@ -219,6 +219,17 @@ public class SkyMaterial extends SkyMaterialCore {
         Validate.nonNull(assetPath, "path");
 
         Texture colorMap = MyAsset.loadTexture(assetManager, assetPath);
+        addStars(colorMap);
+    }
+
+    /**
+     * Add stars to this material using the specified color map, for instance
+     * one generated by StarMapGenerator.
+     *
+     * @param colorMap (not null, alias created)
+     */
+    public void addStars(Texture colorMap) {
+        Validate.nonNull(colorMap, "color map");
         setTexture("StarsColorMap", colorMap);
     }
 
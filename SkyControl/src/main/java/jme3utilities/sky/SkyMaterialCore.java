@@ -41,6 +41,7 @@ import com.jme3.texture.Image;
 import com.jme3.texture.Texture;
 import com.jme3.texture.image.ImageRaster;
 import java.io.IOException;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 import jme3utilities.MyAsset;
 import jme3utilities.Validate;
@@ -72,6 +73,11 @@ public class SkyMaterialCore extends Material {
      * constructor
      */
     protected AssetManager assetManager;
+    /**
+     * red channel of each cloud layer, captured once for transmission lookups
+     * (one byte per pixel, row-major order, each may be null)
+     */
+    private byte[][] cloudReds;
     /**
      * maximum opacity of each cloud layer (&le;1, &ge;0)
      */
@@ -87,14 +93,18 @@ public class SkyMaterialCore extends Material {
     /**
      * image of each cloud layer
      * <p>
-     * Since ImageRaster does not implement Savable, these are retained for use
-     * by write().
+     * Since the captured red channels are not serialized, these are retained
+     * for use by write().
      */
     private Image[] cloudImages;
     /**
-     * cached rasterization of each cloud layer
+     * height of each captured red channel (in pixels, each &ge;0)
      */
-    private ImageRaster[] cloudsRaster;
+    private int[] cloudHeights;
+    /**
+     * width of each captured red channel (in pixels, each &ge;0)
+     */
+    private int[] cloudWidths;
     /**
      * maximum number of cloud layers (&ge;0)
      */
@@ -125,9 +135,11 @@ public class SkyMaterialCore extends Material {
     public SkyMaterialCore() {
         assetManager = null;
         cloudAlphas = null;
+        cloudHeights = null;
         cloudImages = null;
+        cloudReds = null;
         cloudScales = null;
-        cloudsRaster = null;
+        cloudWidths = null;
         cloudOffsets = null;
         maxCloudLayers = 0;
         maxObjects = 0;
@@ -159,10 +171,12 @@ public class SkyMaterialCore extends Material {
         this.maxCloudLayers = maxCloudLayers;
 
         cloudAlphas = new float[maxCloudLayers];
+        cloudHeights = new int[maxCloudLayers];
         cloudImages = new Image[maxCloudLayers];
         cloudOffsets = new Vector2f[maxCloudLayers];
-        cloudsRaster = new ImageRaster[maxCloudLayers];
+        cloudReds = new byte[maxCloudLayers][];
         cloudScales = new float[maxCloudLayers];
+        cloudWidths = new int[maxCloudLayers];
 
         objectCenters = new Vector2f[maxObjects];
         objectRotations = new Vector2f[maxObjects];
@@ -182,7 +196,7 @@ public class SkyMaterialCore extends Material {
         validateLayerIndex(layerIndex);
         Validate.nonNull(assetPath, "path");
 
-        boolean firstTime = (cloudsRaster[layerIndex] == null);
+        boolean firstTime = (cloudReds[layerIndex] == null);
 
         Texture alphaMap = MyAsset.loadTexture(assetManager, assetPath);
         alphaMap.setWrap(Texture.WrapMode.Repeat);
@@ -191,7 +205,7 @@ public class SkyMaterialCore extends Material {
 
         Image image = alphaMap.getImage();
         cloudImages[layerIndex] = image;
-        cloudsRaster[layerIndex] = ImageRaster.create(image);
+        captureRed(layerIndex);
 
         if (firstTime) {
             cloudOffsets[layerIndex] = new Vector2f();
@@ -233,7 +247,7 @@ public class SkyMaterialCore extends Material {
      */
     public ColorRGBA copyCloudsColor(int layerIndex) {
         validateLayerIndex(layerIndex);
-        if (cloudsRaster[layerIndex] == null) {
+        if (cloudReds[layerIndex] == null) {
             throw new IllegalStateException("layer not yet added");
         }
 
@@ -253,7 +267,7 @@ public class SkyMaterialCore extends Material {
      */
     public ColorRGBA copyCloudsGlow(int layerIndex) {
         validateLayerIndex(layerIndex);
-        if (cloudsRaster[layerIndex] == null) {
+        if (cloudReds[layerIndex] == null) {
             throw new IllegalStateException("layer not yet added");
         }
 
@@ -272,7 +286,7 @@ public class SkyMaterialCore extends Material {
      */
     public Vector2f copyCloudsOffset(int layerIndex) {
         validateLayerIndex(layerIndex);
-        if (cloudsRaster[layerIndex] == null) {
+        if (cloudReds[layerIndex] == null) {
             throw new IllegalStateException("layer not yet added");
         }
 
@@ -396,7 +410,7 @@ public class SkyMaterialCore extends Material {
      */
     public float getCloudsScale(int layerIndex) {
         validateLayerIndex(layerIndex);
-        if (cloudsRaster[layerIndex] == null) {
+        if (cloudReds[layerIndex] == null) {
             throw new IllegalStateException("layer not yet added");
         }
 
@@ -469,16 +483,47 @@ public class SkyMaterialCore extends Material {
     public float getTransmission(Vector2f skyCoordinates) {
         Validate.nonNull(skyCoordinates, "coordinates");
 
-        float result = 1f;
-        for (int layerIndex = 0; layerIndex < maxCloudLayers; layerIndex++) {
-            if (cloudsRaster[layerIndex] != null) {
-                float transparency = transparency(layerIndex, skyCoordinates);
-                result *= transparency;
-            }
+        float result = transmission(skyCoordinates.x, skyCoordinates.y);
+        return result;
+    }
+
+    /**
+     * Estimate how much light is transmitted through the clouds at each of
+     * the specified texture coordinates, without allocating any objects. This
+     * is useful for estimating cloud cover at many points, such as the
+     * directions to many objects.
+     *
+     * @param skyCoordinates pairs of texture coordinates (u0, v0, u1, v1, ...)
+     * (not null, even length, unaffected)
+     * @param storeResult storage for the results (length &ge; half the length
+     * of skyCoordinates) or null
+     * @return fractions of light transmitted (each &le;1, &ge;0; either
+     * storeResult or a new array)
+     */
+    public float[] getTransmission(float[] skyCoordinates,
+            float[] storeResult) {
+        Validate.nonNull(skyCoordinates, "coordinates");
+        int numPoints = skyCoordinates.length / 2;
+        if (skyCoordinates.length != 2 * numPoints) {
+            logger.log(Level.SEVERE, "length={0}", skyCoordinates.length);
+            throw new IllegalArgumentException(
+                    "length of coordinates array should be even");
+        }
+        float[] result;
+        if (storeResult == null) {
+            result = new float[numPoints];
+        } else {
+            Validate.inRange(storeResult.length, "length of result array",
+                    numPoints, Integer.MAX_VALUE);
+            result = storeResult;
+        }
+
+        for (int pointIndex = 0; pointIndex < numPoints; pointIndex++) {
+            float u = skyCoordinates[2 * pointIndex];
+            float v = skyCoordinates[2 * pointIndex + 1];
+            result[pointIndex] = transmission(u, v);
         }
 
-        assert result >= Constants.alphaMin : result;
-        assert result <= Constants.alphaMax : result;
         return result;
     }
 
@@ -523,7 +568,7 @@ public class SkyMaterialCore extends Material {
     public void setCloudsColor(int layerIndex, ColorRGBA newColor) {
         validateLayerIndex(layerIndex);
         Validate.nonNull(newColor, "color");
-        if (cloudsRaster[layerIndex] == null) {
+        if (cloudReds[layerIndex] == null) {
             throw new IllegalStateException("layer not yet added");
         }
 
@@ -541,7 +586,7 @@ public class SkyMaterialCore extends Material {
     public void setCloudsGlow(int layerIndex, ColorRGBA newColor) {
         validateLayerIndex(layerIndex);
         Validate.nonNull(newColor, "color");
-        if (cloudsRaster[layerIndex] == null) {
+        if (cloudReds[layerIndex] == null) {
             throw new IllegalStateException("layer not yet added");
         }
 
@@ -558,7 +603,7 @@ public class SkyMaterialCore extends Material {
      */
     public void setCloudsOffset(int layerIndex, float newU, float newV) {
         validateLayerIndex(layerIndex);
-        if (cloudsRaster[layerIndex] == null) {
+        if (cloudReds[layerIndex] == null) {
             throw new IllegalStateException("layer not yet added");
         }
 
@@ -580,7 +625,7 @@ public class SkyMaterialCore extends Material {
     public void setCloudsScale(int layerIndex, float newScale) {
         validateLayerIndex(layerIndex);
         Validate.positive(newScale, "scale");
-        if (cloudsRaster[layerIndex] == null) {
+        if (cloudReds[layerIndex] == null) {
             throw new IllegalStateException("layer not yet added");
         }
 
@@ -800,13 +845,12 @@ public class SkyMaterialCore extends Material {
         maxCloudLayers = cloudImages.length;
         maxObjects = objectCenters.length;
 
-        cloudsRaster = new ImageRaster[maxCloudLayers];
+        cloudHeights = new int[maxCloudLayers];
+        cloudReds = new byte[maxCloudLayers][];
+        cloudWidths = new int[maxCloudLayers];
         for (int layerIndex = 0; layerIndex < maxCloudLayers; layerIndex++) {
-            Image image = cloudImages[layerIndex];
-            if (image == null) {
-                cloudsRaster[layerIndex] = null;
-            } else {
-                cloudsRaster[layerIndex] = ImageRaster.create(image);
+            if (cloudImages[layerIndex] != null) {
+                captureRed(layerIndex);
             }
         }
     }
@@ -836,78 +880,147 @@ public class SkyMaterialCore extends Material {
     // private methods
 
     /**
-     * Estimate how much light is transmitted through an indexed cloud layer at
-     * the specified texture coordinates.
+     * Capture the red channel of an indexed cloud layer's image, so that
+     * transmission can be estimated without decoding pixels.
      *
      * @param layerIndex (&lt;maxCloudLayers, &ge;0)
-     * @param skyCoordinates (unaffected, not null)
-     * @return fraction of light transmitted (&le;1, &ge;0)
      */
-    private float transparency(int layerIndex, Vector2f skyCoordinates) {
-        assert layerIndex >= 0 : layerIndex;
-        assert layerIndex < maxCloudLayers : layerIndex;
-        assert skyCoordinates != null;
-        assert cloudsRaster[layerIndex] != null : layerIndex;
-
-        Vector2f coord = skyCoordinates.mult(cloudScales[layerIndex]);
-        coord.addLocal(cloudOffsets[layerIndex]);
-        coord.x = MyMath.modulo(coord.x, Constants.uvMax);
-        coord.y = MyMath.modulo(coord.y, Constants.uvMax);
-        float opacity = sampleRed(cloudsRaster[layerIndex], coord);
-        opacity *= cloudAlphas[layerIndex];
-        float result = Constants.alphaMax - opacity;
+    private void captureRed(int layerIndex) {
+        Image image = cloudImages[layerIndex];
+        assert image != null : layerIndex;
+
+        ImageRaster raster = ImageRaster.create(image);
+        int width = raster.getWidth();
+        int height = raster.getHeight();
+        byte[] reds = new byte[width * height];
+        ColorRGBA pixel = new ColorRGBA();
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                raster.getPixel(x, y, pixel);
+                float red = FastMath.saturate(pixel.r);
+                reds[x + width * y] = (byte) Math.round(255f * red);
+            }
+        }
 
-        assert result >= Constants.alphaMin : result;
-        assert result <= Constants.alphaMax : result;
-        return result;
+        cloudHeights[layerIndex] = height;
+        cloudReds[layerIndex] = reds;
+        cloudWidths[layerIndex] = width;
     }
 
     /**
-     * Sample the red component of a rasterized texture at the specified
-     * coordinates.
+     * Sample the captured red channel of an indexed cloud layer at the
+     * specified coordinates.
      *
-     * @param colorImage the texture to sample (not null, unaffected)
-     * @param uv texture coordinates to sample (not null, each component &lt;1
-     * and &ge;0, unaffected)
+     * @param layerIndex (&lt;maxCloudLayers, &ge;0)
+     * @param u first texture coordinate (&lt;1, &ge;0)
+     * @param v second texture coordinate (&lt;1, &ge;0)
      * @return red intensity (&le;1, &ge;0)
      */
-    private float sampleRed(ImageRaster colorImage, Vector2f uv) {
-        assert colorImage != null;
-        assert uv != null;
-        float u = uv.x;
-        float v = uv.y;
-        assert u >= Constants.uvMin : uv;
-        assert u < Constants.uvMax : uv;
-        assert v >= Constants.uvMin : uv;
-        assert v < Constants.uvMax : uv;
-
-        int width = colorImage.getWidth();
+    private float sampleRed(int layerIndex, float u, float v) {
+        assert u >= Constants.uvMin : u;
+        assert u < Constants.uvMax : u;
+        assert v >= Constants.uvMin : v;
+        assert v < Constants.uvMax : v;
+
+        byte[] reds = cloudReds[layerIndex];
+        int width = cloudWidths[layerIndex];
         float x = u * width;
-        int x0 = (int) FastMath.floor(x);
+        int x0 = (int) x;
         float xFraction1 = x - x0;
         float xFraction0 = 1 - xFraction1;
-        int x1 = (x0 + 1) % width;
+        int x1 = x0 + 1;
+        if (x1 == width) {
+            x1 = 0;
+        }
 
-        int height = colorImage.getHeight();
-        float y = v * width;
-        int y0 = (int) FastMath.floor(y);
+        int height = cloudHeights[layerIndex];
+        float y = v * height;
+        int y0 = (int) y;
         float yFraction1 = y - y0;
         float yFraction0 = 1 - yFraction1;
-        int y1 = (y0 + 1) % height;
+        int y1 = y0 + 1;
+        if (y1 == height) {
+            y1 = 0;
+        }
         /*
          * Access the red values of the four nearest pixels.
          */
-        float r00 = colorImage.getPixel(x0, y0).r;
-        float r01 = colorImage.getPixel(x1, y0).r;
-        float r10 = colorImage.getPixel(x0, y1).r;
-        float r11 = colorImage.getPixel(x1, y1).r;
+        int r00 = reds[x0 + width * y0] & 0xff;
+        int r01 = reds[x0 + width * y1] & 0xff;
+        int r10 = reds[x1 + width * y0] & 0xff;
+        int r11 = reds[x1 + width * y1] & 0xff;
         /*
          * Sample using bidirectional linear interpolation.
          */
-        float result = r00 * xFraction0 * yFraction0
+        float sum = r00 * xFraction0 * yFraction0
                 + r01 * xFraction0 * yFraction1
                 + r10 * xFraction1 * yFraction0
                 + r11 * xFraction1 * yFraction1;
+        float result = FastMath.saturate(sum / 255f);
+
+        return result;
+    }
+
+    /**
+     * Estimate how much light is transmitted through all cloud layers at the
+     * specified texture coordinates.
+     *
+     * @param u first sky texture coordinate
+     * @param v second sky texture coordinate
+     * @return fraction of light transmitted (&le;1, &ge;0)
+     */
+    private float transmission(float u, float v) {
+        float result = 1f;
+        for (int layerIndex = 0; layerIndex < maxCloudLayers; layerIndex++) {
+            if (cloudReds[layerIndex] != null) {
+                float transparency = transparency(layerIndex, u, v);
+                result *= transparency;
+            }
+        }
+
+        assert result >= Constants.alphaMin : result;
+        assert result <= Constants.alphaMax : result;
+        return result;
+    }
+
+    /**
+     * Estimate how much light is transmitted through an indexed cloud layer at
+     * the specified texture coordinates.
+     *
+     * @param layerIndex (&lt;maxCloudLayers, &ge;0)
+     * @param u first sky texture coordinate
+     * @param v second sky texture coordinate
+     * @return fraction of light transmitted (&le;1, &ge;0)
+     */
+    private float transparency(int layerIndex, float u, float v) {
+        assert layerIndex >= 0 : layerIndex;
+        assert layerIndex < maxCloudLayers : layerIndex;
+        assert cloudReds[layerIndex] != null : layerIndex;
+
+        float alpha = cloudAlphas[layerIndex];
+        if (alpha == 0f) {
+            /*
+             * A fully transparent layer transmits all light.
+             */
+            return Constants.alphaMax;
+        }
+        /*
+         * Wrap the texture coordinates into [0, 1).
+         */
+        float scale = cloudScales[layerIndex];
+        Vector2f offset = cloudOffsets[layerIndex];
+        float x = scale * u + offset.x;
+        x -= FastMath.floor(x);
+        if (x >= Constants.uvMax) {
+            x = Constants.uvMin;
+        }
+        float y = scale * v + offset.y;
+        y -= FastMath.floor(y);
+        if (y >= Constants.uvMax) {
+            y = Constants.uvMin;
+        }
+        float opacity = alpha * sampleRed(layerIndex, x, y);
+        float result = Constants.alphaMax - opacity;
 
         assert result >= Constants.alphaMin : result;
         assert result <= Constants.alphaMax : result;
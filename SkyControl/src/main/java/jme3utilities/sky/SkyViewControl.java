@@ -0,0 +1,396 @@
+/*
+ Copyright (c) 2019, Stephen Gold
+ All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright
+ notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright
+ notice, this list of conditions and the following disclaimer in the
+ documentation and/or other materials provided with the distribution.
+ * Neither the name of the copyright holder nor the names of its contributors
+ may be used to endorse or promote products derived from this software without
+ specific prior written permission.
+
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jme3utilities.sky;
+
+import com.jme3.export.InputCapsule;
+import com.jme3.export.JmeExporter;
+import com.jme3.export.JmeImporter;
+import com.jme3.export.OutputCapsule;
+import com.jme3.math.Quaternion;
+import com.jme3.math.Vector3f;
+import com.jme3.renderer.Camera;
+import com.jme3.renderer.RenderManager;
+import com.jme3.renderer.ViewPort;
+import com.jme3.renderer.queue.RenderQueue.Bucket;
+import com.jme3.renderer.queue.RenderQueue.ShadowMode;
+import com.jme3.scene.Geometry;
+import com.jme3.scene.Node;
+import com.jme3.scene.Spatial;
+import com.jme3.util.clone.Cloner;
+import java.io.IOException;
+import java.util.List;
+import java.util.logging.Logger;
+import jme3utilities.MySpatial;
+import jme3utilities.SubtreeControl;
+import jme3utilities.Validate;
+
+/**
+ * Subtree control to display the sky of an existing SkyControl from a
+ * different camera, typically one used by a split-screen or off-screen
+ * viewport with its own scene graph.
+ * <p>
+ * The view's geometries share their meshes and materials with those of the
+ * source control, so the sky is simulated only once per frame, by the source
+ * control. The view merely mirrors the local transforms of the source's sky
+ * geometries and centers its own sky node on the tracked camera. Levels
+ * of detail are selected using the source's settings.
+ * <p>
+ * The control is disabled at creation. When enabled, it attaches a "sky view"
+ * node to the controlled spatial, which must be a scene-graph node.
+ * <p>
+ * The source control must be enabled and its subtree updated each frame. To
+ * light the view's scene, add the source's lights to that scene and add the
+ * view's viewports to the source's Updater.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+public class SkyViewControl extends SubtreeControl {
+    // *************************************************************************
+    // constants and loggers
+
+    /**
+     * message logger for this class
+     */
+    final private static Logger logger
+            = Logger.getLogger(SkyViewControl.class.getName());
+    /**
+     * local copy of {@link com.jme3.math.Quaternion#IDENTITY}
+     */
+    final private static Quaternion rotationIdentity = new Quaternion();
+    /**
+     * name for the node
+     */
+    final private static String nodeName = "sky view node";
+    // *************************************************************************
+    // fields
+
+    /**
+     * true to counteract rotation of the controlled node, false to allow
+     * rotation
+     */
+    private boolean stabilizeFlag = false;
+    /**
+     * which camera to track: set by constructor or
+     * {@link #setCamera(com.jme3.renderer.Camera)} or render()
+     */
+    private Camera camera;
+    /**
+     * the view's dome geometries, for selecting levels of detail (null if
+     * never cloned)
+     */
+    private Geometry[] domes = null;
+    /**
+     * control that simulates the sky: set by constructor
+     */
+    private SkyControlCore source;
+    /**
+     * children of the source's sky node when the view's geometries were last
+     * cloned (null if never cloned)
+     */
+    private Spatial[] sourceChildren = null;
+    // *************************************************************************
+    // constructors
+
+    /**
+     * No-argument constructor needed by SavableClassUtil. Do not invoke
+     * directly!
+     */
+    public SkyViewControl() {
+        super();
+        camera = null;
+        source = null;
+    }
+
+    /**
+     * Instantiate a disabled control.
+     *
+     * @param source the control that simulates the sky (not null)
+     * @param camera the camera to track (not null)
+     */
+    public SkyViewControl(SkyControlCore source, Camera camera) {
+        Validate.nonNull(source, "source");
+        Validate.nonNull(camera, "camera");
+
+        this.source = source;
+        this.camera = camera;
+
+        subtree = new Node(nodeName);
+        subtree.setQueueBucket(Bucket.Sky);
+        subtree.setShadowMode(ShadowMode.Off);
+        cloneSourceChildren();
+
+        assert !isEnabled();
+    }
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Access the control that simulates the sky.
+     *
+     * @return the pre-existing instance (not null)
+     */
+    public SkyControlCore getSource() {
+        assert source != null;
+        return source;
+    }
+
+    /**
+     * Alter which camera to track.
+     *
+     * @param camera which camera to track (not null)
+     */
+    public void setCamera(Camera camera) {
+        Validate.nonNull(camera, "camera");
+        this.camera = camera;
+    }
+
+    /**
+     * Alter the stabilize flag.
+     *
+     * @param newState true to counteract rotation of the controlled node, false
+     * to allow rotation
+     */
+    public void setStabilizeFlag(boolean newState) {
+        stabilizeFlag = newState;
+    }
+    // *************************************************************************
+    // SubtreeControl methods
+
+    /**
+     * Create a shallow copy of this control.
+     *
+     * @return a new control, equivalent to this one
+     * @throws CloneNotSupportedException if superclass isn't cloneable
+     */
+    @Override
+    public SkyViewControl clone() throws CloneNotSupportedException {
+        SkyViewControl clone = (SkyViewControl) super.clone();
+        return clone;
+    }
+
+    /**
+     * Convert this shallow-cloned control into a deep-cloned one, using the
+     * specified cloner and original to resolve copied fields.
+     *
+     * @param cloner the cloner currently cloning this control
+     * @param original the control from which this control was shallow-cloned
+     */
+    @Override
+    public void cloneFields(Cloner cloner, Object original) {
+        super.cloneFields(cloner, original);
+
+        camera = cloner.clone(camera);
+        /* the source is shared, not cloned */
+        domes = null;
+        sourceChildren = null;
+    }
+
+    /**
+     * Callback invoked when the controlled spatial's geometric state is about
+     * to be updated, once per frame while attached and enabled.
+     *
+     * @param updateInterval time interval between updates (in seconds, &ge;0)
+     */
+    @Override
+    public void controlUpdate(float updateInterval) {
+        super.controlUpdate(updateInterval);
+
+        if (!isInSync()) {
+            cloneSourceChildren();
+        }
+        /*
+         * Mirror the animated transforms, such as the orientation of
+         * the stars and the offset of the clouds-only dome.
+         */
+        Node sourceNode = source.getSubtree();
+        List<Spatial> children = subtree.getChildren();
+        for (int index = 0; index < children.size(); index++) {
+            Spatial sourceChild = sourceNode.getChild(index);
+            copyLocalTransforms(sourceChild, children.get(index));
+        }
+
+        if (camera == null) {
+            return;
+        }
+        /*
+         * Translate the sky view node to center the sky on the camera.
+         */
+        Vector3f cameraLocation = camera.getLocation();
+        MySpatial.setWorldLocation(subtree, cameraLocation);
+        /*
+         * Scale the sky view node so that its furthest geometries are midway
+         * between the near and far planes of the view frustum.
+         */
+        float far = camera.getFrustumFar();
+        float near = camera.getFrustumNear();
+        float radius = (near + far) / 2f;
+        assert subtree.getParent() == spatial;
+        MySpatial.setWorldScale(subtree, radius);
+
+        if (stabilizeFlag) {
+            /*
+             * Counteract rotation of the controlled node.
+             */
+            MySpatial.setWorldOrientation(subtree, rotationIdentity);
+        }
+    }
+
+    /**
+     * De-serialize this instance, for example when loading from a J3O file.
+     *
+     * @param importer (not null)
+     * @throws IOException from importer
+     */
+    @Override
+    public void read(JmeImporter importer) throws IOException {
+        super.read(importer);
+        InputCapsule ic = importer.getCapsule(this);
+
+        stabilizeFlag = ic.readBoolean("stabilizeFlag", false);
+        source = (SkyControlCore) ic.readSavable("source", null);
+        /* camera not serialized */
+        domes = null;
+        sourceChildren = null;
+    }
+
+    /**
+     * Callback invoked when the controlled spatial is about to be rendered to a
+     * viewport.
+     *
+     * @param renderManager (not null)
+     * @param viewPort viewport where the spatial will be rendered (not null)
+     */
+    @Override
+    public void render(final RenderManager renderManager,
+            final ViewPort viewPort) {
+        super.render(renderManager, viewPort);
+        camera = viewPort.getCamera();
+        if (domes != null) {
+            source.selectLodLevels(domes, viewPort);
+        }
+    }
+
+    /**
+     * Serialize this instance, for example when saving to a J3O file.
+     *
+     * @param exporter (not null)
+     * @throws IOException from exporter
+     */
+    @Override
+    public void write(JmeExporter exporter) throws IOException {
+        super.write(exporter);
+        OutputCapsule oc = exporter.getCapsule(this);
+
+        oc.write(stabilizeFlag, "stabilizeFlag", false);
+        oc.write(source, "source", null);
+        /* camera not serialized */
+    }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Replace the view's geometries with clones of the source's. The clones
+     * share meshes and materials with the originals.
+     */
+    private void cloneSourceChildren() {
+        subtree.detachAllChildren();
+
+        Node sourceNode = source.getSubtree();
+        List<Spatial> children = sourceNode.getChildren();
+        int numChildren = children.size();
+        sourceChildren = new Spatial[numChildren];
+        int numDomes = 0;
+        for (int index = 0; index < numChildren; index++) {
+            Spatial sourceChild = children.get(index);
+            sourceChildren[index] = sourceChild;
+            Spatial clone = sourceChild.clone(false);
+            subtree.attachChild(clone);
+            if (clone instanceof Geometry) {
+                ++numDomes;
+            }
+        }
+        /*
+         * The domes are the only geometries attached directly
+         * to the sky node.
+         */
+        domes = new Geometry[numDomes];
+        int domeIndex = 0;
+        for (Spatial child : subtree.getChildren()) {
+            if (child instanceof Geometry) {
+                domes[domeIndex] = (Geometry) child;
+                ++domeIndex;
+            }
+        }
+    }
+
+    /**
+     * Copy the local transforms of a source spatial and its descendants to
+     * the corresponding spatials of a view.
+     *
+     * @param from the source spatial (not null, unaffected)
+     * @param to the corresponding view spatial (not null, modified)
+     */
+    private static void copyLocalTransforms(Spatial from, Spatial to) {
+        to.setLocalTransform(from.getLocalTransform());
+
+        if (from instanceof Node) {
+            List<Spatial> fromChildren = ((Node) from).getChildren();
+            List<Spatial> toChildren = ((Node) to).getChildren();
+            int numChildren = Math.min(fromChildren.size(), toChildren.size());
+            for (int index = 0; index < numChildren; index++) {
+                copyLocalTransforms(fromChildren.get(index),
+                        toChildren.get(index));
+            }
+        }
+    }
+
+    /**
+     * Test whether the view's geometries still correspond to the children of
+     * the source's sky node. The source replaces its stars node whenever new
+     * star maps are applied.
+     *
+     * @return true if in sync, otherwise false
+     */
+    private boolean isInSync() {
+        if (sourceChildren == null) {
+            return false;
+        }
+
+        List<Spatial> children = source.getSubtree().getChildren();
+        int numChildren = children.size();
+        if (numChildren != sourceChildren.length) {
+            return false;
+        }
+        for (int index = 0; index < numChildren; index++) {
+            if (children.get(index) != sourceChildren[index]) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+}
@@ -0,0 +1,416 @@
+/*
+ Copyright (c) 2019, Stephen Gold
+ All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright
+ notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright
+ notice, this list of conditions and the following disclaimer in the
+ documentation and/or other materials provided with the distribution.
+ * Neither the name of the copyright holder nor the names of its contributors
+ may be used to endorse or promote products derived from this software without
+ specific prior written permission.
+
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jme3utilities.sky;
+
+import com.jme3.asset.AssetKey;
+import com.jme3.asset.AssetManager;
+import com.jme3.math.FastMath;
+import com.jme3.math.Vector3f;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import jme3utilities.MyString;
+import jme3utilities.Validate;
+
+/**
+ * An immutable star catalog in a compact binary format: parallel arrays of
+ * right ascension, declination, and apparent magnitude, ordered from the
+ * faintest star to the brightest. Plotting stars in this order lets brighter
+ * stars overwrite fainter ones.
+ * <p>
+ * The binary format is a 12-byte header (magic number, format version, and
+ * star count) followed by the 3 arrays of big-endian floats, which allows a
+ * catalog file to be memory-mapped instead of parsed.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+public class StarCatalog {
+    // *************************************************************************
+    // constants and loggers
+
+    /**
+     * number of bytes in a float
+     */
+    final private static int bytesPerFloat = 4;
+    /**
+     * version number of the binary format
+     */
+    final private static int formatVersion = 1;
+    /**
+     * number of bytes in the header
+     */
+    final private static int headerBytes = 12;
+    /**
+     * magic number identifying the binary format (ASCII "STAR")
+     */
+    final private static int magic = 0x53544152;
+    /**
+     * message logger for this class
+     */
+    final private static Logger logger
+            = Logger.getLogger(StarCatalog.class.getName());
+    /**
+     * asset path to the default catalog, generated from version 5 of the Yale
+     * Bright Star Catalog
+     */
+    final public static String defaultAssetPath
+            = "Textures/skies/star-maps/bsc5.stars";
+    // *************************************************************************
+    // fields
+
+    /**
+     * apparent brightness of each star (inverted logarithmic scale)
+     */
+    final private FloatBuffer apparentMagnitudes;
+    /**
+     * declination of each star (radians north of the celestial equator,
+     * &le;Pi/2, &ge;-Pi/2)
+     */
+    final private FloatBuffer declinations;
+    /**
+     * right ascension of each star (radians east of the March equinox,
+     * &lt;2*Pi, &ge;0)
+     */
+    final private FloatBuffer rightAscensions;
+    /**
+     * number of stars in the catalog (&ge;0)
+     */
+    final private int numStars;
+    // *************************************************************************
+    // constructors
+
+    /**
+     * Instantiate a catalog from arrays of star data, ordered from the
+     * faintest star to the brightest.
+     *
+     * @param rightAscensions radians east of the March equinox (not null,
+     * unaffected, each &lt;2*Pi and &ge;0)
+     * @param declinations radians north of the celestial equator (not null,
+     * unaffected, same length as rightAscensions, each &le;Pi/2 and
+     * &ge;-Pi/2)
+     * @param apparentMagnitudes apparent brightnesses (not null, unaffected,
+     * same length as rightAscensions)
+     */
+    public StarCatalog(float[] rightAscensions, float[] declinations,
+            float[] apparentMagnitudes) {
+        Validate.nonNull(rightAscensions, "right ascensions");
+        Validate.nonNull(declinations, "declinations");
+        Validate.nonNull(apparentMagnitudes, "apparent magnitudes");
+        numStars = rightAscensions.length;
+        if (declinations.length != numStars
+                || apparentMagnitudes.length != numStars) {
+            logger.log(Level.SEVERE, "lengths={0},{1},{2}", new Object[]{
+                numStars, declinations.length, apparentMagnitudes.length});
+            throw new IllegalArgumentException(
+                    "arrays should all have the same length");
+        }
+
+        this.rightAscensions = FloatBuffer.wrap(rightAscensions.clone());
+        this.declinations = FloatBuffer.wrap(declinations.clone());
+        this.apparentMagnitudes = FloatBuffer.wrap(apparentMagnitudes.clone());
+    }
+
+    /**
+     * Instantiate a catalog backed by a buffer in the binary format.
+     *
+     * @param buffer the binary data, starting with the header (not null,
+     * position=0)
+     * @param description description of the source, for messages (not null)
+     * @throws IOException if the data are not in the binary format
+     */
+    private StarCatalog(ByteBuffer buffer, String description)
+            throws IOException {
+        assert buffer != null;
+        assert buffer.position() == 0 : buffer.position();
+        assert description != null;
+
+        if (buffer.limit() < headerBytes) {
+            throw new IOException(description + " is too short");
+        }
+        int actualMagic = buffer.getInt(0);
+        int version = buffer.getInt(4);
+        numStars = buffer.getInt(8);
+        if (actualMagic != magic) {
+            throw new IOException(description + " is not a star catalog");
+        } else if (version != formatVersion) {
+            throw new IOException(description + " has unsupported version "
+                    + version);
+        }
+        long expectedBytes = headerBytes
+                + 3L * bytesPerFloat * numStars;
+        if (numStars < 0 || buffer.limit() != expectedBytes) {
+            throw new IOException(description + " has the wrong length");
+        }
+
+        buffer.position(headerBytes);
+        FloatBuffer floats = buffer.slice().asFloatBuffer();
+        rightAscensions = slice(floats, 0);
+        declinations = slice(floats, numStars);
+        apparentMagnitudes = slice(floats, 2 * numStars);
+    }
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Read the apparent brightness of the indexed star.
+     *
+     * @param starIndex which star (&ge;0, &lt;numStars)
+     * @return magnitude (inverted logarithmic scale)
+     */
+    public float apparentMagnitude(int starIndex) {
+        Validate.inRange(starIndex, "star index", 0, numStars - 1);
+        float result = apparentMagnitudes.get(starIndex);
+        return result;
+    }
+
+    /**
+     * Read the declination of the indexed star.
+     *
+     * @param starIndex which star (&ge;0, &lt;numStars)
+     * @return radians north of the celestial equator (&le;Pi/2, &ge;-Pi/2)
+     */
+    public float declination(int starIndex) {
+        Validate.inRange(starIndex, "star index", 0, numStars - 1);
+        float result = declinations.get(starIndex);
+        return result;
+    }
+
+    /**
+     * Compute the indexed star's position in a right-handed Cartesian
+     * equatorial coordinate system where:<ul>
+     * <li>+X points to the juncture of the meridian with the celestial equator
+     * <li>+Y points to the east horizon (also on the celestial equator)
+     * <li>+Z points to the celestial north pole
+     * </ul>
+     *
+     * @param starIndex which star (&ge;0, &lt;numStars)
+     * @param siderealTime radians since sidereal midnight (&ge;0, &lt;2*Pi)
+     * @param storeResult (modified if not null)
+     * @return a unit vector (either storeResult or a new instance)
+     */
+    public Vector3f equatorialLocation(int starIndex, float siderealTime,
+            Vector3f storeResult) {
+        Validate.inRange(starIndex, "star index", 0, numStars - 1);
+        Validate.inRange(siderealTime, "sidereal time", 0f, FastMath.TWO_PI);
+        Vector3f result
+                = (storeResult == null) ? new Vector3f() : storeResult;
+        /*
+         * Compute the hour angle.
+         */
+        float declination = declinations.get(starIndex);
+        float hourAngle = siderealTime - rightAscensions.get(starIndex);
+        /*
+         * Convert hour angle and declination to Cartesian coordinates.
+         */
+        float cosDec = FastMath.cos(declination);
+        float cosHA = FastMath.cos(hourAngle);
+        float sinDec = FastMath.sin(declination);
+        float sinHA = FastMath.sin(hourAngle);
+        float x = cosDec * cosHA;
+        float y = -cosDec * sinHA;
+        float z = sinDec;
+        result.set(x, y, z);
+
+        assert result.isUnitVector() : result;
+        return result;
+    }
+
+    /**
+     * Load a catalog asset in the binary format, registering a loader for the
+     * "stars" extension if necessary.
+     *
+     * @param assetManager (not null)
+     * @param assetPath path to the asset (not null, not empty)
+     * @return the catalog (may be shared with other callers)
+     */
+    public static StarCatalog load(AssetManager assetManager,
+            String assetPath) {
+        Validate.nonNull(assetManager, "asset manager");
+        Validate.nonEmpty(assetPath, "asset path");
+
+        assetManager.registerLoader(StarCatalogLoader.class, "stars");
+        AssetKey<StarCatalog> key = new AssetKey<>(assetPath);
+        StarCatalog result = assetManager.loadAsset(key);
+
+        return result;
+    }
+
+    /**
+     * Memory-map a catalog file in the binary format.
+     *
+     * @param file the file to map (not null)
+     * @return a new instance
+     * @throws IOException if the file cannot be read or is not in the binary
+     * format
+     */
+    public static StarCatalog map(File file) throws IOException {
+        Validate.nonNull(file, "file");
+
+        MappedByteBuffer buffer;
+        try (RandomAccessFile randomAccess = new RandomAccessFile(file, "r");
+                FileChannel channel = randomAccess.getChannel()) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0L,
+                    channel.size());
+        }
+        String description = MyString.quote(file.getPath());
+        StarCatalog result = new StarCatalog(buffer, description);
+
+        return result;
+    }
+
+    /**
+     * Count the stars in this catalog.
+     *
+     * @return count (&ge;0)
+     */
+    public int numStars() {
+        assert numStars >= 0 : numStars;
+        return numStars;
+    }
+
+    /**
+     * Read a catalog in the binary format from a stream. The stream is not
+     * closed.
+     *
+     * @param stream the input stream (not null)
+     * @return a new instance
+     * @throws IOException if the stream cannot be read or is not in the
+     * binary format
+     */
+    public static StarCatalog read(InputStream stream) throws IOException {
+        Validate.nonNull(stream, "stream");
+
+        DataInputStream dataStream = new DataInputStream(stream);
+        byte[] header = new byte[headerBytes];
+        dataStream.readFully(header);
+        int count = ByteBuffer.wrap(header).getInt(8);
+        if (count < 0 || count > Integer.MAX_VALUE / (3 * bytesPerFloat)) {
+            throw new IOException("stream has invalid star count " + count);
+        }
+
+        byte[] data = new byte[headerBytes + 3 * bytesPerFloat * count];
+        System.arraycopy(header, 0, data, 0, headerBytes);
+        dataStream.readFully(data, headerBytes, data.length - headerBytes);
+        ByteBuffer buffer = ByteBuffer.wrap(data);
+        StarCatalog result = new StarCatalog(buffer, "stream");
+
+        return result;
+    }
+
+    /**
+     * Read the right ascension of the indexed star.
+     *
+     * @param starIndex which star (&ge;0, &lt;numStars)
+     * @return radians east of the March equinox (&lt;2*Pi, &ge;0)
+     */
+    public float rightAscension(int starIndex) {
+        Validate.inRange(starIndex, "star index", 0, numStars - 1);
+        float result = rightAscensions.get(starIndex);
+        return result;
+    }
+
+    /**
+     * Write this catalog to a file in the binary format, creating the parent
+     * directory/folder if needed.
+     *
+     * @param file the file to write (not null)
+     * @throws IOException if the file cannot be written
+     */
+    public void write(File file) throws IOException {
+        Validate.nonNull(file, "file");
+
+        File parentDirectory = file.getParentFile();
+        if (parentDirectory != null && !parentDirectory.exists()) {
+            boolean success = parentDirectory.mkdirs();
+            if (!success && !parentDirectory.isDirectory()) {
+                throw new IOException("unable to create "
+                        + MyString.quote(parentDirectory.getPath()));
+            }
+        }
+        try (OutputStream stream
+                = new BufferedOutputStream(new FileOutputStream(file))) {
+            write(stream);
+        }
+        logger.log(Level.INFO, "wrote {0} stars to {1}",
+                new Object[]{numStars, MyString.quote(file.getPath())});
+    }
+
+    /**
+     * Write this catalog to a stream in the binary format. The stream is not
+     * closed.
+     *
+     * @param stream the output stream (not null)
+     * @throws IOException if the stream cannot be written
+     */
+    public void write(OutputStream stream) throws IOException {
+        Validate.nonNull(stream, "stream");
+
+        DataOutputStream dataStream = new DataOutputStream(stream);
+        dataStream.writeInt(magic);
+        dataStream.writeInt(formatVersion);
+        dataStream.writeInt(numStars);
+        FloatBuffer[] arrays
+                = {rightAscensions, declinations, apparentMagnitudes};
+        for (FloatBuffer array : arrays) {
+            for (int starIndex = 0; starIndex < numStars; starIndex++) {
+                dataStream.writeFloat(array.get(starIndex));
+            }
+        }
+        dataStream.flush();
+    }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Create a read-only view of one array in a buffer of floats.
+     *
+     * @param floats all the floats following the header (not null)
+     * @param startIndex index of the array's first float (&ge;0)
+     * @return a new view with position=0 and limit=numStars
+     */
+    private FloatBuffer slice(FloatBuffer floats, int startIndex) {
+        assert startIndex >= 0 : startIndex;
+
+        floats.limit(startIndex + numStars);
+        floats.position(startIndex);
+        FloatBuffer result = floats.slice().asReadOnlyBuffer();
+
+        return result;
+    }
+}
@@ -0,0 +1,422 @@
+/*
+ Copyright (c) 2019, Stephen Gold
+ All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright
+ notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright
+ notice, this list of conditions and the following disclaimer in the
+ documentation and/or other materials provided with the distribution.
+ * Neither the name of the copyright holder nor the names of its contributors
+ may be used to endorse or promote products derived from this software without
+ specific prior written permission.
+
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jme3utilities.sky;
+
+import com.jme3.math.FastMath;
+import com.jme3.math.Quaternion;
+import com.jme3.math.Vector2f;
+import com.jme3.math.Vector3f;
+import com.jme3.texture.Image;
+import com.jme3.texture.Texture;
+import com.jme3.texture.Texture2D;
+import com.jme3.texture.image.ColorSpace;
+import com.jme3.util.BufferUtils;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import jme3utilities.Validate;
+import jme3utilities.mesh.DomeMesh;
+
+/**
+ * Utility methods to generate starry sky texture maps for a DomeMesh at
+ * runtime, from a StarCatalog. The stars are plotted the same way as in the
+ * MakeStarMaps application, but without AWT: ellipses are filled by a simple
+ * scanline algorithm, so the edges of large ellipses may differ slightly. In
+ * the resulting textures, east is at the top and north is to the right.
+ * <p>
+ * The methods are thread-safe and don't access the scene graph, so they can
+ * be invoked from a worker thread.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+final public class StarMapGenerator {
+    // *************************************************************************
+    // constants and loggers
+
+    /**
+     * luminosity of the faintest stars to include
+     */
+    final private static float luminosityCutoff = 0.1f;
+    /**
+     * luminosity ratio between successive stellar magnitudes (5th root of 100)
+     */
+    final private static float pogsonsRatio = FastMath.pow(100f, 0.2f);
+    /**
+     * offset of each pixel's sample point from its upper-left corner, for
+     * filling polygons
+     */
+    final private static float sampleOffset = 0.25f;
+    /**
+     * number of points per ellipse
+     */
+    final private static int ellipseNumPoints = 32;
+    /**
+     * message logger for this class
+     */
+    final private static Logger logger
+            = Logger.getLogger(StarMapGenerator.class.getName());
+    /**
+     * sample dome mesh for calculating texture coordinates
+     */
+    final private static DomeMesh domeMesh = new DomeMesh(3, 2);
+    // *************************************************************************
+    // constructors
+
+    /**
+     * A private constructor to inhibit instantiation of this class.
+     */
+    private StarMapGenerator() {
+    }
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Generate a luminance image of the stars above the horizon of the
+     * specified observer.
+     *
+     * @param catalog the stars to plot (not null)
+     * @param latitude the observer's latitude (radians north of the equator,
+     * &le;Pi/2, &ge;-Pi/2)
+     * @param siderealTime radians since sidereal midnight (&lt;2*Pi, &ge;0)
+     * @param textureSize size of the image (pixels per side, &gt;2)
+     * @return a new Luminance8 image, not flipped
+     */
+    public static Image generateDomeImage(StarCatalog catalog, float latitude,
+            float siderealTime, int textureSize) {
+        Validate.nonNull(catalog, "catalog");
+        Validate.inRange(latitude, "latitude", -FastMath.HALF_PI,
+                FastMath.HALF_PI);
+        Validate.inRange(siderealTime, "sidereal time", 0f, FastMath.TWO_PI);
+        Validate.inRange(textureSize, "texture size", 3, Integer.MAX_VALUE);
+
+        byte[] pixels = new byte[textureSize * textureSize];
+        /*
+         * The conversion from equatorial coordinates to world coordinates
+         * consists of a (latitude - Pi/2) rotation about the Y (east) axis
+         * followed by a permutation of the axes.
+         */
+        float coLatitude = FastMath.HALF_PI - latitude;
+        Quaternion rotation = new Quaternion();
+        rotation.fromAngleNormalAxis(-coLatitude, Vector3f.UNIT_Y);
+        /*
+         * Convert apparent magnitude to relative luminosity.
+         */
+        float resolution = textureSize / 2_048f;
+        float luminosity0 = 37f * resolution * resolution;
+        /*
+         * Plot the stars, starting with the faintest.
+         */
+        int numStars = catalog.numStars();
+        int plotCount = 0;
+        Vector3f equatorial = new Vector3f();
+        Vector3f world = new Vector3f();
+        for (int starIndex = 0; starIndex < numStars; starIndex++) {
+            catalog.equatorialLocation(starIndex, siderealTime, equatorial);
+            Vector3f rotated = rotation.mult(equatorial);
+            if (rotated.z < 0f) {
+                /*
+                 * The star lies below the horizon, so skip it.
+                 */
+                continue;
+            }
+            float apparentMagnitude = catalog.apparentMagnitude(starIndex);
+            float luminosity = luminosity0
+                    * FastMath.pow(pogsonsRatio, -apparentMagnitude);
+            if (luminosity < luminosityCutoff) {
+                continue;
+            }
+            world.set(-rotated.x, rotated.z, rotated.y);
+            Vector2f uv = domeMesh.directionUV(world);
+            if (uv == null) {
+                continue;
+            }
+
+            if (luminosity <= 37f) {
+                plot4PointStar(pixels, luminosity, textureSize, uv);
+            } else {
+                plotEllipse(pixels, luminosity, textureSize, uv);
+            }
+            plotCount++;
+        }
+        logger.log(Level.FINE, "plotted {0} stars", plotCount);
+
+        ByteBuffer data = BufferUtils.createByteBuffer(pixels.length);
+        data.put(pixels);
+        data.flip();
+        Image result = new Image(Image.Format.Luminance8, textureSize,
+                textureSize, data, ColorSpace.Linear);
+
+        return result;
+    }
+
+    /**
+     * Generate a texture of the stars above the horizon of the specified
+     * observer, suitable for SkyMaterial.addStars().
+     *
+     * @param catalog the stars to plot (not null)
+     * @param latitude the observer's latitude (radians north of the equator,
+     * &le;Pi/2, &ge;-Pi/2)
+     * @param siderealTime radians since sidereal midnight (&lt;2*Pi, &ge;0)
+     * @param textureSize size of the texture (pixels per side, &gt;2)
+     * @return a new texture with edge-clamp wrap mode
+     */
+    public static Texture generateDomeTexture(StarCatalog catalog,
+            float latitude, float siderealTime, int textureSize) {
+        Image image = generateDomeImage(catalog, latitude, siderealTime,
+                textureSize);
+        Texture result = new Texture2D(image);
+        result.setWrap(Texture.WrapMode.EdgeClamp);
+
+        return result;
+    }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Fill a polygon with white, with clipping. Like Java2D with stroke
+     * normalization, each pixel is sampled at offset (0.25, 0.25) from its
+     * corner, using the even-odd rule.
+     *
+     * @param pixels the image's pixels (not null, modified)
+     * @param textureSize size of the image (pixels per side, &gt;2)
+     * @param xs x-coordinates of the vertices (not null, unaffected)
+     * @param ys y-coordinates of the vertices (not null, unaffected, same
+     * length as xs)
+     */
+    private static void fillPolygon(byte[] pixels, int textureSize, int[] xs,
+            int[] ys) {
+        int numVertices = xs.length;
+        int minY = Integer.MAX_VALUE;
+        int maxY = Integer.MIN_VALUE;
+        for (int y : ys) {
+            minY = Math.min(minY, y);
+            maxY = Math.max(maxY, y);
+        }
+        minY = Math.max(minY, 0);
+        maxY = Math.min(maxY, textureSize);
+
+        float[] crossings = new float[numVertices];
+        for (int y = minY; y < maxY; y++) {
+            float sampleY = y + sampleOffset;
+            /*
+             * Find where the edges cross the row's sample line.
+             */
+            int numCrossings = 0;
+            for (int i = 0; i < numVertices; i++) {
+                int j = (i + 1) % numVertices;
+                float y0 = ys[i];
+                float y1 = ys[j];
+                if ((y0 <= sampleY) != (y1 <= sampleY)) {
+                    float t = (sampleY - y0) / (y1 - y0);
+                    crossings[numCrossings] = xs[i] + t * (xs[j] - xs[i]);
+                    numCrossings++;
+                }
+            }
+            Arrays.sort(crossings, 0, numCrossings);
+            /*
+             * Fill between pairs of crossings.
+             */
+            int rowStart = y * textureSize;
+            for (int k = 0; k + 1 < numCrossings; k += 2) {
+                int x0 = (int) FastMath.ceil(crossings[k] - sampleOffset);
+                int x1 = (int) FastMath.ceil(crossings[k + 1] - sampleOffset);
+                x0 = Math.max(x0, 0);
+                x1 = Math.min(x1, textureSize);
+                for (int x = x0; x < x1; x++) {
+                    pixels[rowStart + x] = (byte) 0xff;
+                }
+            }
+        }
+    }
+
+    /**
+     * Fill a rectangle with the specified brightness, with clipping.
+     *
+     * @param pixels the image's pixels (not null, modified)
+     * @param textureSize size of the image (pixels per side, &gt;2)
+     * @param x x-coordinate of the rectangle's upper-left pixel
+     * @param y y-coordinate of the rectangle's upper-left pixel
+     * @param width width of the rectangle (in pixels, &ge;1)
+     * @param height height of the rectangle (in pixels, &ge;1)
+     * @param brightness pixel value (&ge;0, &le;255)
+     */
+    private static void fillRect(byte[] pixels, int textureSize, int x, int y,
+            int width, int height, int brightness) {
+        int x0 = Math.max(x, 0);
+        int x1 = Math.min(x + width, textureSize);
+        int y0 = Math.max(y, 0);
+        int y1 = Math.min(y + height, textureSize);
+        byte value = (byte) brightness;
+        for (int row = y0; row < y1; row++) {
+            int rowStart = row * textureSize;
+            for (int column = x0; column < x1; column++) {
+                pixels[rowStart + column] = value;
+            }
+        }
+    }
+
+    /**
+     * Plot a four-pointed star shape.
+     *
+     * @param pixels the image's pixels (not null, modified)
+     * @param luminosity star's relative luminosity (in terms of pure white
+     * pixels, &le;37, &gt;0)
+     * @param textureSize size of the image (pixels per side, &gt;2)
+     * @param uv star's texture coordinates (not null, unaffected)
+     */
+    private static void plot4PointStar(byte[] pixels, float luminosity,
+            int textureSize, Vector2f uv) {
+        assert luminosity > 0f : luminosity;
+        assert luminosity <= 37f : luminosity;
+        /*
+         * The shape must be big enough to ensure that the pixels will not be
+         * oversaturated. Star shapes consist of a square portion (up to 5x5
+         * pixels) plus optional rays, which are used only with odd-sized
+         * squares and add either 1 or 3 pixels to each side of the square.
+         */
+        int minPixels = (int) FastMath.ceil(luminosity);
+        int raySize;
+        int squareSize;
+        if (minPixels == 1) {
+            raySize = 0;
+            squareSize = 1;
+        } else if (minPixels <= 4) {
+            raySize = 0;
+            squareSize = 2;
+        } else if (minPixels <= 5) {
+            raySize = 1;
+            squareSize = 1;
+        } else if (minPixels <= 9) {
+            raySize = 0;
+            squareSize = 3;
+        } else if (minPixels <= 13) {
+            raySize = 1;
+            squareSize = 3;
+        } else if (minPixels <= 16) {
+            raySize = 0;
+            squareSize = 4;
+        } else if (minPixels <= 21) {
+            raySize = 3;
+            squareSize = 3;
+        } else if (minPixels <= 29) {
+            raySize = 1;
+            squareSize = 5;
+        } else {
+            raySize = 3;
+            squareSize = 5;
+        }
+        int numPixels = squareSize * squareSize + 4 * raySize;
+        int brightness = Math.round(255f * luminosity / numPixels);
+        /*
+         * Convert the texture coordinates into (x, y) image coordinates of
+         * the square's upper-left pixel.
+         */
+        float cornerOffset = 0.5f * (squareSize - 1);
+        int x = Math.round(uv.x * textureSize - cornerOffset);
+        int y = Math.round(uv.y * textureSize - cornerOffset);
+
+        fillRect(pixels, textureSize, x, y, squareSize, squareSize,
+                brightness);
+        int halfSize = (squareSize - 1) / 2;
+        switch (raySize) {
+            case 0:
+                break;
+
+            case 1:
+                fillRect(pixels, textureSize, x - 1, y + halfSize, 1, 1,
+                        brightness);
+                fillRect(pixels, textureSize, x + halfSize, y - 1, 1, 1,
+                        brightness);
+                fillRect(pixels, textureSize, x + halfSize, y + squareSize,
+                        1, 1, brightness);
+                fillRect(pixels, textureSize, x + squareSize, y + halfSize,
+                        1, 1, brightness);
+                break;
+
+            case 3:
+                fillRect(pixels, textureSize, x - 1, y + halfSize - 1, 1, 3,
+                        brightness);
+                fillRect(pixels, textureSize, x + halfSize - 1, y - 1, 3, 1,
+                        brightness);
+                fillRect(pixels, textureSize, x + halfSize - 1,
+                        y + squareSize, 3, 1, brightness);
+                fillRect(pixels, textureSize, x + squareSize,
+                        y + halfSize - 1, 1, 3, brightness);
+                break;
+
+            default:
+                assert false : raySize;
+        }
+    }
+
+    /**
+     * Plot an ellipse -- a circle stretched to compensate for UV distortion
+     * near the rim of the dome.
+     *
+     * @param pixels the image's pixels (not null, modified)
+     * @param luminosity star's relative luminosity (in terms of pure white
+     * pixels, &gt;0)
+     * @param textureSize size of the image (pixels per side, &gt;2)
+     * @param uv star's texture coordinates (not null, unaffected)
+     */
+    private static void plotEllipse(byte[] pixels, float luminosity,
+            int textureSize, Vector2f uv) {
+        assert luminosity > 0f : luminosity;
+
+        float u = uv.x;
+        float v = uv.y;
+        Vector2f offset = uv.subtract(Constants.topUV);
+        float topDist = offset.length();
+        float xDir;
+        float yDir;
+        if (topDist > 0f) {
+            xDir = offset.x / topDist;
+            yDir = offset.y / topDist;
+        } else {
+            xDir = 1f;
+            yDir = 0f;
+        }
+        float stretchFactor = 1f
+                + Constants.stretchCoefficient * topDist * topDist;
+        float a = FastMath.sqrt(luminosity * stretchFactor / FastMath.PI);
+        float b = a / stretchFactor;
+
+        int[] xs = new int[ellipseNumPoints];
+        int[] ys = new int[ellipseNumPoints];
+        for (int i = 0; i < ellipseNumPoints; i++) {
+            float theta = FastMath.TWO_PI * i / ellipseNumPoints;
+            float da = a * FastMath.cos(theta);
+            float db = b * FastMath.sin(theta);
+            float dx = db * xDir + da * yDir;
+            float dy = db * yDir - da * xDir;
+            xs[i] = Math.round(u * textureSize + dx);
+            ys[i] = Math.round(v * textureSize + dy);
+        }
+        fillPolygon(pixels, textureSize, xs, ys);
+    }
+}
@@ -0,0 +1,136 @@
+/*
+ Copyright (c) 2019, Stephen Gold
+ All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright
+ notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright
+ notice, this list of conditions and the following disclaimer in the
+ documentation and/or other materials provided with the distribution.
+ * Neither the name of the copyright holder nor the names of its contributors
+ may be used to endorse or promote products derived from this software without
+ specific prior written permission.
+
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jme3utilities.sky;
+
+import com.jme3.math.FastMath;
+import com.jme3.texture.Texture;
+import java.util.concurrent.Callable;
+import java.util.logging.Logger;
+
+/**
+ * A task that generates star maps for a SkyControlCore, typically on a worker
+ * thread. It accesses neither the scene graph nor the control.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+class StarMapTask implements Callable<Texture[]> {
+    // *************************************************************************
+    // constants and loggers
+
+    /**
+     * message logger for this class
+     */
+    final private static Logger logger
+            = Logger.getLogger(StarMapTask.class.getName());
+    // *************************************************************************
+    // fields
+
+    /**
+     * observer's latitude (radians north of the equator, used only for
+     * TopDome)
+     */
+    final private float latitude;
+    /**
+     * radians since sidereal midnight (used only for TopDome)
+     */
+    final private float siderealTime;
+    /**
+     * size of each texture map (pixels per side, &gt;2)
+     */
+    final private int textureSize;
+    /**
+     * stars to plot
+     */
+    final private StarCatalog catalog;
+    /**
+     * how the stars will be rendered (TopDome or TwoDomes)
+     */
+    final private StarsOption starsOption;
+    // *************************************************************************
+    // constructors
+
+    /**
+     * Instantiate a task.
+     *
+     * @param catalog stars to plot (not null, alias created)
+     * @param starsOption how the stars will be rendered (TopDome or TwoDomes)
+     * @param latitude observer's latitude (radians north of the equator,
+     * &le;Pi/2, &ge;-Pi/2)
+     * @param siderealTime radians since sidereal midnight (&lt;2*Pi, &ge;0)
+     * @param textureSize size of each texture map (pixels per side, &gt;2)
+     */
+    StarMapTask(StarCatalog catalog, StarsOption starsOption, float latitude,
+            float siderealTime, int textureSize) {
+        assert catalog != null;
+        assert starsOption == StarsOption.TopDome
+                || starsOption == StarsOption.TwoDomes : starsOption;
+        assert textureSize > 2 : textureSize;
+
+        this.catalog = catalog;
+        this.starsOption = starsOption;
+        this.latitude = latitude;
+        this.siderealTime = siderealTime;
+        this.textureSize = textureSize;
+    }
+    // *************************************************************************
+    // Callable methods
+
+    /**
+     * Generate the star maps.
+     *
+     * @return a new array: one texture for TopDome or northern and southern
+     * textures for TwoDomes
+     */
+    @Override
+    public Texture[] call() {
+        Texture[] result;
+        switch (starsOption) {
+            case TopDome:
+                result = new Texture[1];
+                result[0] = StarMapGenerator.generateDomeTexture(catalog,
+                        latitude, siderealTime, textureSize);
+                break;
+
+            case TwoDomes:
+                /*
+                 * Hemispheres as seen from the poles, at sidereal midnight.
+                 * SunAndStars orients the domes for the actual observer.
+                 */
+                result = new Texture[2];
+                result[0] = StarMapGenerator.generateDomeTexture(catalog,
+                        FastMath.HALF_PI, 0f, textureSize);
+                result[1] = StarMapGenerator.generateDomeTexture(catalog,
+                        -FastMath.HALF_PI, 0f, textureSize);
+                break;
+
+            default:
+                throw new IllegalStateException();
+        }
+
+        return result;
+    }
+}
@@ -101,9 +101,38 @@ public class SunAndStars
      * local copy of {@link com.jme3.math.Vector3f#UNIT_Z}
      */
     final private static Vector3f unitZ = new Vector3f(0f, 0f, 1f);
+    /**
+     * rotation from the local axes of an equatorial sky to equatorial
+     * coordinates
+     */
+    final private static Quaternion skyToEquatorial
+            = new Quaternion(-0.5f, -0.5f, -0.5f, 0.5f);
+    /**
+     * permutation of axes from rotated equatorial coordinates to world
+     * coordinates: (x, y, z) &rarr; (-x, z, y)
+     */
+    final private static Quaternion permuteToWorld
+            = new Quaternion(0f, FastMath.sqrt(0.5f), FastMath.sqrt(0.5f), 0f);
+    /**
+     * per-thread storage for an interpolated orientation, so that clones
+     * used on different threads don't share it
+     */
+    final private static ThreadLocal<Quaternion> perThreadOrientation
+            = new ThreadLocal<Quaternion>() {
+        @Override
+        protected Quaternion initialValue() {
+            return new Quaternion();
+        }
+    };
     // *************************************************************************
     // fields
 
+    /**
+     * precomputed table to use in place of trigonometry when it covers the
+     * current latitude and solar longitude (or null for none) - not
+     * serialized
+     */
+    private Ephemeris ephemeris = null;
     /**
      * local solar time (hours since midnight, &lt;24, &ge;0)
      */
@@ -207,6 +236,13 @@ public class SunAndStars
     public Vector3f convertToWorld(Vector3f equatorial) {
         Validate.nonNull(equatorial, "coordinates");
 
+        if (isEphemerisUsable()) {
+            Quaternion orientation = perThreadOrientation.get();
+            ephemeris.orientation(hour, solarLongitude, orientation);
+            Vector3f world = orientation.mult(equatorial);
+            return world;
+        }
+
         float siderealAngle = siderealAngle();
         /*
          * The conversion consists of a (-siderealAngle) rotation about the Z
@@ -227,6 +263,44 @@ public class SunAndStars
         return world;
     }
 
+    /**
+     * Compute the rotation from equatorial coordinates to world coordinates
+     * using trigonometry.
+     *
+     * @param storeResult (modified if not null)
+     * @return a unit quaternion (either storeResult or a new instance)
+     */
+    Quaternion equatorialToWorld(Quaternion storeResult) {
+        Quaternion result
+                = (storeResult == null) ? new Quaternion() : storeResult;
+        /*
+         * Same sequence as convertToWorld(Vector3f): a (-siderealAngle)
+         * rotation about Z, then a (latitude - Pi/2) rotation about Y, then
+         * a permutation of the axes.
+         */
+        float siderealAngle = siderealAngle();
+        Quaternion zRotation = new Quaternion();
+        zRotation.fromAngleNormalAxis(-siderealAngle, unitZ);
+        float coLatitude = FastMath.HALF_PI - observerLatitude;
+        Quaternion yRotation = new Quaternion();
+        yRotation.fromAngleNormalAxis(-coLatitude, unitY);
+
+        result.set(permuteToWorld);
+        result.multLocal(yRotation);
+        result.multLocal(zRotation);
+
+        return result;
+    }
+
+    /**
+     * Access the ephemeris.
+     *
+     * @return the pre-existing instance (or null if none)
+     */
+    public Ephemeris getEphemeris() {
+        return ephemeris;
+    }
+
     /**
      * Read the time of day.
      *
@@ -274,12 +348,18 @@ public class SunAndStars
     public void orientEquatorialSky(Spatial spatial, boolean invertRotation) {
         Validate.nonNull(spatial, "spatial");
 
-        float siderealAngle = siderealAngle();
-        Quaternion xRotation = new Quaternion();
-        xRotation.fromAngleNormalAxis(-siderealAngle, unitX);
-        Quaternion zRotation = new Quaternion();
-        zRotation.fromAngleNormalAxis(observerLatitude, unitZ);
-        Quaternion orientation = zRotation.mult(xRotation);
+        Quaternion orientation;
+        if (isEphemerisUsable()) {
+            orientation = ephemeris.orientation(hour, solarLongitude, null);
+            orientation.multLocal(skyToEquatorial);
+        } else {
+            float siderealAngle = siderealAngle();
+            Quaternion xRotation = new Quaternion();
+            xRotation.fromAngleNormalAxis(-siderealAngle, unitX);
+            Quaternion zRotation = new Quaternion();
+            zRotation.fromAngleNormalAxis(observerLatitude, unitZ);
+            orientation = zRotation.mult(xRotation);
+        }
         if (invertRotation) {
             orientation.inverseLocal();
         }
@@ -318,6 +398,19 @@ public class SunAndStars
         }
     }
 
+    /**
+     * Install an ephemeris to replace trigonometry in sunDirection(),
+     * convertToWorld(), and orientEquatorialSky() whenever it covers the
+     * current latitude and solar longitude. Note that the ephemeris is not
+     * serialized.
+     *
+     * @param newEphemeris the table to use (alias created) or null to always
+     * use trigonometry
+     */
+    public void setEphemeris(Ephemeris newEphemeris) {
+        ephemeris = newEphemeris;
+    }
+
     /**
      * Alter the time of day.
      *
@@ -426,7 +519,12 @@ public class SunAndStars
      * @return a new unit vector in world (horizontal) coordinates
      */
     public Vector3f sunDirection() {
-        Vector3f result = convertToWorld(0f, solarLongitude);
+        Vector3f result;
+        if (isEphemerisUsable()) {
+            result = ephemeris.sunDirection(hour, solarLongitude, null);
+        } else {
+            result = convertToWorld(0f, solarLongitude);
+        }
 
         assert result.isUnitVector();
         return result;
@@ -500,4 +598,22 @@ public class SunAndStars
                 Constants.defaultLatitude);
         capsule.write(solarLongitude, "solarLongitude", 0f);
     }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Test whether the ephemeris covers the current latitude and solar
+     * longitude.
+     *
+     * @return true if it does, otherwise false
+     */
+    private boolean isEphemerisUsable() {
+        if (ephemeris == null) {
+            return false;
+        } else {
+            boolean result
+                    = ephemeris.covers(observerLatitude, solarLongitude);
+            return result;
+        }
+    }
 }
@@ -34,6 +34,7 @@ import com.jme3.export.Savable;
 import com.jme3.light.AmbientLight;
 import com.jme3.light.DirectionalLight;
 import com.jme3.math.ColorRGBA;
+import com.jme3.math.FastMath;
 import com.jme3.math.Vector3f;
 import com.jme3.post.filters.BloomFilter;
 import com.jme3.renderer.ViewPort;
@@ -48,11 +49,16 @@ import java.util.logging.Level;
 import java.util.logging.Logger;
 import jme3utilities.Validate;
 import jme3utilities.ViewPortListener;
+import jme3utilities.math.MyVector3f;
 
 /**
  * Component of SkyControl to keep track of all the lights, shadows, and
  * viewports updated by the control. It also keeps track of the values applied
  * during the most recent update.
+ * <p>
+ * To avoid invalidating downstream state, a value is applied only if it
+ * differs from the one previously applied by more than the corresponding
+ * tolerance.
  *
  * @author Stephen Gold sgold@sonic.net
  */
@@ -73,6 +79,10 @@ public class Updater
      * which ambient light to update (or null for none)
      */
     private AmbientLight ambientLight = null;
+    /**
+     * true if the next update should apply all values, even unchanged ones
+     */
+    private boolean forceApply = true;
     /**
      * most recent color for ambient light (or null if not updated yet)
      */
@@ -85,6 +95,24 @@ public class Updater
      * most recent color for main directional light (or null if not updated yet)
      */
     private ColorRGBA mainColor = null;
+    /**
+     * ambient-light color most recently applied (after multiplier) - not
+     * serialized
+     */
+    private ColorRGBA appliedAmbient = new ColorRGBA();
+    /**
+     * background color most recently applied - not serialized
+     */
+    private ColorRGBA appliedBackground = new ColorRGBA();
+    /**
+     * main-light color most recently applied (after multiplier) - not
+     * serialized
+     */
+    private ColorRGBA appliedMain = new ColorRGBA();
+    /**
+     * temporary storage for a light color - not serialized
+     */
+    private ColorRGBA tmpColor = new ColorRGBA();
     /**
      * which directional light to update (or null for none)
      */
@@ -93,10 +121,32 @@ public class Updater
      * multiplier when applying the ambient light color (1 &rarr; default)
      */
     private float ambientMultiplier = 1f;
+    /**
+     * bloom intensity most recently applied - not serialized
+     */
+    private float appliedBloom = 0f;
+    /**
+     * shadow intensity most recently applied - not serialized
+     */
+    private float appliedShadow = 0f;
     /**
      * most recent bloom intensity
      */
     private float bloomIntensity = 0f;
+    /**
+     * largest change in any color component that's ignored (&ge;0, default=0)
+     */
+    private float colorTolerance = 0f;
+    /**
+     * largest change in the light direction that's ignored (&ge;0,
+     * default=0)
+     */
+    private float directionTolerance = 0f;
+    /**
+     * largest change in a bloom or shadow intensity that's ignored (&ge;0,
+     * default=0)
+     */
+    private float intensityTolerance = 0f;
     /**
      * multiplier when applying the main light color (1 &rarr; default)
      */
@@ -130,6 +180,15 @@ public class Updater
      * not updated yet)
      */
     private Vector3f direction = null;
+    /**
+     * light direction most recently applied (length=1) - not serialized
+     */
+    private Vector3f appliedDirection = new Vector3f();
+    /**
+     * temporary storage for the light's propagation direction - not
+     * serialized
+     */
+    private Vector3f tmpVector = new Vector3f();
     // *************************************************************************
     // new methods exposed
 
@@ -143,6 +202,7 @@ public class Updater
         Validate.nonNull(filter, "filter");
 
         bloomFilters.add(filter);
+        forceApply = true;
     }
 
     /**
@@ -154,7 +214,9 @@ public class Updater
     @SuppressWarnings("rawtypes")
     public void addShadowFilter(AbstractShadowFilter filter) {
         Validate.nonNull(filter, "filter");
+
         shadowFilters.add(filter);
+        forceApply = true;
     }
 
     /**
@@ -165,7 +227,9 @@ public class Updater
      */
     public void addShadowRenderer(AbstractShadowRenderer renderer) {
         Validate.nonNull(renderer, "renderer");
+
         shadowRenderers.add(renderer);
+        forceApply = true;
     }
 
     /**
@@ -220,6 +284,16 @@ public class Updater
         return bloomIntensity;
     }
 
+    /**
+     * Read the tolerance for changes in color.
+     *
+     * @return the largest change in any color component that's ignored (&ge;0)
+     */
+    public float getColorTolerance() {
+        assert colorTolerance >= 0f : colorTolerance;
+        return colorTolerance;
+    }
+
     /**
      * Copy the most recent direction for the main directional light.
      *
@@ -232,6 +306,27 @@ public class Updater
         return direction.clone();
     }
 
+    /**
+     * Read the tolerance for changes in the light direction.
+     *
+     * @return the largest change that's ignored (distance between unit
+     * vectors, &ge;0)
+     */
+    public float getDirectionTolerance() {
+        assert directionTolerance >= 0f : directionTolerance;
+        return directionTolerance;
+    }
+
+    /**
+     * Read the tolerance for changes in bloom and shadow intensities.
+     *
+     * @return the largest change that's ignored (&ge;0)
+     */
+    public float getIntensityTolerance() {
+        assert intensityTolerance >= 0f : intensityTolerance;
+        return intensityTolerance;
+    }
+
     /**
      * Copy the most recent color for the main directional light.
      *
@@ -272,6 +367,15 @@ public class Updater
         return shadowIntensity;
     }
 
+    /**
+     * Force the next update to apply every value, even those that haven't
+     * changed. Invoke this after other code alters a light, filter, renderer,
+     * or viewport managed by this updater.
+     */
+    public void invalidate() {
+        forceApply = true;
+    }
+
     /**
      * Remove a bloom filter from the list of filters whose intensities are
      * updated by the control. Note that the list is not serialized.
@@ -328,6 +432,7 @@ public class Updater
      */
     public void setAmbientLight(AmbientLight ambientLight) {
         this.ambientLight = ambientLight;
+        forceApply = true;
     }
 
     /**
@@ -337,7 +442,9 @@ public class Updater
      */
     public void setAmbientMultiplier(float factor) {
         Validate.nonNegative(factor, "factor");
+
         ambientMultiplier = factor;
+        forceApply = true;
     }
 
     /**
@@ -351,6 +458,30 @@ public class Updater
         }
     }
 
+    /**
+     * Alter the tolerance for changes in color. Changes no larger than the
+     * tolerance aren't applied.
+     *
+     * @param newTolerance the largest change in any color component to ignore
+     * (&ge;0, default=0)
+     */
+    public void setColorTolerance(float newTolerance) {
+        Validate.nonNegative(newTolerance, "new tolerance");
+        colorTolerance = newTolerance;
+    }
+
+    /**
+     * Alter the tolerance for changes in the light direction. Changes no
+     * larger than the tolerance aren't applied.
+     *
+     * @param newTolerance the largest change to ignore (distance between unit
+     * vectors, &ge;0, default=0)
+     */
+    public void setDirectionTolerance(float newTolerance) {
+        Validate.nonNegative(newTolerance, "new tolerance");
+        directionTolerance = newTolerance;
+    }
+
     /**
      * Set filters, renderers, and viewports based on another updater.
      *
@@ -361,6 +492,18 @@ public class Updater
         shadowFilters = otherUpdater.shadowFilters;
         shadowRenderers = otherUpdater.shadowRenderers;
         viewPorts = otherUpdater.viewPorts;
+        forceApply = true;
+    }
+
+    /**
+     * Alter the tolerance for changes in bloom and shadow intensities. Changes
+     * no larger than the tolerance aren't applied.
+     *
+     * @param newTolerance the largest change to ignore (&ge;0, default=0)
+     */
+    public void setIntensityTolerance(float newTolerance) {
+        Validate.nonNegative(newTolerance, "new tolerance");
+        intensityTolerance = newTolerance;
     }
 
     /**
@@ -373,6 +516,7 @@ public class Updater
      */
     public void setMainLight(DirectionalLight mainLight) {
         this.mainLight = mainLight;
+        forceApply = true;
     }
 
     /**
@@ -382,7 +526,9 @@ public class Updater
      */
     public void setMainMultiplier(float factor) {
         Validate.nonNegative(factor, "factor");
+
         mainMultiplier = factor;
+        forceApply = true;
     }
 
     /**
@@ -448,34 +594,69 @@ public class Updater
             this.direction.set(direction);
         }
 
+        /*
+         * Apply only those values that differ significantly from the ones
+         * most recently applied, since each setter invalidates state
+         * downstream.
+         */
         if (mainLight != null) {
-            ColorRGBA color = mainColor.mult(mainMultiplier);
-            mainLight.setColor(color);
-            /*
-             * The direction of the main light is the direction in which it
-             * propagates, which is the opposite of the direction to the
-             * light source.
-             */
-            Vector3f propagationDirection = direction.negate();
-            mainLight.setDirection(propagationDirection);
+            tmpColor.set(mainColor);
+            tmpColor.multLocal(mainMultiplier);
+            if (forceApply
+                    || !isSimilar(tmpColor, appliedMain, colorTolerance)) {
+                mainLight.setColor(tmpColor);
+                appliedMain.set(tmpColor);
+            }
+            float tolerance2 = directionTolerance * directionTolerance;
+            if (forceApply || !MyVector3f.doCoincide(direction,
+                    appliedDirection, tolerance2)) {
+                /*
+                 * The direction of the main light is the direction in which
+                 * it propagates, which is the opposite of the direction to
+                 * the light source.
+                 */
+                tmpVector.set(direction);
+                tmpVector.negateLocal();
+                mainLight.setDirection(tmpVector);
+                appliedDirection.set(direction);
+            }
         }
         if (ambientLight != null) {
-            ColorRGBA color = ambientColor.mult(ambientMultiplier);
-            ambientLight.setColor(color);
+            tmpColor.set(ambientColor);
+            tmpColor.multLocal(ambientMultiplier);
+            if (forceApply
+                    || !isSimilar(tmpColor, appliedAmbient, colorTolerance)) {
+                ambientLight.setColor(tmpColor);
+                appliedAmbient.set(tmpColor);
+            }
         }
-        for (BloomFilter filter : bloomFilters) {
-            filter.setBloomIntensity(bloomIntensity);
+        if (forceApply || FastMath.abs(bloomIntensity - appliedBloom)
+                > intensityTolerance) {
+            for (BloomFilter filter : bloomFilters) {
+                filter.setBloomIntensity(bloomIntensity);
+            }
+            appliedBloom = bloomIntensity;
         }
-        for (@SuppressWarnings("rawtypes") AbstractShadowFilter filter
-                : shadowFilters) {
-            filter.setShadowIntensity(shadowIntensity);
+        if (forceApply || FastMath.abs(shadowIntensity - appliedShadow)
+                > intensityTolerance) {
+            for (@SuppressWarnings("rawtypes") AbstractShadowFilter filter
+                    : shadowFilters) {
+                filter.setShadowIntensity(shadowIntensity);
+            }
+            for (AbstractShadowRenderer renderer : shadowRenderers) {
+                renderer.setShadowIntensity(shadowIntensity);
+            }
+            appliedShadow = shadowIntensity;
         }
-        for (AbstractShadowRenderer renderer : shadowRenderers) {
-            renderer.setShadowIntensity(shadowIntensity);
-        }
-        for (ViewPort viewPort : viewPorts) {
-            viewPort.setBackgroundColor(backgroundColor);
+        if (forceApply || !isSimilar(backgroundColor, appliedBackground,
+                colorTolerance)) {
+            for (ViewPort viewPort : viewPorts) {
+                viewPort.setBackgroundColor(backgroundColor);
+            }
+            appliedBackground.set(backgroundColor);
         }
+
+        forceApply = false;
     }
     // *************************************************************************
     // JmeCloneable methods
@@ -499,6 +680,14 @@ public class Updater
         mainColor = cloner.clone(mainColor);
         mainLight = cloner.clone(mainLight);
         direction = cloner.clone(direction);
+
+        appliedAmbient = appliedAmbient.clone();
+        appliedBackground = appliedBackground.clone();
+        appliedDirection = appliedDirection.clone();
+        appliedMain = appliedMain.clone();
+        forceApply = true;
+        tmpColor = new ColorRGBA();
+        tmpVector = new Vector3f();
     }
 
     /**
@@ -536,6 +725,9 @@ public class Updater
         mainLight = (DirectionalLight) ic.readSavable("mainLight", null);
         ambientMultiplier = ic.readFloat("ambientMultiplier", 1f);
         bloomIntensity = ic.readFloat("bloomIntensity", 0f);
+        colorTolerance = ic.readFloat("colorTolerance", 0f);
+        directionTolerance = ic.readFloat("directionTolerance", 0f);
+        intensityTolerance = ic.readFloat("intensityTolerance", 0f);
         mainMultiplier = ic.readFloat("mainMultiplier", 1f);
         shadowIntensity = ic.readFloat("shadowIntensity", 0f);
         direction = (Vector3f) ic.readSavable("direction", null);
@@ -559,6 +751,9 @@ public class Updater
         oc.write(mainLight, "mainLight", null);
         oc.write(ambientMultiplier, "ambientMultiplier", 1f);
         oc.write(bloomIntensity, "bloomIntensity", 0f);
+        oc.write(colorTolerance, "colorTolerance", 0f);
+        oc.write(directionTolerance, "directionTolerance", 0f);
+        oc.write(intensityTolerance, "intensityTolerance", 0f);
         oc.write(mainMultiplier, "mainMultiplier", 1f);
         oc.write(shadowIntensity, "shadowIntensity", 0f);
         oc.write(direction, "direction", null);
@@ -575,7 +770,9 @@ public class Updater
     @Override
     public void addViewPort(ViewPort viewPort) {
         Validate.nonNull(viewPort, "viewport");
+
         viewPorts.add(viewPort);
+        forceApply = true;
     }
 
     /**
@@ -593,4 +790,28 @@ public class Updater
             logger.log(Level.WARNING, "not removed");
         }
     }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Test whether two colors are within the specified tolerance of each
+     * other.
+     *
+     * @param color1 the 1st color (not null, unaffected)
+     * @param color2 the 2nd color (not null, unaffected)
+     * @param tolerance the largest difference to ignore in any component
+     * (&ge;0)
+     * @return true if similar, otherwise false
+     */
+    private static boolean isSimilar(ColorRGBA color1, ColorRGBA color2,
+            float tolerance) {
+        if (FastMath.abs(color1.r - color2.r) > tolerance
+                || FastMath.abs(color1.g - color2.g) > tolerance
+                || FastMath.abs(color1.b - color2.b) > tolerance
+                || FastMath.abs(color1.a - color2.a) > tolerance) {
+            return false;
+        } else {
+            return true;
+        }
+    }
 }
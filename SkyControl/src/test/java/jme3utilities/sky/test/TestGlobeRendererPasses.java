@@ -0,0 +1,160 @@
+/*
+ Copyright (c) 2019, Stephen Gold
+ All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright
+ notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright
+ notice, this list of conditions and the following disclaimer in the
+ documentation and/or other materials provided with the distribution.
+ * Neither the name of the copyright holder nor the names of its contributors
+ may be used to endorse or promote products derived from this software without
+ specific prior written permission.
+
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jme3utilities.sky.test;
+
+import com.jme3.app.SimpleApplication;
+import com.jme3.app.state.AppState;
+import com.jme3.app.state.AppStateManager;
+import com.jme3.asset.DesktopAssetManager;
+import com.jme3.input.FlyByCamera;
+import com.jme3.input.InputManager;
+import com.jme3.input.dummy.DummyKeyInput;
+import com.jme3.input.dummy.DummyMouseInput;
+import com.jme3.material.Material;
+import com.jme3.renderer.Camera;
+import com.jme3.renderer.RenderManager;
+import com.jme3.renderer.ViewPort;
+import com.jme3.texture.Image;
+import java.util.List;
+import java.util.logging.Logger;
+import jme3utilities.sky.GlobeRenderer;
+import org.junit.Test;
+
+/**
+ * JUnit tests for the off-screen passes of the GlobeRenderer class.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+public class TestGlobeRendererPasses {
+    // *************************************************************************
+    // constants and loggers
+
+    /**
+     * message logger for this class
+     */
+    final private static Logger logger = Logger.getLogger(
+            TestGlobeRendererPasses.class.getName());
+    /**
+     * number of frames to simulate
+     */
+    final private static int numFrames = 40;
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Verify that, by default, small changes in phase don't trigger off-screen
+     * passes, and that they do when quantization is disabled.
+     */
+    @Test
+    public void testPhaseSkip() {
+        GlobeRenderer renderer = newRenderer();
+        assert renderer.getPhaseSteps() > 0;
+        int numPasses = countPasses(renderer);
+        assert numPasses <= 3 : numPasses;
+
+        renderer = newRenderer();
+        renderer.setPhaseSteps(0);
+        numPasses = countPasses(renderer);
+        assert numPasses == numFrames : numPasses;
+    }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Attach the specified renderer to a fresh stub application, then simulate
+     * a slowly drifting phase and count the frames with an off-screen pass.
+     *
+     * @param renderer the renderer to test (not null, not attached)
+     * @return the number of frames with an off-screen pass (&ge;0)
+     */
+    private static int countPasses(GlobeRenderer renderer) {
+        StubApplication application = new StubApplication();
+        AppStateManager stateManager = application.getStateManager();
+        stateManager.attach(renderer);
+        RenderManager renderManager = application.getRenderManager();
+
+        int result = 0;
+        for (int frameIndex = 0; frameIndex < numFrames; ++frameIndex) {
+            float theta = 1f + 0.001f * frameIndex;
+            renderer.setPhase(theta, 0f);
+            stateManager.update(0.016f);
+
+            List<ViewPort> preViews = renderManager.getPreViews();
+            assert preViews.size() == 1 : preViews.size();
+            if (preViews.get(0).isEnabled()) {
+                ++result;
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Create a renderer for testing.
+     *
+     * @return a new instance (not attached)
+     */
+    private static GlobeRenderer newRenderer() {
+        Material material = new Material();
+        GlobeRenderer result = new GlobeRenderer(material,
+                Image.Format.Luminance8Alpha8, 12, 16, 64);
+
+        return result;
+    }
+    // *************************************************************************
+    // nested classes
+
+    /**
+     * Application with just enough state to initialize app states, but no
+     * rendering context.
+     */
+    private static class StubApplication extends SimpleApplication {
+        /**
+         * Instantiate an application with no initial app states.
+         */
+        StubApplication() {
+            super(new AppState[0]);
+
+            assetManager = new DesktopAssetManager();
+            cam = new Camera(640, 480);
+            flyCam = new FlyByCamera(cam);
+            inputManager = new InputManager(new DummyMouseInput(),
+                    new DummyKeyInput(), null, null);
+            renderManager = new RenderManager(null);
+            viewPort = renderManager.createMainView("Default", cam);
+            guiViewPort = renderManager.createPostView("Gui Default", cam);
+        }
+
+        /**
+         * Callback invoked when the application starts: never invoked.
+         */
+        @Override
+        public void simpleInitApp() {
+            throw new IllegalStateException();
+        }
+    }
+}
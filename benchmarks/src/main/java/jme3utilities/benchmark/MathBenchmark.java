@@ -0,0 +1,178 @@
+/*
+ Copyright (c) 2019, Stephen Gold
+ All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright
+ notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright
+ notice, this list of conditions and the following disclaimer in the
+ documentation and/or other materials provided with the distribution.
+ * Neither the name of the copyright holder nor the names of its contributors
+ may be used to endorse or promote products derived from this software without
+ specific prior written permission.
+
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jme3utilities.benchmark;
+
+import com.jme3.math.Quaternion;
+import com.jme3.math.Vector3f;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+import jme3utilities.math.MyQuaternion;
+import jme3utilities.math.MyVector3f;
+import jme3utilities.math.noise.Generator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * JMH benchmarks for frequently-used methods of MyQuaternion and MyVector3f.
+ * Each benchmark processes a fixed array of pseudo-random inputs.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+@BenchmarkMode(Mode.AverageTime)
+@Fork(1)
+@Measurement(iterations = 5, time = 1)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 3, time = 1)
+public class MathBenchmark {
+    // *************************************************************************
+    // constants and loggers
+
+    /**
+     * number of inputs processed per benchmark invocation
+     */
+    final private static int numInputs = 256;
+    /**
+     * message logger for this class
+     */
+    final private static Logger logger
+            = Logger.getLogger(MathBenchmark.class.getName());
+    // *************************************************************************
+    // fields
+
+    /**
+     * pseudo-random unit quaternions
+     */
+    final private Quaternion[] rotations = new Quaternion[numInputs + 3];
+    /**
+     * reusable storage for quaternion results
+     */
+    final private Quaternion tmpQuaternion = new Quaternion();
+    /**
+     * pseudo-random locations
+     */
+    final private Vector3f[] locations = new Vector3f[numInputs + 3];
+    /**
+     * reusable storage for vector results
+     */
+    final private Vector3f tmpVector = new Vector3f();
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Benchmark MyVector3f.distanceSquaredToSegment().
+     *
+     * @param blackhole sink for the results (not null)
+     */
+    @Benchmark
+    public void distanceSquaredToSegment(Blackhole blackhole) {
+        for (int i = 0; i < numInputs; ++i) {
+            double d2 = MyVector3f.distanceSquaredToSegment(locations[i],
+                    locations[i + 1], locations[i + 2], tmpVector);
+            blackhole.consume(d2);
+        }
+    }
+
+    /**
+     * Benchmark MyVector3f.intersectSegments().
+     *
+     * @param blackhole sink for the results (not null)
+     */
+    @Benchmark
+    public void intersectSegments(Blackhole blackhole) {
+        for (int i = 0; i < numInputs; ++i) {
+            Vector3f result = MyVector3f.intersectSegments(locations[i],
+                    locations[i + 1], locations[i + 2], locations[i + 3],
+                    0.001f);
+            blackhole.consume(result);
+        }
+    }
+
+    /**
+     * Benchmark MyQuaternion.log() followed by MyQuaternion.exp().
+     *
+     * @param blackhole sink for the results (not null)
+     */
+    @Benchmark
+    public void logExp(Blackhole blackhole) {
+        for (int i = 0; i < numInputs; ++i) {
+            MyQuaternion.log(rotations[i], tmpQuaternion);
+            MyQuaternion.exp(tmpQuaternion, tmpQuaternion);
+            blackhole.consume(tmpQuaternion.getW());
+        }
+    }
+
+    /**
+     * Generate the pseudo-random inputs.
+     */
+    @Setup
+    public void setup() {
+        Generator generator = new Generator(5_678L);
+        for (int i = 0; i < rotations.length; ++i) {
+            rotations[i] = generator.nextQuaternion();
+            rotations[i].normalizeLocal();
+            locations[i] = generator.nextVector3f();
+        }
+    }
+
+    /**
+     * Benchmark MyQuaternion.slerp().
+     *
+     * @param blackhole sink for the results (not null)
+     */
+    @Benchmark
+    public void slerp(Blackhole blackhole) {
+        for (int i = 0; i < numInputs; ++i) {
+            MyQuaternion.slerp(0.3f, rotations[i], rotations[i + 1],
+                    tmpQuaternion);
+            blackhole.consume(tmpQuaternion.getW());
+        }
+    }
+
+    /**
+     * Benchmark MyQuaternion.squad().
+     *
+     * @param blackhole sink for the results (not null)
+     */
+    @Benchmark
+    public void squad(Blackhole blackhole) {
+        for (int i = 0; i < numInputs; ++i) {
+            MyQuaternion.squad(0.7f, rotations[i], rotations[i + 1],
+                    rotations[i + 2], rotations[i + 3], tmpQuaternion);
+            blackhole.consume(tmpQuaternion.getW());
+        }
+    }
+}
@@ -0,0 +1,169 @@
+/*
+ Copyright (c) 2019, Stephen Gold
+ All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright
+ notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright
+ notice, this list of conditions and the following disclaimer in the
+ documentation and/or other materials provided with the distribution.
+ * Neither the name of the copyright holder nor the names of its contributors
+ may be used to endorse or promote products derived from this software without
+ specific prior written permission.
+
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jme3utilities.benchmark;
+
+import com.jme3.math.Vector3f;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+import jme3utilities.math.noise.Generator;
+import jme3utilities.navigation.NavArc;
+import jme3utilities.navigation.NavGraph;
+import jme3utilities.navigation.NavVertex;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * JMH benchmarks for NavGraph.seek() on a square grid with reversible arcs.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+@BenchmarkMode(Mode.AverageTime)
+@Fork(1)
+@Measurement(iterations = 5, time = 1)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 3, time = 1)
+public class NavGraphBenchmark {
+    // *************************************************************************
+    // constants and loggers
+
+    /**
+     * number of pre-generated queries, cycled through by the benchmarks
+     */
+    final private static int numQueries = 64;
+    /**
+     * message logger for this class
+     */
+    final private static Logger logger
+            = Logger.getLogger(NavGraphBenchmark.class.getName());
+    // *************************************************************************
+    // fields
+
+    /**
+     * number of vertices along each side of the grid
+     */
+    @Param({"10", "60"})
+    public int gridSize;
+    /**
+     * index of the next query
+     */
+    private int nextQuery = 0;
+    /**
+     * graph under test
+     */
+    private NavGraph graph;
+    /**
+     * goal of each query
+     */
+    final private NavVertex[] ends = new NavVertex[numQueries];
+    /**
+     * starting point of each query
+     */
+    final private NavVertex[] starts = new NavVertex[numQueries];
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Seek a route using the A* heuristic.
+     *
+     * @return the route found (not null)
+     */
+    @Benchmark
+    public List<NavArc> seekAStar() {
+        int i = nextQuery;
+        nextQuery = (i + 1) % numQueries;
+        List<NavArc> result = graph.seek(starts[i], ends[i], 1f);
+
+        return result;
+    }
+
+    /**
+     * Seek a route without a heuristic (Dijkstra's algorithm).
+     *
+     * @return the route found (not null)
+     */
+    @Benchmark
+    public List<NavArc> seekDijkstra() {
+        int i = nextQuery;
+        nextQuery = (i + 1) % numQueries;
+        List<NavArc> result = graph.seek(starts[i], ends[i]);
+
+        return result;
+    }
+
+    /**
+     * Generate the grid and the queries. Each arc costs between 1 and 2 times
+     * the distance between its endpoints, so the A* heuristic is admissible
+     * with a factor of 1.
+     */
+    @Setup
+    public void setup() {
+        Generator generator = new Generator(7_890L);
+        graph = new NavGraph();
+        NavVertex[][] grid = new NavVertex[gridSize][gridSize];
+        for (int i = 0; i < gridSize; ++i) {
+            for (int j = 0; j < gridSize; ++j) {
+                String name = String.format("%d,%d", i, j);
+                Vector3f location = new Vector3f(i, 0f, j);
+                grid[i][j] = graph.addVertex(name, null, location);
+            }
+        }
+        for (int i = 0; i < gridSize; ++i) {
+            for (int j = 0; j < gridSize; ++j) {
+                if (i + 1 < gridSize) {
+                    float cost = 1f + generator.nextFloat();
+                    graph.addArcPair(grid[i][j], grid[i + 1][j], cost);
+                }
+                if (j + 1 < gridSize) {
+                    float cost = 1f + generator.nextFloat();
+                    graph.addArcPair(grid[i][j], grid[i][j + 1], cost);
+                }
+            }
+        }
+
+        for (int q = 0; q < numQueries; ++q) {
+            int i = generator.nextInt(gridSize);
+            int j = generator.nextInt(gridSize);
+            starts[q] = grid[i][j];
+            do {
+                i = generator.nextInt(gridSize);
+                j = generator.nextInt(gridSize);
+            } while (grid[i][j] == starts[q]);
+            ends[q] = grid[i][j];
+        }
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ Copyright (c) 2019, Stephen Gold
+ All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright
+ notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright
+ notice, this list of conditions and the following disclaimer in the
+ documentation and/or other materials provided with the distribution.
+ * Neither the name of the copyright holder nor the names of its contributors
+ may be used to endorse or promote products derived from this software without
+ specific prior written permission.
+
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jme3utilities.benchmark;
+
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+import jme3utilities.math.noise.Noise;
+import jme3utilities.math.noise.Perlin2;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * JMH benchmarks for Perlin2 and Noise.fbmNoise(), each sampling a 64x64
+ * grid.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+@BenchmarkMode(Mode.AverageTime)
+@Fork(1)
+@Measurement(iterations = 5, time = 1)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 3, time = 1)
+public class NoiseBenchmark {
+    // *************************************************************************
+    // constants and loggers
+
+    /**
+     * number of samples along each side of the grid
+     */
+    final private static int gridSize = 64;
+    /**
+     * message logger for this class
+     */
+    final private static Logger logger
+            = Logger.getLogger(NoiseBenchmark.class.getName());
+    // *************************************************************************
+    // fields
+
+    /**
+     * noise generator under test
+     */
+    final private Perlin2 perlin = new Perlin2(256, 256, 3_000L, 4_000L);
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Sample 6-octave fractional Brownian motion on the grid.
+     *
+     * @return the sum of the samples
+     */
+    @Benchmark
+    public float fbmNoise() {
+        float sum = 0f;
+        for (int i = 0; i < gridSize; ++i) {
+            float x = i / 16f;
+            for (int j = 0; j < gridSize; ++j) {
+                float y = j / 16f;
+                sum += Noise.fbmNoise(perlin, x, y, 6, 1f, 0.5f, 2f);
+            }
+        }
+
+        return sum;
+    }
+
+    /**
+     * Sample normalized Perlin noise on the grid.
+     *
+     * @return the sum of the samples
+     */
+    @Benchmark
+    public float sampleNormalized() {
+        float sum = 0f;
+        for (int i = 0; i < gridSize; ++i) {
+            float x = i / 16f;
+            for (int j = 0; j < gridSize; ++j) {
+                float y = j / 16f;
+                sum += perlin.sampleNormalized(x, y);
+            }
+        }
+
+        return sum;
+    }
+}
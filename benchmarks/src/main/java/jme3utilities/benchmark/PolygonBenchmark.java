@@ -0,0 +1,126 @@
+/*
+ Copyright (c) 2019, Stephen Gold
+ All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright
+ notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright
+ notice, this list of conditions and the following disclaimer in the
+ documentation and/or other materials provided with the distribution.
+ * Neither the name of the copyright holder nor the names of its contributors
+ may be used to endorse or promote products derived from this software without
+ specific prior written permission.
+
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jme3utilities.benchmark;
+
+import com.jme3.math.FastMath;
+import com.jme3.math.Vector3f;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+import jme3utilities.math.noise.Generator;
+import jme3utilities.math.polygon.SimplePolygon3f;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * JMH benchmark for SimplePolygon3f.contains(), using a regular polygon in the
+ * X-Z plane and pseudo-random query points in and around it.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+@BenchmarkMode(Mode.AverageTime)
+@Fork(1)
+@Measurement(iterations = 5, time = 1)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 3, time = 1)
+public class PolygonBenchmark {
+    // *************************************************************************
+    // constants and loggers
+
+    /**
+     * number of query points per benchmark invocation
+     */
+    final private static int numQueries = 256;
+    /**
+     * message logger for this class
+     */
+    final private static Logger logger
+            = Logger.getLogger(PolygonBenchmark.class.getName());
+    // *************************************************************************
+    // fields
+
+    /**
+     * number of corners in the polygon
+     */
+    @Param({"4", "16", "64"})
+    public int numCorners;
+    /**
+     * polygon under test
+     */
+    private SimplePolygon3f polygon;
+    /**
+     * query points, about 1/4 of them in the polygon's plane
+     */
+    final private Vector3f[] queries = new Vector3f[numQueries];
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Test every query point for containment.
+     *
+     * @param blackhole sink for the results (not null)
+     */
+    @Benchmark
+    public void contains(Blackhole blackhole) {
+        for (Vector3f query : queries) {
+            blackhole.consume(polygon.contains(query));
+        }
+    }
+
+    /**
+     * Generate the polygon and the query points.
+     */
+    @Setup
+    public void setup() {
+        Vector3f[] corners = new Vector3f[numCorners];
+        for (int i = 0; i < numCorners; ++i) {
+            float theta = FastMath.TWO_PI * i / numCorners;
+            float x = FastMath.cos(theta);
+            float z = -FastMath.sin(theta);
+            corners[i] = new Vector3f(x, 0f, z);
+        }
+        polygon = new SimplePolygon3f(corners, 0.0001f);
+
+        Generator generator = new Generator(3_456L);
+        for (int i = 0; i < numQueries; ++i) {
+            float x = 2.4f * generator.nextFloat() - 1.2f;
+            float z = 2.4f * generator.nextFloat() - 1.2f;
+            float y = (i % 4 == 0) ? 0f : 0.1f * generator.nextFloat();
+            queries[i] = new Vector3f(x, y, z);
+        }
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ Copyright (c) 2019, Stephen Gold
+ All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright
+ notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright
+ notice, this list of conditions and the following disclaimer in the
+ documentation and/or other materials provided with the distribution.
+ * Neither the name of the copyright holder nor the names of its contributors
+ may be used to endorse or promote products derived from this software without
+ specific prior written permission.
+
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jme3utilities.benchmark;
+
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+import jme3utilities.evo.Population;
+import jme3utilities.math.noise.Generator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * JMH benchmarks for Population.add() and Population.cull().
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+@BenchmarkMode(Mode.AverageTime)
+@Fork(1)
+@Measurement(iterations = 5, time = 1)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 3, time = 1)
+public class PopulationBenchmark {
+    // *************************************************************************
+    // constants and loggers
+
+    /**
+     * message logger for this class
+     */
+    final private static Logger logger
+            = Logger.getLogger(PopulationBenchmark.class.getName());
+    // *************************************************************************
+    // fields
+
+    /**
+     * number of elements to add
+     */
+    @Param({"100", "1000"})
+    public int numElements;
+    /**
+     * fitness scores, including some duplicates
+     */
+    private Integer[] scores;
+    /**
+     * distinct elements
+     */
+    private String[] elements;
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Add all the elements to a population with room for half of them.
+     *
+     * @return the resulting population (not null)
+     */
+    @Benchmark
+    public Population<Integer, String> add() {
+        Population<Integer, String> result
+                = new Population<>(numElements / 2);
+        for (int i = 0; i < numElements; ++i) {
+            result.add(elements[i], scores[i]);
+        }
+
+        return result;
+    }
+
+    /**
+     * Fill a population and then cull it to 10% of its size.
+     *
+     * @return the resulting population (not null)
+     */
+    @Benchmark
+    public Population<Integer, String> addAndCull() {
+        Population<Integer, String> result = new Population<>(numElements);
+        for (int i = 0; i < numElements; ++i) {
+            result.add(elements[i], scores[i]);
+        }
+        result.cull(numElements / 10);
+
+        return result;
+    }
+
+    /**
+     * Generate the elements and their scores.
+     */
+    @Setup
+    public void setup() {
+        Generator generator = new Generator(9_012L);
+        elements = new String[numElements];
+        scores = new Integer[numElements];
+        for (int i = 0; i < numElements; ++i) {
+            elements[i] = "e" + i;
+            scores[i] = generator.nextInt(numElements / 4);
+        }
+    }
+}
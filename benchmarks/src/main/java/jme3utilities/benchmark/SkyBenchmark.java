@@ -0,0 +1,131 @@
+/*
+ Copyright (c) 2019, Stephen Gold
+ All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright
+ notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright
+ notice, this list of conditions and the following disclaimer in the
+ documentation and/or other materials provided with the distribution.
+ * Neither the name of the copyright holder nor the names of its contributors
+ may be used to endorse or promote products derived from this software without
+ specific prior written permission.
+
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jme3utilities.benchmark;
+
+import com.jme3.asset.AssetManager;
+import com.jme3.asset.DesktopAssetManager;
+import com.jme3.renderer.Camera;
+import com.jme3.scene.Node;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+import jme3utilities.sky.SkyControl;
+import jme3utilities.sky.StarsOption;
+import jme3utilities.sky.SunAndStars;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * JMH benchmark for a per-frame update of an enabled SkyControl, which
+ * exercises SkyControl.updateAll() without requiring a renderer. The time of
+ * day advances with each invocation, so the sun, moon, and stars move.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+@BenchmarkMode(Mode.AverageTime)
+@Fork(1)
+@Measurement(iterations = 5, time = 1)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 3, time = 1)
+public class SkyBenchmark {
+    // *************************************************************************
+    // constants and loggers
+
+    /**
+     * simulated time interval between frames (in seconds)
+     */
+    final private static float tpf = 1f / 60f;
+    /**
+     * message logger for this class
+     */
+    final private static Logger logger
+            = Logger.getLogger(SkyBenchmark.class.getName());
+    // *************************************************************************
+    // fields
+
+    /**
+     * name of the StarsOption to use
+     */
+    @Param({"Cube", "TopDome"})
+    public String starsOption;
+    /**
+     * control under test
+     */
+    private SkyControl skyControl;
+    /**
+     * time-of-day model of the control under test
+     */
+    private SunAndStars sunAndStars;
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Create a SkyControl, add it to a scene-graph node, and enable it.
+     */
+    @Setup
+    public void setup() {
+        AssetManager assetManager = new DesktopAssetManager(true);
+        Camera camera = new Camera(640, 480);
+        camera.setFrustumPerspective(45f, 640f / 480f, 1f, 1000f);
+        StarsOption option = StarsOption.valueOf(starsOption);
+        skyControl = new SkyControl(assetManager, camera, 0.8f, option, true);
+        skyControl.setCloudiness(0.5f);
+        skyControl.setCloudModulation(true);
+
+        Node rootNode = new Node("root node");
+        rootNode.addControl(skyControl);
+        skyControl.setEnabled(true);
+
+        sunAndStars = skyControl.getSunAndStars();
+    }
+
+    /**
+     * Advance the time of day by one simulated minute and update the control.
+     *
+     * @return the new hour (&ge;0, &lt;24)
+     */
+    @Benchmark
+    public float update() {
+        float hour = sunAndStars.getHour() + 1f / 60f;
+        if (hour >= 24f) {
+            hour -= 24f;
+        }
+        sunAndStars.setHour(hour);
+        skyControl.update(tpf);
+
+        return hour;
+    }
+}
@@ -0,0 +1,174 @@
+/*
+ Copyright (c) 2019, Stephen Gold
+ All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright
+ notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright
+ notice, this list of conditions and the following disclaimer in the
+ documentation and/or other materials provided with the distribution.
+ * Neither the name of the copyright holder nor the names of its contributors
+ may be used to endorse or promote products derived from this software without
+ specific prior written permission.
+
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jme3utilities.benchmark;
+
+import com.jme3.math.Vector3f;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+import jme3utilities.math.VectorSet;
+import jme3utilities.math.VectorSetUsingArrays;
+import jme3utilities.math.VectorSetUsingBuffer;
+import jme3utilities.math.VectorSetUsingCollection;
+import jme3utilities.math.noise.Generator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * JMH benchmarks comparing the VectorSet implementations.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+@BenchmarkMode(Mode.AverageTime)
+@Fork(1)
+@Measurement(iterations = 5, time = 1)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 3, time = 1)
+public class VectorSetBenchmark {
+    // *************************************************************************
+    // constants and loggers
+
+    /**
+     * message logger for this class
+     */
+    final private static Logger logger
+            = Logger.getLogger(VectorSetBenchmark.class.getName());
+    // *************************************************************************
+    // fields
+
+    /**
+     * name of the implementation to benchmark
+     */
+    @Param({"Arrays", "Buffer", "Collection"})
+    public String implementation;
+    /**
+     * number of distinct vectors to add
+     */
+    @Param({"1000", "5000"})
+    public int numVectors;
+    /**
+     * pre-populated set for the contains() benchmark
+     */
+    private VectorSet populated;
+    /**
+     * vectors to add, including about 50% duplicates
+     */
+    private Vector3f[] vectors;
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Add all the test vectors to a new set.
+     *
+     * @return the populated set (not null)
+     */
+    @Benchmark
+    public VectorSet add() {
+        VectorSet result = createSet();
+        for (Vector3f vector : vectors) {
+            result.add(vector);
+        }
+
+        return result;
+    }
+
+    /**
+     * Test every test vector for membership in a pre-populated set.
+     *
+     * @param blackhole sink for the results (not null)
+     */
+    @Benchmark
+    public void contains(Blackhole blackhole) {
+        for (Vector3f vector : vectors) {
+            blackhole.consume(populated.contains(vector));
+        }
+    }
+
+    /**
+     * Generate the test vectors and pre-populate a set.
+     */
+    @Setup
+    public void setup() {
+        Generator generator = new Generator(1_234L);
+        int numDistinct = numVectors / 2;
+        Vector3f[] distinct = new Vector3f[numDistinct];
+        for (int i = 0; i < numDistinct; ++i) {
+            distinct[i] = generator.nextVector3f();
+        }
+        vectors = new Vector3f[numVectors];
+        for (int i = 0; i < numVectors; ++i) {
+            if (i < numDistinct) {
+                vectors[i] = distinct[i];
+            } else {
+                int j = generator.nextInt(numDistinct);
+                vectors[i] = distinct[j].clone();
+            }
+        }
+
+        populated = createSet();
+        for (int i = 0; i < numVectors; i += 2) {
+            populated.add(vectors[i]);
+        }
+    }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Instantiate an empty set of the selected implementation.
+     *
+     * @return a new set (not null)
+     */
+    private VectorSet createSet() {
+        VectorSet result;
+        switch (implementation) {
+            case "Arrays":
+                result = new VectorSetUsingArrays(numVectors);
+                break;
+            case "Buffer":
+                result = new VectorSetUsingBuffer(numVectors);
+                break;
+            case "Collection":
+                result = new VectorSetUsingCollection(numVectors);
+                break;
+            default:
+                String message = "implementation = " + implementation;
+                throw new IllegalArgumentException(message);
+        }
+
+        return result;
+    }
+}
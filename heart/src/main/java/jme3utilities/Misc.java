@@ -376,7 +376,8 @@ public class Misc {
     }
 
     /**
-     * Set the specified pixel to the specified brightness and opacity.
+     * Set the specified pixel to the specified brightness and opacity. To
+     * set many pixels, {@link RasterWriter} is much faster.
      *
      * @param graphics rendering context of the pixel (not null)
      * @param x pixel's 1st coordinate (&lt;width, &ge;0)
@@ -448,12 +449,14 @@ public class Misc {
         File textureFile = new File(filePath);
         try {
             /*
-             * If a parent directory/folder is needed, create it.
+             * If a parent directory/folder is needed, create it. Another
+             * thread might create it concurrently, so mkdirs() failing
+             * is only an error if the directory still doesn't exist.
              */
             File parentDirectory = textureFile.getParentFile();
             if (parentDirectory != null && !parentDirectory.exists()) {
                 boolean success = parentDirectory.mkdirs();
-                if (!success) {
+                if (!success && !parentDirectory.isDirectory()) {
                     throw new IOException();
                 }
             }
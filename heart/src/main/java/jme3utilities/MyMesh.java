@@ -31,6 +31,7 @@ import com.jme3.material.Material;
 import com.jme3.material.RenderState;
 import com.jme3.math.ColorRGBA;
 import com.jme3.math.Matrix4f;
+import com.jme3.math.Transform;
 import com.jme3.math.Vector2f;
 import com.jme3.math.Vector3f;
 import com.jme3.math.Vector4f;
@@ -46,9 +47,12 @@ import java.nio.FloatBuffer;
 import java.nio.ShortBuffer;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 import jme3utilities.math.MyVector3f;
 import jme3utilities.math.VectorSet;
+import jme3utilities.math.VectorSetUsingArrays;
 import jme3utilities.math.VectorSetUsingBuffer;
 
 /**
@@ -73,6 +77,10 @@ public class MyMesh {
      * local copy of {@link com.jme3.math.Matrix4f#IDENTITY}
      */
     final private static Matrix4f matrixIdentity = new Matrix4f();
+    /**
+     * maximum number of vertices transformed by a single fork/join task
+     */
+    final private static int verticesPerChunk = 16_384;
     // *************************************************************************
     // constructors
 
@@ -281,6 +289,104 @@ public class MyMesh {
         return result;
     }
 
+    /**
+     * Enumerate the world locations of all vertices in the specified subtree of
+     * a scene graph, using a fork/join pool. Each position buffer is copied in
+     * bulk to a temporary array and transformed by its geometry's world matrix
+     * in parallel, after which the locations are added to the set on the
+     * calling thread, in the same order as
+     * {@link #listVertexLocations(com.jme3.scene.Spatial,
+     * jme3utilities.math.VectorSet)}.
+     *
+     * @param subtree (may be null)
+     * @param storeResult (added to if not null)
+     * @param pool the pool to execute on, or null to use the common pool
+     * @return the resulting set (either storeResult or a new instance)
+     */
+    public static VectorSet listVertexLocations(Spatial subtree,
+            VectorSet storeResult, ForkJoinPool pool) {
+        List<Geometry> geometries = new ArrayList<>(50);
+        addGeometries(subtree, geometries);
+        /*
+         * Gather the position buffers and world matrices on this thread,
+         * since refreshing a world transform may modify the geometry.
+         */
+        int numMeshes = geometries.size();
+        FloatBuffer[] positions = new FloatBuffer[numMeshes];
+        Matrix4f[] transforms = new Matrix4f[numMeshes];
+        float[][] locations = new float[numMeshes][];
+        int numChunks = 0;
+        for (int meshIndex = 0; meshIndex < numMeshes; ++meshIndex) {
+            Geometry geometry = geometries.get(meshIndex);
+            Mesh mesh = geometry.getMesh();
+            int numVertices = mesh.getVertexCount();
+            locations[meshIndex] = new float[MyVector3f.numAxes * numVertices];
+            if (numVertices > 0) {
+                VertexBuffer vertexBuffer
+                        = mesh.getBuffer(VertexBuffer.Type.Position);
+                positions[meshIndex]
+                        = (FloatBuffer) vertexBuffer.getDataReadOnly();
+                if (!geometry.isIgnoreTransform()) {
+                    Transform worldTransform = geometry.getWorldTransform();
+                    transforms[meshIndex] = worldTransform.toTransformMatrix();
+                }
+                numChunks += (numVertices + verticesPerChunk - 1)
+                        / verticesPerChunk;
+            }
+        }
+        /*
+         * Divide the vertices into chunks and transform them in parallel.
+         */
+        if (numChunks > 0) {
+            int[] chunkMesh = new int[numChunks];
+            int[] chunkStart = new int[numChunks];
+            int[] chunkEnd = new int[numChunks];
+            int chunkIndex = 0;
+            for (int meshIndex = 0; meshIndex < numMeshes; ++meshIndex) {
+                int numVertices
+                        = locations[meshIndex].length / MyVector3f.numAxes;
+                for (int start = 0; start < numVertices;
+                        start += verticesPerChunk) {
+                    chunkMesh[chunkIndex] = meshIndex;
+                    chunkStart[chunkIndex] = start;
+                    chunkEnd[chunkIndex]
+                            = Math.min(start + verticesPerChunk, numVertices);
+                    ++chunkIndex;
+                }
+            }
+            assert chunkIndex == numChunks : chunkIndex;
+
+            VertexTransformTask task = new VertexTransformTask(positions,
+                    transforms, locations, chunkMesh, chunkStart, chunkEnd, 0,
+                    numChunks);
+            if (pool == null) {
+                ForkJoinPool.commonPool().invoke(task);
+            } else {
+                pool.invoke(task);
+            }
+        }
+        /*
+         * Merge the results.
+         */
+        VectorSet result;
+        if (storeResult == null) {
+            result = new VectorSetUsingArrays(64);
+        } else {
+            result = storeResult;
+        }
+        Vector3f tempLocation = new Vector3f();
+        for (float[] meshLocations : locations) {
+            for (int i = 0; i < meshLocations.length; i += MyVector3f.numAxes) {
+                tempLocation.x = meshLocations[i];
+                tempLocation.y = meshLocations[i + 1];
+                tempLocation.z = meshLocations[i + 2];
+                result.add(tempLocation);
+            }
+        }
+
+        return result;
+    }
+
     /**
      * Find the largest weight in the specified mesh for the indexed bone.
      *
@@ -392,6 +498,86 @@ public class MyMesh {
         return result;
     }
 
+    /**
+     * Calculate the skinned positions (and optionally normals and tangents) of
+     * all vertices in the specified mesh, using the skinning matrices provided,
+     * and write them to caller-supplied buffers in mesh coordinates. This is
+     * equivalent to invoking
+     * {@link #vertexLocation(com.jme3.scene.Mesh, int,
+     * com.jme3.math.Matrix4f[], com.jme3.math.Vector3f)} (and its normal and
+     * tangent counterparts) for each vertex, but reads each buffer in a single
+     * sequential pass. For a mesh that isn't animated, the current positions,
+     * normals, and tangents are copied.
+     * <p>
+     * Data are written using absolute indices, starting from index 0. The
+     * positions and limits of the buffers are unaffected.
+     *
+     * @param mesh subject mesh (not null, unaffected, if animated then
+     * 1&le;maxNumWeights&le;4)
+     * @param skinningMatrices (not null, unaffected)
+     * @param storePositions storage for positions (not null, capacity &ge;
+     * 3*numVertices, modified)
+     * @param storeNormals storage for normals (capacity &ge; 3*numVertices,
+     * modified) or null to skip normals
+     * @param storeTangents storage for tangents (capacity &ge;
+     * 4*numVertices, modified) or null to skip tangents
+     * @param pool the pool to execute on, or null to skin sequentially on the
+     * current thread
+     */
+    public static void skinAll(Mesh mesh, Matrix4f[] skinningMatrices,
+            FloatBuffer storePositions, FloatBuffer storeNormals,
+            FloatBuffer storeTangents, ForkJoinPool pool) {
+        Validate.nonNull(mesh, "mesh");
+        Validate.nonNull(skinningMatrices, "skinning matrices");
+        int numVertices = mesh.getVertexCount();
+        validateCapacity(storePositions, 3 * numVertices, "store positions");
+        if (storeNormals != null) {
+            validateCapacity(storeNormals, 3 * numVertices, "store normals");
+        }
+        if (storeTangents != null) {
+            validateCapacity(storeTangents, 4 * numVertices,
+                    "store tangents");
+        }
+
+        if (!isAnimated(mesh)) {
+            copyFloats(mesh, VertexBuffer.Type.Position, storePositions);
+            if (storeNormals != null) {
+                copyFloats(mesh, VertexBuffer.Type.Normal, storeNormals);
+            }
+            if (storeTangents != null) {
+                copyFloats(mesh, VertexBuffer.Type.Tangent, storeTangents);
+            }
+            return;
+        }
+
+        int numWeights = mesh.getMaxNumWeights();
+        Validate.inRange(numWeights, "max number of weights", 1, maxWeights);
+        Buffer boneIndices = readOnlyData(mesh, VertexBuffer.Type.BoneIndex);
+        FloatBuffer weights = (FloatBuffer) readOnlyData(mesh,
+                VertexBuffer.Type.BoneWeight);
+        FloatBuffer bindPositions = (FloatBuffer) readOnlyData(mesh,
+                VertexBuffer.Type.BindPosePosition);
+        FloatBuffer bindNormals = null;
+        if (storeNormals != null) {
+            bindNormals = (FloatBuffer) readOnlyData(mesh,
+                    VertexBuffer.Type.BindPoseNormal);
+        }
+        FloatBuffer bindTangents = null;
+        if (storeTangents != null) {
+            bindTangents = (FloatBuffer) readOnlyData(mesh,
+                    VertexBuffer.Type.BindPoseTangent);
+        }
+
+        SkinningTask task = new SkinningTask(skinningMatrices, numWeights,
+                boneIndices, weights, bindPositions, bindNormals, bindTangents,
+                storePositions, storeNormals, storeTangents, 0, numVertices);
+        if (pool == null) {
+            task.skinRange();
+        } else {
+            pool.invoke(task);
+        }
+    }
+
     /**
      * Copy the bone indices for the indexed vertex.
      *
@@ -837,4 +1023,85 @@ public class MyMesh {
 
         return storeResult;
     }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Enumerate all geometries in the specified subtree of a scene graph, in
+     * depth-first order. Note: recursive!
+     *
+     * @param subtree (may be null)
+     * @param addResult (not null, added to)
+     */
+    private static void addGeometries(Spatial subtree,
+            List<Geometry> addResult) {
+        if (subtree instanceof Geometry) {
+            addResult.add((Geometry) subtree);
+
+        } else if (subtree instanceof Node) {
+            Node node = (Node) subtree;
+            List<Spatial> children = node.getChildren();
+            for (Spatial child : children) {
+                addGeometries(child, addResult);
+            }
+        }
+    }
+
+    /**
+     * Copy all data from the specified vertex buffer of a mesh to a
+     * FloatBuffer, starting at index 0.
+     *
+     * @param mesh subject mesh (not null, unaffected)
+     * @param bufferType which buffer to copy (not null)
+     * @param storeResult storage for the data (not null, modified, position
+     * and limit unaffected)
+     */
+    private static void copyFloats(Mesh mesh, VertexBuffer.Type bufferType,
+            FloatBuffer storeResult) {
+        FloatBuffer source = (FloatBuffer) readOnlyData(mesh, bufferType);
+        source.rewind();
+        FloatBuffer target = storeResult.duplicate();
+        target.clear();
+        target.put(source);
+    }
+
+    /**
+     * Access a read-only view of the data in the specified vertex buffer of a
+     * mesh.
+     *
+     * @param mesh subject mesh (not null, unaffected)
+     * @param bufferType which buffer to access (not null)
+     * @return a new view
+     */
+    private static Buffer readOnlyData(Mesh mesh,
+            VertexBuffer.Type bufferType) {
+        VertexBuffer vertexBuffer = mesh.getBuffer(bufferType);
+        if (vertexBuffer == null) {
+            logger.log(Level.SEVERE, "bufferType={0}", bufferType);
+            throw new IllegalArgumentException("The mesh lacks a buffer.");
+        }
+        Buffer result = vertexBuffer.getDataReadOnly();
+
+        return result;
+    }
+
+    /**
+     * Verify that a buffer (used as a method argument) is large enough.
+     *
+     * @param buffer the buffer to validate
+     * @param minCapacity the minimum capacity
+     * @param description description of the argument
+     */
+    private static void validateCapacity(FloatBuffer buffer, int minCapacity,
+            String description) {
+        Validate.nonNull(buffer, description);
+        if (buffer.capacity() < minCapacity) {
+            logger.log(Level.SEVERE, "{0}.capacity={1}",
+                    new Object[]{description, buffer.capacity()});
+            String message = String.format(
+                    "capacity of %s must be at least %d.", description,
+                    minCapacity);
+            throw new IllegalArgumentException(message);
+        }
+    }
 }
@@ -0,0 +1,290 @@
+/*
+ Copyright (c) 2019, Stephen Gold
+ All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright
+ notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright
+ notice, this list of conditions and the following disclaimer in the
+ documentation and/or other materials provided with the distribution.
+ * Neither the name of the copyright holder nor the names of its contributors
+ may be used to endorse or promote products derived from this software without
+ specific prior written permission.
+
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jme3utilities;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.util.Arrays;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Accumulate grayscale pixels (with optional opacity) in byte arrays and
+ * convert them to a BufferedImage in bulk. Much faster than
+ * {@link Misc#setGrayPixel(java.awt.Graphics2D, int, int, float, float)},
+ * which allocates a Color and fills a rectangle for each pixel.
+ * <p>
+ * Row 0 is the top row of the image, as in AWT.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+public class RasterWriter {
+    // *************************************************************************
+    // constants and loggers
+
+    /**
+     * message logger for this class
+     */
+    final private static Logger logger
+            = Logger.getLogger(RasterWriter.class.getName());
+    // *************************************************************************
+    // fields
+
+    /**
+     * opacity of each pixel (0=transparent, 255=opaque, in row-major order)
+     * or null if the image is opaque
+     */
+    final private byte[] alphas;
+    /**
+     * brightness of each pixel (0=black, 255=white, in row-major order)
+     */
+    final private byte[] grays;
+    /**
+     * height of the image (in pixels, &gt;0)
+     */
+    final private int height;
+    /**
+     * width of the image (in pixels, &gt;0)
+     */
+    final private int width;
+    // *************************************************************************
+    // constructors
+
+    /**
+     * Instantiate a writer for a black image of the specified size. If the
+     * image has opacity, it is initially transparent.
+     *
+     * @param width width of the image (in pixels, &gt;0)
+     * @param height height of the image (in pixels, &gt;0)
+     * @param withAlpha true for an image with opacity, false for an opaque
+     * image
+     */
+    public RasterWriter(int width, int height, boolean withAlpha) {
+        Validate.positive(width, "width");
+        Validate.positive(height, "height");
+
+        this.width = width;
+        this.height = height;
+        grays = new byte[width * height];
+        if (withAlpha) {
+            alphas = new byte[width * height];
+        } else {
+            alphas = null;
+        }
+    }
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Set every pixel to the same brightness and opacity.
+     *
+     * @param brightness (&ge;0, &le;1)
+     * @param opacity (&ge;0, &le;1, ignored if the image is opaque)
+     */
+    public void fill(float brightness, float opacity) {
+        Validate.fraction(brightness, "brightness");
+        Validate.fraction(opacity, "opacity");
+
+        byte gray = toByte(brightness);
+        if (alphas == null) {
+            Arrays.fill(grays, gray);
+        } else {
+            byte alpha = toByte(opacity);
+            if (alpha == 0) {
+                gray = 0;
+            }
+            Arrays.fill(grays, gray);
+            Arrays.fill(alphas, alpha);
+        }
+    }
+
+    /**
+     * Read the height of the image.
+     *
+     * @return the height (in pixels, &gt;0)
+     */
+    public int getHeight() {
+        assert height > 0 : height;
+        return height;
+    }
+
+    /**
+     * Read the width of the image.
+     *
+     * @return the width (in pixels, &gt;0)
+     */
+    public int getWidth() {
+        assert width > 0 : width;
+        return width;
+    }
+
+    /**
+     * Test whether the image has opacity.
+     *
+     * @return true if it has opacity, false if it's opaque
+     */
+    public boolean hasAlpha() {
+        if (alphas == null) {
+            return false;
+        } else {
+            return true;
+        }
+    }
+
+    /**
+     * Set the brightness of an opaque pixel.
+     *
+     * @param x the pixel's X coordinate (&ge;0, &lt;width)
+     * @param y the pixel's Y coordinate (&ge;0, &lt;height, 0&rarr;top row)
+     * @param brightness (&ge;0, &le;1)
+     */
+    public void setGray(int x, int y, float brightness) {
+        setGray(x, y, brightness, 1f);
+    }
+
+    /**
+     * Set the brightness and opacity of a pixel. Equivalent to
+     * {@link Misc#setGrayPixel(java.awt.Graphics2D, int, int, float, float)}
+     * applied to a pixel that is still transparent, except that translucent
+     * pixels avoid the round-off of AWT's alpha compositing.
+     *
+     * @param x the pixel's X coordinate (&ge;0, &lt;width)
+     * @param y the pixel's Y coordinate (&ge;0, &lt;height, 0&rarr;top row)
+     * @param brightness (&ge;0, &le;1)
+     * @param opacity (&ge;0, &le;1, ignored if the image is opaque)
+     */
+    public void setGray(int x, int y, float brightness, float opacity) {
+        Validate.inRange(x, "X coordinate", 0, width - 1);
+        Validate.inRange(y, "Y coordinate", 0, height - 1);
+        Validate.fraction(brightness, "brightness");
+        Validate.fraction(opacity, "opacity");
+
+        int index = x + width * y;
+        byte gray = toByte(brightness);
+        if (alphas != null) {
+            byte alpha = toByte(opacity);
+            alphas[index] = alpha;
+            if (alpha == 0) {
+                gray = 0;
+            }
+        }
+        grays[index] = gray;
+    }
+
+    /**
+     * Set the brightness of an entire row of opaque pixels.
+     *
+     * @param y the row's Y coordinate (&ge;0, &lt;height, 0&rarr;top row)
+     * @param brightness the brightness of each pixel in the row (not null,
+     * length=width, each &ge;0 and &le;1, unaffected)
+     */
+    public void setRow(int y, float[] brightness) {
+        Validate.inRange(y, "Y coordinate", 0, height - 1);
+        Validate.nonNull(brightness, "brightness");
+        if (brightness.length != width) {
+            logger.log(Level.SEVERE, "length={0}", brightness.length);
+            throw new IllegalArgumentException("length must equal width");
+        }
+        for (int x = 0; x < width; ++x) {
+            float value = brightness[x];
+            if (!(value >= 0f && value <= 1f)) {
+                logger.log(Level.SEVERE, "brightness[{0}]={1}",
+                        new Object[]{x, value});
+                throw new IllegalArgumentException(
+                        "brightness should be between 0 and 1");
+            }
+        }
+
+        int start = width * y;
+        for (int x = 0; x < width; ++x) {
+            grays[start + x] = toByte(brightness[x]);
+        }
+        if (alphas != null) {
+            Arrays.fill(alphas, start, start + width, toByte(1f));
+        }
+    }
+
+    /**
+     * Create a BufferedImage from the pixels written so far. The image type
+     * is TYPE_4BYTE_ABGR if the image has opacity, otherwise TYPE_BYTE_GRAY.
+     *
+     * @return a new image (not null)
+     */
+    public BufferedImage toBufferedImage() {
+        BufferedImage result;
+        if (alphas == null) {
+            result = new BufferedImage(width, height,
+                    BufferedImage.TYPE_BYTE_GRAY);
+            byte[] data = dataBytes(result);
+            System.arraycopy(grays, 0, data, 0, grays.length);
+
+        } else {
+            result = new BufferedImage(width, height,
+                    BufferedImage.TYPE_4BYTE_ABGR);
+            byte[] data = dataBytes(result);
+            int numPixels = grays.length;
+            for (int pixelIndex = 0; pixelIndex < numPixels; ++pixelIndex) {
+                int byteIndex = 4 * pixelIndex;
+                byte gray = grays[pixelIndex];
+                data[byteIndex] = alphas[pixelIndex];
+                data[byteIndex + 1] = gray;
+                data[byteIndex + 2] = gray;
+                data[byteIndex + 3] = gray;
+            }
+        }
+
+        return result;
+    }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Access the data array of a newly-created, byte-based BufferedImage.
+     *
+     * @param image the image (not null)
+     * @return the pre-existing array (not null)
+     */
+    private static byte[] dataBytes(BufferedImage image) {
+        DataBufferByte buffer = (DataBufferByte) image.getRaster()
+                .getDataBuffer();
+        byte[] result = buffer.getData();
+
+        return result;
+    }
+
+    /**
+     * Quantize a fraction to an unsigned byte, rounding the same way as
+     * java.awt.Color.
+     *
+     * @param fraction the value to quantize (&ge;0, &le;1)
+     * @return the quantized value (as a signed byte)
+     */
+    private static byte toByte(float fraction) {
+        int result = (int) (fraction * 255f + 0.5f);
+        return (byte) result;
+    }
+}
@@ -0,0 +1,369 @@
+/*
+ Copyright (c) 2019, Stephen Gold
+ All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright
+ notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright
+ notice, this list of conditions and the following disclaimer in the
+ documentation and/or other materials provided with the distribution.
+ * Neither the name of the copyright holder nor the names of its contributors
+ may be used to endorse or promote products derived from this software without
+ specific prior written permission.
+
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jme3utilities;
+
+import com.jme3.math.Matrix4f;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.nio.ShortBuffer;
+import java.util.concurrent.RecursiveAction;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A fork/join task that applies linear-blend skinning to a range of mesh
+ * vertices, reading the bind-pose buffers and writing skinned positions (and
+ * optionally normals and tangents) to caller-supplied buffers. Large ranges
+ * are split in half until they're small enough to process sequentially.
+ * <p>
+ * All buffer access is absolute, so tasks never modify buffer positions and
+ * may share buffers, writing only their own vertices.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+class SkinningTask extends RecursiveAction {
+    // *************************************************************************
+    // constants and loggers
+
+    /**
+     * message logger for this class
+     */
+    final private static Logger logger
+            = Logger.getLogger(SkinningTask.class.getName());
+    /**
+     * version number for serialization
+     */
+    static final long serialVersionUID = 1L;
+    /**
+     * number of weights stored per vertex in the BoneIndex and BoneWeight
+     * buffers
+     */
+    final private static int maxWeights = 4;
+    /**
+     * number of floats stored per skinning matrix (the top 3 rows)
+     */
+    final private static int matrixSize = 12;
+    /**
+     * maximum number of vertices skinned sequentially by a single task
+     */
+    final private static int verticesPerChunk = 8_192;
+    // *************************************************************************
+    // fields
+
+    /**
+     * bone indices if stored as bytes, otherwise null
+     */
+    final private ByteBuffer byteIndices;
+    /**
+     * bind-pose normals, or null to skip normals
+     */
+    final private FloatBuffer bindNormals;
+    /**
+     * bind-pose positions (not null)
+     */
+    final private FloatBuffer bindPositions;
+    /**
+     * bind-pose tangents, or null to skip tangents
+     */
+    final private FloatBuffer bindTangents;
+    /**
+     * storage for skinned normals, or null to skip normals
+     */
+    final private FloatBuffer storeNormals;
+    /**
+     * storage for skinned positions (not null)
+     */
+    final private FloatBuffer storePositions;
+    /**
+     * storage for skinned tangents, or null to skip tangents
+     */
+    final private FloatBuffer storeTangents;
+    /**
+     * bone weights (not null)
+     */
+    final private FloatBuffer weights;
+    /**
+     * top 3 rows of each skinning matrix, followed by those of an identity
+     * matrix for out-of-range bone indices
+     */
+    final private float[] matrices;
+    /**
+     * number of weights used per vertex (&ge;1, &le;maxWeights)
+     */
+    final private int numWeights;
+    /**
+     * index of the first vertex to process
+     */
+    final private int firstVertex;
+    /**
+     * index one past the last vertex to process
+     */
+    final private int endVertex;
+    /**
+     * bone indices if stored as shorts, otherwise null
+     */
+    final private ShortBuffer shortIndices;
+    // *************************************************************************
+    // constructors
+
+    /**
+     * Instantiate a task to skin the specified range of vertices.
+     *
+     * @param skinningMatrices the skinning matrix for each bone (not null,
+     * unaffected)
+     * @param numWeights the number of weights used per vertex (&ge;1,
+     * &le;4)
+     * @param boneIndices the BoneIndex data (not null, ByteBuffer or
+     * ShortBuffer, alias created)
+     * @param weights the BoneWeight data (not null, alias created)
+     * @param bindPositions the BindPosePosition data (not null, alias
+     * created)
+     * @param bindNormals the BindPoseNormal data (alias created) or null
+     * @param bindTangents the BindPoseTangent data (alias created) or null
+     * @param storePositions storage for skinned positions (not null, alias
+     * created)
+     * @param storeNormals storage for skinned normals (alias created) or null
+     * @param storeTangents storage for skinned tangents (alias created) or
+     * null
+     * @param firstVertex the index of the first vertex to skin (&ge;0)
+     * @param endVertex one past the index of the last vertex to skin
+     */
+    SkinningTask(Matrix4f[] skinningMatrices, int numWeights,
+            Buffer boneIndices, FloatBuffer weights, FloatBuffer bindPositions,
+            FloatBuffer bindNormals, FloatBuffer bindTangents,
+            FloatBuffer storePositions, FloatBuffer storeNormals,
+            FloatBuffer storeTangents, int firstVertex, int endVertex) {
+        assert numWeights >= 1 && numWeights <= maxWeights : numWeights;
+        assert firstVertex >= 0 : firstVertex;
+        assert endVertex >= firstVertex : endVertex;
+
+        int numBones = skinningMatrices.length;
+        matrices = new float[matrixSize * (numBones + 1)];
+        for (int boneIndex = 0; boneIndex <= numBones; ++boneIndex) {
+            Matrix4f s;
+            if (boneIndex < numBones) {
+                s = skinningMatrices[boneIndex];
+            } else {
+                s = Matrix4f.IDENTITY;
+            }
+            int base = matrixSize * boneIndex;
+            matrices[base] = s.m00;
+            matrices[base + 1] = s.m01;
+            matrices[base + 2] = s.m02;
+            matrices[base + 3] = s.m03;
+            matrices[base + 4] = s.m10;
+            matrices[base + 5] = s.m11;
+            matrices[base + 6] = s.m12;
+            matrices[base + 7] = s.m13;
+            matrices[base + 8] = s.m20;
+            matrices[base + 9] = s.m21;
+            matrices[base + 10] = s.m22;
+            matrices[base + 11] = s.m23;
+        }
+
+        if (boneIndices instanceof ByteBuffer) {
+            byteIndices = (ByteBuffer) boneIndices;
+            shortIndices = null;
+        } else if (boneIndices instanceof ShortBuffer) {
+            byteIndices = null;
+            shortIndices = (ShortBuffer) boneIndices;
+        } else {
+            String className = boneIndices.getClass().getName();
+            logger.log(Level.SEVERE, "boneIndices is a {0}", className);
+            throw new IllegalArgumentException(
+                    "bone indices must be a ByteBuffer or a ShortBuffer");
+        }
+
+        this.numWeights = numWeights;
+        this.weights = weights;
+        this.bindPositions = bindPositions;
+        this.bindNormals = bindNormals;
+        this.bindTangents = bindTangents;
+        this.storePositions = storePositions;
+        this.storeNormals = storeNormals;
+        this.storeTangents = storeTangents;
+        this.firstVertex = firstVertex;
+        this.endVertex = endVertex;
+    }
+
+    /**
+     * Instantiate a task to skin a sub-range of the vertices of another task.
+     *
+     * @param parent the task to copy (not null)
+     * @param firstVertex the index of the first vertex to skin (&ge;0)
+     * @param endVertex one past the index of the last vertex to skin
+     */
+    private SkinningTask(SkinningTask parent, int firstVertex,
+            int endVertex) {
+        byteIndices = parent.byteIndices;
+        shortIndices = parent.shortIndices;
+        matrices = parent.matrices;
+        numWeights = parent.numWeights;
+        weights = parent.weights;
+        bindPositions = parent.bindPositions;
+        bindNormals = parent.bindNormals;
+        bindTangents = parent.bindTangents;
+        storePositions = parent.storePositions;
+        storeNormals = parent.storeNormals;
+        storeTangents = parent.storeTangents;
+        this.firstVertex = firstVertex;
+        this.endVertex = endVertex;
+    }
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Skin all vertices in this task's range sequentially on the current
+     * thread.
+     */
+    void skinRange() {
+        int identityBase = matrices.length - matrixSize;
+        int numBones = identityBase / matrixSize;
+        float[] m = new float[matrixSize];
+
+        for (int vIndex = firstVertex; vIndex < endVertex; ++vIndex) {
+            /*
+             * Blend the top 3 rows of the matrices that influence the vertex.
+             */
+            for (int i = 0; i < matrixSize; ++i) {
+                m[i] = 0f;
+            }
+            int wBase = maxWeights * vIndex;
+            for (int wIndex = 0; wIndex < numWeights; ++wIndex) {
+                float weight = weights.get(wBase + wIndex);
+                if (weight != 0f) {
+                    int boneIndex = readIndex(wBase + wIndex);
+                    int base = (boneIndex < numBones)
+                            ? matrixSize * boneIndex : identityBase;
+                    for (int i = 0; i < matrixSize; ++i) {
+                        m[i] += weight * matrices[base + i];
+                    }
+                }
+            }
+            /*
+             * Transform the bind-pose position.
+             */
+            int p = 3 * vIndex;
+            float x = bindPositions.get(p);
+            float y = bindPositions.get(p + 1);
+            float z = bindPositions.get(p + 2);
+            storePositions.put(p, m[0] * x + m[1] * y + m[2] * z + m[3]);
+            storePositions.put(p + 1, m[4] * x + m[5] * y + m[6] * z + m[7]);
+            storePositions.put(p + 2, m[8] * x + m[9] * y + m[10] * z + m[11]);
+            /*
+             * Transform and re-normalize the bind-pose normal.
+             */
+            if (storeNormals != null) {
+                x = bindNormals.get(p);
+                y = bindNormals.get(p + 1);
+                z = bindNormals.get(p + 2);
+                float nx = m[0] * x + m[1] * y + m[2] * z;
+                float ny = m[4] * x + m[5] * y + m[6] * z;
+                float nz = m[8] * x + m[9] * y + m[10] * z;
+                float scale = inverseLength(nx, ny, nz);
+                storeNormals.put(p, scale * nx);
+                storeNormals.put(p + 1, scale * ny);
+                storeNormals.put(p + 2, scale * nz);
+            }
+            /*
+             * Transform and re-normalize the bind-pose tangent, copying the
+             * binormal parity.
+             */
+            if (storeTangents != null) {
+                int t = 4 * vIndex;
+                x = bindTangents.get(t);
+                y = bindTangents.get(t + 1);
+                z = bindTangents.get(t + 2);
+                float tx = m[0] * x + m[1] * y + m[2] * z;
+                float ty = m[4] * x + m[5] * y + m[6] * z;
+                float tz = m[8] * x + m[9] * y + m[10] * z;
+                float scale = inverseLength(tx, ty, tz);
+                storeTangents.put(t, scale * tx);
+                storeTangents.put(t + 1, scale * ty);
+                storeTangents.put(t + 2, scale * tz);
+                storeTangents.put(t + 3, bindTangents.get(t + 3));
+            }
+        }
+    }
+    // *************************************************************************
+    // RecursiveAction methods
+
+    /**
+     * Skin the vertices, splitting the range if it's large.
+     */
+    @Override
+    protected void compute() {
+        int numVertices = endVertex - firstVertex;
+        if (numVertices > verticesPerChunk) {
+            int middle = firstVertex + numVertices / 2;
+            invokeAll(new SkinningTask(this, firstVertex, middle),
+                    new SkinningTask(this, middle, endVertex));
+        } else {
+            skinRange();
+        }
+    }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Calculate the factor that normalizes the specified vector.
+     *
+     * @param x the X component
+     * @param y the Y component
+     * @param z the Z component
+     * @return the reciprocal of the length, or 1 for a zero vector
+     */
+    private static float inverseLength(float x, float y, float z) {
+        float lengthSquared = x * x + y * y + z * z;
+        float result;
+        if (lengthSquared == 0f) {
+            result = 1f;
+        } else {
+            result = 1f / (float) Math.sqrt(lengthSquared);
+        }
+
+        return result;
+    }
+
+    /**
+     * Read the bone index at the specified buffer position.
+     *
+     * @param position the absolute buffer position (&ge;0)
+     * @return the bone index (&ge;0)
+     */
+    private int readIndex(int position) {
+        int result;
+        if (byteIndices != null) {
+            result = 0xff & byteIndices.get(position);
+        } else {
+            result = 0xffff & shortIndices.get(position);
+        }
+
+        return result;
+    }
+}
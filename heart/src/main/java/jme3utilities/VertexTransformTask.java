@@ -0,0 +1,176 @@
+/*
+ Copyright (c) 2019, Stephen Gold
+ All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright
+ notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright
+ notice, this list of conditions and the following disclaimer in the
+ documentation and/or other materials provided with the distribution.
+ * Neither the name of the copyright holder nor the names of its contributors
+ may be used to endorse or promote products derived from this software without
+ specific prior written permission.
+
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jme3utilities;
+
+import com.jme3.math.Matrix4f;
+import java.nio.FloatBuffer;
+import java.util.concurrent.RecursiveAction;
+import java.util.logging.Logger;
+import jme3utilities.math.MyVector3f;
+
+/**
+ * A fork/join task that copies vertex positions from mesh buffers into float
+ * arrays and transforms them to world coordinates. The work is divided into
+ * chunks of contiguous vertices, each belonging to a single mesh, and chunk
+ * ranges are split in half until a single chunk remains.
+ * <p>
+ * Each chunk writes only its own range of its own array, so chunks can run in
+ * parallel without synchronization.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+class VertexTransformTask extends RecursiveAction {
+    // *************************************************************************
+    // constants and loggers
+
+    /**
+     * message logger for this class
+     */
+    final private static Logger logger
+            = Logger.getLogger(VertexTransformTask.class.getName());
+    /**
+     * version number for serialization
+     */
+    static final long serialVersionUID = 1L;
+    /**
+     * number of axes in a vertex position
+     */
+    final private static int numAxes = MyVector3f.numAxes;
+    // *************************************************************************
+    // fields
+
+    /**
+     * index of the first chunk to process
+     */
+    final private int firstChunk;
+    /**
+     * index one past the last chunk to process
+     */
+    final private int endChunk;
+    /**
+     * mesh index of each chunk
+     */
+    final private int[] chunkMesh;
+    /**
+     * index of the first vertex in each chunk
+     */
+    final private int[] chunkStart;
+    /**
+     * index one past the last vertex in each chunk
+     */
+    final private int[] chunkEnd;
+    /**
+     * position buffer of each mesh (read but not modified)
+     */
+    final private FloatBuffer[] positions;
+    /**
+     * local-to-world transform of each mesh, or null for none
+     */
+    final private Matrix4f[] transforms;
+    /**
+     * storage for the world coordinates of each mesh (3 floats per vertex)
+     */
+    final private float[][] storeLocations;
+    // *************************************************************************
+    // constructors
+
+    /**
+     * Instantiate a task to process the specified range of chunks.
+     *
+     * @param positions the position buffer of each mesh (not null, aliases
+     * created)
+     * @param transforms the transform of each mesh (not null, aliases created)
+     * @param storeLocations storage for the results (not null, aliases
+     * created)
+     * @param chunkMesh the mesh index of each chunk (not null, alias created)
+     * @param chunkStart the first vertex of each chunk (not null, alias
+     * created)
+     * @param chunkEnd one past the last vertex of each chunk (not null, alias
+     * created)
+     * @param firstChunk the index of the first chunk to process (&ge;0)
+     * @param endChunk one past the index of the last chunk to process
+     */
+    VertexTransformTask(FloatBuffer[] positions, Matrix4f[] transforms,
+            float[][] storeLocations, int[] chunkMesh, int[] chunkStart,
+            int[] chunkEnd, int firstChunk, int endChunk) {
+        assert firstChunk >= 0 : firstChunk;
+        assert endChunk > firstChunk : endChunk;
+
+        this.positions = positions;
+        this.transforms = transforms;
+        this.storeLocations = storeLocations;
+        this.chunkMesh = chunkMesh;
+        this.chunkStart = chunkStart;
+        this.chunkEnd = chunkEnd;
+        this.firstChunk = firstChunk;
+        this.endChunk = endChunk;
+    }
+    // *************************************************************************
+    // RecursiveAction methods
+
+    /**
+     * Process the chunks, splitting the range if it contains more than one.
+     */
+    @Override
+    protected void compute() {
+        if (endChunk - firstChunk > 1) {
+            int middle = (firstChunk + endChunk) / 2;
+            invokeAll(new VertexTransformTask(positions, transforms,
+                    storeLocations, chunkMesh, chunkStart, chunkEnd,
+                    firstChunk, middle),
+                    new VertexTransformTask(positions, transforms,
+                            storeLocations, chunkMesh, chunkStart, chunkEnd,
+                            middle, endChunk));
+            return;
+        }
+
+        int meshIndex = chunkMesh[firstChunk];
+        int startFloat = numAxes * chunkStart[firstChunk];
+        int endFloat = numAxes * chunkEnd[firstChunk];
+        float[] locations = storeLocations[meshIndex];
+        /*
+         * Bulk-copy the positions, using a private view of the buffer.
+         */
+        FloatBuffer view = positions[meshIndex].duplicate();
+        view.position(startFloat);
+        view.get(locations, startFloat, endFloat - startFloat);
+        /*
+         * Transform the copied positions in place.
+         */
+        Matrix4f m = transforms[meshIndex];
+        if (m != null) {
+            for (int i = startFloat; i < endFloat; i += numAxes) {
+                float x = locations[i];
+                float y = locations[i + 1];
+                float z = locations[i + 2];
+                locations[i] = m.m00 * x + m.m01 * y + m.m02 * z + m.m03;
+                locations[i + 1] = m.m10 * x + m.m11 * y + m.m12 * z + m.m13;
+                locations[i + 2] = m.m20 * x + m.m21 * y + m.m22 * z + m.m23;
+            }
+        }
+    }
+}
@@ -0,0 +1,477 @@
+/*
+ Copyright (c) 2019 Stephen Gold
+ All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright
+ notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright
+ notice, this list of conditions and the following disclaimer in the
+ documentation and/or other materials provided with the distribution.
+ * Neither the name of the copyright holder nor the names of its contributors
+ may be used to endorse or promote products derived from this software without
+ specific prior written permission.
+
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jme3utilities.math;
+
+import com.jme3.math.Matrix3f;
+import com.jme3.math.Vector3f;
+import com.jme3.util.BufferUtils;
+import java.nio.FloatBuffer;
+import java.util.logging.Logger;
+import jme3utilities.Validate;
+
+/**
+ * A simplified collection of Vector3f values without duplicates, implemented
+ * using parallel float arrays (one per axis) indexed by an open-addressing
+ * hash table with linear probing. Since the coordinates are stored
+ * contiguously by axis, the statistics methods reduce to simple loops over
+ * primitive arrays.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+public class VectorSetUsingArrays implements VectorSet {
+    // *************************************************************************
+    // constants and loggers
+
+    /**
+     * number of axes in a Vector3f
+     */
+    final private static int numAxes = 3;
+    /**
+     * message logger for this class
+     */
+    final private static Logger logger
+            = Logger.getLogger(VectorSetUsingArrays.class.getName());
+    // *************************************************************************
+    // fields
+
+    /**
+     * true if toBuffer() has been invoked, otherwise false
+     */
+    private boolean isFrozen = false;
+    /**
+     * X coordinate of each value, in order of addition
+     */
+    private float[] xs;
+    /**
+     * Y coordinate of each value, in order of addition
+     */
+    private float[] ys;
+    /**
+     * Z coordinate of each value, in order of addition
+     */
+    private float[] zs;
+    /**
+     * hash table: value index plus 1 for each slot, or 0 for an empty slot
+     * (length a power of 2, at least twice the capacity of the value arrays)
+     */
+    private int[] slots;
+    /**
+     * number of values in this set (&ge;0)
+     */
+    private int numVectors = 0;
+    /**
+     * number of enlargements since last clearStats()
+     */
+    static int numEnlargements = 0;
+    /**
+     * number of slots read since last clearStats()
+     */
+    static int numReads = 0;
+    /**
+     * number of searches since last clearStats()
+     */
+    static int numSearches = 0;
+    /**
+     * system milliseconds as of last clearStats()
+     */
+    static long resetMillis = 0L;
+    // *************************************************************************
+    // constructors
+
+    /**
+     * Instantiate an empty set with the specified initial capacity.
+     *
+     * @param numVectors the number of vectors this set can hold without
+     * enlargement (&gt;0)
+     */
+    public VectorSetUsingArrays(int numVectors) {
+        Validate.positive(numVectors, "number of vectors");
+        allocate(numVectors);
+    }
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Reset the hashing statistics.
+     */
+    public static void clearStats() {
+        numEnlargements = 0;
+        numReads = 0;
+        numSearches = 0;
+        resetMillis = System.currentTimeMillis();
+    }
+
+    /**
+     * Print the hashing statistics.
+     *
+     * @param tag (not null)
+     */
+    public static void dumpStats(String tag) {
+        long msec = System.currentTimeMillis() - resetMillis;
+        String msg = String.format(
+                "%s %d enlargement%s, %d search%s, and %d read%s in %d msec",
+                tag, numEnlargements, (numEnlargements == 1) ? "" : "s",
+                numSearches, (numSearches == 1) ? "" : "es",
+                numReads, (numReads == 1) ? "" : "s", msec);
+        System.out.println(msg);
+    }
+    // *************************************************************************
+    // VectorSet methods
+
+    /**
+     * Add the value of the specified Vector3f to this set.
+     *
+     * @param vector the value to add (not null, unaffected)
+     */
+    @Override
+    public void add(Vector3f vector) {
+        if (isFrozen) {
+            throw new IllegalStateException("toBuffer() has been invoked.");
+        }
+
+        float x = vector.x;
+        float y = vector.y;
+        float z = vector.z;
+        int slot = findSlot(x, y, z);
+        if (slots[slot] == 0) {
+            if (numVectors == xs.length) {
+                enlarge();
+                slot = findSlot(x, y, z);
+            }
+            xs[numVectors] = x;
+            ys[numVectors] = y;
+            zs[numVectors] = z;
+            ++numVectors;
+            slots[slot] = numVectors;
+        }
+    }
+
+    /**
+     * Test whether this set contains the value of the specified Vector3f.
+     *
+     * @param vector the value to find (not null, unaffected)
+     * @return true if found, otherwise false
+     */
+    @Override
+    public boolean contains(Vector3f vector) {
+        int slot = findSlot(vector.x, vector.y, vector.z);
+        boolean result = (slots[slot] != 0);
+
+        return result;
+    }
+
+    /**
+     * Calculate the sample covariance of the Vector3f values in this set.
+     *
+     * @param storeResult storage for the result (modified if not null)
+     * @return the unbiased sample covariance (either storeResult or a new
+     * matrix, not null)
+     */
+    @Override
+    public Matrix3f covariance(Matrix3f storeResult) {
+        Matrix3f result = (storeResult == null) ? new Matrix3f() : storeResult;
+        int numSamples = numVectors;
+        assert numSamples > 1 : numSamples;
+
+        Vector3f sampleMean = mean(null);
+        float mx = sampleMean.x;
+        float my = sampleMean.y;
+        float mz = sampleMean.z;
+        /*
+         * Accumulate sums for the upper triangle of the matrix.
+         */
+        double sxx = 0.0;
+        double sxy = 0.0;
+        double sxz = 0.0;
+        double syy = 0.0;
+        double syz = 0.0;
+        double szz = 0.0;
+        for (int i = 0; i < numSamples; ++i) {
+            float dx = xs[i] - mx;
+            float dy = ys[i] - my;
+            float dz = zs[i] - mz;
+            sxx += dx * dx;
+            sxy += dx * dy;
+            sxz += dx * dz;
+            syy += dy * dy;
+            syz += dy * dz;
+            szz += dz * dz;
+        }
+        /*
+         * Multiply sums by 1/(N-1) and fill in the lower triangle.
+         */
+        double nMinus1 = numSamples - 1;
+        float cxx = (float) (sxx / nMinus1);
+        float cxy = (float) (sxy / nMinus1);
+        float cxz = (float) (sxz / nMinus1);
+        float cyy = (float) (syy / nMinus1);
+        float cyz = (float) (syz / nMinus1);
+        float czz = (float) (szz / nMinus1);
+        result.set(0, 0, cxx);
+        result.set(0, 1, cxy);
+        result.set(0, 2, cxz);
+        result.set(1, 0, cxy);
+        result.set(1, 1, cyy);
+        result.set(1, 2, cyz);
+        result.set(2, 0, cxz);
+        result.set(2, 1, cyz);
+        result.set(2, 2, czz);
+
+        return result;
+    }
+
+    /**
+     * Find the length of the longest Vector3f value in this set.
+     *
+     * @return the length (&ge;0)
+     */
+    @Override
+    public float maxLength() {
+        double maxLengthSquared = 0.0;
+        for (int i = 0; i < numVectors; ++i) {
+            double x = xs[i];
+            double y = ys[i];
+            double z = zs[i];
+            double lengthSquared = x * x + y * y + z * z;
+            if (lengthSquared > maxLengthSquared) {
+                maxLengthSquared = lengthSquared;
+            }
+        }
+
+        float length = (float) Math.sqrt(maxLengthSquared);
+        assert length >= 0f : length;
+        return length;
+    }
+
+    /**
+     * Find the maximum and minimum coordinates for each axis among the Vector3f
+     * values in this set.
+     *
+     * @param storeMaxima (not null, modified)
+     * @param storeMinima (not null, modified)
+     */
+    @Override
+    public void maxMin(Vector3f storeMaxima, Vector3f storeMinima) {
+        storeMaxima.x = max(xs, numVectors);
+        storeMaxima.y = max(ys, numVectors);
+        storeMaxima.z = max(zs, numVectors);
+        storeMinima.x = min(xs, numVectors);
+        storeMinima.y = min(ys, numVectors);
+        storeMinima.z = min(zs, numVectors);
+    }
+
+    /**
+     * Calculate the sample mean for each axis over the Vector3f values in this
+     * set.
+     *
+     * @param storeResult (modified if not null)
+     * @return the sample mean for each axis (either storeResult or a new
+     * Vector3f)
+     */
+    @Override
+    public Vector3f mean(Vector3f storeResult) {
+        assert numVectors > 0 : numVectors;
+        Vector3f result = (storeResult == null) ? new Vector3f() : storeResult;
+
+        result.x = (float) (sum(xs, numVectors) / numVectors);
+        result.y = (float) (sum(ys, numVectors) / numVectors);
+        result.z = (float) (sum(zs, numVectors) / numVectors);
+
+        return result;
+    }
+
+    /**
+     * Calculate the number of Vector3f values in this set.
+     *
+     * @return the count (&ge;0)
+     */
+    @Override
+    public int numVectors() {
+        assert numVectors >= 0 : numVectors;
+        return numVectors;
+    }
+
+    /**
+     * Access a buffer containing all the Vector3f values in this set, in the
+     * order they were added. No further add() is allowed.
+     *
+     * @return a new buffer, flipped
+     */
+    @Override
+    public FloatBuffer toBuffer() {
+        isFrozen = true;
+
+        int numFloats = numAxes * numVectors;
+        FloatBuffer buffer = BufferUtils.createFloatBuffer(numFloats);
+        for (int i = 0; i < numVectors; ++i) {
+            buffer.put(xs[i]);
+            buffer.put(ys[i]);
+            buffer.put(zs[i]);
+        }
+        buffer.flip();
+
+        return buffer;
+    }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Initialize an empty set with the specified capacity.
+     *
+     * @param numVectors (&gt;0)
+     */
+    private void allocate(int numVectors) {
+        assert numVectors > 0 : numVectors;
+
+        int numSlots = Integer.highestOneBit(2 * numVectors - 1) << 1;
+        xs = new float[numSlots / 2];
+        ys = new float[numSlots / 2];
+        zs = new float[numSlots / 2];
+        slots = new int[numSlots]; // initialized to all 0s
+        this.numVectors = 0;
+    }
+
+    /**
+     * Quadruple the capacity of this set.
+     */
+    private void enlarge() {
+        float[] oldXs = xs;
+        float[] oldYs = ys;
+        float[] oldZs = zs;
+        int oldNumVectors = numVectors;
+
+        allocate(4 * oldNumVectors);
+        System.arraycopy(oldXs, 0, xs, 0, oldNumVectors);
+        System.arraycopy(oldYs, 0, ys, 0, oldNumVectors);
+        System.arraycopy(oldZs, 0, zs, 0, oldNumVectors);
+        numVectors = oldNumVectors;
+        for (int i = 0; i < numVectors; ++i) {
+            int slot = findSlot(xs[i], ys[i], zs[i]);
+            assert slots[slot] == 0 : slot;
+            slots[slot] = i + 1;
+        }
+        ++numEnlargements;
+    }
+
+    /**
+     * Find the hash-table slot that holds the specified value, or else the
+     * empty slot where it would be inserted. Coordinates are compared with
+     * ==, consistent with VectorSetUsingBuffer.
+     *
+     * @param x the X coordinate
+     * @param y the Y coordinate
+     * @param z the Z coordinate
+     * @return the slot index (&ge;0)
+     */
+    private int findSlot(float x, float y, float z) {
+        int mask = slots.length - 1;
+        int slot = hash(x, y, z) & mask;
+        ++numSearches;
+        while (true) {
+            ++numReads;
+            int indexPlus1 = slots[slot];
+            if (indexPlus1 == 0) {
+                return slot;
+            }
+            int i = indexPlus1 - 1;
+            if (xs[i] == x && ys[i] == y && zs[i] == z) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    /**
+     * Hash the specified coordinates. Since 0 == -0, zeros are normalized
+     * before hashing.
+     *
+     * @param x the X coordinate
+     * @param y the Y coordinate
+     * @param z the Z coordinate
+     * @return a hash code
+     */
+    private static int hash(float x, float y, float z) {
+        int result = Float.floatToRawIntBits(x + 0f);
+        result = 31 * result + Float.floatToRawIntBits(y + 0f);
+        result = 31 * result + Float.floatToRawIntBits(z + 0f);
+        result ^= result >>> 16;
+
+        return result;
+    }
+
+    /**
+     * Find the maximum among the first elements of an array.
+     *
+     * @param array the input array (not null, unaffected)
+     * @param count the number of elements to consider (&ge;0)
+     * @return the maximum, or -Infinity if count is 0
+     */
+    private static float max(float[] array, int count) {
+        float result = Float.NEGATIVE_INFINITY;
+        for (int i = 0; i < count; ++i) {
+            if (array[i] > result) {
+                result = array[i];
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Find the minimum among the first elements of an array.
+     *
+     * @param array the input array (not null, unaffected)
+     * @param count the number of elements to consider (&ge;0)
+     * @return the minimum, or +Infinity if count is 0
+     */
+    private static float min(float[] array, int count) {
+        float result = Float.POSITIVE_INFINITY;
+        for (int i = 0; i < count; ++i) {
+            if (array[i] < result) {
+                result = array[i];
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Sum the first elements of an array.
+     *
+     * @param array the input array (not null, unaffected)
+     * @param count the number of elements to sum (&ge;0)
+     * @return the sum
+     */
+    private static double sum(float[] array, int count) {
+        double result = 0.0;
+        for (int i = 0; i < count; ++i) {
+            result += array[i];
+        }
+
+        return result;
+    }
+}
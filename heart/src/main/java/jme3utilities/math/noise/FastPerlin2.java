@@ -0,0 +1,356 @@
+/*
+ Copyright (c) 2019, Stephen Gold
+ All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright
+ notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright
+ notice, this list of conditions and the following disclaimer in the
+ documentation and/or other materials provided with the distribution.
+ * Neither the name of the copyright holder nor the names of its contributors
+ may be used to endorse or promote products derived from this software without
+ specific prior written permission.
+
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jme3utilities.math.noise;
+
+import com.jme3.math.FastMath;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import jme3utilities.Validate;
+import jme3utilities.math.MyMath;
+
+/**
+ * Two-dimensional Perlin noise generator that samples without allocation,
+ * validation, or modulo operations. The period is a power of two, so grid
+ * coordinates wrap by masking, and the gradients and (doubled) permutation
+ * are stored in flat arrays.
+ * <p>
+ * Each instance generates exactly the same noise as a {@link Perlin2} with
+ * numGradients equal to its period and the same seeds.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+public class FastPerlin2 implements Noise2 {
+    // *************************************************************************
+    // constants and loggers
+
+    /**
+     * message logger for this class
+     */
+    final private static Logger logger
+            = Logger.getLogger(FastPerlin2.class.getName());
+    // *************************************************************************
+    // fields
+
+    /**
+     * X components of the gradients (each gradient has length=1)
+     */
+    final private float[] gradientX;
+    /**
+     * Y components of the gradients
+     */
+    final private float[] gradientY;
+    /**
+     * period-1, for masking grid coordinates
+     */
+    final private int mask;
+    /**
+     * permutation for hashing, stored twice in succession
+     */
+    final private int[] permutation;
+    // *************************************************************************
+    // constructors
+
+    /**
+     * Instantiate a generator with the specified parameters.
+     *
+     * @param period coordinate value at which the function repeats itself,
+     * also the number of distinct gradients (&ge;2, a power of 2)
+     * @param gSeed seed for generating gradients
+     * @param pSeed seed for generating the permutation
+     */
+    public FastPerlin2(int period, long gSeed, long pSeed) {
+        validatePeriod(period);
+
+        mask = period - 1;
+        permutation = new Permutation(period, pSeed).toDoubledTable();
+        /*
+         * Generate the same gradients as Perlin2 would.
+         */
+        gradientX = new float[period];
+        gradientY = new float[period];
+        Random thetaGenerator = new Random(gSeed);
+        for (int index = 0; index < period; ++index) {
+            float theta = thetaGenerator.nextFloat() * FastMath.TWO_PI;
+            gradientX[index] = FastMath.cos(theta);
+            gradientY[index] = FastMath.sin(theta);
+        }
+    }
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Round the argument down to an integer. Faster than Math.floor() for
+     * arguments within the range of an int.
+     *
+     * @param value the input value
+     * @return the largest int &le;value
+     */
+    static int floor(float value) {
+        int result = (int) value;
+        if (value < result) {
+            --result;
+        }
+
+        return result;
+    }
+
+    /**
+     * Evaluate Perlin's quintic fade curve, exactly as
+     * {@link MyMath#fade(float)} does but without validation.
+     *
+     * @param t the input value (&ge;0, &le;1)
+     * @return the faded value (&ge;0, &le;1)
+     */
+    static float fade(float t) {
+        double tt = t;
+        double ff = tt * tt * tt * (10.0 + tt * (-15.0 + 6.0 * tt));
+        float result = (float) ff;
+
+        return result;
+    }
+
+    /**
+     * Interpolate linearly between 2 values, exactly as
+     * {@link FastMath#interpolateLinear(float, float, float)} does for a
+     * weight between 0 and 1.
+     *
+     * @param weight the weight of the end value (&ge;0, &le;1)
+     * @param start the value for weight=0
+     * @param end the value for weight=1
+     * @return the interpolated value
+     */
+    static float lerp(float weight, float start, float end) {
+        if (start == end || weight <= 0f) {
+            return start;
+        } else if (weight >= 1f) {
+            return end;
+        } else {
+            return (1f - weight) * start + weight * end;
+        }
+    }
+
+    /**
+     * Verify that the specified period is a power of 2 and at least 2.
+     *
+     * @param period the period to validate
+     * @throws IllegalArgumentException if the period is invalid
+     */
+    static void validatePeriod(int period) {
+        Validate.inRange(period, "period", 2, 1 << 30);
+        if (!FastMath.isPowerOfTwo(period)) {
+            logger.log(Level.SEVERE, "period={0}", period);
+            throw new IllegalArgumentException(
+                    "period should be a power of 2");
+        }
+    }
+    // *************************************************************************
+    // Noise2 methods
+
+    /**
+     * Sample the noise function at a specified point.
+     *
+     * @param sampleX 1st coordinate of the sample point
+     * @param sampleY 2nd coordinate of the sample point
+     * @return noise value (&le;sqrt(0.5), &ge;-sqrt(0.5))
+     */
+    @Override
+    public float sample(float sampleX, float sampleY) {
+        /*
+         * Determine which square contains the point.
+         */
+        int squareX = floor(sampleX);
+        int squareY = floor(sampleY);
+        float dx = sampleX - squareX;
+        float dy = sampleY - squareY;
+        /*
+         * Hash the corners of the square.
+         */
+        int x0 = squareX & mask;
+        int x1 = (squareX + 1) & mask;
+        int h0 = permutation[squareY & mask];
+        int h1 = permutation[(squareY + 1) & mask];
+        int i00 = permutation[x0 + h0];
+        int i01 = permutation[x0 + h1];
+        int i10 = permutation[x1 + h0];
+        int i11 = permutation[x1 + h1];
+        /*
+         * Compute the noise contribution of each corner.
+         */
+        float n00 = gradientX[i00] * dx + gradientY[i00] * dy;
+        float n01 = gradientX[i01] * dx + gradientY[i01] * (dy - 1f);
+        float n10 = gradientX[i10] * (dx - 1f) + gradientY[i10] * dy;
+        float n11 = gradientX[i11] * (dx - 1f) + gradientY[i11] * (dy - 1f);
+        /*
+         * 2-D interpolation between the four corners of the square.
+         */
+        float fadeX = fade(dx);
+        float nx0 = lerp(fadeX, n00, n10);
+        float nx1 = lerp(fadeX, n01, n11);
+
+        float fadeY = fade(dy);
+        float noise = lerp(fadeY, nx0, nx1);
+
+        return noise;
+    }
+
+    /**
+     * Sample FBM noise along a row, as
+     * {@link Noise2#sampleFbmRow(float, float, float, int, float, float,
+     * float, int, int, float[])} does, but one octave at a time, hashing the
+     * Y coordinate only once per octave.
+     *
+     * @param startX 1st coordinate of the first sample point
+     * @param sampleY 2nd coordinate of every sample point
+     * @param spacingX increase in the 1st coordinate from one point to the
+     * next
+     * @param numOctaves number of noise components (&gt;0)
+     * @param fundamental frequency for the 1st component (&gt;0)
+     * @param gain amplitude ratio between octaves (&gt;0, &lt;1)
+     * @param lacunarity frequency ratio between octaves (&gt;1)
+     * @param count number of points in the row (&ge;0)
+     * @param storeIndex index in storeResult for the first sample (&ge;0)
+     * @param storeResult storage for the samples (not null, modified)
+     */
+    @Override
+    public void sampleFbmRow(float startX, float sampleY, float spacingX,
+            int numOctaves, float fundamental, float gain, float lacunarity,
+            int count, int storeIndex, float[] storeResult) {
+        Noise.validateFbm(numOctaves, fundamental, gain, lacunarity);
+        Validate.nonNegative(count, "count");
+        Validate.inRange(storeIndex, "store index", 0,
+                storeResult.length - count);
+
+        Arrays.fill(storeResult, storeIndex, storeIndex + count, 0f);
+        float amplitude = 1f;
+        float frequency = fundamental;
+        for (int octave = 0; octave < numOctaves; ++octave) {
+            accumulateRow(startX, sampleY, spacingX, frequency, amplitude,
+                    count, storeIndex, storeResult);
+            frequency *= lacunarity;
+            amplitude *= gain;
+        }
+    }
+
+    /**
+     * Sample the noise function at a specified point and normalize it to the
+     * range [-1, 1].
+     *
+     * @param sampleX 1st coordinate of the sample point
+     * @param sampleY 2nd coordinate of the sample point
+     * @return normalized noise value (&le;1, &ge;-1)
+     */
+    @Override
+    public float sampleNormalized(float sampleX, float sampleY) {
+        float noise = sample(sampleX, sampleY);
+        /*
+         * Scale to fill the range [-1, 1].
+         */
+        noise /= MyMath.rootHalf;
+
+        assert noise >= -1f : noise;
+        assert noise <= 1f : noise;
+        return noise;
+    }
+
+    /**
+     * Sample normalized noise along a row, hashing the Y coordinate only once.
+     *
+     * @param startX 1st coordinate of the first sample point
+     * @param sampleY 2nd coordinate of every sample point
+     * @param spacingX increase in the 1st coordinate from one point to the
+     * next
+     * @param count number of points in the row (&ge;0)
+     * @param storeIndex index in storeResult for the first sample (&ge;0)
+     * @param storeResult storage for the samples (not null, modified)
+     */
+    @Override
+    public void sampleNormalizedRow(float startX, float sampleY,
+            float spacingX, int count, int storeIndex, float[] storeResult) {
+        Validate.nonNegative(count, "count");
+        Validate.inRange(storeIndex, "store index", 0,
+                storeResult.length - count);
+
+        Arrays.fill(storeResult, storeIndex, storeIndex + count, 0f);
+        accumulateRow(startX, sampleY, spacingX, 1f, 1f, count, storeIndex,
+                storeResult);
+    }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Add one octave of normalized noise, sampled along a row, to the stored
+     * values.
+     *
+     * @param startX 1st coordinate of the first sample point, before scaling
+     * @param sampleY 2nd coordinate of every sample point, before scaling
+     * @param spacingX increase in the 1st coordinate from one point to the
+     * next, before scaling
+     * @param frequency scale factor applied to the coordinates
+     * @param amplitude scale factor applied to the normalized samples
+     * @param count number of points in the row (&ge;0)
+     * @param storeIndex index in storeResult for the first sample (&ge;0)
+     * @param storeResult the values to add to (not null, modified)
+     */
+    private void accumulateRow(float startX, float sampleY, float spacingX,
+            float frequency, float amplitude, int count, int storeIndex,
+            float[] storeResult) {
+        float y = sampleY * frequency;
+        int squareY = floor(y);
+        float dy = y - squareY;
+        float fadeY = fade(dy);
+        int h0 = permutation[squareY & mask];
+        int h1 = permutation[(squareY + 1) & mask];
+
+        for (int i = 0; i < count; ++i) {
+            float x = (startX + i * spacingX) * frequency;
+            int squareX = floor(x);
+            float dx = x - squareX;
+            int x0 = squareX & mask;
+            int x1 = (squareX + 1) & mask;
+            int i00 = permutation[x0 + h0];
+            int i01 = permutation[x0 + h1];
+            int i10 = permutation[x1 + h0];
+            int i11 = permutation[x1 + h1];
+
+            float n00 = gradientX[i00] * dx + gradientY[i00] * dy;
+            float n01 = gradientX[i01] * dx + gradientY[i01] * (dy - 1f);
+            float n10 = gradientX[i10] * (dx - 1f) + gradientY[i10] * dy;
+            float n11 = gradientX[i11] * (dx - 1f)
+                    + gradientY[i11] * (dy - 1f);
+
+            float fadeX = fade(dx);
+            float nx0 = lerp(fadeX, n00, n10);
+            float nx1 = lerp(fadeX, n01, n11);
+            float noise = lerp(fadeY, nx0, nx1);
+            noise /= MyMath.rootHalf;
+
+            storeResult[storeIndex + i] += amplitude * noise;
+        }
+    }
+}
@@ -0,0 +1,214 @@
+/*
+ Copyright (c) 2019, Stephen Gold
+ All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright
+ notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright
+ notice, this list of conditions and the following disclaimer in the
+ documentation and/or other materials provided with the distribution.
+ * Neither the name of the copyright holder nor the names of its contributors
+ may be used to endorse or promote products derived from this software without
+ specific prior written permission.
+
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jme3utilities.math.noise;
+
+import com.jme3.math.FastMath;
+import java.util.Random;
+import java.util.logging.Logger;
+
+/**
+ * Three-dimensional Perlin noise generator that samples without allocation,
+ * validation, or modulo operations. The period is a power of two and applies
+ * to all three axes, so the noise tiles seamlessly, for instance in an
+ * animation loop that uses Z as time.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+public class FastPerlin3 implements Noise3 {
+    // *************************************************************************
+    // constants and loggers
+
+    /**
+     * largest possible magnitude of a sample: sqrt(3)/2
+     */
+    final private static float maxMagnitude = FastMath.sqrt(3f) / 2f;
+    /**
+     * message logger for this class
+     */
+    final private static Logger logger
+            = Logger.getLogger(FastPerlin3.class.getName());
+    // *************************************************************************
+    // fields
+
+    /**
+     * X components of the gradients (each gradient has length=1)
+     */
+    final private float[] gradientX;
+    /**
+     * Y components of the gradients
+     */
+    final private float[] gradientY;
+    /**
+     * Z components of the gradients
+     */
+    final private float[] gradientZ;
+    /**
+     * period-1, for masking grid coordinates
+     */
+    final private int mask;
+    /**
+     * permutation for hashing, stored twice in succession
+     */
+    final private int[] permutation;
+    // *************************************************************************
+    // constructors
+
+    /**
+     * Instantiate a generator with the specified parameters.
+     *
+     * @param period coordinate value at which the function repeats itself,
+     * also the number of distinct gradients (&ge;2, a power of 2)
+     * @param gSeed seed for generating gradients
+     * @param pSeed seed for generating the permutation
+     */
+    public FastPerlin3(int period, long gSeed, long pSeed) {
+        FastPerlin2.validatePeriod(period);
+
+        mask = period - 1;
+        permutation = new Permutation(period, pSeed).toDoubledTable();
+        /*
+         * Generate gradients uniformly distributed over the unit sphere.
+         */
+        gradientX = new float[period];
+        gradientY = new float[period];
+        gradientZ = new float[period];
+        Random generator = new Random(gSeed);
+        for (int index = 0; index < period; ++index) {
+            float z = 2f * generator.nextFloat() - 1f;
+            float theta = generator.nextFloat() * FastMath.TWO_PI;
+            float r = FastMath.sqrt(1f - z * z);
+            gradientX[index] = r * FastMath.cos(theta);
+            gradientY[index] = r * FastMath.sin(theta);
+            gradientZ[index] = z;
+        }
+    }
+    // *************************************************************************
+    // Noise3 methods
+
+    /**
+     * Sample the noise function at a specified point.
+     *
+     * @param sampleX 1st coordinate of the sample point
+     * @param sampleY 2nd coordinate of the sample point
+     * @param sampleZ 3rd coordinate of the sample point
+     * @return noise value (&le;sqrt(3)/2, &ge;-sqrt(3)/2)
+     */
+    @Override
+    public float sample(float sampleX, float sampleY, float sampleZ) {
+        /*
+         * Determine which cube contains the point.
+         */
+        int cubeX = FastPerlin2.floor(sampleX);
+        int cubeY = FastPerlin2.floor(sampleY);
+        int cubeZ = FastPerlin2.floor(sampleZ);
+        float dx = sampleX - cubeX;
+        float dy = sampleY - cubeY;
+        float dz = sampleZ - cubeZ;
+        /*
+         * Hash the corners of the cube.
+         */
+        int x0 = permutation[cubeX & mask];
+        int x1 = permutation[(cubeX + 1) & mask];
+        int y0 = cubeY & mask;
+        int y1 = (cubeY + 1) & mask;
+        int z0 = cubeZ & mask;
+        int z1 = (cubeZ + 1) & mask;
+        int h00 = permutation[x0 + y0];
+        int h01 = permutation[x0 + y1];
+        int h10 = permutation[x1 + y0];
+        int h11 = permutation[x1 + y1];
+        /*
+         * Compute the noise contribution of each corner.
+         */
+        float n000 = dot(permutation[h00 + z0], dx, dy, dz);
+        float n001 = dot(permutation[h00 + z1], dx, dy, dz - 1f);
+        float n010 = dot(permutation[h01 + z0], dx, dy - 1f, dz);
+        float n011 = dot(permutation[h01 + z1], dx, dy - 1f, dz - 1f);
+        float n100 = dot(permutation[h10 + z0], dx - 1f, dy, dz);
+        float n101 = dot(permutation[h10 + z1], dx - 1f, dy, dz - 1f);
+        float n110 = dot(permutation[h11 + z0], dx - 1f, dy - 1f, dz);
+        float n111 = dot(permutation[h11 + z1], dx - 1f, dy - 1f, dz - 1f);
+        /*
+         * 3-D interpolation between the eight corners of the cube.
+         */
+        float fadeX = FastPerlin2.fade(dx);
+        float nx00 = FastPerlin2.lerp(fadeX, n000, n100);
+        float nx01 = FastPerlin2.lerp(fadeX, n001, n101);
+        float nx10 = FastPerlin2.lerp(fadeX, n010, n110);
+        float nx11 = FastPerlin2.lerp(fadeX, n011, n111);
+
+        float fadeY = FastPerlin2.fade(dy);
+        float nxy0 = FastPerlin2.lerp(fadeY, nx00, nx10);
+        float nxy1 = FastPerlin2.lerp(fadeY, nx01, nx11);
+
+        float fadeZ = FastPerlin2.fade(dz);
+        float noise = FastPerlin2.lerp(fadeZ, nxy0, nxy1);
+
+        return noise;
+    }
+
+    /**
+     * Sample the noise function at a specified point and normalize it to the
+     * range [-1, 1].
+     *
+     * @param sampleX 1st coordinate of the sample point
+     * @param sampleY 2nd coordinate of the sample point
+     * @param sampleZ 3rd coordinate of the sample point
+     * @return normalized noise value (&le;1, &ge;-1)
+     */
+    @Override
+    public float sampleNormalized(float sampleX, float sampleY,
+            float sampleZ) {
+        float noise = sample(sampleX, sampleY, sampleZ);
+        /*
+         * Scale to fill the range [-1, 1].
+         */
+        noise /= maxMagnitude;
+
+        assert noise >= -1f : noise;
+        assert noise <= 1f : noise;
+        return noise;
+    }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Dot the indexed gradient with an offset from its grid point.
+     *
+     * @param index the index of the gradient (&ge;0, &lt;period)
+     * @param offsetX the X component of the offset
+     * @param offsetY the Y component of the offset
+     * @param offsetZ the Z component of the offset
+     * @return the dot product
+     */
+    private float dot(int index, float offsetX, float offsetY,
+            float offsetZ) {
+        float result = gradientX[index] * offsetX + gradientY[index] * offsetY
+                + gradientZ[index] * offsetZ;
+        return result;
+    }
+}
@@ -0,0 +1,256 @@
+/*
+ Copyright (c) 2019, Stephen Gold
+ All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright
+ notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright
+ notice, this list of conditions and the following disclaimer in the
+ documentation and/or other materials provided with the distribution.
+ * Neither the name of the copyright holder nor the names of its contributors
+ may be used to endorse or promote products derived from this software without
+ specific prior written permission.
+
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jme3utilities.math.noise;
+
+import com.jme3.math.FastMath;
+import java.util.Random;
+import java.util.logging.Logger;
+
+/**
+ * Four-dimensional Perlin noise generator that samples without allocation,
+ * validation, or modulo operations. The period is a power of two and applies
+ * to all four axes, so a 3-D pattern can tile seamlessly in space while also
+ * looping seamlessly over time (W).
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+public class FastPerlin4 implements Noise4 {
+    // *************************************************************************
+    // constants and loggers
+
+    /**
+     * message logger for this class
+     */
+    final private static Logger logger
+            = Logger.getLogger(FastPerlin4.class.getName());
+    // *************************************************************************
+    // fields
+
+    /**
+     * components of the gradients (each gradient has length=1), 4 floats per
+     * gradient in XYZW order
+     */
+    final private float[] gradients;
+    /**
+     * period-1, for masking grid coordinates
+     */
+    final private int mask;
+    /**
+     * permutation for hashing, stored twice in succession
+     */
+    final private int[] permutation;
+    // *************************************************************************
+    // constructors
+
+    /**
+     * Instantiate a generator with the specified parameters.
+     *
+     * @param period coordinate value at which the function repeats itself,
+     * also the number of distinct gradients (&ge;2, a power of 2)
+     * @param gSeed seed for generating gradients
+     * @param pSeed seed for generating the permutation
+     */
+    public FastPerlin4(int period, long gSeed, long pSeed) {
+        FastPerlin2.validatePeriod(period);
+
+        mask = period - 1;
+        permutation = new Permutation(period, pSeed).toDoubledTable();
+        /*
+         * Generate gradients uniformly distributed over the unit hypersphere
+         * by normalizing Gaussian samples.
+         */
+        gradients = new float[4 * period];
+        Random generator = new Random(gSeed);
+        for (int index = 0; index < period; ++index) {
+            double x;
+            double y;
+            double z;
+            double w;
+            double lengthSquared;
+            do {
+                x = generator.nextGaussian();
+                y = generator.nextGaussian();
+                z = generator.nextGaussian();
+                w = generator.nextGaussian();
+                lengthSquared = x * x + y * y + z * z + w * w;
+            } while (lengthSquared < 1e-6);
+
+            double scale = 1.0 / Math.sqrt(lengthSquared);
+            int base = 4 * index;
+            gradients[base] = (float) (x * scale);
+            gradients[base + 1] = (float) (y * scale);
+            gradients[base + 2] = (float) (z * scale);
+            gradients[base + 3] = (float) (w * scale);
+        }
+    }
+    // *************************************************************************
+    // Noise4 methods
+
+    /**
+     * Sample the noise function at a specified point.
+     *
+     * @param sampleX 1st coordinate of the sample point
+     * @param sampleY 2nd coordinate of the sample point
+     * @param sampleZ 3rd coordinate of the sample point
+     * @param sampleW 4th coordinate of the sample point
+     * @return noise value (&le;1, &ge;-1)
+     */
+    @Override
+    public float sample(float sampleX, float sampleY, float sampleZ,
+            float sampleW) {
+        /*
+         * Determine which hypercube contains the point.
+         */
+        int cellX = FastPerlin2.floor(sampleX);
+        int cellY = FastPerlin2.floor(sampleY);
+        int cellZ = FastPerlin2.floor(sampleZ);
+        int cellW = FastPerlin2.floor(sampleW);
+        float dx = sampleX - cellX;
+        float dy = sampleY - cellY;
+        float dz = sampleZ - cellZ;
+        float dw = sampleW - cellW;
+        float fadeX = FastPerlin2.fade(dx);
+        float fadeY = FastPerlin2.fade(dy);
+        float fadeZ = FastPerlin2.fade(dz);
+        float fadeW = FastPerlin2.fade(dw);
+        /*
+         * Interpolate along W between two 3-D slices of the hypercube.
+         */
+        int w0 = cellW & mask;
+        int w1 = (cellW + 1) & mask;
+        float n0 = slice(cellX, cellY, cellZ, w0, dx, dy, dz, dw, fadeX,
+                fadeY, fadeZ);
+        float n1 = slice(cellX, cellY, cellZ, w1, dx, dy, dz, dw - 1f, fadeX,
+                fadeY, fadeZ);
+        float noise = FastPerlin2.lerp(fadeW, n0, n1);
+
+        return noise;
+    }
+
+    /**
+     * Sample the noise function at a specified point and normalize it to the
+     * range [-1, 1].
+     *
+     * @param sampleX 1st coordinate of the sample point
+     * @param sampleY 2nd coordinate of the sample point
+     * @param sampleZ 3rd coordinate of the sample point
+     * @param sampleW 4th coordinate of the sample point
+     * @return normalized noise value (&le;1, &ge;-1)
+     */
+    @Override
+    public float sampleNormalized(float sampleX, float sampleY, float sampleZ,
+            float sampleW) {
+        /*
+         * With unit gradients, the range of 4-D noise is already [-1, 1].
+         */
+        float noise = sample(sampleX, sampleY, sampleZ, sampleW);
+
+        assert noise >= -1f : noise;
+        assert noise <= 1f : noise;
+        return noise;
+    }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Dot the indexed gradient with an offset from its grid point.
+     *
+     * @param index the index of the gradient (&ge;0, &lt;period)
+     * @param offsetX the X component of the offset
+     * @param offsetY the Y component of the offset
+     * @param offsetZ the Z component of the offset
+     * @param offsetW the W component of the offset
+     * @return the dot product
+     */
+    private float dot(int index, float offsetX, float offsetY, float offsetZ,
+            float offsetW) {
+        int base = 4 * index;
+        float result = gradients[base] * offsetX
+                + gradients[base + 1] * offsetY
+                + gradients[base + 2] * offsetZ
+                + gradients[base + 3] * offsetW;
+        return result;
+    }
+
+    /**
+     * Interpolate the contributions of the eight corners of the hypercube
+     * that share the specified W grid coordinate.
+     *
+     * @param cellX the X grid coordinate of the hypercube
+     * @param cellY the Y grid coordinate of the hypercube
+     * @param cellZ the Z grid coordinate of the hypercube
+     * @param maskedW the masked W grid coordinate of the corners
+     * @param dx the X offset of the sample from the hypercube
+     * @param dy the Y offset of the sample from the hypercube
+     * @param dz the Z offset of the sample from the hypercube
+     * @param offsetW the W offset of the sample from the corners
+     * @param fadeX the faded X offset
+     * @param fadeY the faded Y offset
+     * @param fadeZ the faded Z offset
+     * @return the interpolated contribution
+     */
+    private float slice(int cellX, int cellY, int cellZ, int maskedW,
+            float dx, float dy, float dz, float offsetW, float fadeX,
+            float fadeY, float fadeZ) {
+        int hw = permutation[maskedW];
+        int hz0 = permutation[hw + (cellZ & mask)];
+        int hz1 = permutation[hw + ((cellZ + 1) & mask)];
+        int y0 = cellY & mask;
+        int y1 = (cellY + 1) & mask;
+        int h00 = permutation[hz0 + y0];
+        int h01 = permutation[hz0 + y1];
+        int h10 = permutation[hz1 + y0];
+        int h11 = permutation[hz1 + y1];
+        int x0 = cellX & mask;
+        int x1 = (cellX + 1) & mask;
+        /*
+         * Corner naming: nZYX.
+         */
+        float n000 = dot(permutation[h00 + x0], dx, dy, dz, offsetW);
+        float n001 = dot(permutation[h00 + x1], dx - 1f, dy, dz, offsetW);
+        float n010 = dot(permutation[h01 + x0], dx, dy - 1f, dz, offsetW);
+        float n011 = dot(permutation[h01 + x1], dx - 1f, dy - 1f, dz,
+                offsetW);
+        float n100 = dot(permutation[h10 + x0], dx, dy, dz - 1f, offsetW);
+        float n101 = dot(permutation[h10 + x1], dx - 1f, dy, dz - 1f,
+                offsetW);
+        float n110 = dot(permutation[h11 + x0], dx, dy - 1f, dz - 1f,
+                offsetW);
+        float n111 = dot(permutation[h11 + x1], dx - 1f, dy - 1f, dz - 1f,
+                offsetW);
+
+        float n00 = FastPerlin2.lerp(fadeX, n000, n001);
+        float n01 = FastPerlin2.lerp(fadeX, n010, n011);
+        float n10 = FastPerlin2.lerp(fadeX, n100, n101);
+        float n11 = FastPerlin2.lerp(fadeX, n110, n111);
+        float n0 = FastPerlin2.lerp(fadeY, n00, n01);
+        float n1 = FastPerlin2.lerp(fadeY, n10, n11);
+        float result = FastPerlin2.lerp(fadeZ, n0, n1);
+
+        return result;
+    }
+}
@@ -0,0 +1,208 @@
+/*
+ Copyright (c) 2019, Stephen Gold
+ All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright
+ notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright
+ notice, this list of conditions and the following disclaimer in the
+ documentation and/or other materials provided with the distribution.
+ * Neither the name of the copyright holder nor the names of its contributors
+ may be used to endorse or promote products derived from this software without
+ specific prior written permission.
+
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jme3utilities.math.noise;
+
+import java.util.concurrent.RecursiveAction;
+import java.util.logging.Logger;
+
+/**
+ * A fork/join task that samples fractional Brownian motion (FBM) noise into
+ * the rows of a NoiseField. The rows are divided into tiles of
+ * {@link #rowsPerTile} rows, and tile ranges are split in half until a single
+ * tile remains.
+ * <p>
+ * Each tile writes only its own rows and its own entries of the minimum and
+ * maximum arrays, so tiles can run in parallel without synchronization.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+class FbmTask extends RecursiveAction {
+    // *************************************************************************
+    // constants and loggers
+
+    /**
+     * number of rows in each tile, except possibly the last
+     */
+    final static int rowsPerTile = 16;
+    /**
+     * message logger for this class
+     */
+    final private static Logger logger
+            = Logger.getLogger(FbmTask.class.getName());
+    /**
+     * version number for serialization
+     */
+    static final long serialVersionUID = 1L;
+    // *************************************************************************
+    // fields
+
+    /**
+     * amplitude ratio between octaves (&gt;0, &lt;1)
+     */
+    final private float gain;
+    /**
+     * frequency for the 1st octave (&gt;0)
+     */
+    final private float fundamental;
+    /**
+     * frequency ratio between octaves (&gt;1)
+     */
+    final private float lacunarity;
+    /**
+     * smallest sample in each tile
+     */
+    final private float[] tileMin;
+    /**
+     * largest sample in each tile
+     */
+    final private float[] tileMax;
+    /**
+     * index of the first tile to process
+     */
+    final private int firstTile;
+    /**
+     * index one past the last tile to process
+     */
+    final private int endTile;
+    /**
+     * number of noise components (&gt;0)
+     */
+    final private int numOctaves;
+    /**
+     * base noise generator (not null)
+     */
+    final private Noise2 generator;
+    /**
+     * field to fill (not null)
+     */
+    final private NoiseField field;
+    // *************************************************************************
+    // constructors
+
+    /**
+     * Instantiate a task to process the specified range of tiles.
+     *
+     * @param field the field to fill (not null, alias created)
+     * @param generator the base noise generator (not null, alias created)
+     * @param numOctaves the number of noise components (&gt;0)
+     * @param fundamental the frequency for the 1st octave (&gt;0)
+     * @param gain the amplitude ratio between octaves (&gt;0, &lt;1)
+     * @param lacunarity the frequency ratio between octaves (&gt;1)
+     * @param tileMin storage for the smallest sample in each tile (not null,
+     * alias created)
+     * @param tileMax storage for the largest sample in each tile (not null,
+     * alias created)
+     * @param firstTile the index of the first tile to process (&ge;0)
+     * @param endTile one past the index of the last tile to process
+     */
+    FbmTask(NoiseField field, Noise2 generator, int numOctaves,
+            float fundamental, float gain, float lacunarity, float[] tileMin,
+            float[] tileMax, int firstTile, int endTile) {
+        assert firstTile >= 0 : firstTile;
+        assert endTile > firstTile : endTile;
+
+        this.field = field;
+        this.generator = generator;
+        this.numOctaves = numOctaves;
+        this.fundamental = fundamental;
+        this.gain = gain;
+        this.lacunarity = lacunarity;
+        this.tileMin = tileMin;
+        this.tileMax = tileMax;
+        this.firstTile = firstTile;
+        this.endTile = endTile;
+    }
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Fill each tile in this task's range, in sequence, on the current thread.
+     */
+    void fillTiles() {
+        for (int tile = firstTile; tile < endTile; ++tile) {
+            fillTile(tile);
+        }
+    }
+    // *************************************************************************
+    // RecursiveAction methods
+
+    /**
+     * Process the tiles, splitting the range if it contains more than one.
+     */
+    @Override
+    protected void compute() {
+        if (endTile - firstTile > 1) {
+            int middle = (firstTile + endTile) / 2;
+            invokeAll(new FbmTask(field, generator, numOctaves, fundamental,
+                    gain, lacunarity, tileMin, tileMax, firstTile, middle),
+                    new FbmTask(field, generator, numOctaves, fundamental,
+                            gain, lacunarity, tileMin, tileMax, middle,
+                            endTile));
+            return;
+        }
+
+        fillTile(firstTile);
+    }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Sample the noise for every point in the specified tile and record the
+     * tile's extreme values.
+     *
+     * @param tile the index of the tile (&ge;0)
+     */
+    private void fillTile(int tile) {
+        int numColumns = field.numColumns();
+        int numRows = field.numRows();
+        int startRow = tile * rowsPerTile;
+        int endRow = Math.min(startRow + rowsPerTile, numRows);
+        float[] samples = field.getSamples();
+
+        float startX = field.sampleX(0);
+        float spacingX = field.spacingX();
+        float min = Float.POSITIVE_INFINITY;
+        float max = Float.NEGATIVE_INFINITY;
+        for (int row = startRow; row < endRow; ++row) {
+            float y = field.sampleY(row);
+            int startIndex = row * numColumns;
+            generator.sampleFbmRow(startX, y, spacingX, numOctaves,
+                    fundamental, gain, lacunarity, numColumns, startIndex,
+                    samples);
+
+            int endIndex = startIndex + numColumns;
+            for (int index = startIndex; index < endIndex; ++index) {
+                float sample = samples[index];
+                min = Math.min(min, sample);
+                max = Math.max(max, sample);
+            }
+        }
+
+        tileMin[tile] = min;
+        tileMax[tile] = max;
+    }
+}
@@ -76,18 +76,7 @@ final public class Noise {
             float sampleY, int numOctaves, float fundamental, float gain,
             float lacunarity) {
         Validate.nonNull(generator, "generator");
-        Validate.positive(numOctaves, "octaves");
-        Validate.positive(fundamental, "fundamental");
-        if (!(gain > 0f && gain < 1f)) {
-            logger.log(Level.SEVERE, "gain={0}", gain);
-            throw new IllegalArgumentException(
-                    "gain should be between 0 and 1");
-        }
-        if (!(lacunarity > 1f)) {
-            logger.log(Level.SEVERE, "lacunarity={0}", lacunarity);
-            throw new IllegalArgumentException(
-                    "lacunarity should be greater than 1");
-        }
+        validateFbm(numOctaves, fundamental, gain, lacunarity);
 
         float amplitude = 1f;
         float frequency = fundamental;
@@ -130,4 +119,31 @@ final public class Noise {
     public static void reseedGenerator(long newSeed) {
         generator.setSeed(newSeed);
     }
+
+    /**
+     * Validate the parameters of fractional Brownian motion (FBM) noise, as
+     * used by {@link #fbmNoise(jme3utilities.math.noise.Noise2, float, float,
+     * int, float, float, float)}.
+     *
+     * @param numOctaves number of noise components (&gt;0)
+     * @param fundamental frequency for the 1st component (&gt;0)
+     * @param gain amplitude ratio between octaves (&gt;0, &lt;1)
+     * @param lacunarity frequency ratio between octaves (&gt;1)
+     * @throws IllegalArgumentException if any parameter is invalid
+     */
+    public static void validateFbm(int numOctaves, float fundamental,
+            float gain, float lacunarity) {
+        Validate.positive(numOctaves, "octaves");
+        Validate.positive(fundamental, "fundamental");
+        if (!(gain > 0f && gain < 1f)) {
+            logger.log(Level.SEVERE, "gain={0}", gain);
+            throw new IllegalArgumentException(
+                    "gain should be between 0 and 1");
+        }
+        if (!(lacunarity > 1f)) {
+            logger.log(Level.SEVERE, "lacunarity={0}", lacunarity);
+            throw new IllegalArgumentException(
+                    "lacunarity should be greater than 1");
+        }
+    }
 }
@@ -1,5 +1,5 @@
 /*
- Copyright (c) 2014-2017, Stephen Gold
+ Copyright (c) 2014-2019, Stephen Gold
  All rights reserved.
 
  Redistribution and use in source and binary forms, with or without
@@ -26,8 +26,15 @@
  */
 package jme3utilities.math.noise;
 
+import jme3utilities.Validate;
+
 /**
  * Interface for a two-dimensional noise generator.
+ * <p>
+ * The batch methods validate their arguments once per call rather than once
+ * per sample. Their default implementations are built on
+ * {@link #sampleNormalized(float, float)}; implementations may override them
+ * with fused loops.
  *
  * @author Stephen Gold sgold@sonic.net
  */
@@ -41,6 +48,49 @@ public interface Noise2 {
      */
     float sample(float sampleX, float sampleY);
 
+    /**
+     * Sample fractional Brownian motion (FBM) noise at evenly spaced points
+     * along a row, exactly as
+     * {@link Noise#fbmNoise(jme3utilities.math.noise.Noise2, float, float,
+     * int, float, float, float)} would at X=startX+i*spacingX for i from 0 to
+     * count-1.
+     *
+     * @param startX 1st coordinate of the first sample point
+     * @param sampleY 2nd coordinate of every sample point
+     * @param spacingX increase in the 1st coordinate from one point to the
+     * next
+     * @param numOctaves number of noise components (&gt;0)
+     * @param fundamental frequency for the 1st component (&gt;0)
+     * @param gain amplitude ratio between octaves (&gt;0, &lt;1)
+     * @param lacunarity frequency ratio between octaves (&gt;1)
+     * @param count number of points in the row (&ge;0)
+     * @param storeIndex index in storeResult for the first sample (&ge;0)
+     * @param storeResult storage for the samples (not null, modified)
+     */
+    default void sampleFbmRow(float startX, float sampleY, float spacingX,
+            int numOctaves, float fundamental, float gain, float lacunarity,
+            int count, int storeIndex, float[] storeResult) {
+        Noise.validateFbm(numOctaves, fundamental, gain, lacunarity);
+        Validate.nonNegative(count, "count");
+        Validate.inRange(storeIndex, "store index", 0,
+                storeResult.length - count);
+
+        for (int i = 0; i < count; ++i) {
+            float x = startX + i * spacingX;
+            float amplitude = 1f;
+            float frequency = fundamental;
+            float total = 0f;
+            for (int octave = 0; octave < numOctaves; ++octave) {
+                float sample = sampleNormalized(x * frequency,
+                        sampleY * frequency);
+                total += amplitude * sample;
+                frequency *= lacunarity;
+                amplitude *= gain;
+            }
+            storeResult[storeIndex + i] = total;
+        }
+    }
+
     /**
      * Sample the noise function at a specified point and normalize it to the
      * range [-1, 1].
@@ -50,4 +100,84 @@ public interface Noise2 {
      * @return noise value
      */
     float sampleNormalized(float sampleX, float sampleY);
+
+    /**
+     * Sample the noise function at arbitrary points and normalize the samples
+     * to the range [-1, 1].
+     *
+     * @param sampleX 1st coordinate of each sample point (not null,
+     * unaffected)
+     * @param sampleY 2nd coordinate of each sample point (not null, same
+     * length as sampleX, unaffected)
+     * @param storeResult storage for the samples (not null, length &ge;
+     * sampleX.length, modified)
+     */
+    default void sampleNormalized(float[] sampleX, float[] sampleY,
+            float[] storeResult) {
+        int count = sampleX.length;
+        Validate.inRange(sampleY.length, "number of Y coordinates", count,
+                count);
+        Validate.inRange(storeResult.length, "length of store result", count,
+                Integer.MAX_VALUE);
+
+        for (int i = 0; i < count; ++i) {
+            storeResult[i] = sampleNormalized(sampleX[i], sampleY[i]);
+        }
+    }
+
+    /**
+     * Sample the noise function on a rectangular grid and normalize the
+     * samples to the range [-1, 1]. The point in column C and row R is
+     * sampled at X=originX+C*spacingX, Y=originY+R*spacingY and stored at
+     * index C+R*numColumns.
+     *
+     * @param originX 1st coordinate of column 0
+     * @param originY 2nd coordinate of row 0
+     * @param spacingX increase in the 1st coordinate from one column to the
+     * next
+     * @param spacingY increase in the 2nd coordinate from one row to the next
+     * @param numColumns number of columns (&ge;0)
+     * @param numRows number of rows (&ge;0)
+     * @param storeResult storage for the samples (not null, length &ge;
+     * numColumns*numRows, modified)
+     */
+    default void sampleNormalizedGrid(float originX, float originY,
+            float spacingX, float spacingY, int numColumns, int numRows,
+            float[] storeResult) {
+        Validate.nonNegative(numColumns, "number of columns");
+        Validate.nonNegative(numRows, "number of rows");
+        Validate.inRange(storeResult.length, "length of store result",
+                numColumns * numRows, Integer.MAX_VALUE);
+
+        for (int row = 0; row < numRows; ++row) {
+            float y = originY + row * spacingY;
+            sampleNormalizedRow(originX, y, spacingX, numColumns,
+                    row * numColumns, storeResult);
+        }
+    }
+
+    /**
+     * Sample the noise function at evenly spaced points along a row and
+     * normalize the samples to the range [-1, 1]. Point i is sampled at
+     * X=startX+i*spacingX.
+     *
+     * @param startX 1st coordinate of the first sample point
+     * @param sampleY 2nd coordinate of every sample point
+     * @param spacingX increase in the 1st coordinate from one point to the
+     * next
+     * @param count number of points in the row (&ge;0)
+     * @param storeIndex index in storeResult for the first sample (&ge;0)
+     * @param storeResult storage for the samples (not null, modified)
+     */
+    default void sampleNormalizedRow(float startX, float sampleY,
+            float spacingX, int count, int storeIndex, float[] storeResult) {
+        Validate.nonNegative(count, "count");
+        Validate.inRange(storeIndex, "store index", 0,
+                storeResult.length - count);
+
+        for (int i = 0; i < count; ++i) {
+            float x = startX + i * spacingX;
+            storeResult[storeIndex + i] = sampleNormalized(x, sampleY);
+        }
+    }
 }
@@ -0,0 +1,290 @@
+/*
+ Copyright (c) 2019, Stephen Gold
+ All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright
+ notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright
+ notice, this list of conditions and the following disclaimer in the
+ documentation and/or other materials provided with the distribution.
+ * Neither the name of the copyright holder nor the names of its contributors
+ may be used to endorse or promote products derived from this software without
+ specific prior written permission.
+
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jme3utilities.math.noise;
+
+import java.nio.FloatBuffer;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.logging.Logger;
+import jme3utilities.Validate;
+
+/**
+ * A rectangular grid of noise samples, stored in a flat array in row-major
+ * order, along with the range of the samples. Filling a field samples every
+ * grid point in a single pass, optionally spread across the threads of a
+ * ForkJoinPool, which makes it suitable for generating terrain and cloud maps
+ * off the render thread.
+ * <p>
+ * The grid point in column C and row R is sampled at X=originX+C*spacingX,
+ * Y=originY+R*spacingY.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+public class NoiseField {
+    // *************************************************************************
+    // constants and loggers
+
+    /**
+     * message logger for this class
+     */
+    final private static Logger logger
+            = Logger.getLogger(NoiseField.class.getName());
+    // *************************************************************************
+    // fields
+
+    /**
+     * largest sample value, or -Infinity if not filled yet
+     */
+    private float max = Float.NEGATIVE_INFINITY;
+    /**
+     * smallest sample value, or +Infinity if not filled yet
+     */
+    private float min = Float.POSITIVE_INFINITY;
+    /**
+     * sample values in row-major order
+     */
+    final private float[] samples;
+    /**
+     * X coordinate of column 0
+     */
+    final private float originX;
+    /**
+     * Y coordinate of row 0
+     */
+    final private float originY;
+    /**
+     * increase in X coordinate from one column to the next
+     */
+    final private float spacingX;
+    /**
+     * increase in Y coordinate from one row to the next
+     */
+    final private float spacingY;
+    /**
+     * number of samples in each row (&gt;0)
+     */
+    final private int numColumns;
+    /**
+     * number of rows (&gt;0)
+     */
+    final private int numRows;
+    // *************************************************************************
+    // constructors
+
+    /**
+     * Instantiate an unfilled field with the specified grid.
+     *
+     * @param numColumns the number of samples in each row (&gt;0)
+     * @param numRows the number of rows (&gt;0)
+     * @param originX the X coordinate of column 0
+     * @param originY the Y coordinate of row 0
+     * @param spacingX the increase in X coordinate from one column to the next
+     * @param spacingY the increase in Y coordinate from one row to the next
+     */
+    public NoiseField(int numColumns, int numRows, float originX,
+            float originY, float spacingX, float spacingY) {
+        Validate.positive(numColumns, "number of columns");
+        Validate.positive(numRows, "number of rows");
+
+        this.numColumns = numColumns;
+        this.numRows = numRows;
+        this.originX = originX;
+        this.originY = originY;
+        this.spacingX = spacingX;
+        this.spacingY = spacingY;
+        samples = new float[numColumns * numRows];
+    }
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Copy the samples to the specified buffer, starting at its current
+     * position, in row-major order.
+     *
+     * @param storeResult the buffer to write to (not null, at least
+     * numColumns*numRows floats remaining, position advanced)
+     */
+    public void copyTo(FloatBuffer storeResult) {
+        Validate.nonNull(storeResult, "store result");
+        storeResult.put(samples);
+    }
+
+    /**
+     * Fill the field with fractional Brownian motion (FBM) noise, as computed
+     * by {@link Noise#fbmNoise(jme3utilities.math.noise.Noise2, float, float,
+     * int, float, float, float)}, and update the range. Rows are sampled using
+     * {@link Noise2#sampleFbmRow(float, float, float, int, float, float,
+     * float, int, int, float[])}.
+     *
+     * @param generator the base noise generator (not null, must be thread-safe
+     * if pool is not null)
+     * @param numOctaves the number of noise components (&gt;0)
+     * @param fundamental the frequency for the 1st component (&gt;0)
+     * @param gain the amplitude ratio between octaves (&gt;0, &lt;1)
+     * @param lacunarity the frequency ratio between octaves (&gt;1)
+     * @param pool the pool in which to sample tiles of rows in parallel, or
+     * null to sample them all on the current thread
+     */
+    public void fillFbm(Noise2 generator, int numOctaves, float fundamental,
+            float gain, float lacunarity, ForkJoinPool pool) {
+        Validate.nonNull(generator, "generator");
+        Noise.validateFbm(numOctaves, fundamental, gain, lacunarity);
+
+        int rowsPerTile = FbmTask.rowsPerTile;
+        int numTiles = (numRows + rowsPerTile - 1) / rowsPerTile;
+        float[] tileMin = new float[numTiles];
+        float[] tileMax = new float[numTiles];
+        FbmTask task = new FbmTask(this, generator, numOctaves, fundamental,
+                gain, lacunarity, tileMin, tileMax, 0, numTiles);
+        if (pool == null) {
+            task.fillTiles();
+        } else {
+            pool.invoke(task);
+        }
+        /*
+         * Combine the per-tile extremes.
+         */
+        min = Float.POSITIVE_INFINITY;
+        max = Float.NEGATIVE_INFINITY;
+        for (int tile = 0; tile < numTiles; ++tile) {
+            min = Math.min(min, tileMin[tile]);
+            max = Math.max(max, tileMax[tile]);
+        }
+    }
+
+    /**
+     * Read the largest sample value.
+     *
+     * @return the value (or -Infinity if the field hasn't been filled)
+     */
+    public float getMax() {
+        return max;
+    }
+
+    /**
+     * Read the smallest sample value.
+     *
+     * @return the value (or +Infinity if the field hasn't been filled)
+     */
+    public float getMin() {
+        return min;
+    }
+
+    /**
+     * Access the sample array, in row-major order.
+     *
+     * @return the pre-existing array (not null, length=numColumns*numRows)
+     */
+    public float[] getSamples() {
+        return samples;
+    }
+
+    /**
+     * Rescale the samples linearly so that they fill the range [0, 1]. If all
+     * samples are equal, they are all set to zero.
+     */
+    public void normalize() {
+        float range = max - min;
+        int numSamples = samples.length;
+        if (range > 0f) {
+            for (int index = 0; index < numSamples; ++index) {
+                samples[index] = (samples[index] - min) / range;
+            }
+        } else {
+            Arrays.fill(samples, 0f);
+        }
+
+        min = 0f;
+        max = (range > 0f) ? 1f : 0f;
+    }
+
+    /**
+     * Read the number of samples in each row.
+     *
+     * @return the count (&gt;0)
+     */
+    public int numColumns() {
+        assert numColumns > 0 : numColumns;
+        return numColumns;
+    }
+
+    /**
+     * Read the number of rows.
+     *
+     * @return the count (&gt;0)
+     */
+    public int numRows() {
+        assert numRows > 0 : numRows;
+        return numRows;
+    }
+
+    /**
+     * Read the sample at the specified grid point.
+     *
+     * @param column the column index (&ge;0, &lt;numColumns)
+     * @param row the row index (&ge;0, &lt;numRows)
+     * @return the sample value
+     */
+    public float sample(int column, int row) {
+        Validate.inRange(column, "column", 0, numColumns - 1);
+        Validate.inRange(row, "row", 0, numRows - 1);
+
+        float result = samples[column + row * numColumns];
+        return result;
+    }
+
+    /**
+     * Calculate the X coordinate of the specified column.
+     *
+     * @param column the column index (&ge;0, &lt;numColumns)
+     * @return the coordinate
+     */
+    public float sampleX(int column) {
+        float result = originX + column * spacingX;
+        return result;
+    }
+
+    /**
+     * Calculate the Y coordinate of the specified row.
+     *
+     * @param row the row index (&ge;0, &lt;numRows)
+     * @return the coordinate
+     */
+    public float sampleY(int row) {
+        float result = originY + row * spacingY;
+        return result;
+    }
+
+    /**
+     * Read the increase in X coordinate from one column to the next.
+     *
+     * @return the spacing
+     */
+    float spacingX() {
+        return spacingX;
+    }
+}
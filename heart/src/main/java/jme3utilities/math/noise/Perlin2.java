@@ -28,6 +28,7 @@ package jme3utilities.math.noise;
 
 import com.jme3.math.FastMath;
 import com.jme3.math.Vector2f;
+import java.util.Arrays;
 import java.util.Random;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -105,10 +106,13 @@ public class Perlin2 implements Noise2 {
         /*
          * Compute the noise contribution of each corner.
          */
-        float n00 = gradient(squareX, squareY, sampleX, sampleY);
-        float n01 = gradient(squareX, squareY + 1, sampleX, sampleY);
-        float n10 = gradient(squareX + 1, squareY, sampleX, sampleY);
-        float n11 = gradient(squareX + 1, squareY + 1, sampleX, sampleY);
+        int hash0 = permutation.permute(squareY);
+        int hash1 = permutation.permute(squareY + 1);
+        float n00 = gradient(squareX, squareY, hash0, sampleX, sampleY);
+        float n01 = gradient(squareX, squareY + 1, hash1, sampleX, sampleY);
+        float n10 = gradient(squareX + 1, squareY, hash0, sampleX, sampleY);
+        float n11 = gradient(squareX + 1, squareY + 1, hash1, sampleX,
+                sampleY);
         /*
          * 2-D interpolation between the four corners of the square.
          */
@@ -122,6 +126,44 @@ public class Perlin2 implements Noise2 {
         return noise;
     }
 
+    /**
+     * Sample FBM noise along a row, as
+     * {@link Noise2#sampleFbmRow(float, float, float, int, float, float,
+     * float, int, int, float[])} does, but one octave at a time, hashing the
+     * Y coordinate only once per octave.
+     *
+     * @param startX 1st coordinate of the first sample point
+     * @param sampleY 2nd coordinate of every sample point
+     * @param spacingX increase in the 1st coordinate from one point to the
+     * next
+     * @param numOctaves number of noise components (&gt;0)
+     * @param fundamental frequency for the 1st component (&gt;0)
+     * @param gain amplitude ratio between octaves (&gt;0, &lt;1)
+     * @param lacunarity frequency ratio between octaves (&gt;1)
+     * @param count number of points in the row (&ge;0)
+     * @param storeIndex index in storeResult for the first sample (&ge;0)
+     * @param storeResult storage for the samples (not null, modified)
+     */
+    @Override
+    public void sampleFbmRow(float startX, float sampleY, float spacingX,
+            int numOctaves, float fundamental, float gain, float lacunarity,
+            int count, int storeIndex, float[] storeResult) {
+        Noise.validateFbm(numOctaves, fundamental, gain, lacunarity);
+        Validate.nonNegative(count, "count");
+        Validate.inRange(storeIndex, "store index", 0,
+                storeResult.length - count);
+
+        Arrays.fill(storeResult, storeIndex, storeIndex + count, 0f);
+        float amplitude = 1f;
+        float frequency = fundamental;
+        for (int octave = 0; octave < numOctaves; ++octave) {
+            accumulateRow(startX, sampleY, spacingX, frequency, amplitude,
+                    count, storeIndex, storeResult);
+            frequency *= lacunarity;
+            amplitude *= gain;
+        }
+    }
+
     /**
      * Sample the noise function at a specified point and normalize it to the
      * range [-1, 1].
@@ -142,9 +184,73 @@ public class Perlin2 implements Noise2 {
         assert noise <= 1f : noise;
         return noise;
     }
+
+    /**
+     * Sample normalized noise along a row, hashing the Y coordinate only once.
+     *
+     * @param startX 1st coordinate of the first sample point
+     * @param sampleY 2nd coordinate of every sample point
+     * @param spacingX increase in the 1st coordinate from one point to the
+     * next
+     * @param count number of points in the row (&ge;0)
+     * @param storeIndex index in storeResult for the first sample (&ge;0)
+     * @param storeResult storage for the samples (not null, modified)
+     */
+    @Override
+    public void sampleNormalizedRow(float startX, float sampleY,
+            float spacingX, int count, int storeIndex, float[] storeResult) {
+        Validate.nonNegative(count, "count");
+        Validate.inRange(storeIndex, "store index", 0,
+                storeResult.length - count);
+
+        Arrays.fill(storeResult, storeIndex, storeIndex + count, 0f);
+        accumulateRow(startX, sampleY, spacingX, 1f, 1f, count, storeIndex,
+                storeResult);
+    }
     // *************************************************************************
     // private methods
 
+    /**
+     * Add one octave of normalized noise, sampled along a row, to the stored
+     * values.
+     *
+     * @param startX 1st coordinate of the first sample point, before scaling
+     * @param sampleY 2nd coordinate of every sample point, before scaling
+     * @param spacingX increase in the 1st coordinate from one point to the
+     * next, before scaling
+     * @param frequency scale factor applied to the coordinates
+     * @param amplitude scale factor applied to the normalized samples
+     * @param count number of points in the row (&ge;0)
+     * @param storeIndex index in storeResult for the first sample (&ge;0)
+     * @param storeResult the values to add to (not null, modified)
+     */
+    private void accumulateRow(float startX, float sampleY, float spacingX,
+            float frequency, float amplitude, int count, int storeIndex,
+            float[] storeResult) {
+        float y = sampleY * frequency;
+        int squareY = (int) Math.floor(y);
+        int hash0 = permutation.permute(squareY);
+        int hash1 = permutation.permute(squareY + 1);
+        float fadeY = MyMath.fade(y - squareY);
+
+        for (int i = 0; i < count; ++i) {
+            float x = (startX + i * spacingX) * frequency;
+            int squareX = (int) Math.floor(x);
+            float n00 = gradient(squareX, squareY, hash0, x, y);
+            float n01 = gradient(squareX, squareY + 1, hash1, x, y);
+            float n10 = gradient(squareX + 1, squareY, hash0, x, y);
+            float n11 = gradient(squareX + 1, squareY + 1, hash1, x, y);
+
+            float fadeX = MyMath.fade(x - squareX);
+            float nx0 = FastMath.interpolateLinear(fadeX, n00, n10);
+            float nx1 = FastMath.interpolateLinear(fadeX, n01, n11);
+            float noise = FastMath.interpolateLinear(fadeY, nx0, nx1);
+            noise /= MyMath.rootHalf;
+
+            storeResult[storeIndex + i] += amplitude * noise;
+        }
+    }
+
     /**
      * Generate an array of pseudo-random 2-D gradients for a specified seed.
      *
@@ -171,15 +277,16 @@ public class Perlin2 implements Noise2 {
      *
      * @param gridX 1st coordinate of the grid point
      * @param gridY 2nd coordinate of the grid point
+     * @param hashY permutation of gridY
      * @param sampleX 1st coordinate of the sample point
      * @param sampleY 2nd coordinate of the sample point
      */
-    private float gradient(int gridX, int gridY, double sampleX,
+    private float gradient(int gridX, int gridY, int hashY, double sampleX,
             double sampleY) {
         /*
          * Compute a hashed index into the array of gradients.
          */
-        int index = permutation.permute(gridX + permutation.permute(gridY));
+        int index = permutation.permute(gridX + hashY);
         index = MyMath.modulo(index, gradients.length);
         /*
          * Dot the gradient at the grid point with the sample's offset.
@@ -99,6 +99,22 @@ public class Permutation {
         assert result < indices.length : result;
         return result;
     }
+
+    /**
+     * Copy the permutation twice into a new array, so that a sum of two
+     * permuted indices can index the table without wrapping.
+     *
+     * @return a new array (length=2*length, each element &ge;0 and
+     * &lt;length)
+     */
+    int[] toDoubledTable() {
+        int length = indices.length;
+        int[] result = new int[2 * length];
+        System.arraycopy(indices, 0, result, 0, length);
+        System.arraycopy(indices, 0, result, length, length);
+
+        return result;
+    }
     // *************************************************************************
     // private methods
 
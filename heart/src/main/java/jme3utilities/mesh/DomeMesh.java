@@ -37,8 +37,14 @@ import com.jme3.scene.Mesh;
 import com.jme3.scene.VertexBuffer;
 import com.jme3.util.BufferUtils;
 import java.io.IOException;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
 import java.nio.FloatBuffer;
 import java.nio.ShortBuffer;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import jme3utilities.Validate;
@@ -57,6 +63,11 @@ import jme3utilities.math.MyMath;
  * The projection to texture space is an "azimuthal equidistant projection". The
  * dome's equator maps to a circle of radius uvScale centered at (topU,topV).
  * The +X direction maps to +U, and the +Z direction maps to -V.
+ * <p>
+ * Optionally, the dome can include coarser levels of detail (LODs), which share
+ * its vertex buffers. Index buffers are shared between all domes having the
+ * same topology, so they must be treated as read-only: to alter a dome's
+ * indices, replace its buffers rather than modifying their data.
  *
  * @author Stephen Gold sgold@sonic.net
  */
@@ -89,6 +100,19 @@ public class DomeMesh extends Mesh {
      */
     final private static Logger logger
             = Logger.getLogger(DomeMesh.class.getName());
+    /**
+     * read-only index buffers shared between domes with the same topology,
+     * keyed by topology and sample stride: weakly referenced so that buffers
+     * no longer used by any dome can be garbage-collected
+     */
+    final private static Map<String, WeakReference<VertexBuffer>>
+            indexBufferCache = new HashMap<>(16);
+    /**
+     * notified when a cached index buffer is garbage-collected, so that its
+     * stale entry can be removed (access synchronized on indexBufferCache)
+     */
+    final private static ReferenceQueue<VertexBuffer> clearedIndexBuffers
+            = new ReferenceQueue<>();
     // *************************************************************************
     // fields
 
@@ -121,6 +145,11 @@ public class DomeMesh extends Mesh {
      * angle from top to rim (in radians, &lt;Pi, &gt;0, Pi/2 &rarr; hemisphere)
      */
     private float verticalAngle;
+    /**
+     * maximum number of levels of detail to generate (&ge;1, default is 1,
+     * 1 &rarr; no LOD levels)
+     */
+    private int maxLodLevels = 1;
     /**
      * number of samples in each longitudinal quadrant of the dome, including
      * both the top and the rim (&ge;2)
@@ -267,6 +296,17 @@ public class DomeMesh extends Mesh {
         return elevationAngle;
     }
 
+    /**
+     * Read the maximum number of levels of detail.
+     *
+     * @return the count (&ge;1)
+     * @see #setMaxLodLevels(int)
+     */
+    public int getMaxLodLevels() {
+        assert maxLodLevels >= 1 : maxLodLevels;
+        return maxLodLevels;
+    }
+
     /**
      * Read the U-V scale of this dome.
      *
@@ -290,6 +330,25 @@ public class DomeMesh extends Mesh {
         return verticalAngle;
     }
 
+    /**
+     * Alter the maximum number of levels of detail. Each level halves the
+     * sampling density of the previous one on both axes, while sharing the
+     * vertex buffers. Fewer levels are generated if the coarsest one would
+     * have fewer than 3 rim samples or wouldn't reduce the triangle count.
+     * Level 0 is always full detail.
+     *
+     * @param newMax the desired number of levels (&ge;1, 1 &rarr; no LOD
+     * levels)
+     */
+    public void setMaxLodLevels(int newMax) {
+        Validate.positive(newMax, "new maximum");
+
+        if (newMax != maxLodLevels) {
+            maxLodLevels = newMax;
+            updateIndices();
+        }
+    }
+
     /**
      * Regenerate the mesh for a new segment angle: 2*Pi produces a complete
      * dome, Pi results in a half dome, and so on.
@@ -340,6 +399,7 @@ public class DomeMesh extends Mesh {
         InputCapsule capsule = importer.getCapsule(this);
 
         inwardFacing = capsule.readBoolean("inwardFacing", true);
+        maxLodLevels = capsule.readInt("maxLodLevels", 1);
         quadrantSamples = capsule.readInt("quadrantSamples", 2);
         rimSamples = capsule.readInt("rimSamples", 3);
         segmentAngle = capsule.readFloat("segmentAngle", FastMath.TWO_PI);
@@ -367,6 +427,7 @@ public class DomeMesh extends Mesh {
         OutputCapsule capsule = exporter.getCapsule(this);
 
         capsule.write(inwardFacing, "inwardFacing", true);
+        capsule.write(maxLodLevels, "maxLodLevels", 1);
         capsule.write(quadrantSamples, "quadrantSamples", 2);
         capsule.write(rimSamples, "rimSamples", 3);
         capsule.write(segmentAngle, "segmentAngle", FastMath.TWO_PI);
@@ -379,18 +440,212 @@ public class DomeMesh extends Mesh {
     // private methods
 
     /**
-     * Rebuild this dome after a parameter change.
+     * Generate the vertex indices of each triangle for the specified samples.
+     *
+     * @param meridians indices of the meridians to use, in increasing order
+     * (not null, length&ge;3, unaffected)
+     * @param parallels indices of the parallels to use, in increasing order,
+     * ending with the top (not null, length&ge;2, unaffected)
+     * @return a new array
+     */
+    private short[] createIndices(int[] meridians, int[] parallels) {
+        assert meridians.length >= 3 : meridians.length;
+        assert parallels.length >= 2 : parallels.length;
+        assert parallels[parallels.length - 1] == quadrantSamples - 1;
+        /*
+         * If the dome is incomplete, leave a gap between the last rim sample
+         * and the 1st.
+         */
+        int numMeridians = meridians.length;
+        int numGores;
+        if (complete) {
+            numGores = numMeridians;
+        } else {
+            numGores = numMeridians - 1;
+        }
+        /*
+         * Allocate an array to hold the 3 vertex indices of each triangle.
+         */
+        int numBands = parallels.length - 1;
+        int trianglesPerGore = 2 * numBands - 1;
+        short[] indexArray = new short[vpt * trianglesPerGore * numGores];
+        /*
+         * Compute the quad triangles 1st. Quads are arranged 1st
+         * and foremost by latitude, starting at the rim.
+         */
+        int triIndex = 0;
+        for (int band = 0; band < numBands - 1; ++band) {
+            int parallel = parallels[band];
+            int nextParallel = parallels[band + 1];
+            /*
+             * Within each latitude band, quads are arranged by longitude,
+             * starting from the +X meridian and proceeding counterclockwise
+             * as seen from +Y.
+             */
+            for (int gore = 0; gore < numGores; ++gore) {
+                int meridian = meridians[gore];
+                int nextMeridian = meridians[(gore + 1) % numMeridians];
+                int v0Index = parallel * rimSamples + meridian;
+                int v1Index = parallel * rimSamples + nextMeridian;
+                int v2Index = nextParallel * rimSamples + meridian;
+                int v3Index = nextParallel * rimSamples + nextMeridian;
+                /*
+                 * Each quad consists of two triangles.
+                 */
+                putTriangle(indexArray, triIndex, v0Index, v1Index, v3Index);
+                ++triIndex;
+                putTriangle(indexArray, triIndex, v0Index, v3Index, v2Index);
+                ++triIndex;
+            }
+        }
+        /*
+         * The remaining (non-quad) triangles near the top of the dome
+         * are arranged by longitude, starting from the +X meridian and
+         * proceeding counterclockwise as seen from +Y.
+         */
+        int parallel = parallels[numBands - 1];
+        int topIndex = vertexCount - 1;
+        for (int gore = 0; gore < numGores; ++gore) {
+            int meridian = meridians[gore];
+            int nextMeridian = meridians[(gore + 1) % numMeridians];
+            int v0Index = parallel * rimSamples + meridian;
+            int v1Index = parallel * rimSamples + nextMeridian;
+            putTriangle(indexArray, triIndex, v0Index, v1Index, topIndex);
+            ++triIndex;
+        }
+        assert vpt * triIndex == indexArray.length : triIndex;
+
+        return indexArray;
+    }
+
+    /**
+     * Access the index buffer for the specified sample stride, creating and
+     * caching it if no dome with the same topology has done so already.
+     *
+     * @param stride the sample stride on each axis (&ge;1, 1 &rarr; full
+     * detail)
+     * @return a shared buffer (treat as read-only), or null if the stride is
+     * too coarse
+     */
+    private VertexBuffer indexBuffer(int stride) {
+        assert stride >= 1 : stride;
+
+        boolean includeLastMeridian = !complete;
+        int[] meridians = subsample(rimSamples, stride, includeLastMeridian);
+        if (meridians.length < 3) {
+            return null;
+        }
+        int[] parallels = subsample(quadrantSamples, stride, true);
+
+        String key = String.format("%dx%d%s%s/%d", rimSamples,
+                quadrantSamples, complete ? "c" : "s",
+                inwardFacing ? "i" : "o", stride);
+        synchronized (indexBufferCache) {
+            /*
+             * Remove the entries of any buffers that have been collected.
+             */
+            boolean anyCleared = false;
+            while (clearedIndexBuffers.poll() != null) {
+                anyCleared = true;
+            }
+            if (anyCleared) {
+                Iterator<WeakReference<VertexBuffer>> iterator
+                        = indexBufferCache.values().iterator();
+                while (iterator.hasNext()) {
+                    if (iterator.next().get() == null) {
+                        iterator.remove();
+                    }
+                }
+            }
+
+            VertexBuffer result = null;
+            WeakReference<VertexBuffer> reference = indexBufferCache.get(key);
+            if (reference != null) {
+                result = reference.get();
+            }
+            if (result == null) {
+                short[] indexArray = createIndices(meridians, parallels);
+                ShortBuffer data = BufferUtils.createShortBuffer(indexArray);
+                result = new VertexBuffer(VertexBuffer.Type.Index);
+                result.setupData(VertexBuffer.Usage.Static, vpt,
+                        VertexBuffer.Format.UnsignedShort, data);
+                reference = new WeakReference<>(result, clearedIndexBuffers);
+                indexBufferCache.put(key, reference);
+            }
+
+            return result;
+        }
+    }
+
+    /**
+     * Store the vertex indices of a triangle, reversing the winding if the
+     * dome faces outward.
+     *
+     * @param indexArray where to store the indices (not null, modified)
+     * @param triIndex index of the triangle in the array (&ge;0)
+     * @param v0Index index of the 1st vertex (&ge;0)
+     * @param v1Index index of the 2nd vertex for an inward-facing dome (&ge;0)
+     * @param v2Index index of the 3rd vertex for an inward-facing dome (&ge;0)
+     */
+    private void putTriangle(short[] indexArray, int triIndex, int v0Index,
+            int v1Index, int v2Index) {
+        int baseIndex = vpt * triIndex;
+        indexArray[baseIndex] = (short) v0Index;
+        if (inwardFacing) {
+            indexArray[baseIndex + 1] = (short) v1Index;
+            indexArray[baseIndex + 2] = (short) v2Index;
+        } else {
+            indexArray[baseIndex + 1] = (short) v2Index;
+            indexArray[baseIndex + 2] = (short) v1Index;
+        }
+    }
+
+    /**
+     * Select every stride-th sample from a sequence, starting with the 1st.
+     *
+     * @param numSamples the number of samples in the sequence (&ge;1)
+     * @param stride the sample stride (&ge;1)
+     * @param includeLast true to always include the last sample, false to
+     * include it only if it falls on the stride
+     * @return a new array of sample indices, in increasing order
+     */
+    private static int[] subsample(int numSamples, int stride,
+            boolean includeLast) {
+        int numSelected = (numSamples - 1) / stride + 1;
+        boolean appendLast = includeLast && (numSamples - 1) % stride != 0;
+        int[] result;
+        if (appendLast) {
+            result = new int[numSelected + 1];
+            result[numSelected] = numSamples - 1;
+        } else {
+            result = new int[numSelected];
+        }
+        for (int i = 0; i < numSelected; ++i) {
+            result[i] = i * stride;
+        }
+
+        return result;
+    }
+
+    /**
+     * Rebuild this dome after a parameter change. The index buffers are
+     * replaced only if the topology has changed.
      */
     private void updateAll() {
+        boolean hadIndices = getBuffer(VertexBuffer.Type.Index) != null;
+        boolean wasComplete = complete;
         /*
          * Recompute the derived properties.
          */
         updateDerivedProperties();
         /*
-         * Update each buffer.
+         * Update each buffer. Of the topology parameters, only the
+         * completeness can change after construction.
          */
         updateCoordinates();
-        updateIndices();
+        if (!hadIndices || complete != wasComplete) {
+            updateIndices();
+        }
         updateNormals();
         /*
          * Update the bounds of the mesh.
@@ -457,7 +712,11 @@ public class DomeMesh extends Mesh {
         texCoordArray[topIndex] = new Vector2f(topU, topV);
         /*
          * Allocate and assign buffers for locations and texture coordinates.
+         * Replace (rather than update) any old buffers, since a cloned mesh
+         * may share them.
          */
+        clearBuffer(VertexBuffer.Type.Position);
+        clearBuffer(VertexBuffer.Type.TexCoord);
         FloatBuffer locBuffer = BufferUtils.createFloatBuffer(locationArray);
         setBuffer(VertexBuffer.Type.Position, numAxes, locBuffer);
         FloatBuffer tcBuffer = BufferUtils.createFloatBuffer(texCoordArray);
@@ -482,9 +741,15 @@ public class DomeMesh extends Mesh {
 
         complete = (segmentAngle > 1.999f * FastMath.PI);
 
+        int numGores;
+        if (complete) {
+            numGores = rimSamples;
+        } else {
+            numGores = rimSamples - 1;
+        }
         int quadsPerGore = quadrantSamples - 2;
         int trianglesPerGore = 2 * quadsPerGore + 1;
-        triangleCount = trianglesPerGore * rimSamples;
+        triangleCount = trianglesPerGore * numGores;
         logger.log(Level.INFO, "{0} triangles", triangleCount);
 
         vertexCount = (quadrantSamples - 1) * rimSamples + 1;
@@ -493,98 +758,39 @@ public class DomeMesh extends Mesh {
     }
 
     /**
-     * Update the buffered indices of each triangle in this dome.
+     * Update the index buffer and any LOD levels of this dome, sharing buffers
+     * with other domes of the same topology.
      */
     private void updateIndices() {
-        /*
-         * Allocate an array to hold the 3 vertex indices of each triangle.
-         */
-        short[] indexArray = new short[vpt * triangleCount];
-        /*
-         * If the dome is incomplete, leave a gap between the last rim sample
-         * and the 1st.
-         */
-        int numGores;
-        if (complete) {
-            numGores = rimSamples;
-        } else {
-            numGores = rimSamples - 1;
-        }
-        /*
-         * Compute the quad triangles 1st. Quads are arranged 1st
-         * and foremost by latitude, starting at the rim.
-         */
-        int quadsPerGore = quadrantSamples - 2;
-        for (int parallel = 0; parallel < quadsPerGore; ++parallel) {
-            int nextParallel = parallel + 1;
-            /*
-             * Within each latitude band, quads are arranged by longitude,
-             * starting from the +X meridian and proceeding counterclockwise
-             * as seen from +Y.
-             */
-            for (int meridian = 0; meridian < numGores; ++meridian) {
-                int nextMeridian = (meridian + 1) % rimSamples;
-                int v0Index = parallel * rimSamples + meridian;
-                int v1Index = parallel * rimSamples + nextMeridian;
-                int v2Index = nextParallel * rimSamples + meridian;
-                int v3Index = nextParallel * rimSamples + nextMeridian;
-                /*
-                 * Each quad consists of two triangles.
-                 */
-                int triIndex = 2 * v0Index;
-                int baseIndex = vpt * triIndex;
-                logger.log(Level.FINE, "index {0}", triIndex);
-                indexArray[vpt * triIndex] = (short) v0Index;
-                if (inwardFacing) {
-                    indexArray[baseIndex + 1] = (short) v1Index;
-                    indexArray[baseIndex + 2] = (short) v3Index;
-                } else {
-                    indexArray[baseIndex + 1] = (short) v3Index;
-                    indexArray[baseIndex + 2] = (short) v1Index;
-                }
-
-                ++triIndex;
-                baseIndex = vpt * triIndex;
-                logger.log(Level.FINE, "index {0}", triIndex);
-                indexArray[baseIndex] = (short) v0Index;
-                if (inwardFacing) {
-                    indexArray[baseIndex + 1] = (short) v3Index;
-                    indexArray[baseIndex + 2] = (short) v2Index;
-                } else {
-                    indexArray[baseIndex + 1] = (short) v2Index;
-                    indexArray[baseIndex + 2] = (short) v3Index;
-                }
+        VertexBuffer[] levels = new VertexBuffer[maxLodLevels];
+        int numLevels = 0;
+        int previousCount = Integer.MAX_VALUE;
+        for (int level = 0; level < maxLodLevels; ++level) {
+            int stride = 1 << level;
+            VertexBuffer buffer = indexBuffer(stride);
+            if (buffer == null) {
+                break;
             }
-        }
-        /*
-         * The remaining (non-quad) triangles near the top of the dome
-         * are arranged by longitude, starting from the +X meridian and
-         * proceeding counterclockwise as seen from +Y.
-         */
-        int parallel = quadsPerGore;
-        int topIndex = vertexCount - 1;
-        for (int meridian = 0; meridian < numGores; ++meridian) {
-            int nextMeridian = (meridian + 1) % rimSamples;
-            int v0Index = parallel * rimSamples + meridian;
-            int v1Index = parallel * rimSamples + nextMeridian;
-
-            int triIndex = 2 * quadsPerGore * rimSamples + meridian;
-            int baseIndex = vpt * triIndex;
-            logger.log(Level.FINE, "index {0}", triIndex);
-            indexArray[baseIndex] = (short) v0Index;
-            if (inwardFacing) {
-                indexArray[baseIndex + 1] = (short) v1Index;
-                indexArray[baseIndex + 2] = (short) topIndex;
-            } else {
-                indexArray[baseIndex + 1] = (short) topIndex;
-                indexArray[baseIndex + 2] = (short) v1Index;
+            int count = buffer.getNumElements();
+            if (count >= previousCount) {
+                break;
             }
+            levels[numLevels] = buffer;
+            ++numLevels;
+            previousCount = count;
         }
+        assert levels[0].getNumElements() == triangleCount;
         /*
-         * Allocate and assign a buffer for indices.
+         * Replace (rather than update) the index buffer, since it's shared.
          */
-        ShortBuffer indexBuffer = BufferUtils.createShortBuffer(indexArray);
-        setBuffer(VertexBuffer.Type.Index, vpt, indexBuffer);
+        clearBuffer(VertexBuffer.Type.Index);
+        setBuffer(levels[0]);
+        if (numLevels > 1) {
+            VertexBuffer[] lodLevels = Arrays.copyOf(levels, numLevels);
+            setLodLevels(lodLevels);
+        } else {
+            setLodLevels(null);
+        }
     }
 
     /**
@@ -617,8 +823,9 @@ public class DomeMesh extends Mesh {
             normalArray[vertexIndex] = normal;
         }
         /*
-         * Allocate and assign a buffer for normals.
+         * Allocate and assign a buffer for normals, replacing any old one.
          */
+        clearBuffer(VertexBuffer.Type.Normal);
         FloatBuffer normalBuffer = BufferUtils.createFloatBuffer(normalArray);
         setBuffer(VertexBuffer.Type.Normal, numAxes, normalBuffer);
     }
@@ -30,6 +30,7 @@ import com.jme3.math.FastMath;
 import com.jme3.math.Vector3f;
 import java.nio.FloatBuffer;
 import jme3utilities.math.VectorSet;
+import jme3utilities.math.VectorSetUsingArrays;
 import jme3utilities.math.VectorSetUsingBuffer;
 import jme3utilities.math.VectorSetUsingCollection;
 import org.junit.Test;
@@ -62,6 +63,9 @@ public class TestVectorSet {
 
         VectorSet vectorSet2 = new VectorSetUsingBuffer(1);
         test(vectorSet2);
+
+        VectorSet vectorSet3 = new VectorSetUsingArrays(1);
+        test(vectorSet3);
     }
     // *************************************************************************
     // private methods
@@ -0,0 +1,204 @@
+/*
+ Copyright (c) 2019, Stephen Gold
+ All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright
+ notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright
+ notice, this list of conditions and the following disclaimer in the
+ documentation and/or other materials provided with the distribution.
+ * Neither the name of the copyright holder nor the names of its contributors
+ may be used to endorse or promote products derived from this software without
+ specific prior written permission.
+
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jme3utilities.test;
+
+import com.jme3.math.Matrix4f;
+import com.jme3.math.Quaternion;
+import com.jme3.math.Vector3f;
+import com.jme3.scene.Geometry;
+import com.jme3.scene.Mesh;
+import com.jme3.scene.Node;
+import com.jme3.scene.VertexBuffer;
+import com.jme3.scene.shape.Box;
+import com.jme3.util.BufferUtils;
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.util.concurrent.ForkJoinPool;
+import jme3utilities.MyMesh;
+import jme3utilities.math.VectorSet;
+import jme3utilities.math.VectorSetUsingArrays;
+import org.junit.Test;
+
+/**
+ * JUnit tests for the MyMesh class.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+public class TestMyMesh {
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Verify that the parallel listVertexLocations() sees a parent's
+     * translation made after the last geometric update, just as the
+     * sequential version does.
+     */
+    @Test
+    public void testListVertexLocations() {
+        Node parent = new Node("parent");
+        Geometry geometry = new Geometry("box", new Box(1f, 1f, 1f));
+        parent.attachChild(geometry);
+        parent.setLocalTranslation(100f, 0f, 0f);
+        parent.updateGeometricState();
+        /*
+         * Move the parent without updating its geometric state.
+         */
+        parent.setLocalTranslation(200f, 0f, 0f);
+
+        /*
+         * Query the parallel version first, because the sequential one
+         * refreshes the world transforms as a side effect.
+         */
+        ForkJoinPool pool = ForkJoinPool.commonPool();
+        VectorSet parallel = MyMesh.listVertexLocations(parent, null, pool);
+        VectorSet sequential = MyMesh.listVertexLocations(parent,
+                new VectorSetUsingArrays(64));
+        assertSameSets(sequential, parallel);
+
+        Vector3f max = new Vector3f();
+        Vector3f min = new Vector3f();
+        parallel.maxMin(max, min);
+        assert max.x == 201f : max;
+        assert min.x == 199f : min;
+    }
+
+    /**
+     * Verify that skinAll() agrees with the per-vertex vertexLocation() and
+     * vertexNormal(), both sequentially and in parallel.
+     */
+    @Test
+    public void testSkinAll() {
+        Mesh mesh = createAnimatedBox();
+        int numVertices = mesh.getVertexCount();
+
+        Matrix4f[] skinningMatrices = new Matrix4f[2];
+        skinningMatrices[0] = new Matrix4f();
+        skinningMatrices[0].setTranslation(1f, 2f, 3f);
+        skinningMatrices[1] = new Matrix4f();
+        Quaternion rotation = new Quaternion();
+        rotation.fromAngles(0.3f, -0.7f, 1.1f);
+        skinningMatrices[1].setRotationQuaternion(rotation);
+        skinningMatrices[1].setTranslation(-4f, 0f, 0.5f);
+
+        ForkJoinPool[] pools = {null, ForkJoinPool.commonPool()};
+        for (ForkJoinPool pool : pools) {
+            FloatBuffer positions
+                    = BufferUtils.createFloatBuffer(3 * numVertices);
+            FloatBuffer normals
+                    = BufferUtils.createFloatBuffer(3 * numVertices);
+            MyMesh.skinAll(mesh, skinningMatrices, positions, normals, null,
+                    pool);
+
+            Vector3f expected = new Vector3f();
+            for (int vertexIndex = 0; vertexIndex < numVertices;
+                    ++vertexIndex) {
+                int base = 3 * vertexIndex;
+
+                MyMesh.vertexLocation(mesh, vertexIndex, skinningMatrices,
+                        expected);
+                assertClose(expected, positions, base);
+
+                MyMesh.vertexNormal(mesh, vertexIndex, skinningMatrices,
+                        expected);
+                assertClose(expected, normals, base);
+            }
+        }
+    }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Verify that a vector is approximately equal to 3 consecutive values in
+     * a buffer.
+     *
+     * @param expected the reference vector (not null, unaffected)
+     * @param buffer the buffer to test (not null, unaffected)
+     * @param base index of the 1st value (&ge;0)
+     */
+    private static void assertClose(Vector3f expected, FloatBuffer buffer,
+            int base) {
+        float tolerance = 1e-5f;
+        Vector3f actual = new Vector3f(buffer.get(base), buffer.get(base + 1),
+                buffer.get(base + 2));
+        assert expected.distance(actual) < tolerance : actual;
+    }
+
+    /**
+     * Verify that two sets contain the same vectors.
+     *
+     * @param expected the reference set (not null, unaffected)
+     * @param actual the set to test (not null, unaffected)
+     */
+    private static void assertSameSets(VectorSet expected, VectorSet actual) {
+        assert actual.numVectors() == expected.numVectors();
+
+        FloatBuffer buffer = expected.toBuffer();
+        Vector3f vector = new Vector3f();
+        while (buffer.hasRemaining()) {
+            vector.x = buffer.get();
+            vector.y = buffer.get();
+            vector.z = buffer.get();
+            assert actual.contains(vector) : vector;
+        }
+    }
+
+    /**
+     * Create a box mesh in which each vertex is influenced by 2 bones, with
+     * weights that vary from vertex to vertex.
+     *
+     * @return a new, animated mesh
+     */
+    private static Mesh createAnimatedBox() {
+        Mesh result = new Box(1f, 2f, 3f);
+        int numVertices = result.getVertexCount();
+
+        FloatBuffer positions
+                = result.getFloatBuffer(VertexBuffer.Type.Position);
+        FloatBuffer bindPositions = BufferUtils.clone(positions);
+        result.setBuffer(VertexBuffer.Type.BindPosePosition, 3, bindPositions);
+
+        FloatBuffer normals = result.getFloatBuffer(VertexBuffer.Type.Normal);
+        FloatBuffer bindNormals = BufferUtils.clone(normals);
+        result.setBuffer(VertexBuffer.Type.BindPoseNormal, 3, bindNormals);
+
+        ByteBuffer boneIndices = BufferUtils.createByteBuffer(4 * numVertices);
+        FloatBuffer weights = BufferUtils.createFloatBuffer(4 * numVertices);
+        for (int vertexIndex = 0; vertexIndex < numVertices; ++vertexIndex) {
+            float weight0 = (vertexIndex % 5) / 4f;
+            boneIndices.put((byte) 0).put((byte) 1).put((byte) 0)
+                    .put((byte) 0);
+            weights.put(weight0).put(1f - weight0).put(0f).put(0f);
+        }
+        boneIndices.flip();
+        weights.flip();
+        result.setBuffer(VertexBuffer.Type.BoneIndex, 4, boneIndices);
+        result.setBuffer(VertexBuffer.Type.BoneWeight, 4, weights);
+        result.setMaxNumWeights(2);
+
+        return result;
+    }
+}
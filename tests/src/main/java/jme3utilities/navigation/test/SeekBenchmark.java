@@ -0,0 +1,319 @@
+/*
+ Copyright (c) 2019, Stephen Gold
+ All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright
+ notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright
+ notice, this list of conditions and the following disclaimer in the
+ documentation and/or other materials provided with the distribution.
+ * Neither the name of the copyright holder nor the names of its contributors
+ may be used to endorse or promote products derived from this software without
+ specific prior written permission.
+
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jme3utilities.navigation.test;
+
+import com.jme3.math.Vector3f;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import jme3utilities.Misc;
+import jme3utilities.math.noise.Generator;
+import jme3utilities.navigation.CompiledNavGraph;
+import jme3utilities.navigation.NavArc;
+import jme3utilities.navigation.NavGraph;
+import jme3utilities.navigation.NavVertex;
+
+/**
+ * Console application to benchmark NavGraph.seek() and CompiledNavGraph.seek()
+ * against the recursive flood-fill algorithm they replaced, on square grids of
+ * increasing size.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+public class SeekBenchmark {
+    // *************************************************************************
+    // constants and loggers
+
+    /**
+     * largest grid size on which to time the legacy algorithm, which takes
+     * minutes per query on larger grids
+     */
+    final private static int maxLegacyGridSize = 30;
+    /**
+     * number of random queries timed for each grid size
+     */
+    final private static int numQueries = 200;
+    /**
+     * message logger for this class
+     */
+    final private static Logger logger
+            = Logger.getLogger(SeekBenchmark.class.getName());
+    // *************************************************************************
+    // fields
+
+    /**
+     * pseudo-random generator for arc costs and queries
+     */
+    final private static Generator generator = new Generator(52L);
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Main entry point for the SeekBenchmark application.
+     *
+     * @param ignored command-line arguments
+     */
+    public static void main(String[] ignored) {
+        Misc.setLoggingLevels(Level.WARNING);
+        PrintStream console = System.out;
+        console.printf("Benchmark results for NavGraph.seek():%n%n");
+
+        int[] gridSizes = {10, 30, 60, 140};
+        for (int gridSize : gridSizes) {
+            runGrid(console, gridSize);
+        }
+
+        console.printf("Success.%n");
+    }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Generate a square grid graph with reversible arcs between horizontal
+     * and vertical neighbors. Each arc costs between 1 and 2 times the
+     * distance between its endpoints, so the A* heuristic is admissible with
+     * a factor of 1.
+     *
+     * @param gridSize number of vertices along each side (&gt;1)
+     * @return a new graph
+     */
+    private static NavGraph makeGrid(int gridSize) {
+        NavGraph graph = new NavGraph();
+        NavVertex[][] grid = new NavVertex[gridSize][gridSize];
+        for (int i = 0; i < gridSize; ++i) {
+            for (int j = 0; j < gridSize; ++j) {
+                String name = String.format("%d,%d", i, j);
+                Vector3f location = new Vector3f(i, 0f, j);
+                grid[i][j] = graph.addVertex(name, null, location);
+            }
+        }
+        for (int i = 0; i < gridSize; ++i) {
+            for (int j = 0; j < gridSize; ++j) {
+                if (i + 1 < gridSize) {
+                    float cost = 1f + generator.nextFloat();
+                    graph.addArcPair(grid[i][j], grid[i + 1][j], cost);
+                }
+                if (j + 1 < gridSize) {
+                    float cost = 1f + generator.nextFloat();
+                    graph.addArcPair(grid[i][j], grid[i][j + 1], cost);
+                }
+            }
+        }
+
+        return graph;
+    }
+
+    /**
+     * Find the shortest route using the recursive flood-fill algorithm that
+     * NavGraph.seek() used prior to the introduction of heap-based search.
+     *
+     * @param graph graph to search (not null, unaffected)
+     * @param startVertex starting point (member, distinct from endVertex)
+     * @param endVertex goal (member, distinct from startVertex)
+     * @return a new list of arcs, or null if goal is unreachable
+     */
+    private static List<NavArc> legacySeek(NavGraph graph,
+            NavVertex startVertex, NavVertex endVertex) {
+        Map<NavVertex, Float> totalCosts = new HashMap<>(graph.numVertices());
+        reverseTotalCosts(graph, endVertex, 0f, totalCosts);
+        if (totalCosts.get(startVertex) == null) {
+            return null;
+        }
+        List<NavArc> result = new ArrayList<>(10);
+        NavVertex routeVertex = startVertex;
+        while (routeVertex != endVertex) {
+            NavArc nextArc = null;
+            float minDistance = Float.MAX_VALUE;
+            for (NavArc arc : routeVertex.copyOutgoing()) {
+                NavVertex neighbor = arc.getToVertex();
+                float distance
+                        = totalCosts.get(neighbor) + graph.getCost(arc);
+                if (distance < minDistance) {
+                    minDistance = distance;
+                    nextArc = arc;
+                }
+            }
+            routeVertex = nextArc.getToVertex();
+            result.add(nextArc);
+        }
+
+        return result;
+    }
+
+    /**
+     * Calculate the minimum total cost from each vertex to an ending vertex.
+     * Note: recursive depth-first traversal.
+     *
+     * @param graph graph to search (not null, unaffected)
+     * @param visit vertex being visited, initially the ending vertex
+     * @param totalCost total cost from the current vertex to the ending vertex,
+     * initially zero (&ge;0)
+     * @param minTotalCosts minimum total costs from vertices previously
+     * visited, initially empty (not null, updated)
+     */
+    private static void reverseTotalCosts(NavGraph graph, NavVertex visit,
+            float totalCost, Map<NavVertex, Float> minTotalCosts) {
+        if (minTotalCosts.containsKey(visit)
+                && totalCost > minTotalCosts.get(visit)) {
+            return;
+        }
+        minTotalCosts.put(visit, totalCost);
+        for (NavArc arc : visit.copyIncoming()) {
+            NavVertex nextVisit = arc.getFromVertex();
+            float nextTotalCost = totalCost + graph.getCost(arc);
+            reverseTotalCosts(graph, nextVisit, nextTotalCost, minTotalCosts);
+        }
+    }
+
+    /**
+     * Calculate the total cost of a route.
+     *
+     * @param graph graph containing the route (not null, unaffected)
+     * @param route list of member arcs (not null, unaffected)
+     * @return total cost (&ge;0)
+     */
+    private static double routeCost(NavGraph graph, List<NavArc> route) {
+        double result = 0.0;
+        for (NavArc arc : route) {
+            result += graph.getCost(arc);
+        }
+
+        return result;
+    }
+
+    /**
+     * Time all 5 algorithms on a single grid size and verify that they agree.
+     *
+     * @param console where to print results (not null)
+     * @param gridSize number of vertices along each side (&gt;1)
+     */
+    private static void runGrid(PrintStream console, int gridSize) {
+        NavGraph graph = makeGrid(gridSize);
+        NavVertex[] vertices = graph.copyVertices();
+        NavVertex[] starts = new NavVertex[numQueries];
+        NavVertex[] ends = new NavVertex[numQueries];
+        for (int queryIndex = 0; queryIndex < numQueries; ++queryIndex) {
+            starts[queryIndex] = (NavVertex) generator.pick(vertices);
+            do {
+                ends[queryIndex] = (NavVertex) generator.pick(vertices);
+            } while (ends[queryIndex] == starts[queryIndex]);
+        }
+
+        double[] dijkstraCosts = new double[numQueries];
+        long startTime = System.nanoTime();
+        for (int queryIndex = 0; queryIndex < numQueries; ++queryIndex) {
+            List<NavArc> route
+                    = graph.seek(starts[queryIndex], ends[queryIndex]);
+            dijkstraCosts[queryIndex] = routeCost(graph, route);
+        }
+        long dijkstraNanos = System.nanoTime() - startTime;
+
+        startTime = System.nanoTime();
+        for (int queryIndex = 0; queryIndex < numQueries; ++queryIndex) {
+            List<NavArc> route
+                    = graph.seek(starts[queryIndex], ends[queryIndex], 1f);
+            double cost = routeCost(graph, route);
+            verify(cost, dijkstraCosts[queryIndex], "A*");
+        }
+        long aStarNanos = System.nanoTime() - startTime;
+
+        CompiledNavGraph compiled = graph.compile();
+        int[] routeArcs = new int[graph.numVertices()];
+        startTime = System.nanoTime();
+        for (int queryIndex = 0; queryIndex < numQueries; ++queryIndex) {
+            int startIndex = compiled.indexOf(starts[queryIndex]);
+            int endIndex = compiled.indexOf(ends[queryIndex]);
+            int numHops = compiled.seek(startIndex, endIndex, 1f, routeArcs);
+            double cost = 0.0;
+            for (int hopIndex = 0; hopIndex < numHops; ++hopIndex) {
+                cost += compiled.getCost(routeArcs[hopIndex]);
+            }
+            verify(cost, dijkstraCosts[queryIndex], "compiled A*");
+        }
+        long compiledNanos = System.nanoTime() - startTime;
+
+        startTime = System.nanoTime();
+        List<List<NavArc>> routes = graph.seekAll(starts, ends, 1f, null);
+        long batchNanos = System.nanoTime() - startTime;
+        for (int queryIndex = 0; queryIndex < numQueries; ++queryIndex) {
+            double cost = routeCost(graph, routes.get(queryIndex));
+            verify(cost, dijkstraCosts[queryIndex], "batch A*");
+        }
+
+        String legacyResult = "skipped";
+        if (gridSize <= maxLegacyGridSize) {
+            startTime = System.nanoTime();
+            try {
+                for (int qIndex = 0; qIndex < numQueries; ++qIndex) {
+                    List<NavArc> route = legacySeek(graph, starts[qIndex],
+                            ends[qIndex]);
+                    double cost = routeCost(graph, route);
+                    verify(cost, dijkstraCosts[qIndex], "legacy");
+                }
+                long legacyNanos = System.nanoTime() - startTime;
+                legacyResult = String.format("%.3f ms/query",
+                        legacyNanos * 1e-6 / numQueries);
+            } catch (StackOverflowError error) {
+                legacyResult = "stack overflow";
+            }
+        }
+
+        console.printf("%d vertices, %d arcs:%n", graph.numVertices(),
+                graph.numArcs());
+        console.printf("  Dijkstra:  %.3f ms/query%n",
+                dijkstraNanos * 1e-6 / numQueries);
+        console.printf("  A*:        %.3f ms/query%n",
+                aStarNanos * 1e-6 / numQueries);
+        console.printf("  compiled:  %.3f ms/query%n",
+                compiledNanos * 1e-6 / numQueries);
+        console.printf("  batch:     %.3f ms/query%n",
+                batchNanos * 1e-6 / numQueries);
+        console.printf("  legacy:    %s%n%n", legacyResult);
+    }
+
+    /**
+     * Verify that 2 route costs agree to within rounding error.
+     *
+     * @param cost the cost to test
+     * @param expected the cost found by Dijkstra's algorithm
+     * @param algorithm name of the algorithm being tested (not null)
+     */
+    private static void verify(double cost, double expected,
+            String algorithm) {
+        double tolerance = 1e-4 * Math.max(1.0, expected);
+        if (Math.abs(cost - expected) > tolerance) {
+            String message = String.format(
+                    "%s route cost %f differs from Dijkstra's %f",
+                    algorithm, cost, expected);
+            throw new IllegalStateException(message);
+        }
+    }
+}
@@ -29,15 +29,15 @@ package jme3utilities.sky.textures;
 import com.beust.jcommander.JCommander;
 import com.beust.jcommander.Parameter;
 import com.jme3.math.FastMath;
-import java.awt.Graphics2D;
-import java.awt.image.BufferedImage;
 import java.awt.image.RenderedImage;
 import java.io.IOException;
+import java.util.concurrent.ForkJoinPool;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import jme3utilities.Misc;
 import jme3utilities.MyString;
-import jme3utilities.math.noise.Noise;
+import jme3utilities.RasterWriter;
+import jme3utilities.math.noise.NoiseField;
 import jme3utilities.math.noise.Perlin2;
 
 /**
@@ -75,9 +75,9 @@ public class MakeClouds {
             description = "display this usage message")
     private static boolean usageOnly = false;
     /**
-     * square array of FBM noise samples
+     * square field of FBM noise samples, indexed by X (column) and Y (row)
      */
-    private static float[][] samples = null;
+    private static NoiseField samples = null;
     // *************************************************************************
     // new methods exposed
 
@@ -135,13 +135,13 @@ public class MakeClouds {
     // private methods
 
     /**
-     * Initialize the 2-D array of normalized FBM noise samples.
+     * Initialize the square field of normalized FBM noise samples.
      *
-     * @param numRows size of array (&ge;1)
+     * @param numRows size of field (&ge;1, a power of 2)
      * @param fundamental base frequency for FBM (&ge;1)
      */
     private static void initializeSamples(int numRows, int fundamental) {
-        assert numRows >= 1 : numRows;
+        assert FastMath.isPowerOfTwo(numRows) : numRows;
         assert fundamental >= 1 : fundamental;
         /*
          * noise parameters for fractional Brownian motion (FBM)
@@ -153,38 +153,17 @@ public class MakeClouds {
         float gain = 0.45f;
         float lacunarity = 2f;
         /*
-         * Generate FBM noise and store it in a 2-D array.
+         * Generate FBM noise in parallel, then normalize it to fill
+         * the range [0, 1]. Since numRows is a power of 2, the spacing
+         * is exact, so each sample is taken at x / numRows, y / numRows.
          */
-        samples = new float[numRows][];
-        for (int x = 0; x < numRows; x++) {
-            float u = ((float) x) / numRows;
-            samples[x] = new float[numRows];
-            for (int y = 0; y < numRows; y++) {
-                float v = ((float) y) / numRows;
-                float n = Noise.fbmNoise(generator, u, v, numOctaves,
-                        fundamental, gain, lacunarity);
-                samples[x][y] = n;
-            }
-        }
-        /*
-         * Normalize the noise to fill the range [0, 1].
-         */
-        float max = Float.MIN_VALUE;
-        float min = Float.MAX_VALUE;
-        for (int x = 0; x < numRows; x++) {
-            for (int y = 0; y < numRows; y++) {
-                float n = samples[x][y];
-                max = Math.max(n, max);
-                min = Math.min(n, min);
-            }
-        }
-        assert max > min;
-        float range = max - min;
-        for (int x = 0; x < numRows; x++) {
-            for (int y = 0; y < numRows; y++) {
-                samples[x][y] = (samples[x][y] - min) / range;
-            }
-        }
+        float spacing = 1f / numRows;
+        samples = new NoiseField(numRows, numRows, 0f, 0f, spacing, spacing);
+        ForkJoinPool pool = ForkJoinPool.commonPool();
+        samples.fillFbm(generator, numOctaves, fundamental, gain, lacunarity,
+                pool);
+        assert samples.getMax() > samples.getMin();
+        samples.normalize();
     }
 
     /**
@@ -204,24 +183,23 @@ public class MakeClouds {
         assert blackCutoff < whiteCutoff;
         assert whiteCutoff <= 1f : whiteCutoff;
         /*
-         * Create a blank, grayscale buffered image for the texture map.
+         * Create a raster writer for a grayscale texture map.
          */
-        BufferedImage map = new BufferedImage(textureSize, textureSize,
-                BufferedImage.TYPE_BYTE_GRAY);
-        Graphics2D graphics = map.createGraphics();
+        RasterWriter writer = new RasterWriter(textureSize, textureSize, false);
         /*
          * Set brightness of each pixel based on the noise array.
          */
-        for (int x = 0; x < textureSize; x++) {
-            for (int y = 0; y < textureSize; y++) {
-                float alpha = samples[x][y];
+        for (int y = 0; y < textureSize; y++) {
+            for (int x = 0; x < textureSize; x++) {
+                float alpha = samples.sample(x, y);
                 alpha = (alpha - blackCutoff) / (whiteCutoff - blackCutoff);
                 alpha = FastMath.saturate(alpha);
-                Misc.setGrayPixel(graphics, x, y, alpha, 1f);
+                writer.setGray(x, y, alpha);
             }
         }
+        RenderedImage result = writer.toBufferedImage();
 
-        return map;
+        return result;
     }
 
     /**
@@ -236,21 +214,13 @@ public class MakeClouds {
         assert alpha >= 0f : alpha;
         assert alpha <= 1f : alpha;
         /*
-         * Create a blank, grayscale buffered image for the texture map.
-         */
-        BufferedImage map = new BufferedImage(textureSize, textureSize,
-                BufferedImage.TYPE_BYTE_GRAY);
-        Graphics2D graphics = map.createGraphics();
-        /*
-         * Set brightness of each pixel.
+         * Create a grayscale texture map with the same brightness everywhere.
          */
-        for (int x = 0; x < textureSize; x++) {
-            for (int y = 0; y < textureSize; y++) {
-                Misc.setGrayPixel(graphics, x, y, alpha, 1f);
-            }
-        }
+        RasterWriter writer = new RasterWriter(textureSize, textureSize, false);
+        writer.fill(alpha, 1f);
+        RenderedImage result = writer.toBufferedImage();
 
-        return map;
+        return result;
     }
 
     /**
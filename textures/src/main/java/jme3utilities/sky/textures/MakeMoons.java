@@ -30,13 +30,13 @@ import com.beust.jcommander.JCommander;
 import com.beust.jcommander.Parameter;
 import com.jme3.math.FastMath;
 import com.jme3.math.Vector3f;
-import java.awt.Graphics2D;
-import java.awt.image.BufferedImage;
+import java.awt.image.RenderedImage;
 import java.io.IOException;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import jme3utilities.Misc;
 import jme3utilities.MyString;
+import jme3utilities.RasterWriter;
 import jme3utilities.math.MyMath;
 import jme3utilities.sky.LunarPhase;
 
@@ -154,11 +154,9 @@ public class MakeMoons {
         assert phase != null;
         assert phase != LunarPhase.CUSTOM;
         /*
-         * Create a blank, color buffered image for the texture map.
+         * Create a raster writer for a texture map with opacity.
          */
-        BufferedImage image = new BufferedImage(textureSize, textureSize,
-                BufferedImage.TYPE_4BYTE_ABGR);
-        Graphics2D graphics = image.createGraphics();
+        RasterWriter writer = new RasterWriter(textureSize, textureSize, true);
         /*
          * Calculate the direction to the light source.
          */
@@ -194,9 +192,10 @@ public class MakeMoons {
                     brightness = FastMath.pow(brightness, inverseGamma);
                 }
 
-                Misc.setGrayPixel(graphics, x, y, brightness, opacity);
+                writer.setGray(x, y, brightness, opacity);
             }
         }
+        RenderedImage image = writer.toBufferedImage();
         /*
          * Write the image to the asset file.
          */
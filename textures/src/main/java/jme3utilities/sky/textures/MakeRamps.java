@@ -29,14 +29,13 @@ package jme3utilities.sky.textures;
 import com.beust.jcommander.JCommander;
 import com.beust.jcommander.Parameter;
 import com.jme3.math.FastMath;
-import java.awt.Graphics2D;
-import java.awt.image.BufferedImage;
 import java.awt.image.RenderedImage;
 import java.io.IOException;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import jme3utilities.Misc;
 import jme3utilities.MyString;
+import jme3utilities.RasterWriter;
 import jme3utilities.mesh.DomeMesh;
 
 /**
@@ -199,11 +198,9 @@ public class MakeRamps {
      */
     private RenderedImage makeRamp(float flattening) {
         /*
-         * Create a blank, grayscale buffered image for the texture map.
+         * Create a raster writer for a grayscale texture map.
          */
-        BufferedImage map = new BufferedImage(textureSize, textureSize,
-                BufferedImage.TYPE_BYTE_GRAY);
-        Graphics2D graphics = map.createGraphics();
+        RasterWriter writer = new RasterWriter(textureSize, textureSize, false);
         /*
          * Compute the alpha of each pixel.
          */
@@ -218,10 +215,12 @@ public class MakeRamps {
                     elevationAngle = FastMath.atan(tan);
                 }
                 float alpha = hazeAlpha(elevationAngle);
-                Misc.setGrayPixel(graphics, x, y, alpha, 1f);
+                writer.setGray(x, y, alpha);
             }
         }
 
-        return map;
+        RenderedImage result = writer.toBufferedImage();
+
+        return result;
     }
 }
@@ -35,14 +35,17 @@ import com.jme3.math.Vector3f;
 import java.awt.Color;
 import java.awt.Graphics2D;
 import java.awt.image.BufferedImage;
-import java.awt.image.RenderedImage;
 import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.FileReader;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 import java.util.TreeSet;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import jme3utilities.Misc;
@@ -52,6 +55,7 @@ import jme3utilities.math.MyMath;
 import jme3utilities.math.MyVector3f;
 import jme3utilities.mesh.DomeMesh;
 import jme3utilities.sky.Constants;
+import jme3utilities.sky.StarCatalog;
 
 /**
  * Console application to generate starry sky texture maps for use with
@@ -83,6 +87,120 @@ public class MakeStarMaps {
         static final long serialVersionUID = 1L;
     }
     // *************************************************************************
+    // nested classes
+
+    /**
+     * fork/join task to rasterize a single texture map from its binned stars
+     * and write it to a file
+     */
+    private class MapTask extends RecursiveAction {
+        /**
+         * serial version number (not expected to be serialized)
+         */
+        static final long serialVersionUID = 1L;
+        /**
+         * which face of the cube, or -1 for a dome
+         */
+        final private int faceIndex;
+        /**
+         * size of the texture map (pixels per side, &gt;2)
+         */
+        final private int textureSize;
+        /**
+         * stars to plot, starting with the faintest
+         */
+        final private List<StarPlot> plots = new ArrayList<>();
+        /**
+         * filesystem path to the output file
+         */
+        final private String filePath;
+
+        /**
+         * Instantiate a task with no stars.
+         *
+         * @param filePath filesystem path to the output file (not null)
+         * @param textureSize size of the texture map (pixels per side, &gt;2)
+         * @param faceIndex which face of the cube (&ge;0, &lt;6) or -1 for a
+         * dome
+         */
+        MapTask(String filePath, int textureSize, int faceIndex) {
+            assert filePath != null;
+            assert textureSize > 2 : textureSize;
+            assert faceIndex >= -1 : faceIndex;
+            assert faceIndex < 6 : faceIndex;
+
+            this.filePath = filePath;
+            this.textureSize = textureSize;
+            this.faceIndex = faceIndex;
+        }
+
+        /**
+         * Plot the binned stars on a blank grayscale image, in order, then
+         * write the image to the output file.
+         */
+        @Override
+        protected void compute() {
+            BufferedImage map = new BufferedImage(textureSize, textureSize,
+                    BufferedImage.TYPE_BYTE_GRAY);
+            /*
+             * A single graphics context suffices for the entire map.
+             */
+            Graphics2D graphics = map.createGraphics();
+            int plotCount = 0;
+            for (StarPlot plot : plots) {
+                if (plot.luminosity <= 37f) {
+                    boolean success = plot4PointStar(graphics, plot.luminosity,
+                            textureSize, plot.uv);
+                    if (success) {
+                        plotCount++;
+                    }
+                } else if (faceIndex == -1) {
+                    plotEllipseForDome(graphics, plot.luminosity, textureSize,
+                            plot.uv);
+                    plotCount++;
+                } else {
+                    plotEllipseForQuad(graphics, plot.luminosity, textureSize,
+                            plot.worldDirection, faceIndex);
+                    plotCount++;
+                }
+            }
+            graphics.dispose();
+            logger.log(Level.FINE, "plotted {0} stars on {1}",
+                    new Object[]{plotCount, MyString.quote(filePath)});
+
+            try {
+                Misc.writeMap(filePath, map);
+            } catch (IOException exception) {
+                // ignored
+            }
+        }
+    }
+
+    /**
+     * a star that has been assigned to a particular texture map, along with
+     * the data needed to plot it there
+     */
+    static private class StarPlot {
+        /**
+         * the star's relative luminosity (in terms of pure white pixels, &gt;0)
+         */
+        final private float luminosity;
+        /**
+         * the star's texture coordinates in the map
+         */
+        final private Vector2f uv;
+        /**
+         * the star's world coordinates (length=1)
+         */
+        final private Vector3f worldDirection;
+
+        StarPlot(float luminosity, Vector2f uv, Vector3f worldDirection) {
+            this.luminosity = luminosity;
+            this.uv = uv;
+            this.worldDirection = worldDirection;
+        }
+    }
+    // *************************************************************************
     // constants and loggers
 
     /**
@@ -126,14 +244,6 @@ public class MakeStarMaps {
      * number of points per ellipse
      */
     final private static int ellipseNumPoints = 32;
-    /**
-     * x-coordinates used to draw an ellipse
-     */
-    final private static int[] ellipseXs = new int[ellipseNumPoints];
-    /**
-     * y-coordinates used to draw an ellipse
-     */
-    final private static int[] ellipseYs = new int[ellipseNumPoints];
     /**
      * message logger for this class
      */
@@ -172,18 +282,31 @@ public class MakeStarMaps {
             description = "display this usage message")
     private static boolean usageOnly = false;
     /**
-     * true &rarr; generate textures for a cube; false &rarr; for a dome
+     * true &rarr; generate textures for a cube; false &rarr; for a dome,
+     * unless the preset itself is for a cube
      */
     @Parameter(names = {"-c", "--cube"}, description = "generate for a cube")
     private static boolean forCube = false;
     /**
-     * stars read from the catalog
+     * stars read from the text catalog, ordered from faintest to brightest
      */
     final private Collection<Star> stars = new TreeSet<>();
+    /**
+     * the binary catalog, either mapped from the cache or converted from the
+     * text catalog (null until loaded)
+     */
+    private StarCatalog catalog = null;
     /**
      * sample dome mesh for calculating texture coordinates
      */
     final private DomeMesh domeMesh = new DomeMesh(3, 2);
+    /**
+     * filesystem path to the binary cache of the catalog, which SkyControl
+     * also loads as an asset (null &rarr; don't cache)
+     */
+    @Parameter(names = {"-k", "--cache"},
+            description = "path to the binary catalog cache")
+    private static String cachePath = null;
     /**
      * name of preset
      */
@@ -239,24 +362,28 @@ public class MakeStarMaps {
         logger.log(Level.INFO, "working directory is {0}",
                 MyString.quote(userDir));
         /*
-         * Read the star catalog.
+         * Load the star catalog.
          */
-        application.readCatalog();
-        if (application.stars.isEmpty()) {
+        application.loadCatalog();
+        if (application.catalog == null
+                || application.catalog.numStars() == 0) {
             return;
         }
         /*
-         * Generate texture maps.
+         * Bin the stars for each texture map, then rasterize and write
+         * all the maps in parallel.
          */
+        List<MapTask> tasks = new ArrayList<>();
         if ("all".equals(presetName)) {
             for (StarMapPreset preset : StarMapPreset.values()) {
-                application.generateMap(preset);
+                application.planMaps(preset, tasks);
             }
 
         } else {
             StarMapPreset preset = StarMapPreset.fromDescription(presetName);
-            application.generateMap(preset);
+            application.planMaps(preset, tasks);
         }
+        ForkJoinTask.invokeAll(tasks);
     }
     // *************************************************************************
     // private methods
@@ -352,87 +479,188 @@ public class MakeStarMaps {
     }
 
     /**
-     * Generate 6 starry sky texture maps for a cube.
+     * Load the star catalog, preferring the binary cache (if specified) if
+     * it's at least as new as the text catalog. Otherwise, parse the text
+     * catalog and write the cache (if specified) for next time.
+     */
+    private void loadCatalog() {
+        File cacheFile = (cachePath == null) ? null : new File(cachePath);
+        File textFile = new File(catalogFilePath);
+        if (cacheFile != null && cacheFile.isFile() && (!textFile.exists()
+                || cacheFile.lastModified() >= textFile.lastModified())) {
+            try {
+                catalog = StarCatalog.map(cacheFile);
+                logger.log(Level.INFO, "mapped {0} stars from {1}",
+                        new Object[]{catalog.numStars(), cachePath});
+                return;
+            } catch (IOException exception) {
+                logger.log(Level.WARNING, "unable to map {0}: {1}",
+                        new Object[]{MyString.quote(cachePath),
+                            exception.getMessage()});
+            }
+        }
+
+        readCatalog();
+        /*
+         * Convert the collection, which is ordered from faintest to
+         * brightest, to parallel arrays.
+         */
+        int numStars = stars.size();
+        float[] rightAscensions = new float[numStars];
+        float[] declinations = new float[numStars];
+        float[] apparentMagnitudes = new float[numStars];
+        int starIndex = 0;
+        for (Star star : stars) {
+            rightAscensions[starIndex] = star.getRightAscension();
+            declinations[starIndex] = star.getDeclination();
+            apparentMagnitudes[starIndex] = star.getApparentMagnitude();
+            starIndex++;
+        }
+        catalog = new StarCatalog(rightAscensions, declinations,
+                apparentMagnitudes);
+
+        if (cacheFile != null && numStars > 0) {
+            File parentDirectory = cacheFile.getAbsoluteFile().getParentFile();
+            if (!parentDirectory.isDirectory()) {
+                boolean success = parentDirectory.mkdirs();
+                if (!success) {
+                    logger.log(Level.WARNING, "unable to create {0}",
+                            MyString.quote(parentDirectory.toString()));
+                }
+            }
+            try {
+                catalog.write(cacheFile);
+            } catch (IOException exception) {
+                logger.log(Level.WARNING, "unable to write {0}",
+                        MyString.quote(cachePath));
+            }
+        }
+    }
+
+    /**
+     * Bin the stars for a cube, one task per face. Each star is converted
+     * to world coordinates only once; within each bin, the stars remain in
+     * catalog order, starting with the faintest.
      *
+     * @param preset map preset to generate (not null)
      * @param latitude radians north of the equator (&le;Pi/2, &ge;-Pi/2)
      * @param siderealTime radians since sidereal midnight (&lt;2*Pi, &ge;0)
      * @param textureSize size of each texture map (pixels per side, &gt;2)
-     * @return new instance
+     * @param addTasks collection to which the new tasks will be added (not
+     * null, modified)
      */
-    private RenderedImage[] generateCubeMap(float latitude, float siderealTime,
-            int textureSize) {
-        assert latitude >= -FastMath.HALF_PI : latitude;
-        assert latitude <= FastMath.HALF_PI : latitude;
-        assert siderealTime >= 0f : siderealTime;
-        assert siderealTime < FastMath.TWO_PI : siderealTime;
+    private void planCubeMaps(StarMapPreset preset, float latitude,
+            float siderealTime, int textureSize, Collection<MapTask> addTasks) {
+        assert preset != null;
         assert textureSize > 2 : textureSize;
-        /*
-         * Create a blank, grayscale buffered image for each texture map.
-         */
-        BufferedImage[] maps = new BufferedImage[6];
+        assert addTasks != null;
+
+        MapTask[] faceTasks = new MapTask[6];
         for (int faceIndex = 0; faceIndex < 6; faceIndex++) {
-            maps[faceIndex] = new BufferedImage(textureSize, textureSize,
-                    BufferedImage.TYPE_BYTE_GRAY);
+            String filePath = String.format("%s/%s/%s_%s%d.png",
+                    outputDirPath, preset.textureFileName(),
+                    preset.textureFileName(), faceName[faceIndex],
+                    faceIndex + 1);
+            faceTasks[faceIndex] = new MapTask(filePath, textureSize,
+                    faceIndex);
         }
         /*
-         * Plot individual stars on the images, starting with the faintest.
+         * Convert apparent magnitude to relative luminosity.
          */
-        int plotCount = 0;
-        for (Star star : stars) {
-            boolean success = plotStarOnCube(maps, star, latitude,
-                    siderealTime, textureSize);
-            if (success) {
-                plotCount++;
+        float resolution = textureSize / 2_048f;
+        float luminosity0 = 100f * resolution * resolution;
+
+        int numStars = catalog.numStars();
+        for (int starIndex = 0; starIndex < numStars; starIndex++) {
+            float apparentMagnitude = catalog.apparentMagnitude(starIndex);
+            float luminosity = luminosity0 * 1.5f
+                    * FastMath.pow(pogsonsRatio, -apparentMagnitude);
+            if (luminosity < luminosityCutoff) {
+                continue;
+            }
+            Vector3f rotated
+                    = rotatedLocation(starIndex, latitude, siderealTime);
+            Vector3f world = new Vector3f(-rotated.x, rotated.z, rotated.y);
+            for (int faceIndex = 0; faceIndex < 6; faceIndex++) {
+                /*
+                 * Convert world direction to texture coordinates on this
+                 * face of the cube.
+                 */
+                Vector2f uv = cubeUV(world, faceIndex);
+                if (uv != null) {
+                    StarPlot plot = new StarPlot(luminosity, uv, world);
+                    faceTasks[faceIndex].plots.add(plot);
+                }
             }
         }
-        logger.log(Level.FINE, "plotted {0} stars", plotCount);
 
-        return maps;
+        for (MapTask task : faceTasks) {
+            addTasks.add(task);
+        }
     }
 
     /**
-     * Generate a starry sky texture map for a dome.
+     * Bin the stars above the horizon for a dome.
      *
+     * @param preset map preset to generate (not null)
      * @param latitude radians north of the equator (&le;Pi/2, &ge;-Pi/2)
      * @param siderealTime radians since sidereal midnight (&lt;2*Pi, &ge;0)
      * @param textureSize size of the texture map (pixels per side, &gt;2)
-     * @return new instance
+     * @return a new task
      */
-    private RenderedImage generateDomeMap(float latitude, float siderealTime,
-            int textureSize) {
-        assert latitude >= -FastMath.HALF_PI : latitude;
-        assert latitude <= FastMath.HALF_PI : latitude;
-        assert siderealTime >= 0f : siderealTime;
-        assert siderealTime < FastMath.TWO_PI : siderealTime;
+    private MapTask planDomeMap(StarMapPreset preset, float latitude,
+            float siderealTime, int textureSize) {
+        assert preset != null;
         assert textureSize > 2 : textureSize;
+
+        String filePath = String.format("%s/%s.png", outputDirPath,
+                preset.textureFileName());
+        MapTask result = new MapTask(filePath, textureSize, -1);
         /*
-         * Create a blank, grayscale buffered image for the texture map.
-         */
-        BufferedImage map = new BufferedImage(textureSize, textureSize,
-                BufferedImage.TYPE_BYTE_GRAY);
-        /*
-         * Plot individual stars on the image, starting with the faintest.
+         * Convert apparent magnitude to relative luminosity.
          */
-        int plotCount = 0;
-        for (Star star : stars) {
-            boolean success = plotStarOnDome(map, star, latitude, siderealTime,
-                    textureSize);
-            if (success) {
-                plotCount++;
+        float resolution = textureSize / 2_048f;
+        float luminosity0 = 37f * resolution * resolution;
+
+        int numStars = catalog.numStars();
+        for (int starIndex = 0; starIndex < numStars; starIndex++) {
+            Vector3f rotated
+                    = rotatedLocation(starIndex, latitude, siderealTime);
+            if (rotated.z < 0f) {
+                /*
+                 * The star lies below the horizon, so skip it.
+                 */
+                continue;
+            }
+            float apparentMagnitude = catalog.apparentMagnitude(starIndex);
+            float luminosity = luminosity0
+                    * FastMath.pow(pogsonsRatio, -apparentMagnitude);
+            if (luminosity < luminosityCutoff) {
+                continue;
             }
+            /*
+             * Convert world direction to texture coordinates on a dome.
+             */
+            Vector3f world = new Vector3f(-rotated.x, rotated.z, rotated.y);
+            Vector2f uv = domeMesh.directionUV(world);
+            StarPlot plot = new StarPlot(luminosity, uv, world);
+            result.plots.add(plot);
         }
-        logger.log(Level.FINE, "plotted {0} stars", plotCount);
 
-        return map;
+        return result;
     }
 
     /**
-     * Generate starry sky texture map(s) for the specified preset.
+     * Bin the stars for the specified preset and create a task to rasterize
+     * and write each resulting texture map.
      *
      * @param preset map preset to generate (not null)
+     * @param addTasks collection to which the new tasks will be added (not
+     * null, modified)
      */
-    private void generateMap(StarMapPreset preset) {
+    private void planMaps(StarMapPreset preset, Collection<MapTask> addTasks) {
         assert preset != null;
+        assert addTasks != null;
 
         float latitude = preset.latitude();
         logger.log(Level.FINE, "latitude is {0} degrees",
@@ -448,53 +676,29 @@ public class MakeStarMaps {
          */
         float siderealTime = siderealHour * radiansPerHour;
 
-        if (forCube) {
-            /*
-            * Generate 6 texture maps for a cube.
-             */
-            RenderedImage images[] = generateCubeMap(latitude, siderealTime,
-                    textureSize);
-            assert images.length == 6 : images.length;
-            for (int faceIndex = 0; faceIndex < 6; faceIndex++) {
-                String filePath = String.format("%s/%s/%s_%s%d.png",
-                        outputDirPath, preset.textureFileName(),
-                        preset.textureFileName(), faceName[faceIndex],
-                        faceIndex + 1);
-                try {
-                    Misc.writeMap(filePath, images[faceIndex]);
-                } catch (IOException exception) {
-                    // ignored
-                }
-            }
-
+        if (forCube || preset.isCube()) {
+            planCubeMaps(preset, latitude, siderealTime, textureSize,
+                    addTasks);
         } else {
-            /*
-             * Generate a texture map for a dome.
-             */
-            RenderedImage image = generateDomeMap(latitude, siderealTime,
+            MapTask task = planDomeMap(preset, latitude, siderealTime,
                     textureSize);
-            String filePath = String.format("%s/%s.png", outputDirPath,
-                    preset.textureFileName());
-            try {
-                Misc.writeMap(filePath, image);
-            } catch (IOException exception) {
-                // ignored
-            }
+            addTasks.add(task);
         }
     }
 
     /**
      * Plot a four-pointed star shape on a texture map.
      *
-     * @param map texture map (not null)
+     * @param graphics graphics context of the texture map (not null)
      * @param luminosity star's relative luminosity (in terms of pure white
      * pixels, &le;37, &gt;0)
      * @param textureSize size of the texture map (pixels per side, &gt;2)
      * @param uv star's texture coordinates (not null)
      * @return true if the star was successfully plotted, otherwise false
      */
-    private boolean plot4PointStar(BufferedImage map, float luminosity,
+    private boolean plot4PointStar(Graphics2D graphics, float luminosity,
             int textureSize, Vector2f uv) {
+        assert graphics != null;
         assert luminosity > 0f : luminosity;
         assert luminosity <= 37f : luminosity;
         assert textureSize > 2 : textureSize;
@@ -565,7 +769,6 @@ public class MakeStarMaps {
         /*
          * Plot the star onto the texture map.
          */
-        Graphics2D graphics = map.createGraphics();
         graphics.setColor(color);
         graphics.fillRect(x, y, squareSize, squareSize);
         if (raySize == 0) {
@@ -599,16 +802,16 @@ public class MakeStarMaps {
      * Draw an ellipse -- a circle stretched to compensate for UV distortion
      * near the rim of the dome.
      *
-     * @param map texture map (not null)
+     * @param graphics graphics context of the texture map (not null)
      * @param luminosity star's relative luminosity (in terms of pure white
      * pixels, &gt;0)
      * @param textureSize size of the texture map (pixels per side, &gt;2)
      * @param uv star's texture coordinates (not null)
      * @return true if the star was successfully plotted, otherwise false
      */
-    private void plotEllipseForDome(BufferedImage map, float luminosity,
+    private void plotEllipseForDome(Graphics2D graphics, float luminosity,
             int textureSize, Vector2f uv) {
-        assert map != null;
+        assert graphics != null;
         assert luminosity > 0f : luminosity;
         assert textureSize > 2 : textureSize;
         assert uv != null;
@@ -634,6 +837,8 @@ public class MakeStarMaps {
         float a = FastMath.sqrt(luminosity * stretchFactor / FastMath.PI);
         float b = a / stretchFactor;
 
+        int[] ellipseXs = new int[ellipseNumPoints];
+        int[] ellipseYs = new int[ellipseNumPoints];
         for (int i = 0; i < ellipseNumPoints; i++) {
             float theta = FastMath.TWO_PI * i / ellipseNumPoints;
             float da = a * FastMath.cos(theta);
@@ -645,7 +850,6 @@ public class MakeStarMaps {
             ellipseXs[i] = x;
             ellipseYs[i] = y;
         }
-        Graphics2D graphics = map.createGraphics();
         graphics.setColor(Color.WHITE); // TODO tint based on spectral type
         graphics.fillPolygon(ellipseXs, ellipseYs, ellipseNumPoints);
     }
@@ -654,16 +858,16 @@ public class MakeStarMaps {
      * Draw an ellipse -- a circle stretched to compensate for UV distortion
      * near the edges of the quad.
      *
-     * @param map texture map (not null)
+     * @param graphics graphics context of the texture map (not null)
      * @param luminosity star's relative luminosity (&gt;0)
      * @param textureSize size of the texture map (pixels per side, &gt;2)
      * @param worldDirection the star's world coordinates (length=1)
      * @param faceIndex which face of the cube (&ge;0, &lt;6)
      * @return true if the star was successfully plotted, otherwise false
      */
-    private void plotEllipseForQuad(BufferedImage map, float luminosity,
+    private void plotEllipseForQuad(Graphics2D graphics, float luminosity,
             int textureSize, Vector3f worldDirection, int faceIndex) {
-        assert map != null;
+        assert graphics != null;
         assert luminosity > 0f : luminosity;
         assert textureSize > 2 : textureSize;
         assert worldDirection != null;
@@ -679,6 +883,8 @@ public class MakeStarMaps {
         float r = 1.2f * FastMath.sqrt(area);
 
         Vector3f p = new Vector3f();
+        int[] ellipseXs = new int[ellipseNumPoints];
+        int[] ellipseYs = new int[ellipseNumPoints];
         for (int i = 0; i < ellipseNumPoints; i++) {
             float theta = FastMath.TWO_PI * i / ellipseNumPoints;
             float rCos = r * FastMath.cos(theta);
@@ -694,198 +900,10 @@ public class MakeStarMaps {
             ellipseXs[i] = x;
             ellipseYs[i] = y;
         }
-        Graphics2D graphics = map.createGraphics();
         graphics.setColor(Color.WHITE); // TODO tint based on spectral type
         graphics.fillPolygon(ellipseXs, ellipseYs, ellipseNumPoints);
     }
 
-    /**
-     * Plot a star's position at the specified time onto a cube.
-     *
-     * @param maps texture maps for 6 cube faces (not null, modified)
-     * @param star star to plot (not null)
-     * @param latitude radians north of the equator (&le;Pi/2, &ge;-Pi/2)
-     * @param siderealTime radians since sidereal midnight (&lt;2*Pi, &ge;0)
-     * @param textureSize size of the texture map (pixels per side, &gt;2)
-     * @return true if the star was successfully plotted, otherwise false
-     */
-    private boolean plotStarOnCube(BufferedImage[] maps, Star star,
-            float latitude, float siderealTime, int textureSize) {
-        assert maps != null;
-        assert maps.length == 6 : maps.length;
-        assert star != null;
-        assert latitude >= -FastMath.HALF_PI : latitude;
-        assert latitude <= FastMath.HALF_PI : latitude;
-        assert siderealTime >= 0f : siderealTime;
-        assert siderealTime < FastMath.TWO_PI : siderealTime;
-        assert textureSize > 2 : textureSize;
-
-        Vector3f equatorial = star.getEquatorialLocation(siderealTime);
-        /*
-         * Convert equatorial coordinates to world coordinates, where:
-         *   +X points to the north horizon
-         *   +Y points to the zenith
-         *   +Z points to the east horizon
-         *
-         * The conversion consists of a (latitude - Pi/2) rotation about the Y
-         * (east) axis followed by permutation of the axes.
-         */
-        float coLatitude = FastMath.HALF_PI - latitude;
-        Quaternion rotation = new Quaternion();
-        rotation.fromAngleNormalAxis(-coLatitude, Vector3f.UNIT_Y);
-        Vector3f rotated = rotation.mult(equatorial);
-        assert rotated.isUnitVector() : rotated;
-        Vector3f world = new Vector3f(-rotated.x, rotated.z, rotated.y);
-
-        float apparentMagnitude = star.getApparentMagnitude();
-        boolean success = plotStarOnCube(maps, apparentMagnitude,
-                textureSize, world);
-
-        return success;
-    }
-
-    /**
-     * Plot a star onto a texture map for a cube.
-     *
-     * @param maps texture maps for 6 cube faces (not null, modified)
-     * @param apparentMagnitude the star's brightness (log scale)
-     * @param textureSize size of the texture map (pixels per side, &lt;2)
-     * @param worldDirection the star's world coordinates (length=1)
-     * @return true if the star was successfully plotted, otherwise false
-     */
-    private boolean plotStarOnCube(BufferedImage[] maps,
-            float apparentMagnitude, int textureSize, Vector3f worldDirection) {
-        assert maps != null;
-        assert maps.length == 6 : maps.length;
-        assert worldDirection != null;
-        assert worldDirection.isUnitVector() : worldDirection;
-        assert textureSize > 2 : textureSize;
-        /*
-         * Convert apparent magnitude to relative luminosity.
-         */
-        float resolution = textureSize / 2_048f;
-        float luminosity0 = 100f * resolution * resolution;
-        float luminosity = luminosity0 * 1.5f
-                * FastMath.pow(pogsonsRatio, -apparentMagnitude);
-        if (luminosity < luminosityCutoff) {
-            return false;
-        }
-
-        boolean success = false;
-        for (int faceIndex = 0; faceIndex < 6; faceIndex++) {
-            /*
-             * Convert world direction to texture coordinates on this
-             * face of the cube.
-             */
-            Vector2f uv = cubeUV(worldDirection, faceIndex);
-            if (uv != null) {
-                BufferedImage map = maps[faceIndex];
-
-                if (luminosity <= 37f) {
-                    boolean succ = plot4PointStar(map, luminosity,
-                            textureSize, uv);
-                    if (succ) {
-                        success = true;
-                    }
-                } else {
-                    plotEllipseForQuad(map, luminosity, textureSize,
-                            worldDirection, faceIndex);
-                    success = true;
-                }
-            }
-        }
-        return success;
-    }
-
-    /**
-     * Plot a star's position at the specified time onto a texture map for a
-     * dome.
-     *
-     * @param map texture map (not null, modified)
-     * @param star star to plot (not null)
-     * @param latitude radians north of the equator (&le;Pi/2, &ge;-Pi/2)
-     * @param siderealTime radians since sidereal midnight (&lt;2*Pi, &ge;0)
-     * @param textureSize size of the texture map (pixels per side, &gt;2)
-     * @return true if the star was successfully plotted, otherwise false
-     */
-    private boolean plotStarOnDome(BufferedImage map, Star star, float latitude,
-            float siderealTime, int textureSize) {
-        assert map != null;
-        assert star != null;
-        assert latitude >= -FastMath.HALF_PI : latitude;
-        assert latitude <= FastMath.HALF_PI : latitude;
-        assert siderealTime >= 0f : siderealTime;
-        assert siderealTime < FastMath.TWO_PI : siderealTime;
-        assert textureSize > 2 : textureSize;
-
-        Vector3f equatorial = star.getEquatorialLocation(siderealTime);
-        /*
-         * Convert equatorial coordinates to world coordinates, where:
-         *   +X points to the north horizon
-         *   +Y points to the zenith
-         *   +Z points to the east horizon
-         *
-         * The conversion consists of a (latitude - Pi/2) rotation about the Y
-         * (east) axis followed by permutation of the axes.
-         */
-        float coLatitude = FastMath.HALF_PI - latitude;
-        Quaternion rotation = new Quaternion();
-        rotation.fromAngleNormalAxis(-coLatitude, Vector3f.UNIT_Y);
-        Vector3f rotated = rotation.mult(equatorial);
-        assert rotated.isUnitVector() : rotated;
-        if (rotated.z < 0f) {
-            /*
-             * The star lies below the horizon, so skip it.
-             */
-            return false;
-        }
-        Vector3f world = new Vector3f(-rotated.x, rotated.z, rotated.y);
-
-        float apparentMagnitude = star.getApparentMagnitude();
-        boolean success = plotStarOnDome(map, apparentMagnitude,
-                textureSize, world);
-
-        return success;
-    }
-
-    /**
-     * Plot a star on a texture map for a dome.
-     *
-     * @param map texture map (not null)
-     * @param apparentMagnitude the star's brightness
-     * @param textureSize size of the texture map (pixels per side, &lt;2)
-     * @param worldDirection the star's world coordinates (length=1)
-     * @return true if the star was successfully plotted, otherwise false
-     */
-    private boolean plotStarOnDome(BufferedImage map, float apparentMagnitude,
-            int textureSize, Vector3f worldDirection) {
-        assert map != null;
-        assert worldDirection != null;
-        assert worldDirection.isUnitVector() : worldDirection;
-        assert textureSize > 2 : textureSize;
-        /*
-         * Convert apparent magnitude to relative luminosity.
-         */
-        float resolution = textureSize / 2_048f;
-        float luminosity0 = 37f * resolution * resolution;
-        float luminosity = luminosity0
-                * FastMath.pow(pogsonsRatio, -apparentMagnitude);
-        if (luminosity < luminosityCutoff) {
-            return false;
-        }
-        /*
-         * Convert world direction to texture coordinates on a dome.
-         */
-        Vector2f uv = domeMesh.directionUV(worldDirection);
-
-        if (luminosity <= 37f) {
-            boolean success = plot4PointStar(map, luminosity, textureSize, uv);
-            return success;
-        }
-        plotEllipseForDome(map, luminosity, textureSize, uv);
-        return true;
-    }
-
     /**
      * Read the star catalog and add each valid star to the collection.
      */
@@ -1122,4 +1140,40 @@ public class MakeStarMaps {
         logger.log(Level.FINE, "result = {0}", result);
         return result;
     }
+
+    /**
+     * Calculate a star's location at the specified time, in equatorial
+     * coordinates rotated for the observer's latitude, where:
+     *   +X points to the south horizon
+     *   +Y points to the east horizon
+     *   +Z points to the zenith
+     *
+     * @param starIndex index of the star in the catalog (&ge;0)
+     * @param latitude radians north of the equator (&le;Pi/2, &ge;-Pi/2)
+     * @param siderealTime radians since sidereal midnight (&lt;2*Pi, &ge;0)
+     * @return a new unit vector
+     */
+    private Vector3f rotatedLocation(int starIndex, float latitude,
+            float siderealTime) {
+        assert starIndex >= 0 : starIndex;
+        assert latitude >= -FastMath.HALF_PI : latitude;
+        assert latitude <= FastMath.HALF_PI : latitude;
+        assert siderealTime >= 0f : siderealTime;
+        assert siderealTime < FastMath.TWO_PI : siderealTime;
+
+        Vector3f equatorial
+                = catalog.equatorialLocation(starIndex, siderealTime, null);
+        /*
+         * The conversion consists of a (latitude - Pi/2) rotation about the Y
+         * (east) axis. World coordinates are obtained by permuting the axes:
+         * (-x, z, y).
+         */
+        float coLatitude = FastMath.HALF_PI - latitude;
+        Quaternion rotation = new Quaternion();
+        rotation.fromAngleNormalAxis(-coLatitude, Vector3f.UNIT_Y);
+        Vector3f result = rotation.mult(equatorial);
+        assert result.isUnitVector() : result;
+
+        return result;
+    }
 }
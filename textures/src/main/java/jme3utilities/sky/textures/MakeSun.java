@@ -29,14 +29,13 @@ package jme3utilities.sky.textures;
 import com.beust.jcommander.JCommander;
 import com.beust.jcommander.Parameter;
 import com.jme3.math.FastMath;
-import java.awt.Graphics2D;
-import java.awt.image.BufferedImage;
 import java.awt.image.RenderedImage;
 import java.io.IOException;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import jme3utilities.Misc;
 import jme3utilities.MyString;
+import jme3utilities.RasterWriter;
 import jme3utilities.math.MyMath;
 import jme3utilities.sky.Constants;
 
@@ -250,11 +249,9 @@ public class MakeSun {
         assert surroundAlpha >= 0f : surroundAlpha;
         assert numRays >= -1 : numRays;
         /*
-         * Create a blank, color buffered image for the texture map.
+         * Create a raster writer for a texture map with opacity.
          */
-        BufferedImage map = new BufferedImage(textureSize, textureSize,
-                BufferedImage.TYPE_4BYTE_ABGR);
-        Graphics2D graphics = map.createGraphics();
+        RasterWriter writer = new RasterWriter(textureSize, textureSize, true);
         /*
          * Compute the opacity of each pixel.
          */
@@ -283,10 +280,12 @@ public class MakeSun {
                     alpha = Math.max(alpha, hazeAlpha);
                 }
                 alpha = FastMath.saturate(alpha);
-                Misc.setGrayPixel(graphics, x, y, 1f, alpha);
+                writer.setGray(x, y, 1f, alpha);
             }
         }
 
-        return map;
+        RenderedImage result = writer.toBufferedImage();
+
+        return result;
     }
 }
@@ -27,7 +27,6 @@
 package jme3utilities.sky.textures;
 
 import com.jme3.math.FastMath;
-import com.jme3.math.Vector3f;
 import java.util.logging.Logger;
 import jme3utilities.Validate;
 
@@ -97,37 +96,21 @@ class Star implements Comparable<Star> {
     }
 
     /**
-     * Compute a star's position in a right-handed Cartesian equatorial
-     * coordinate system where:<ul>
-     * <li>+X points to the juncture of the meridian with the celestial equator
-     * <li>+Y points to the east horizon (also on the celestial equator)
-     * <li>+Z points to the celestial north pole
-     * </ul>
+     * Read the star's declination.
      *
-     * @param siderealTime radians since sidereal midnight (&ge;0, &lt;2*Pi)
-     * @return new unit vector
+     * @return radians north of the celestial equator (&le;Pi/2, &ge;-Pi/2)
      */
-    Vector3f getEquatorialLocation(float siderealTime) {
-        assert siderealTime >= 0f : siderealTime;
-        assert siderealTime < FastMath.TWO_PI : siderealTime;
-        /*
-         * Compute the hour angle.
-         */
-        float hourAngle = siderealTime - rightAscension;
-        /*
-         * Convert hour angle and declination to Cartesian coordinates.
-         */
-        float cosDec = FastMath.cos(declination);
-        float cosHA = FastMath.cos(hourAngle);
-        float sinDec = FastMath.sin(declination);
-        float sinHA = FastMath.sin(hourAngle);
-        float x = cosDec * cosHA;
-        float y = -cosDec * sinHA;
-        float z = sinDec;
-        Vector3f result = new Vector3f(x, y, z);
-
-        assert result.isUnitVector() : result;
-        return result;
+    float getDeclination() {
+        return declination;
+    }
+
+    /**
+     * Read the star's right ascension.
+     *
+     * @return radians east of the March equinox (&lt;2*Pi, &ge;0)
+     */
+    float getRightAscension() {
+        return rightAscension;
     }
     // *************************************************************************
     // Comparable methods
@@ -185,24 +168,4 @@ class Star implements Comparable<Star> {
         int code = Float.valueOf(sum).hashCode();
         return code;
     }
-    // *************************************************************************
-    // private methods
-
-    /**
-     * Read the declination of the star.
-     *
-     * @return
-     */
-    private float getDeclination() {
-        return declination;
-    }
-
-    /**
-     * Read the right ascension of the star.
-     *
-     * @return
-     */
-    private float getRightAscension() {
-        return rightAscension;
-    }
 }
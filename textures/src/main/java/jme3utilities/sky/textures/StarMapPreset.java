@@ -137,6 +137,27 @@ enum StarMapPreset {
         throw new IllegalStateException();
     }
 
+    /**
+     * Test whether this preset generates textures for a cube.
+     *
+     * @return true for a cube (6 maps), false for a dome (one map)
+     */
+    boolean isCube() {
+        switch (this) {
+            case EQUATOR_4M:
+            case EQUATOR_16M:
+                return true;
+            case NORTH_4M:
+            case NORTH_16M:
+            case SOUTH_4M:
+            case SOUTH_16M:
+            case WILTSHIRE_4M:
+            case WILTSHIRE_16M:
+                return false;
+        }
+        throw new IllegalStateException();
+    }
+
     /**
      * Look up the observer's latitude for this preset.
      *
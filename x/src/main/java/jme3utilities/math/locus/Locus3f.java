@@ -35,6 +35,25 @@ import jme3utilities.math.spline.Spline3f;
  * @author Stephen Gold sgold@sonic.net
  */
 public interface Locus3f {
+    /**
+     * Calculate an axis-aligned box that contains this region. The box need
+     * not be tight, but tighter boxes make spatial indexing more effective.
+     * <p>
+     * The default implementation returns an unbounded box. Regions with finite
+     * extents should override it.
+     *
+     * @param storeMinima storage for the minimum coordinates (not null,
+     * modified, may be set to {@link Float#NEGATIVE_INFINITY} if unbounded)
+     * @param storeMaxima storage for the maximum coordinates (not null,
+     * modified, may be set to {@link Float#POSITIVE_INFINITY} if unbounded)
+     */
+    default void bounds(Vector3f storeMinima, Vector3f storeMaxima) {
+        storeMinima.set(Float.NEGATIVE_INFINITY, Float.NEGATIVE_INFINITY,
+                Float.NEGATIVE_INFINITY);
+        storeMaxima.set(Float.POSITIVE_INFINITY, Float.POSITIVE_INFINITY,
+                Float.POSITIVE_INFINITY);
+    }
+
     /**
      * Test whether this region can be merged with another.
      *
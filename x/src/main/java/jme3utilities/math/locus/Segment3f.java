@@ -333,6 +333,35 @@ public class Segment3f implements Locus3f {
     // *************************************************************************
     // Locus3f methods
 
+    /**
+     * Calculate an axis-aligned box that contains this region. The box need
+     * not be tight, but tighter boxes make spatial indexing more effective.
+     *
+     * @param storeMinima storage for the minimum coordinates (not null,
+     * modified)
+     * @param storeMaxima storage for the maximum coordinates (not null,
+     * modified)
+     */
+    @Override
+    public void bounds(Vector3f storeMinima, Vector3f storeMaxima) {
+        Validate.nonNull(storeMinima, "store minima");
+        Validate.nonNull(storeMaxima, "store maxima");
+
+        storeMinima.set(Float.POSITIVE_INFINITY, Float.POSITIVE_INFINITY,
+                Float.POSITIVE_INFINITY);
+        storeMaxima.set(Float.NEGATIVE_INFINITY, Float.NEGATIVE_INFINITY,
+                Float.NEGATIVE_INFINITY);
+        for (Vector3f corner : cornerLocations) {
+            MyVector3f.accumulateMinima(storeMinima, corner);
+            MyVector3f.accumulateMaxima(storeMaxima, corner);
+        }
+        /*
+         * Pad the box to allow for the compare tolerance.
+         */
+        storeMinima.subtractLocal(tolerance, tolerance, tolerance);
+        storeMaxima.addLocal(tolerance, tolerance, tolerance);
+    }
+
     /**
      * Test whether this region can be merged with another.
      *
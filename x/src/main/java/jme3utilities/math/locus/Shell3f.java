@@ -26,6 +26,8 @@
  */
 package jme3utilities.math.locus;
 
+import com.jme3.math.FastMath;
+import com.jme3.math.Matrix3f;
 import com.jme3.math.Quaternion;
 import com.jme3.math.Vector3f;
 import java.util.ArrayList;
@@ -355,6 +357,55 @@ public class Shell3f implements Locus3f {
     // *************************************************************************
     // Locus3f methods    
 
+    /**
+     * Calculate an axis-aligned box that contains this region. The box need
+     * not be tight, but tighter boxes make spatial indexing more effective.
+     *
+     * @param storeMinima storage for the minimum coordinates (not null,
+     * modified, may be set to {@link Float#NEGATIVE_INFINITY} if unbounded)
+     * @param storeMaxima storage for the maximum coordinates (not null,
+     * modified, may be set to {@link Float#POSITIVE_INFINITY} if unbounded)
+     */
+    @Override
+    public void bounds(Vector3f storeMinima, Vector3f storeMaxima) {
+        Validate.nonNull(storeMinima, "store minima");
+        Validate.nonNull(storeMaxima, "store maxima");
+        /*
+         * For every supported metric, the weighted magnitude of each local
+         * coordinate is bounded by the outer radius.
+         */
+        Vector3f halfExtents = new Vector3f(outerRadius, outerRadius,
+                outerRadius);
+        if (weights != null) {
+            halfExtents.divideLocal(weights);
+        }
+        if (!Vector3f.isValidVector(halfExtents)) {
+            storeMinima.set(Float.NEGATIVE_INFINITY, Float.NEGATIVE_INFINITY,
+                    Float.NEGATIVE_INFINITY);
+            storeMaxima.set(Float.POSITIVE_INFINITY, Float.POSITIVE_INFINITY,
+                    Float.POSITIVE_INFINITY);
+            return;
+        }
+        if (orientation != null) {
+            /*
+             * Enclose the rotated box in an axis-aligned one.
+             */
+            Matrix3f rotation = orientation.toRotationMatrix();
+            float hx = FastMath.abs(rotation.get(0, 0)) * halfExtents.x
+                    + FastMath.abs(rotation.get(0, 1)) * halfExtents.y
+                    + FastMath.abs(rotation.get(0, 2)) * halfExtents.z;
+            float hy = FastMath.abs(rotation.get(1, 0)) * halfExtents.x
+                    + FastMath.abs(rotation.get(1, 1)) * halfExtents.y
+                    + FastMath.abs(rotation.get(1, 2)) * halfExtents.z;
+            float hz = FastMath.abs(rotation.get(2, 0)) * halfExtents.x
+                    + FastMath.abs(rotation.get(2, 1)) * halfExtents.y
+                    + FastMath.abs(rotation.get(2, 2)) * halfExtents.z;
+            halfExtents.set(hx, hy, hz);
+        }
+        center.subtract(halfExtents, storeMinima);
+        center.add(halfExtents, storeMaxima);
+    }
+
     /**
      * Test whether this region can be merged with another.
      *
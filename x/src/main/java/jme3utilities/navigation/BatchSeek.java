@@ -0,0 +1,153 @@
+/*
+ Copyright (c) 2019, Stephen Gold
+ All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright
+ notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright
+ notice, this list of conditions and the following disclaimer in the
+ documentation and/or other materials provided with the distribution.
+ * Neither the name of the copyright holder nor the names of its contributors
+ may be used to endorse or promote products derived from this software without
+ specific prior written permission.
+
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jme3utilities.navigation;
+
+import java.util.concurrent.RecursiveAction;
+import java.util.logging.Logger;
+
+/**
+ * A fork/join task that finds least-cost routes for a range of (start, goal)
+ * pairs in a CompiledNavGraph. The range is split in half until it's small
+ * enough to solve sequentially. Each worker thread uses its own RouteSearch,
+ * and each leaf task its own route buffer, so workers share nothing but the
+ * (immutable) graph and disjoint slots of the output array.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+class BatchSeek extends RecursiveAction {
+    // *************************************************************************
+    // constants
+
+    /**
+     * message logger for this class
+     */
+    final private static Logger logger
+            = Logger.getLogger(BatchSeek.class.getName());
+    /**
+     * version number for serialization
+     */
+    static final long serialVersionUID = 1L;
+    /**
+     * maximum number of pairs solved sequentially by a single task
+     */
+    final private static int grainSize = 8;
+    // *************************************************************************
+    // fields
+
+    /**
+     * graph to search (not null)
+     */
+    final private CompiledNavGraph graph;
+    /**
+     * heuristic cost per unit of distance (&ge;0, finite)
+     */
+    final private float costPerDistance;
+    /**
+     * index of the first pair to solve
+     */
+    final private int firstPair;
+    /**
+     * index one past the last pair to solve
+     */
+    final private int endPair;
+    /**
+     * vertex index of the start of each pair
+     */
+    final private int[] startIndices;
+    /**
+     * vertex index of the goal of each pair
+     */
+    final private int[] endIndices;
+    /**
+     * storage for the arcs of each route, or null if unreachable (indexed by
+     * pair)
+     */
+    final private NavArc[][] storeRoutes;
+    // *************************************************************************
+    // constructors
+
+    /**
+     * Instantiate a task to solve the specified range of pairs.
+     *
+     * @param graph the graph to search (not null)
+     * @param startIndices the vertex index of each start (not null)
+     * @param endIndices the vertex index of each goal (not null, same length
+     * as startIndices)
+     * @param costPerDistance heuristic cost per unit of distance (&ge;0)
+     * @param storeRoutes storage for the results (not null, same length as
+     * startIndices)
+     * @param firstPair the index of the first pair to solve (&ge;0)
+     * @param endPair one past the index of the last pair to solve
+     */
+    BatchSeek(CompiledNavGraph graph, int[] startIndices, int[] endIndices,
+            float costPerDistance, NavArc[][] storeRoutes, int firstPair,
+            int endPair) {
+        assert firstPair >= 0 : firstPair;
+        assert endPair <= startIndices.length : endPair;
+
+        this.graph = graph;
+        this.startIndices = startIndices;
+        this.endIndices = endIndices;
+        this.costPerDistance = costPerDistance;
+        this.storeRoutes = storeRoutes;
+        this.firstPair = firstPair;
+        this.endPair = endPair;
+    }
+    // *************************************************************************
+    // RecursiveAction methods
+
+    /**
+     * Solve the pairs, splitting the range if it's large.
+     */
+    @Override
+    protected void compute() {
+        int numPairs = endPair - firstPair;
+        if (numPairs > grainSize) {
+            int middle = firstPair + numPairs / 2;
+            BatchSeek low = new BatchSeek(graph, startIndices, endIndices,
+                    costPerDistance, storeRoutes, firstPair, middle);
+            BatchSeek high = new BatchSeek(graph, startIndices, endIndices,
+                    costPerDistance, storeRoutes, middle, endPair);
+            invokeAll(low, high);
+            return;
+        }
+
+        RouteSearch search = RouteSearch.forCurrentThread();
+        int[] route = new int[graph.numVertices()];
+        for (int pair = firstPair; pair < endPair; ++pair) {
+            int numHops = search.seek(graph, startIndices[pair],
+                    endIndices[pair], costPerDistance, route);
+            if (numHops >= 0) {
+                NavArc[] arcs = new NavArc[numHops];
+                for (int hopIndex = 0; hopIndex < numHops; ++hopIndex) {
+                    arcs[hopIndex] = graph.getArc(route[hopIndex]);
+                }
+                storeRoutes[pair] = arcs;
+            }
+        }
+    }
+}
@@ -0,0 +1,503 @@
+/*
+ Copyright (c) 2019, Stephen Gold
+ All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright
+ notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright
+ notice, this list of conditions and the following disclaimer in the
+ documentation and/or other materials provided with the distribution.
+ * Neither the name of the copyright holder nor the names of its contributors
+ may be used to endorse or promote products derived from this software without
+ specific prior written permission.
+
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jme3utilities.navigation;
+
+import com.jme3.math.Vector3f;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import jme3utilities.Validate;
+
+/**
+ * An immutable, array-backed copy of a NavGraph, optimized for queries. Each
+ * vertex is identified by an int index, and the arcs are stored in
+ * compressed-sparse-row (CSR) form, with their costs in a float array.
+ * <p>
+ * Queries that take and return indices neither box nor allocate. Search
+ * state is kept per thread, so a single instance may be queried from many
+ * threads at once. Later changes to the original graph are not reflected
+ * here: compile a new instance to pick them up.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+public class CompiledNavGraph {
+    // *************************************************************************
+    // constants
+
+    /**
+     * message logger for this class
+     */
+    final private static Logger logger
+            = Logger.getLogger(CompiledNavGraph.class.getName());
+    // *************************************************************************
+    // fields
+
+    /**
+     * cost (or length) of each arc (all &ge;0, parallel with arcTerminus)
+     */
+    final private float[] arcCost;
+    /**
+     * location coordinates of each vertex (3 floats per vertex)
+     */
+    final private float[] locations;
+    /**
+     * index of the originating vertex of each arc
+     */
+    final private int[] arcOrigin;
+    /**
+     * index of the terminating vertex of each arc
+     */
+    final private int[] arcTerminus;
+    /**
+     * index of the first outgoing arc of each vertex, plus a final entry equal
+     * to the number of arcs (length = numVertices + 1)
+     */
+    final private int[] firstOutgoing;
+    /**
+     * original arc for each arc index
+     */
+    final private NavArc[] arcs;
+    /**
+     * original vertex for each vertex index
+     */
+    final private NavVertex[] vertices;
+    /**
+     * index of each vertex when this graph was compiled, for vertices whose
+     * live index has since changed
+     */
+    final private Map<NavVertex, Integer> vertexIndices;
+    // *************************************************************************
+    // constructors
+
+    /**
+     * Compile the specified graph.
+     *
+     * @param graph the graph to compile (not null, unaffected)
+     */
+    CompiledNavGraph(NavGraph graph) {
+        int numVertices = graph.numVertices();
+        int numArcs = graph.numArcs();
+
+        arcCost = new float[numArcs];
+        locations = new float[3 * numVertices];
+        arcOrigin = new int[numArcs];
+        arcTerminus = new int[numArcs];
+        firstOutgoing = new int[numVertices + 1];
+        arcs = new NavArc[numArcs];
+        vertices = new NavVertex[numVertices];
+        vertexIndices = new IdentityHashMap<>(numVertices);
+
+        int arcIndex = 0;
+        for (int vIndex = 0; vIndex < numVertices; ++vIndex) {
+            NavVertex vertex = graph.getVertex(vIndex);
+            vertices[vIndex] = vertex;
+            vertexIndices.put(vertex, vIndex);
+
+            Vector3f location = vertex.copyLocation();
+            locations[3 * vIndex] = location.x;
+            locations[3 * vIndex + 1] = location.y;
+            locations[3 * vIndex + 2] = location.z;
+
+            firstOutgoing[vIndex] = arcIndex;
+            for (NavArc arc : vertex.getOutgoing()) {
+                arcs[arcIndex] = arc;
+                arcCost[arcIndex] = graph.arcCost(arc);
+                arcOrigin[arcIndex] = vIndex;
+                arcTerminus[arcIndex] = arc.getToVertex().getIndex();
+                ++arcIndex;
+            }
+        }
+        assert arcIndex == numArcs : arcIndex;
+        firstOutgoing[numVertices] = numArcs;
+    }
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Read the cost of the indexed arc without validation.
+     *
+     * @param arcIndex (&ge;0, &lt;numArcs)
+     * @return cost (&ge;0)
+     */
+    float arcCost(int arcIndex) {
+        return arcCost[arcIndex];
+    }
+
+    /**
+     * Read the originating vertex of the indexed arc without validation.
+     *
+     * @param arcIndex (&ge;0, &lt;numArcs)
+     * @return vertex index (&ge;0)
+     */
+    int arcOrigin(int arcIndex) {
+        return arcOrigin[arcIndex];
+    }
+
+    /**
+     * Read the terminating vertex of the indexed arc without validation.
+     *
+     * @param arcIndex (&ge;0, &lt;numArcs)
+     * @return vertex index (&ge;0)
+     */
+    int arcTerminus(int arcIndex) {
+        return arcTerminus[arcIndex];
+    }
+
+    /**
+     * Count the number of vertices reachable from the specified vertex,
+     * including the vertex itself.
+     *
+     * @param startIndex index of the starting vertex (&ge;0,
+     * &lt;numVertices)
+     * @return count (&ge;1)
+     */
+    public int countReachableFrom(int startIndex) {
+        validateIndex(startIndex, "start index");
+
+        RouteSearch search = RouteSearch.forCurrentThread();
+        int result = search.breadthFirst(this, startIndex, null);
+
+        return result;
+    }
+
+    /**
+     * Calculate the straight-line distance between 2 indexed vertices without
+     * validation.
+     *
+     * @param index1 index of the first vertex
+     * @param index2 index of the 2nd vertex
+     * @return distance (&ge;0)
+     */
+    float distance(int index1, int index2) {
+        float dx = locations[3 * index1] - locations[3 * index2];
+        float dy = locations[3 * index1 + 1] - locations[3 * index2 + 1];
+        float dz = locations[3 * index1 + 2] - locations[3 * index2 + 2];
+        float result = (float) Math.sqrt(dx * dx + dy * dy + dz * dz);
+
+        return result;
+    }
+
+    /**
+     * Enumerate the vertices which are the maximal number of hops from the
+     * specified vertex.
+     *
+     * @param startIndex index of the starting vertex (&ge;0,
+     * &lt;numVertices)
+     * @param storeIndices array to store the vertex indices (not null, length
+     * &ge;numVertices, modified)
+     * @return the number of indices stored (&ge;1)
+     */
+    public int findMostHops(int startIndex, int[] storeIndices) {
+        validateIndex(startIndex, "start index");
+        validateLength(storeIndices, numVertices(), "store indices");
+
+        RouteSearch search = RouteSearch.forCurrentThread();
+        int result = search.copyLastLevel(this, startIndex, storeIndices);
+
+        return result;
+    }
+
+    /**
+     * Read the index of the indexed vertex's first outgoing arc without
+     * validation.
+     *
+     * @param vertexIndex (&ge;0, &le;numVertices)
+     * @return arc index (&ge;0, &le;numArcs)
+     */
+    int firstOutgoing(int vertexIndex) {
+        return firstOutgoing[vertexIndex];
+    }
+
+    /**
+     * Access the original arc with the specified index.
+     *
+     * @param arcIndex (&ge;0, &lt;numArcs)
+     * @return the pre-existing instance
+     */
+    public NavArc getArc(int arcIndex) {
+        Validate.inRange(arcIndex, "arc index", 0, numArcs() - 1);
+        NavArc result = arcs[arcIndex];
+        return result;
+    }
+
+    /**
+     * Read the cost (or length) of the specified arc.
+     *
+     * @param arcIndex (&ge;0, &lt;numArcs)
+     * @return cost (&ge;0)
+     */
+    public float getCost(int arcIndex) {
+        Validate.inRange(arcIndex, "arc index", 0, numArcs() - 1);
+        float result = arcCost[arcIndex];
+        return result;
+    }
+
+    /**
+     * Access the original vertex with the specified index.
+     *
+     * @param vertexIndex (&ge;0, &lt;numVertices)
+     * @return the pre-existing instance
+     */
+    public NavVertex getVertex(int vertexIndex) {
+        validateIndex(vertexIndex, "vertex index");
+        NavVertex result = vertices[vertexIndex];
+        return result;
+    }
+
+    /**
+     * Calculate the minimum number of hops from the specified vertex to every
+     * vertex.
+     *
+     * @param startIndex index of the starting vertex (&ge;0,
+     * &lt;numVertices)
+     * @param storeHops array to store the hop counts, indexed by vertex, with
+     * -1 for unreachable vertices (not null, length &ge;numVertices, modified)
+     * @return the number of reachable vertices (&ge;1)
+     */
+    public int hopCounts(int startIndex, int[] storeHops) {
+        validateIndex(startIndex, "start index");
+        validateLength(storeHops, numVertices(), "store hops");
+
+        RouteSearch search = RouteSearch.forCurrentThread();
+        int result = search.breadthFirst(this, startIndex, storeHops);
+
+        return result;
+    }
+
+    /**
+     * Find the index of the specified vertex in this graph. The result is
+     * unaffected by later changes to the original graph.
+     *
+     * @param vertex the vertex to find (not null, member of the original graph
+     * when compiled)
+     * @return index (&ge;0, &lt;numVertices)
+     */
+    public int indexOf(NavVertex vertex) {
+        Validate.nonNull(vertex, "vertex");
+        /*
+         * The live index is correct unless the original graph has
+         * re-indexed the vertex since this graph was compiled.
+         */
+        int result = vertex.getIndex();
+        if (result < 0 || result >= vertices.length
+                || vertices[result] != vertex) {
+            Integer compiledIndex = vertexIndices.get(vertex);
+            if (compiledIndex == null) {
+                logger.log(Level.SEVERE, "vertex={0}", vertex);
+                throw new IllegalArgumentException(
+                        "vertex not in compiled graph");
+            }
+            result = compiledIndex;
+        }
+
+        return result;
+    }
+
+    /**
+     * Count how many arcs this graph contains.
+     *
+     * @return count (&ge;0)
+     */
+    public int numArcs() {
+        int result = arcTerminus.length;
+        return result;
+    }
+
+    /**
+     * Count how many vertices this graph contains.
+     *
+     * @return count (&ge;0)
+     */
+    public int numVertices() {
+        int result = vertices.length;
+        return result;
+    }
+
+    /**
+     * Find the shortest (or cheapest) route from one vertex to another, using
+     * Dijkstra's algorithm.
+     *
+     * @param startVertex starting point (member, distinct from endVertex)
+     * @param endVertex goal (member, distinct from startVertex)
+     * @return a new list of pre-existing arcs, or null if goal is unreachable
+     */
+    public List<NavArc> seek(NavVertex startVertex, NavVertex endVertex) {
+        int startIndex = indexOf(startVertex);
+        int endIndex = indexOf(endVertex);
+        if (startIndex == endIndex) {
+            throw new IllegalArgumentException("vertices not distinct");
+        }
+
+        int[] route = new int[numVertices() - 1];
+        int numHops = seek(startIndex, endIndex, 0f, route);
+        if (numHops < 0) {
+            return null;
+        }
+        List<NavArc> result = new ArrayList<>(numHops);
+        for (int hopIndex = 0; hopIndex < numHops; ++hopIndex) {
+            int arcIndex = route[hopIndex];
+            result.add(arcs[arcIndex]);
+        }
+
+        return result;
+    }
+
+    /**
+     * Find the shortest (or cheapest) route from one vertex to another, using
+     * A* search guided by vertex locations. See
+     * {@link NavGraph#seek(NavVertex, NavVertex, float)} for the conditions
+     * under which the route is optimal.
+     *
+     * @param startIndex index of the starting vertex (&ge;0, &lt;numVertices,
+     * distinct from endIndex)
+     * @param endIndex index of the goal vertex (&ge;0, &lt;numVertices,
+     * distinct from startIndex)
+     * @param costPerDistance heuristic cost per unit of distance (&ge;0,
+     * finite, 0 &rarr; Dijkstra's algorithm)
+     * @param storeArcs array to store the indices of the arcs traversed, in
+     * order (not null, modified)
+     * @return the number of arcs in the route, or -1 if the goal is
+     * unreachable
+     */
+    public int seek(int startIndex, int endIndex, float costPerDistance,
+            int[] storeArcs) {
+        validateIndex(startIndex, "start index");
+        validateIndex(endIndex, "end index");
+        if (startIndex == endIndex) {
+            throw new IllegalArgumentException("vertices not distinct");
+        }
+        Validate.nonNegative(costPerDistance, "cost per distance");
+        Validate.finite(costPerDistance, "cost per distance");
+        Validate.nonNull(storeArcs, "store arcs");
+
+        RouteSearch search = RouteSearch.forCurrentThread();
+        int result = search.seek(this, startIndex, endIndex, costPerDistance,
+                storeArcs);
+
+        return result;
+    }
+
+    /**
+     * Find the shortest (or cheapest) routes for many (start, goal) pairs in
+     * parallel. See {@link NavGraph#seek(NavVertex, NavVertex, float)} for the
+     * conditions under which the routes are optimal.
+     *
+     * @param startVertices the starting point of each pair (not null, all
+     * elements members)
+     * @param endVertices the goal of each pair (not null, same length as
+     * startVertices, all elements members, each distinct from its start)
+     * @param costPerDistance heuristic cost per unit of distance (&ge;0,
+     * finite, 0 &rarr; Dijkstra's algorithm)
+     * @param pool the pool to execute on, or null to use the common pool
+     * @return a new list with one element per pair: a new list of arcs, or
+     * null if the goal is unreachable
+     */
+    public List<List<NavArc>> seekAll(NavVertex[] startVertices,
+            NavVertex[] endVertices, float costPerDistance,
+            ForkJoinPool pool) {
+        Validate.nonNull(startVertices, "start vertices");
+        Validate.nonNull(endVertices, "end vertices");
+        int numPairs = startVertices.length;
+        if (endVertices.length != numPairs) {
+            logger.log(Level.SEVERE, "numStarts={0} numEnds={1}",
+                    new Object[]{numPairs, endVertices.length});
+            throw new IllegalArgumentException("lengths not equal");
+        }
+        Validate.nonNegative(costPerDistance, "cost per distance");
+        Validate.finite(costPerDistance, "cost per distance");
+        /*
+         * Validate all pairs before starting any work.
+         */
+        int[] startIndices = new int[numPairs];
+        int[] endIndices = new int[numPairs];
+        for (int pair = 0; pair < numPairs; ++pair) {
+            startIndices[pair] = indexOf(startVertices[pair]);
+            endIndices[pair] = indexOf(endVertices[pair]);
+            if (startIndices[pair] == endIndices[pair]) {
+                logger.log(Level.SEVERE, "pair={0}", pair);
+                throw new IllegalArgumentException("vertices not distinct");
+            }
+        }
+
+        NavArc[][] routes = new NavArc[numPairs][];
+        BatchSeek task = new BatchSeek(this, startIndices, endIndices,
+                costPerDistance, routes, 0, numPairs);
+        if (pool == null) {
+            ForkJoinPool.commonPool().invoke(task);
+        } else {
+            pool.invoke(task);
+        }
+
+        List<List<NavArc>> result = new ArrayList<>(numPairs);
+        for (NavArc[] route : routes) {
+            if (route == null) {
+                result.add(null);
+            } else {
+                result.add(new ArrayList<>(Arrays.asList(route)));
+            }
+        }
+
+        return result;
+    }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Verify that a vertex index (used as a method argument) is valid.
+     *
+     * @param vertexIndex the index to validate
+     * @param description description of the argument
+     */
+    private void validateIndex(int vertexIndex, String description) {
+        Validate.inRange(vertexIndex, description, 0, numVertices() - 1);
+    }
+
+    /**
+     * Verify that an array (used as a method argument) is long enough.
+     *
+     * @param array the array to validate
+     * @param minLength the minimum length
+     * @param description description of the argument
+     */
+    private static void validateLength(int[] array, int minLength,
+            String description) {
+        Validate.nonNull(array, description);
+        if (array.length < minLength) {
+            logger.log(Level.SEVERE, "{0}.length={1}",
+                    new Object[]{description, array.length});
+            String message = String.format(
+                    "length of %s must be at least %d.", description,
+                    minLength);
+            throw new IllegalArgumentException(message);
+        }
+    }
+}
@@ -0,0 +1,192 @@
+/*
+ Copyright (c) 2019, Stephen Gold
+ All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright
+ notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright
+ notice, this list of conditions and the following disclaimer in the
+ documentation and/or other materials provided with the distribution.
+ * Neither the name of the copyright holder nor the names of its contributors
+ may be used to endorse or promote products derived from this software without
+ specific prior written permission.
+
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jme3utilities.navigation;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.logging.Logger;
+
+/**
+ * A least-cost route tree toward a single goal vertex of a NavGraph: for every
+ * vertex that can reach the goal, the cost of the cheapest route and the first
+ * arc along it. Built once by a reverse Dijkstra search, after which any route
+ * to the goal can be read by walking the tree.
+ * <p>
+ * The tree doesn't track changes to its graph. Instead, the graph asks each
+ * cached tree whether a particular arc change invalidates it.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+final class GoalTree {
+    // *************************************************************************
+    // constants
+
+    /**
+     * message logger for this class
+     */
+    final private static Logger logger
+            = Logger.getLogger(GoalTree.class.getName());
+    // *************************************************************************
+    // fields
+
+    /**
+     * least cost from each vertex to the goal, or +Infinity if the goal is
+     * unreachable (indexed by vertex index)
+     */
+    final private float[] costToGoal;
+    /**
+     * first arc of the least-cost route from each vertex to the goal, or null
+     * for the goal and unreachable vertices (indexed by vertex index)
+     */
+    final private NavArc[] nextArc;
+    /**
+     * goal vertex (not null)
+     */
+    final private NavVertex goal;
+    // *************************************************************************
+    // constructors
+
+    /**
+     * Build the tree for the specified goal.
+     *
+     * @param graph the graph to analyze (not null, unaffected)
+     * @param goal the goal vertex (member of graph)
+     */
+    GoalTree(NavGraph graph, NavVertex goal) {
+        this.goal = goal;
+
+        int numVertices = graph.numVertices();
+        costToGoal = new float[numVertices];
+        Arrays.fill(costToGoal, Float.POSITIVE_INFINITY);
+        nextArc = new NavArc[numVertices];
+        boolean[] settled = new boolean[numVertices];
+        VertexHeap heap = new VertexHeap(numVertices);
+
+        int goalIndex = goal.getIndex();
+        costToGoal[goalIndex] = 0f;
+        heap.offer(goalIndex, 0f);
+
+        while (!heap.isEmpty()) {
+            int index = heap.poll();
+            settled[index] = true;
+            NavVertex vertex = graph.getVertex(index);
+            float baseCost = costToGoal[index];
+
+            for (NavArc arc : vertex.getIncoming()) {
+                int fromIndex = arc.getFromVertex().getIndex();
+                if (settled[fromIndex]) {
+                    continue;
+                }
+                float cost = baseCost + graph.arcCost(arc);
+                if (cost < costToGoal[fromIndex]) {
+                    costToGoal[fromIndex] = cost;
+                    nextArc[fromIndex] = arc;
+                    heap.offer(fromIndex, cost);
+                }
+            }
+        }
+    }
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Test whether a change to the cost of an arc would invalidate this tree.
+     * Adding an arc is treated as lowering its cost from +Infinity, and
+     * removing one as raising its cost to +Infinity.
+     *
+     * @param arc the affected arc (not null)
+     * @param oldCost the cost before the change (&ge;0, may be infinite)
+     * @param newCost the cost after the change (&ge;0, may be infinite)
+     * @return true if the tree is no longer valid, otherwise false
+     */
+    boolean isInvalidatedBy(NavArc arc, float oldCost, float newCost) {
+        int fromIndex = arc.getFromVertex().getIndex();
+        int toIndex = arc.getToVertex().getIndex();
+        float fromCost = cost(fromIndex);
+        float toCost = cost(toIndex);
+
+        if (fromIndex < nextArc.length && nextArc[fromIndex] == arc
+                && newCost > oldCost) {
+            /*
+             * A tree arc got more expensive, so routes through it may change.
+             */
+            return true;
+        } else if (toCost + newCost < fromCost) {
+            /*
+             * The arc now offers a cheaper route from its origin.
+             */
+            return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * Trace the least-cost route from the specified vertex to the goal.
+     *
+     * @param start the starting vertex (member, not the goal)
+     * @return a new list of member arcs, or null if goal is unreachable
+     */
+    List<NavArc> route(NavVertex start) {
+        int index = start.getIndex();
+        if (cost(index) == Float.POSITIVE_INFINITY) {
+            return null;
+        }
+
+        List<NavArc> result = new ArrayList<>(10);
+        NavVertex vertex = start;
+        while (vertex != goal) {
+            NavArc arc = nextArc[vertex.getIndex()];
+            result.add(arc);
+            vertex = arc.getToVertex();
+        }
+
+        return result;
+    }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Read the least cost from the indexed vertex to the goal. Vertices added
+     * after the tree was built can't reach the goal except by arcs added
+     * since, so they're treated as unreachable.
+     *
+     * @param index the vertex index (&ge;0)
+     * @return the cost (&ge;0) or +Infinity if unreachable
+     */
+    private float cost(int index) {
+        float result;
+        if (index < costToGoal.length) {
+            result = costToGoal[index];
+        } else {
+            result = Float.POSITIVE_INFINITY;
+        }
+
+        return result;
+    }
+}
@@ -27,13 +27,18 @@
 package jme3utilities.navigation;
 
 import com.jme3.math.Vector3f;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import jme3utilities.Validate;
@@ -66,6 +71,44 @@ public class NavGraph {
      * vertex for each name
      */
     final private Map<String, NavVertex> vertices = new HashMap<>(30);
+    /**
+     * vertex for each index (parallel with the indices assigned to vertices)
+     */
+    final private List<NavVertex> vertexList = new ArrayList<>(30);
+    /**
+     * bounding-volume hierarchy for point-location queries, or null if not
+     * enabled
+     */
+    private SpatialIndex spatialIndex = null;
+    /**
+     * true if bridgeArcs reflects the current arcs of this graph, otherwise
+     * false
+     */
+    private boolean bridgesCurrent = false;
+    /**
+     * arcs whose removal would disconnect their endpoints, or null if this
+     * graph isn't reversible (valid only if bridgesCurrent is true)
+     */
+    private Set<NavArc> bridgeArcs = null;
+    /**
+     * maximum number of goals whose route trees are cached (&ge;0, 0 means
+     * caching is disabled)
+     */
+    private int maxCachedGoals = 0;
+    /**
+     * cached route trees, in least-recently-used order (access synchronized
+     * on the map itself)
+     */
+    final private Map<NavVertex, GoalTree> goalTrees
+            = new LinkedHashMap<NavVertex, GoalTree>(16, 0.75f, true) {
+        static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(
+                Map.Entry<NavVertex, GoalTree> eldest) {
+            return size() > maxCachedGoals;
+        }
+    };
     // *************************************************************************
     // new methods exposed
 
@@ -95,6 +138,8 @@ public class NavGraph {
 
         origin.addOutgoing(newArc);
         terminus.addIncoming(newArc);
+        bridgesCurrent = false;
+        invalidateRoutes(newArc, Float.POSITIVE_INFINITY, initialCost);
 
         return newArc;
     }
@@ -134,13 +179,42 @@ public class NavGraph {
         }
         Validate.nonNull(location, "location");
 
-        NavVertex newVertex = new NavVertex(name, locus, location);
+        NavVertex newVertex = new NavVertex(this, name, locus, location);
         NavVertex oldVertex = vertices.put(name, newVertex);
         assert oldVertex == null : oldVertex;
 
+        int index = vertexList.size();
+        newVertex.setIndex(index);
+        vertexList.add(newVertex);
+        if (spatialIndex != null) {
+            spatialIndex.add(newVertex);
+        }
+
         return newVertex;
     }
 
+    /**
+     * Read the cost of a member arc without validating it.
+     *
+     * @param arc which arc (member)
+     * @return cost (or length) of arc (&ge;0)
+     */
+    float arcCost(NavArc arc) {
+        float result = arcCosts.get(arc);
+        return result;
+    }
+
+    /**
+     * Create a compact, immutable copy of this graph, optimized for queries.
+     * The copy doesn't track later changes to this graph.
+     *
+     * @return a new instance
+     */
+    public CompiledNavGraph compile() {
+        CompiledNavGraph result = new CompiledNavGraph(this);
+        return result;
+    }
+
     /**
      * Test whether the specified arc is a member of this graph.
      *
@@ -208,6 +282,18 @@ public class NavGraph {
         return result;
     }
 
+    /**
+     * Count how many goals currently have cached route trees.
+     *
+     * @return count (&ge;0, &le;maxGoals)
+     */
+    public int countCachedGoals() {
+        synchronized (goalTrees) {
+            int result = goalTrees.size();
+            return result;
+        }
+    }
+
     /**
      * Count the number of vertices reachable from the specified member vertex.
      *
@@ -217,9 +303,7 @@ public class NavGraph {
     public int countReachableFrom(NavVertex start) {
         validateMember(start, "start");
 
-        Set<NavVertex> visited = new HashSet<>(100);
-        visitReachable(start, visited);
-
+        Set<NavVertex> visited = visitReachable(start);
         return visited.size();
     }
 
@@ -270,8 +354,7 @@ public class NavGraph {
         }
         validateMember(startVertex, "start vertex");
 
-        Map<NavVertex, Integer> hopData = new HashMap<>(numVertices());
-        forwardHopCounts(startVertex, 0, hopData);
+        Map<NavVertex, Integer> hopData = forwardHopCounts(startVertex);
 
         List<NavVertex> result = new ArrayList<>(30);
         for (NavVertex vertex : vertices.values()) {
@@ -285,46 +368,36 @@ public class NavGraph {
     }
 
     /**
-     * Find a member vertex which contains the specified point.
+     * Find a member vertex which contains the specified point. If several
+     * vertices contain it, the one whose locus is nearest is chosen.
      *
      * @param point (not null, unaffected)
      * @return a pre-existing member vertex, or null if none found
      */
     public NavVertex findContains(Vector3f point) {
         Validate.nonNull(point, "point");
-        /*
-         * Test the closest vertex first.
-         */
-        Collection<NavVertex> allVertices = vertices.values();
-        NavVertex result = findNearest(allVertices, point);
-        if (result == null || result.getLocus().contains(point)) {
+
+        if (spatialIndex != null) {
+            NavVertex result = spatialIndex.findContains(point);
             return result;
         }
-        /*
-         * Test the next closest, and so on.  TODO sort
-         */
-        Collection<NavVertex> remainingVertices;
-        remainingVertices = new HashSet<>(vertices.size());
-        for (NavVertex v : vertices.values()) {
-            remainingVertices.add(v);
-        }
-        boolean success = remainingVertices.remove(result);
-        assert success;
 
-        while (!remainingVertices.isEmpty()) {
-            result = findNearest(remainingVertices, point);
-            assert result != null;
-            assert remainingVertices.contains(result);
+        NavVertex result = null;
+        double nearest = Double.POSITIVE_INFINITY;
 
-            if (result.getLocus().contains(point)) {
-                return result;
+        for (NavVertex vertex : vertices.values()) {
+            Locus3f locus = vertex.getLocus();
+            if (locus != null && locus.contains(point)) {
+                Vector3f location = locus.findLocation(point);
+                double ds = MyVector3f.distanceSquared(point, location);
+                if (ds < nearest) {
+                    nearest = ds;
+                    result = vertex;
+                }
             }
-
-            success = remainingVertices.remove(result);
-            assert success;
         }
 
-        return null;
+        return result;
     }
 
     /**
@@ -353,8 +426,7 @@ public class NavGraph {
             Collection<NavVertex> subset) {
         validateMember(startVertex, "start vertex");
 
-        Map<NavVertex, Integer> hopData = new HashMap<>(subset.size());
-        forwardHopCounts(startVertex, 0, hopData);
+        Map<NavVertex, Integer> hopData = forwardHopCounts(startVertex);
 
         int mostHops = 0;
         List<NavVertex> result = new ArrayList<>(10);
@@ -383,6 +455,11 @@ public class NavGraph {
     public NavVertex findNearest(Vector3f point) {
         Validate.nonNull(point, "point");
 
+        if (spatialIndex != null) {
+            NavVertex result = spatialIndex.findNearest(point);
+            return result;
+        }
+
         NavVertex result = null;
         double nearest = Double.POSITIVE_INFINITY;
 
@@ -440,6 +517,28 @@ public class NavGraph {
         return result;
     }
 
+    /**
+     * Read the maximum number of goals whose route trees are cached.
+     *
+     * @return count (&ge;0, 0 means caching is disabled)
+     */
+    public int getRouteCacheSize() {
+        assert maxCachedGoals >= 0 : maxCachedGoals;
+        return maxCachedGoals;
+    }
+
+    /**
+     * Access the member vertex with the specified index.
+     *
+     * @param index (&ge;0, &lt;numVertices)
+     * @return the pre-existing instance
+     */
+    NavVertex getVertex(int index) {
+        NavVertex result = vertexList.get(index);
+        assert result.getIndex() == index : index;
+        return result;
+    }
+
     /**
      * Test whether every vertex in is reachable from every other.
      *
@@ -460,6 +559,11 @@ public class NavGraph {
      * Test whether the endpoints of the specified arc would still be connected
      * if the arc were removed. In other words, whether the arc is part of a
      * loop.
+     * <p>
+     * For a reversible graph, the first invocation after any change to the
+     * arcs finds all bridges in a single linear-time pass, and later
+     * invocations are simple lookups. Otherwise, each invocation performs a
+     * linear-time search.
      *
      * @param arc arc to hypothetically remove (member)
      * @return true if still connected, false if not
@@ -467,15 +571,38 @@ public class NavGraph {
     public boolean isConnectedWithout(NavArc arc) {
         validateMember(arc, "arc");
 
-        NavVertex fromVertex = arc.getFromVertex();
-        NavVertex toVertex = arc.getToVertex();
-        Set<NavVertex> visitedVertices = new HashSet<>(100);
-        boolean result = existsRouteWithout(
-                arc, fromVertex, toVertex, visitedVertices);
+        if (!bridgesCurrent) {
+            bridgeArcs = findBridges();
+            bridgesCurrent = true;
+        }
+
+        boolean result;
+        if (bridgeArcs == null) {
+            NavVertex fromVertex = arc.getFromVertex();
+            NavVertex toVertex = arc.getToVertex();
+            result = existsRouteWithout(arc, fromVertex, toVertex);
+        } else {
+            result = !bridgeArcs.contains(arc);
+        }
 
         return result;
     }
 
+    /**
+     * Test whether this graph maintains a spatial index to accelerate
+     * {@link #findContains(com.jme3.math.Vector3f)} and
+     * {@link #findNearest(com.jme3.math.Vector3f)}.
+     *
+     * @return true if indexed, otherwise false
+     */
+    public boolean isSpatiallyIndexed() {
+        if (spatialIndex == null) {
+            return false;
+        } else {
+            return true;
+        }
+    }
+
     /**
      * Test whether this graph contains a reverse arc for every member arc.
      *
@@ -521,6 +648,20 @@ public class NavGraph {
         return result;
     }
 
+    /**
+     * Update the spatial index (if any) after the locus of a vertex has been
+     * replaced or altered.
+     *
+     * @param vertex the affected vertex (not null)
+     */
+    void locusChanged(NavVertex vertex) {
+        assert vertex != null;
+
+        if (spatialIndex != null && contains(vertex)) {
+            spatialIndex.update(vertex);
+        }
+    }
+
     /**
      * Count how many arcs this graph contains.
      *
@@ -559,6 +700,51 @@ public class NavGraph {
 
         NavVertex toVertex = arc.getToVertex();
         toVertex.removeIncoming(arc);
+        bridgesCurrent = false;
+        invalidateRoutes(arc, oldCost, Float.POSITIVE_INFINITY);
+    }
+
+    /**
+     * Remove the specified member vertex from this graph, along with all arcs
+     * that originate or terminate there.
+     *
+     * @param vertex member vertex to remove
+     */
+    public void remove(NavVertex vertex) {
+        validateMember(vertex, "vertex");
+
+        for (NavArc arc : vertex.copyIncoming()) {
+            remove(arc);
+        }
+        for (NavArc arc : vertex.copyOutgoing()) {
+            remove(arc);
+        }
+        if (spatialIndex != null) {
+            spatialIndex.remove(vertex);
+        }
+
+        String name = vertex.getName();
+        NavVertex oldVertex = vertices.remove(name);
+        assert oldVertex == vertex : oldVertex;
+        /*
+         * Cached route trees are indexed by vertex, so discard them all.
+         */
+        synchronized (goalTrees) {
+            goalTrees.clear();
+        }
+        /*
+         * Move the last vertex into the vacated index.
+         */
+        int index = vertex.getIndex();
+        int lastIndex = vertexList.size() - 1;
+        NavVertex lastVertex = vertexList.remove(lastIndex);
+        if (lastVertex != vertex) {
+            vertexList.set(index, lastVertex);
+            lastVertex.setIndex(index);
+            if (spatialIndex != null) {
+                spatialIndex.reindex(lastVertex, lastIndex);
+            }
+        }
     }
 
     /**
@@ -581,42 +767,92 @@ public class NavGraph {
     }
 
     /**
-     * Find the shortest (or cheapest) route from one vertex to another.
+     * Find the shortest (or cheapest) route from one vertex to another, using
+     * Dijkstra's algorithm.
      *
      * @param startVertex starting point (member, distinct from endVertex)
      * @param endVertex goal (member, distinct from startVertex)
      * @return a new list of arcs, or null if goal is unreachable
      */
     public List<NavArc> seek(NavVertex startVertex, NavVertex endVertex) {
+        List<NavArc> result = seek(startVertex, endVertex, 0f);
+        return result;
+    }
+
+    /**
+     * Find the shortest (or cheapest) route from one vertex to another, using
+     * A* search guided by vertex locations. The heuristic is the straight-line
+     * distance to the goal times the specified factor. The route is guaranteed
+     * to be optimal only if the cost of every arc is at least that factor
+     * times the distance between the locations of its endpoints. A factor of
+     * zero reduces this method to Dijkstra's algorithm.
+     *
+     * If route caching is enabled, the route is instead read from a cached
+     * tree of least-cost routes to the goal, building the tree if necessary.
+     *
+     * @param startVertex starting point (member, distinct from endVertex)
+     * @param endVertex goal (member, distinct from startVertex)
+     * @param costPerDistance heuristic cost per unit of distance (&ge;0,
+     * finite)
+     * @return a new list of arcs, or null if goal is unreachable
+     */
+    public List<NavArc> seek(NavVertex startVertex, NavVertex endVertex,
+            float costPerDistance) {
         validateMember(startVertex, "start vertex");
         validateMember(endVertex, "end vertex");
         if (startVertex == endVertex) {
             throw new IllegalArgumentException("vertices not distinct");
         }
-
-        Map<NavVertex, Float> totalCosts = new HashMap<>(numVertices());
-        reverseTotalCosts(endVertex, 0f, totalCosts);
-        if (totalCosts.get(startVertex) == null) {
-            return null;
-        }
-        List<NavArc> result = new ArrayList<>(10);
-        NavVertex routeVertex = startVertex;
-        while (routeVertex != endVertex) {
-            NavArc nextArc = null;
-            float minDistance = Float.MAX_VALUE;
-            for (NavArc arc : routeVertex.copyOutgoing()) {
-                NavVertex neighbor = arc.getToVertex();
-                float distance = totalCosts.get(neighbor) + arcCosts.get(arc);
-                if (distance < minDistance) {
-                    minDistance = distance;
-                    nextArc = arc;
+        Validate.nonNegative(costPerDistance, "cost per distance");
+        Validate.finite(costPerDistance, "cost per distance");
+
+        if (maxCachedGoals > 0) {
+            synchronized (goalTrees) {
+                GoalTree tree = goalTrees.get(endVertex);
+                if (tree == null) {
+                    tree = new GoalTree(this, endVertex);
+                    goalTrees.put(endVertex, tree);
                 }
+                List<NavArc> result = tree.route(startVertex);
+                return result;
             }
-            routeVertex = nextArc.getToVertex();
-            assert routeVertex != startVertex;
-            result.add(nextArc);
         }
 
+        RouteSearch search = RouteSearch.forCurrentThread();
+        List<NavArc> result = search.seek(this, startVertex, endVertex,
+                costPerDistance);
+
+        return result;
+    }
+
+    /**
+     * Find the shortest (or cheapest) routes for many (start, goal) pairs in
+     * parallel. The search runs against an immutable snapshot taken when this
+     * method is invoked, so later changes to this graph don't affect it.
+     * Route caching (if enabled) is bypassed. See
+     * {@link #seek(NavVertex, NavVertex, float)} for the conditions under
+     * which the routes are optimal.
+     *
+     * @param startVertices the starting point of each pair (not null, all
+     * elements members)
+     * @param endVertices the goal of each pair (not null, same length as
+     * startVertices, all elements members, each distinct from its start)
+     * @param costPerDistance heuristic cost per unit of distance (&ge;0,
+     * finite)
+     * @param pool the pool to execute on, or null to use the common pool
+     * @return a new list with one element per pair: a new list of arcs, or
+     * null if the goal is unreachable
+     */
+    public List<List<NavArc>> seekAll(NavVertex[] startVertices,
+            NavVertex[] endVertices, float costPerDistance,
+            ForkJoinPool pool) {
+        Validate.nonNull(startVertices, "start vertices");
+        Validate.nonNull(endVertices, "end vertices");
+
+        CompiledNavGraph snapshot = compile();
+        List<List<NavArc>> result = snapshot.seekAll(startVertices,
+                endVertices, costPerDistance, pool);
+
         return result;
     }
 
@@ -632,6 +868,52 @@ public class NavGraph {
 
         Float oldCost = arcCosts.put(arc, newCost);
         assert oldCost != null;
+        invalidateRoutes(arc, oldCost, newCost);
+    }
+
+    /**
+     * Alter the maximum number of goals whose least-cost route trees are
+     * cached. While caching is enabled, each seek() toward a cached goal is a
+     * simple walk of the tree. Trees are discarded when an arc change could
+     * alter their routes, and the least-recently used tree is evicted when the
+     * limit is exceeded.
+     *
+     * @param maxGoals the maximum number of goals (&ge;0, default=0, 0
+     * disables caching)
+     */
+    public void setRouteCacheSize(int maxGoals) {
+        Validate.nonNegative(maxGoals, "max goals");
+
+        synchronized (goalTrees) {
+            maxCachedGoals = maxGoals;
+            Iterator<NavVertex> iterator = goalTrees.keySet().iterator();
+            while (goalTrees.size() > maxGoals) {
+                iterator.next();
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * Enable or disable the spatial index used to accelerate
+     * {@link #findContains(com.jme3.math.Vector3f)} and
+     * {@link #findNearest(com.jme3.math.Vector3f)}. While enabled, the index
+     * is maintained as vertices are added, removed, or assigned new loci.
+     * Loci should not be modified in place without a subsequent invocation of
+     * {@link NavVertex#setLocus(jme3utilities.math.locus.Locus3f)}.
+     *
+     * @param enable true to enable, false to disable (default=false)
+     */
+    public void setSpatialIndex(boolean enable) {
+        if (enable && spatialIndex == null) {
+            int numVertices = vertexList.size();
+            spatialIndex = new SpatialIndex(Math.max(2 * numVertices, 16));
+            for (NavVertex vertex : vertexList) {
+                spatialIndex.add(vertex);
+            }
+        } else if (!enable) {
+            spatialIndex = null;
+        }
     }
 
     /**
@@ -707,140 +989,202 @@ public class NavGraph {
 
     /**
      * Test whether there's a route from a starting vertex to an ending vertex
-     * which avoids a specified arc. Note: recursive depth-first traversal.
+     * which avoids a specified arc. Note: iterative depth-first traversal.
      *
      * @param avoid arc to avoid (member)
-     * @param visit vertex being visited, initially the starting vertex (member,
-     * unaffected)
+     * @param start starting vertex (member, unaffected)
      * @param ending ending vertex (member, unaffected)
-     * @param visitedSet set of vertices previously visited, initially empty
-     * (not null, unaffected)
      * @return true if such a route exists, false if no such route exists
      */
-    private boolean existsRouteWithout(NavArc avoid, NavVertex visit,
-            NavVertex ending, Set<NavVertex> visitedSet) {
+    private boolean existsRouteWithout(NavArc avoid, NavVertex start,
+            NavVertex ending) {
         assert contains(avoid) : avoid;
-        assert contains(visit) : visit;
+        assert contains(start) : start;
         assert contains(ending) : ending;
 
-        if (visit == ending) {
-            return true;
+        Set<NavVertex> visitedSet = new HashSet<>(100);
+        Deque<NavVertex> stack = new ArrayDeque<>(100);
+        visitedSet.add(start);
+        stack.push(start);
+
+        while (!stack.isEmpty()) {
+            NavVertex visit = stack.pop();
+            if (visit == ending) {
+                return true;
+            }
+            for (NavArc arc : visit.getOutgoing()) {
+                if (arc.equals(avoid)) {
+                    continue;
+                }
+                NavVertex nextVisit = arc.getToVertex();
+                if (visitedSet.add(nextVisit)) {
+                    stack.push(nextVisit);
+                }
+            }
         }
-        if (visitedSet.contains(visit)) {
-            return false;
+
+        return false;
+    }
+
+    /**
+     * Find every arc whose removal would disconnect its endpoints, using an
+     * iterative version of Tarjan's bridge-finding algorithm. Since the
+     * algorithm applies to undirected graphs, each pair of opposing arcs is
+     * treated as a single edge.
+     *
+     * @return a new set of pre-existing member arcs, or null if this graph
+     * isn't reversible
+     */
+    private Set<NavArc> findBridges() {
+        if (!isReversible()) {
+            return null;
         }
 
-        Set<NavVertex> nextVisited = new HashSet<>(visitedSet);
-        nextVisited.add(visit);
+        int numVertices = vertexList.size();
+        int[] discovery = new int[numVertices]; // 0 means undiscovered
+        int[] low = new int[numVertices];
+        int[] parent = new int[numVertices];
+        List<Iterator<NavArc>> pending = new ArrayList<>(numVertices);
+        for (int index = 0; index < numVertices; ++index) {
+            pending.add(null);
+        }
+        int[] stack = new int[numVertices];
+        Set<NavArc> result = new HashSet<>(16);
+        int time = 0;
 
-        for (NavArc arc : visit.copyOutgoing()) {
-            if (arc.equals(avoid)) {
+        for (int root = 0; root < numVertices; ++root) {
+            if (discovery[root] != 0) {
                 continue;
             }
-            NavVertex nextVisit = arc.getToVertex();
-            boolean exists = existsRouteWithout(
-                    avoid, nextVisit, ending, nextVisited);
-            if (exists) {
-                return true;
+            int stackSize = 0;
+            ++time;
+            discovery[root] = time;
+            low[root] = time;
+            parent[root] = -1;
+            pending.set(root, getVertex(root).getOutgoing().iterator());
+            stack[stackSize++] = root;
+
+            while (stackSize > 0) {
+                int u = stack[stackSize - 1];
+                Iterator<NavArc> iterator = pending.get(u);
+                if (iterator.hasNext()) {
+                    NavArc arc = iterator.next();
+                    int v = arc.getToVertex().getIndex();
+                    if (discovery[v] == 0) {
+                        /*
+                         * Tree edge: descend.
+                         */
+                        ++time;
+                        discovery[v] = time;
+                        low[v] = time;
+                        parent[v] = u;
+                        pending.set(v, getVertex(v).getOutgoing().iterator());
+                        stack[stackSize++] = v;
+                    } else if (v != parent[u]) {
+                        /*
+                         * Back edge.
+                         */
+                        low[u] = Math.min(low[u], discovery[v]);
+                    }
+
+                } else {
+                    /*
+                     * Finished with u: propagate its low value to its parent.
+                     */
+                    pending.set(u, null);
+                    --stackSize;
+                    int p = parent[u];
+                    if (p >= 0) {
+                        low[p] = Math.min(low[p], low[u]);
+                        if (low[u] > discovery[p]) {
+                            NavVertex pVertex = getVertex(p);
+                            NavVertex uVertex = getVertex(u);
+                            result.add(pVertex.findOutgoing(uVertex));
+                            result.add(uVertex.findOutgoing(pVertex));
+                        }
+                    }
+                }
             }
         }
-        return false;
+
+        return result;
     }
 
     /**
      * Calculate the minimum number of hops (arcs traversed) to each vertex from
-     * a starting vertex. Note: recursive depth-first traversal.
+     * a starting vertex. Note: breadth-first traversal.
      *
-     * @param visit vertex being visited, initially the starting vertex (member,
-     * unaffected)
-     * @param hopCount hop count from the start vertex to the current vertex,
-     * initially zero (&ge;0)
-     * @param minHopCounts minimum hop counts to vertices previously visited,
-     * initially empty (not null, updated)
+     * @param start starting vertex (member, unaffected)
+     * @return a new map from each reachable vertex to its hop count
      */
-    private void forwardHopCounts(NavVertex visit, int hopCount,
-            Map<NavVertex, Integer> minHopCounts) {
-        assert contains(visit) : visit;
-        assert hopCount >= 0 : hopCount;
-        assert minHopCounts != null;
-
-        if (minHopCounts.containsKey(visit)
-                && hopCount > minHopCounts.get(visit)) {
-            return;
-        }
-        /*
-         * Update the hop count of the current vertex.
-         */
-        minHopCounts.put(visit, hopCount);
-        /*
-         * Follow each outgoing arc from the current vertex.
-         */
-        int nextHopCount = hopCount + 1;
-        for (NavArc arc : visit.copyOutgoing()) {
-            NavVertex nextVisit = arc.getToVertex();
-            forwardHopCounts(nextVisit, nextHopCount, minHopCounts);
+    private Map<NavVertex, Integer> forwardHopCounts(NavVertex start) {
+        assert contains(start) : start;
+
+        Map<NavVertex, Integer> result = new HashMap<>(numVertices());
+        Deque<NavVertex> queue = new ArrayDeque<>(100);
+        result.put(start, 0);
+        queue.add(start);
+
+        while (!queue.isEmpty()) {
+            NavVertex visit = queue.remove();
+            int nextHopCount = result.get(visit) + 1;
+            for (NavArc arc : visit.getOutgoing()) {
+                NavVertex nextVisit = arc.getToVertex();
+                if (!result.containsKey(nextVisit)) {
+                    result.put(nextVisit, nextHopCount);
+                    queue.add(nextVisit);
+                }
+            }
         }
+
+        return result;
     }
 
     /**
-     * Calculate the minimum total cost (or distance) from each vertex to an
-     * ending vertex. Note: recursive depth-first traversal.
+     * Discard any cached route trees that a change to the specified arc might
+     * invalidate.
      *
-     * @param visit vertex being visited, initially the ending vertex (member,
-     * unaffected)
-     * @param totalCost total cost from the current vertex to the ending vertex,
-     * initially zero (&ge;0)
-     * @param minTotalCosts minimum total costs from vertices previously
-     * visited, initially empty (not null, updated)
+     * @param arc the affected arc (not null)
+     * @param oldCost the cost before the change (&ge;0, +Infinity if added)
+     * @param newCost the cost after the change (&ge;0, +Infinity if removed)
      */
-    private void reverseTotalCosts(NavVertex visit, float totalCost,
-            Map<NavVertex, Float> minTotalCosts) {
-        assert contains(visit) : visit;
-        assert totalCost >= 0f : totalCost;
-        assert minTotalCosts != null;
-
-        if (minTotalCosts.containsKey(visit)
-                && totalCost > minTotalCosts.get(visit)) {
-            return;
-        }
-        /*
-         * Update the total cost of the current vertex.
-         */
-        minTotalCosts.put(visit, totalCost);
-        /*
-         * Follow each incoming arc of the current vertex.
-         */
-        for (NavArc arc : visit.copyIncoming()) {
-            NavVertex nextVisit = arc.getFromVertex();
-            float arcCost = arcCosts.get(arc);
-            float nextTotalCost = totalCost + arcCost;
-            reverseTotalCosts(nextVisit, nextTotalCost, minTotalCosts);
+    private void invalidateRoutes(NavArc arc, float oldCost, float newCost) {
+        synchronized (goalTrees) {
+            Iterator<GoalTree> iterator = goalTrees.values().iterator();
+            while (iterator.hasNext()) {
+                GoalTree tree = iterator.next();
+                if (tree.isInvalidatedBy(arc, oldCost, newCost)) {
+                    iterator.remove();
+                }
+            }
         }
     }
 
     /**
-     * Enumerate all vertices reachable from a starting vertex. Note: recursive
+     * Enumerate all vertices reachable from a starting vertex. Note: iterative
      * depth-first traversal.
      *
-     * @param visit vertex being visited, initially the starting vertex (member,
-     * unaffected)
-     * @param visitedVertices set of vertices previously visited, initially
-     * empty (not null, updated)
+     * @param start starting vertex (member, unaffected)
+     * @return a new set of pre-existing member vertices, including the start
      */
-    private void visitReachable(NavVertex visit,
-            Set<NavVertex> visitedVertices) {
-        assert contains(visit) : visit;
-        assert visitedVertices != null;
-
-        if (visitedVertices.contains(visit)) {
-            return;
+    private Set<NavVertex> visitReachable(NavVertex start) {
+        assert contains(start) : start;
+
+        Set<NavVertex> result = new HashSet<>(100);
+        Deque<NavVertex> stack = new ArrayDeque<>(100);
+        result.add(start);
+        stack.push(start);
+
+        while (!stack.isEmpty()) {
+            NavVertex visit = stack.pop();
+            for (NavArc arc : visit.getOutgoing()) {
+                NavVertex vertex = arc.getToVertex();
+                if (result.add(vertex)) {
+                    stack.push(vertex);
+                }
+            }
         }
-        boolean success = visitedVertices.add(visit);
-        assert success;
 
-        for (NavArc arc : visit.copyOutgoing()) {
-            NavVertex vertex = arc.getToVertex();
-            visitReachable(vertex, visitedVertices);
-        }
+        return result;
     }
 }
@@ -70,6 +70,14 @@ public class NavVertex implements Comparable<NavVertex> {
      * set of arcs which originate from this vertex
      */
     final private Set<NavArc> outgoing = new HashSet<>(4);
+    /**
+     * index of this vertex in its graph (&ge;0, assigned by the graph)
+     */
+    private int index = 0;
+    /**
+     * graph that contains this vertex (not null, initialized by constructor)
+     */
+    final private NavGraph graph;
     /**
      * name of this vertex (not null, initialized by constructor)
      */
@@ -85,14 +93,17 @@ public class NavVertex implements Comparable<NavVertex> {
     /**
      * Instantiate a vertex without any arcs.
      *
+     * @param graph the graph that will contain the vertex (not null)
      * @param name name for the new vertex (not null)
      * @param locus region represented or null
      * @param location for calculating arc offsets (not null, unaffected)
      */
-    NavVertex(String name, Locus3f locus, Vector3f location) {
+    NavVertex(NavGraph graph, String name, Locus3f locus, Vector3f location) {
+        assert graph != null;
         assert name != null;
         assert location != null;
 
+        this.graph = graph;
         this.name = name;
         this.locus = locus;
         this.location = location;
@@ -171,6 +182,22 @@ public class NavVertex implements Comparable<NavVertex> {
         return result;
     }
 
+    /**
+     * Calculate the straight-line distance between the location of this vertex
+     * and that of another vertex.
+     *
+     * @param otherVertex (not null, unaffected)
+     * @return distance (&ge;0)
+     */
+    public double distance(NavVertex otherVertex) {
+        Validate.nonNull(otherVertex, "other vertex");
+
+        double ds = MyVector3f.distanceSquared(location, otherVertex.location);
+        double result = Math.sqrt(ds);
+
+        return result;
+    }
+
     /**
      * Find the arc (if any) from a specified origin.
      *
@@ -277,6 +304,25 @@ public class NavVertex implements Comparable<NavVertex> {
         return result;
     }
 
+    /**
+     * Access the set of incoming arcs, without copying it.
+     *
+     * @return the pre-existing set (not null, not to be modified)
+     */
+    Set<NavArc> getIncoming() {
+        return incoming;
+    }
+
+    /**
+     * Read the index of this vertex in its graph.
+     *
+     * @return index (&ge;0)
+     */
+    int getIndex() {
+        assert index >= 0 : index;
+        return index;
+    }
+
     /**
      * Access the region currently represented by this vertex.
      *
@@ -296,6 +342,15 @@ public class NavVertex implements Comparable<NavVertex> {
         return name;
     }
 
+    /**
+     * Access the set of outgoing arcs, without copying it.
+     *
+     * @return the pre-existing set (not null, not to be modified)
+     */
+    Set<NavArc> getOutgoing() {
+        return outgoing;
+    }
+
     /**
      * List the incoming arcs.
      *
@@ -371,12 +426,25 @@ public class NavVertex implements Comparable<NavVertex> {
     }
 
     /**
-     * Alter the region represented by this vertex.
+     * Alter the index of this vertex in its graph.
+     *
+     * @param newIndex (&ge;0)
+     */
+    void setIndex(int newIndex) {
+        assert newIndex >= 0 : newIndex;
+        this.index = newIndex;
+    }
+
+    /**
+     * Alter the region represented by this vertex. If the locus is later
+     * modified in place, invoke this method again so the graph's spatial index
+     * (if any) stays current.
      *
      * @param newLocus region or null
      */
     public void setLocus(Locus3f newLocus) {
         this.locus = newLocus;
+        graph.locusChanged(this);
     }
     // *************************************************************************
     // Comparable methods
@@ -0,0 +1,420 @@
+/*
+ Copyright (c) 2019, Stephen Gold
+ All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright
+ notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright
+ notice, this list of conditions and the following disclaimer in the
+ documentation and/or other materials provided with the distribution.
+ * Neither the name of the copyright holder nor the names of its contributors
+ may be used to endorse or promote products derived from this software without
+ specific prior written permission.
+
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jme3utilities.navigation;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.logging.Logger;
+
+/**
+ * Reusable scratch state for finding least-cost routes in a NavGraph or
+ * CompiledNavGraph using Dijkstra's algorithm or A* search, and for
+ * breadth-first traversals of a CompiledNavGraph. Each thread gets its own
+ * instance, so searches on different threads don't interfere, and repeated
+ * searches on the same thread don't allocate, apart from the route itself.
+ * <p>
+ * Per-vertex state is invalidated by bumping a search stamp instead of
+ * clearing arrays, so the cost of a search depends only on the vertices it
+ * touches, not on the size of the graph.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+final class RouteSearch {
+    // *************************************************************************
+    // constants
+
+    /**
+     * message logger for this class
+     */
+    final private static Logger logger
+            = Logger.getLogger(RouteSearch.class.getName());
+    /**
+     * per-thread instances
+     */
+    final private static ThreadLocal<RouteSearch> perThread
+            = new ThreadLocal<RouteSearch>() {
+        @Override
+        protected RouteSearch initialValue() {
+            return new RouteSearch();
+        }
+    };
+    // *************************************************************************
+    // fields
+
+    /**
+     * least total cost found so far from the start to each vertex, valid only
+     * where openStamp matches the current stamp
+     */
+    private float[] bestCost = new float[0];
+    /**
+     * stamp of the search that settled each vertex
+     */
+    private int[] closedStamp = new int[0];
+    /**
+     * stamp of the search that reached each vertex
+     */
+    private int[] openStamp = new int[0];
+    /**
+     * index of the preceding vertex on the best route to each vertex, or -1
+     * for the start vertex
+     */
+    private int[] predecessor = new int[0];
+    /**
+     * index of the last arc on the best route to each vertex, or -1 for the
+     * start vertex (used with compiled graphs)
+     */
+    private int[] predecessorArc = new int[0];
+    /**
+     * vertex indices in the order visited by the latest breadth-first
+     * traversal
+     */
+    private int[] queue = new int[0];
+    /**
+     * position in the queue of the first vertex at the maximum hop count,
+     * as of the latest breadth-first traversal
+     */
+    private int lastLevelStart = 0;
+    /**
+     * stamp of the current search (&gt;0)
+     */
+    private int stamp = 0;
+    /**
+     * priority queue of vertices reached but not yet settled
+     */
+    final private VertexHeap heap = new VertexHeap(0);
+    // *************************************************************************
+    // constructors
+
+    /**
+     * A private constructor to enforce the per-thread pattern.
+     */
+    private RouteSearch() {
+    }
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Traverse a compiled graph breadth-first from the specified vertex,
+     * optionally recording the number of hops to each vertex.
+     *
+     * @param graph the graph to traverse (not null, unaffected)
+     * @param startIndex index of the starting vertex
+     * @param storeHops array to store hop counts, -1 for unreachable vertices
+     * (length &ge;numVertices, modified) or null
+     * @return the number of vertices reached, including the start (&ge;1)
+     */
+    int breadthFirst(CompiledNavGraph graph, int startIndex,
+            int[] storeHops) {
+        int numIndices = graph.numVertices();
+        prepare(numIndices);
+        if (storeHops != null) {
+            Arrays.fill(storeHops, 0, numIndices, -1);
+            storeHops[startIndex] = 0;
+        }
+
+        queue[0] = startIndex;
+        openStamp[startIndex] = stamp;
+        int levelStart = 0;
+        int tail = 1;
+        int hopCount = 0;
+        while (true) {
+            int levelEnd = tail;
+            for (int position = levelStart; position < levelEnd; ++position) {
+                int vIndex = queue[position];
+                int endArc = graph.firstOutgoing(vIndex + 1);
+                for (int arcIndex = graph.firstOutgoing(vIndex);
+                        arcIndex < endArc; ++arcIndex) {
+                    int neighbor = graph.arcTerminus(arcIndex);
+                    if (openStamp[neighbor] != stamp) {
+                        openStamp[neighbor] = stamp;
+                        queue[tail] = neighbor;
+                        ++tail;
+                        if (storeHops != null) {
+                            storeHops[neighbor] = hopCount + 1;
+                        }
+                    }
+                }
+            }
+            if (tail == levelEnd) {
+                break;
+            }
+            levelStart = levelEnd;
+            ++hopCount;
+        }
+        lastLevelStart = levelStart;
+
+        return tail;
+    }
+
+    /**
+     * Enumerate the vertices of a compiled graph that are the maximal number
+     * of hops from the specified vertex.
+     *
+     * @param graph the graph to traverse (not null, unaffected)
+     * @param startIndex index of the starting vertex
+     * @param storeIndices array to store the vertex indices (length
+     * &ge;numVertices, modified)
+     * @return the number of indices stored (&ge;1)
+     */
+    int copyLastLevel(CompiledNavGraph graph, int startIndex,
+            int[] storeIndices) {
+        int numReached = breadthFirst(graph, startIndex, null);
+        int result = numReached - lastLevelStart;
+        System.arraycopy(queue, lastLevelStart, storeIndices, 0, result);
+
+        return result;
+    }
+
+    /**
+     * Access the search state of the current thread.
+     *
+     * @return the pre-existing instance (not null)
+     */
+    static RouteSearch forCurrentThread() {
+        RouteSearch result = perThread.get();
+        return result;
+    }
+
+    /**
+     * Find a least-cost route from one member vertex to another. With a
+     * positive cost per distance, this is an A* search in which the heuristic
+     * is the straight-line distance to the goal times the specified factor.
+     * With zero, it's Dijkstra's algorithm.
+     *
+     * @param graph the graph to search (not null, unaffected)
+     * @param startVertex starting point (member, distinct from goalVertex)
+     * @param goalVertex goal (member, distinct from startVertex)
+     * @param costPerDistance heuristic cost per unit of distance (&ge;0)
+     * @return a new list of member arcs, or null if goal is unreachable
+     */
+    List<NavArc> seek(NavGraph graph, NavVertex startVertex,
+            NavVertex goalVertex, float costPerDistance) {
+        assert costPerDistance >= 0f : costPerDistance;
+
+        int numIndices = graph.numVertices();
+        prepare(numIndices);
+
+        int startIndex = startVertex.getIndex();
+        int goalIndex = goalVertex.getIndex();
+        bestCost[startIndex] = 0f;
+        openStamp[startIndex] = stamp;
+        predecessor[startIndex] = -1;
+        heap.offer(startIndex, 0f);
+
+        while (!heap.isEmpty()) {
+            int index = heap.poll();
+            if (index == goalIndex) {
+                List<NavArc> result = buildRoute(graph, goalIndex);
+                return result;
+            }
+            closedStamp[index] = stamp;
+            NavVertex vertex = graph.getVertex(index);
+            float baseCost = bestCost[index];
+
+            for (NavArc arc : vertex.getOutgoing()) {
+                NavVertex neighbor = arc.getToVertex();
+                int neighborIndex = neighbor.getIndex();
+                if (closedStamp[neighborIndex] == stamp) {
+                    continue;
+                }
+                float cost = baseCost + graph.arcCost(arc);
+                if (openStamp[neighborIndex] != stamp
+                        || cost < bestCost[neighborIndex]) {
+                    openStamp[neighborIndex] = stamp;
+                    bestCost[neighborIndex] = cost;
+                    predecessor[neighborIndex] = index;
+
+                    float priority = cost;
+                    if (costPerDistance > 0f) {
+                        double distance = neighbor.distance(goalVertex);
+                        priority += costPerDistance * (float) distance;
+                    }
+                    heap.offer(neighborIndex, priority);
+                }
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Find a least-cost route from one vertex of a compiled graph to another.
+     * With a positive cost per distance, this is an A* search. With zero, it's
+     * Dijkstra's algorithm.
+     *
+     * @param graph the graph to search (not null, unaffected)
+     * @param startIndex index of the starting vertex
+     * @param goalIndex index of the goal vertex (distinct from startIndex)
+     * @param costPerDistance heuristic cost per unit of distance (&ge;0)
+     * @param storeArcs array to store the arc indices of the route (not null,
+     * modified)
+     * @return the number of arcs in the route, or -1 if goal is unreachable
+     */
+    int seek(CompiledNavGraph graph, int startIndex, int goalIndex,
+            float costPerDistance, int[] storeArcs) {
+        assert costPerDistance >= 0f : costPerDistance;
+
+        int numIndices = graph.numVertices();
+        prepare(numIndices);
+
+        bestCost[startIndex] = 0f;
+        openStamp[startIndex] = stamp;
+        predecessorArc[startIndex] = -1;
+        heap.offer(startIndex, 0f);
+
+        while (!heap.isEmpty()) {
+            int index = heap.poll();
+            if (index == goalIndex) {
+                int result = copyRoute(graph, goalIndex, storeArcs);
+                return result;
+            }
+            closedStamp[index] = stamp;
+            float baseCost = bestCost[index];
+
+            int endArc = graph.firstOutgoing(index + 1);
+            for (int arcIndex = graph.firstOutgoing(index); arcIndex < endArc;
+                    ++arcIndex) {
+                int neighbor = graph.arcTerminus(arcIndex);
+                if (closedStamp[neighbor] == stamp) {
+                    continue;
+                }
+                float cost = baseCost + graph.arcCost(arcIndex);
+                if (openStamp[neighbor] != stamp
+                        || cost < bestCost[neighbor]) {
+                    openStamp[neighbor] = stamp;
+                    bestCost[neighbor] = cost;
+                    predecessorArc[neighbor] = arcIndex;
+
+                    float priority = cost;
+                    if (costPerDistance > 0f) {
+                        float distance = graph.distance(neighbor, goalIndex);
+                        priority += costPerDistance * distance;
+                    }
+                    heap.offer(neighbor, priority);
+                }
+            }
+        }
+
+        return -1;
+    }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Trace the best route back from the goal to the start.
+     *
+     * @param graph the graph searched (not null, unaffected)
+     * @param goalIndex index of the goal vertex
+     * @return a new list of member arcs, in order from start to goal
+     */
+    private List<NavArc> buildRoute(NavGraph graph, int goalIndex) {
+        List<NavArc> result = new ArrayList<>(10);
+
+        int index = goalIndex;
+        int fromIndex = predecessor[index];
+        while (fromIndex >= 0) {
+            NavVertex fromVertex = graph.getVertex(fromIndex);
+            NavVertex toVertex = graph.getVertex(index);
+            NavArc arc = fromVertex.findOutgoing(toVertex);
+            assert arc != null;
+            result.add(arc);
+
+            index = fromIndex;
+            fromIndex = predecessor[index];
+        }
+        Collections.reverse(result);
+
+        return result;
+    }
+
+    /**
+     * Copy the best route in a compiled graph, tracing it back from the goal.
+     *
+     * @param graph the graph searched (not null, unaffected)
+     * @param goalIndex index of the goal vertex
+     * @param storeArcs array to store the arc indices of the route, in order
+     * from start to goal (not null, modified)
+     * @return the number of arcs in the route (&ge;1)
+     */
+    private int copyRoute(CompiledNavGraph graph, int goalIndex,
+            int[] storeArcs) {
+        int numArcs = 0;
+        for (int arcIndex = predecessorArc[goalIndex]; arcIndex >= 0;) {
+            ++numArcs;
+            int fromIndex = graph.arcOrigin(arcIndex);
+            arcIndex = predecessorArc[fromIndex];
+        }
+        if (numArcs > storeArcs.length) {
+            String message = String.format(
+                    "route has %d arcs, but the array holds only %d.",
+                    numArcs, storeArcs.length);
+            throw new IllegalArgumentException(message);
+        }
+
+        int position = numArcs;
+        for (int arcIndex = predecessorArc[goalIndex]; arcIndex >= 0;) {
+            --position;
+            storeArcs[position] = arcIndex;
+            int fromIndex = graph.arcOrigin(arcIndex);
+            arcIndex = predecessorArc[fromIndex];
+        }
+        assert position == 0 : position;
+
+        return numArcs;
+    }
+
+    /**
+     * Prepare for a new search: bump the stamp, empty the heap, and ensure
+     * sufficient capacity.
+     *
+     * @param numIndices number of vertex indices in the graph (&ge;0)
+     */
+    private void prepare(int numIndices) {
+        if (numIndices > bestCost.length) {
+            bestCost = new float[numIndices];
+            closedStamp = new int[numIndices];
+            openStamp = new int[numIndices];
+            predecessor = new int[numIndices];
+            predecessorArc = new int[numIndices];
+            queue = new int[numIndices];
+            stamp = 0;
+        }
+        heap.clear(numIndices);
+
+        ++stamp;
+        if (stamp == Integer.MAX_VALUE) {
+            /*
+             * Recycle stamp values.
+             */
+            Arrays.fill(closedStamp, 0);
+            Arrays.fill(openStamp, 0);
+            stamp = 1;
+        }
+    }
+}
@@ -0,0 +1,785 @@
+/*
+ Copyright (c) 2019, Stephen Gold
+ All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright
+ notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright
+ notice, this list of conditions and the following disclaimer in the
+ documentation and/or other materials provided with the distribution.
+ * Neither the name of the copyright holder nor the names of its contributors
+ may be used to endorse or promote products derived from this software without
+ specific prior written permission.
+
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jme3utilities.navigation;
+
+import com.jme3.math.Vector3f;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.logging.Logger;
+import jme3utilities.math.MyVector3f;
+import jme3utilities.math.locus.Locus3f;
+
+/**
+ * A dynamic bounding-volume hierarchy over the loci of the vertices in a
+ * NavGraph, used to accelerate point-location queries. The hierarchy is a
+ * binary tree of axis-aligned boxes, kept height-balanced by rotations as
+ * vertices are added and removed, so queries visit O(log n) nodes in typical
+ * layouts.
+ * <p>
+ * Vertices with null or unbounded loci can't be placed in the tree, so they
+ * are kept aside and tested on every query.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+class SpatialIndex {
+    // *************************************************************************
+    // constants
+
+    /**
+     * message logger for this class
+     */
+    final private static Logger logger
+            = Logger.getLogger(SpatialIndex.class.getName());
+    /**
+     * number of floats per box (minima followed by maxima)
+     */
+    final private static int boxSize = 6;
+    /**
+     * special node index meaning "none"
+     */
+    final private static int nullNode = -1;
+    // *************************************************************************
+    // fields
+
+    /**
+     * bounding box of each node (6 floats per node)
+     */
+    private float[] boxes;
+    /**
+     * first child of each branch node, or nullNode for a leaf
+     */
+    private int[] child1;
+    /**
+     * 2nd child of each branch node, or nullNode for a leaf
+     */
+    private int[] child2;
+    /**
+     * height of each node above the leaves (leaves have height 0)
+     */
+    private int[] height;
+    /**
+     * leaf node of each indexed vertex, or nullNode, indexed by vertex index
+     */
+    private int[] leafOf = new int[0];
+    /**
+     * parent of each allocated node, or next free node for each free node
+     */
+    private int[] parent;
+    /**
+     * reusable stack of nodes to visit during a query, grown on demand
+     * (access synchronized on this index)
+     */
+    private int[] queryStack = new int[16];
+    /**
+     * vertex of each leaf node, or null for branch/free nodes
+     */
+    private NavVertex[] leafVertex;
+    /**
+     * index of the first free node, or nullNode if none
+     */
+    private int freeList = nullNode;
+    /**
+     * index of the root node, or nullNode if the tree is empty
+     */
+    private int root = nullNode;
+    /**
+     * vertices which aren't in the tree because their loci are null or
+     * unbounded
+     */
+    final private Set<NavVertex> unbounded = new HashSet<>(4);
+    /**
+     * temporary storage for locus minima
+     */
+    final private Vector3f tmpMinima = new Vector3f();
+    /**
+     * temporary storage for locus maxima
+     */
+    final private Vector3f tmpMaxima = new Vector3f();
+    // *************************************************************************
+    // constructors
+
+    /**
+     * Instantiate an empty index.
+     *
+     * @param nodeCapacity initial number of nodes to allocate (&gt;0)
+     */
+    SpatialIndex(int nodeCapacity) {
+        assert nodeCapacity > 0 : nodeCapacity;
+
+        boxes = new float[boxSize * nodeCapacity];
+        child1 = new int[nodeCapacity];
+        child2 = new int[nodeCapacity];
+        height = new int[nodeCapacity];
+        parent = new int[nodeCapacity];
+        leafVertex = new NavVertex[nodeCapacity];
+        addToFreeList(0, nodeCapacity);
+    }
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Add a vertex to the index, using its current locus.
+     *
+     * @param vertex the vertex to add (not null, not already indexed)
+     */
+    void add(NavVertex vertex) {
+        int vertexIndex = vertex.getIndex();
+        if (vertexIndex >= leafOf.length) {
+            int oldLength = leafOf.length;
+            int newLength = Math.max(2 * oldLength, vertexIndex + 1);
+            leafOf = Arrays.copyOf(leafOf, newLength);
+            Arrays.fill(leafOf, oldLength, newLength, nullNode);
+        }
+        assert leafOf[vertexIndex] == nullNode : vertexIndex;
+        /*
+         * Calculate the bounding box of the vertex's locus.
+         */
+        Locus3f locus = vertex.getLocus();
+        if (locus == null) {
+            boolean success = unbounded.add(vertex);
+            assert success : vertex;
+            return;
+        }
+        locus.bounds(tmpMinima, tmpMaxima);
+        if (!Vector3f.isValidVector(tmpMinima)
+                || !Vector3f.isValidVector(tmpMaxima)) {
+            boolean success = unbounded.add(vertex);
+            assert success : vertex;
+            return;
+        }
+        /*
+         * Allocate a leaf for it.
+         */
+        int leaf = allocateNode();
+        setBox(leaf, tmpMinima, tmpMaxima);
+        leafVertex[leaf] = vertex;
+        leafOf[vertexIndex] = leaf;
+
+        insertLeaf(leaf);
+    }
+
+    /**
+     * Find the indexed vertex whose locus contains the specified point. If
+     * several do, the one whose locus is nearest (according to
+     * {@link Locus3f#findLocation(com.jme3.math.Vector3f)}) is chosen.
+     *
+     * @param point the input coordinates (not null, unaffected)
+     * @return a pre-existing vertex, or null if none found
+     */
+    synchronized NavVertex findContains(Vector3f point) {
+        NavVertex result = null;
+        double nearest = Double.POSITIVE_INFINITY;
+
+        for (NavVertex vertex : unbounded) {
+            Locus3f locus = vertex.getLocus();
+            if (locus != null && locus.contains(point)) {
+                Vector3f location = locus.findLocation(point);
+                double ds = MyVector3f.distanceSquared(point, location);
+                if (ds < nearest) {
+                    nearest = ds;
+                    result = vertex;
+                }
+            }
+        }
+
+        if (root != nullNode) {
+            int[] stack = queryStack(height[root] + 2);
+            int stackSize = 0;
+            stack[stackSize++] = root;
+            while (stackSize > 0) {
+                int node = stack[--stackSize];
+                if (!boxContains(node, point)) {
+                    continue;
+                }
+                if (isLeaf(node)) {
+                    NavVertex vertex = leafVertex[node];
+                    Locus3f locus = vertex.getLocus();
+                    if (locus.contains(point)) {
+                        Vector3f location = locus.findLocation(point);
+                        double ds = MyVector3f.distanceSquared(point,
+                                location);
+                        if (ds < nearest) {
+                            nearest = ds;
+                            result = vertex;
+                        }
+                    }
+                } else {
+                    stack[stackSize++] = child1[node];
+                    stack[stackSize++] = child2[node];
+                }
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Find the indexed vertex whose locus is nearest to the specified point,
+     * according to {@link Locus3f#findLocation(com.jme3.math.Vector3f)}.
+     *
+     * @param point the input coordinates (not null, unaffected)
+     * @return a pre-existing vertex, or null if the index is empty
+     */
+    synchronized NavVertex findNearest(Vector3f point) {
+        NavVertex result = null;
+        double nearest = Double.POSITIVE_INFINITY;
+
+        for (NavVertex vertex : unbounded) {
+            Locus3f locus = vertex.getLocus();
+            if (locus == null) {
+                continue;
+            }
+            Vector3f location = locus.findLocation(point);
+            double ds = MyVector3f.distanceSquared(point, location);
+            if (ds < nearest) {
+                nearest = ds;
+                result = vertex;
+            }
+        }
+
+        if (root != nullNode) {
+            /*
+             * Depth-first branch-and-bound search, visiting the nearer child
+             * first and pruning any box farther than the best so far.
+             */
+            int[] stack = queryStack(height[root] + 2);
+            int stackSize = 0;
+            stack[stackSize++] = root;
+            while (stackSize > 0) {
+                int node = stack[--stackSize];
+                if (boxDistanceSquared(node, point) >= nearest) {
+                    continue;
+                }
+                if (isLeaf(node)) {
+                    NavVertex vertex = leafVertex[node];
+                    Locus3f locus = vertex.getLocus();
+                    Vector3f location = locus.findLocation(point);
+                    if (location != null) {
+                        double ds = MyVector3f.distanceSquared(point,
+                                location);
+                        if (ds < nearest) {
+                            nearest = ds;
+                            result = vertex;
+                        }
+                    }
+                } else {
+                    int near = child1[node];
+                    int far = child2[node];
+                    double nearDs = boxDistanceSquared(near, point);
+                    double farDs = boxDistanceSquared(far, point);
+                    if (farDs < nearDs) {
+                        int swap = near;
+                        near = far;
+                        far = swap;
+                        double swapDs = nearDs;
+                        nearDs = farDs;
+                        farDs = swapDs;
+                    }
+                    if (farDs < nearest) {
+                        stack[stackSize++] = far;
+                    }
+                    if (nearDs < nearest) {
+                        stack[stackSize++] = near;
+                    }
+                }
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Update the index after a vertex has been assigned a new index in its
+     * graph.
+     *
+     * @param vertex the vertex that moved (not null, indexed)
+     * @param oldIndex the vertex's previous index (&ge;0)
+     */
+    void reindex(NavVertex vertex, int oldIndex) {
+        int newIndex = vertex.getIndex();
+        if (oldIndex < leafOf.length && leafOf[oldIndex] != nullNode) {
+            assert newIndex < leafOf.length : newIndex;
+            leafOf[newIndex] = leafOf[oldIndex];
+            leafOf[oldIndex] = nullNode;
+        }
+    }
+
+    /**
+     * Remove a vertex from the index.
+     *
+     * @param vertex the vertex to remove (not null, indexed)
+     */
+    void remove(NavVertex vertex) {
+        int vertexIndex = vertex.getIndex();
+        int leaf = nullNode;
+        if (vertexIndex < leafOf.length) {
+            leaf = leafOf[vertexIndex];
+        }
+
+        if (leaf == nullNode) {
+            boolean success = unbounded.remove(vertex);
+            assert success : vertex;
+        } else {
+            assert leafVertex[leaf] == vertex : vertex;
+            removeLeaf(leaf);
+            leafVertex[leaf] = null;
+            leafOf[vertexIndex] = nullNode;
+            freeNode(leaf);
+        }
+    }
+
+    /**
+     * Update the index after a vertex's locus has been replaced or altered.
+     *
+     * @param vertex the vertex to update (not null, indexed)
+     */
+    void update(NavVertex vertex) {
+        remove(vertex);
+        add(vertex);
+    }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Link a range of nodes into the free list.
+     *
+     * @param firstNode the first node to free (&ge;0)
+     * @param endNode one past the last node to free (&gt;firstNode)
+     */
+    private void addToFreeList(int firstNode, int endNode) {
+        for (int node = endNode - 1; node >= firstNode; --node) {
+            child1[node] = nullNode;
+            child2[node] = nullNode;
+            height[node] = -1;
+            parent[node] = freeList;
+            freeList = node;
+        }
+    }
+
+    /**
+     * Allocate a node, enlarging the storage if necessary.
+     *
+     * @return the index of the new leaf node (&ge;0)
+     */
+    private int allocateNode() {
+        if (freeList == nullNode) {
+            int oldCapacity = child1.length;
+            int newCapacity = 2 * oldCapacity;
+            boxes = Arrays.copyOf(boxes, boxSize * newCapacity);
+            child1 = Arrays.copyOf(child1, newCapacity);
+            child2 = Arrays.copyOf(child2, newCapacity);
+            height = Arrays.copyOf(height, newCapacity);
+            parent = Arrays.copyOf(parent, newCapacity);
+            leafVertex = Arrays.copyOf(leafVertex, newCapacity);
+            addToFreeList(oldCapacity, newCapacity);
+        }
+
+        int result = freeList;
+        freeList = parent[result];
+        parent[result] = nullNode;
+        child1[result] = nullNode;
+        child2[result] = nullNode;
+        height[result] = 0;
+
+        return result;
+    }
+
+    /**
+     * Restore the balance of the subtree rooted at the specified node, by
+     * rotating a grandchild into its place if its children's heights differ by
+     * more than 1.
+     *
+     * @param nodeA the root of the subtree (&ge;0)
+     * @return the index of the node that now roots the subtree
+     */
+    private int balance(int nodeA) {
+        if (isLeaf(nodeA) || height[nodeA] < 2) {
+            return nodeA;
+        }
+
+        int nodeB = child1[nodeA];
+        int nodeC = child2[nodeA];
+        int imbalance = height[nodeC] - height[nodeB];
+
+        if (imbalance > 1) {
+            /*
+             * Rotate C up.
+             */
+            int nodeF = child1[nodeC];
+            int nodeG = child2[nodeC];
+            child1[nodeC] = nodeA;
+            parent[nodeC] = parent[nodeA];
+            parent[nodeA] = nodeC;
+            replaceChild(parent[nodeC], nodeA, nodeC);
+
+            int keep;
+            int move;
+            if (height[nodeF] > height[nodeG]) {
+                keep = nodeF;
+                move = nodeG;
+            } else {
+                keep = nodeG;
+                move = nodeF;
+            }
+            child2[nodeC] = keep;
+            child2[nodeA] = move;
+            parent[move] = nodeA;
+            refit(nodeA);
+            refit(nodeC);
+
+            return nodeC;
+
+        } else if (imbalance < -1) {
+            /*
+             * Rotate B up.
+             */
+            int nodeD = child1[nodeB];
+            int nodeE = child2[nodeB];
+            child1[nodeB] = nodeA;
+            parent[nodeB] = parent[nodeA];
+            parent[nodeA] = nodeB;
+            replaceChild(parent[nodeB], nodeA, nodeB);
+
+            int keep;
+            int move;
+            if (height[nodeD] > height[nodeE]) {
+                keep = nodeD;
+                move = nodeE;
+            } else {
+                keep = nodeE;
+                move = nodeD;
+            }
+            child2[nodeB] = keep;
+            child1[nodeA] = move;
+            parent[move] = nodeA;
+            refit(nodeA);
+            refit(nodeB);
+
+            return nodeB;
+        }
+
+        return nodeA;
+    }
+
+    /**
+     * Test whether the box of the specified node contains a point.
+     *
+     * @param node the node to test (&ge;0)
+     * @param point the input coordinates (not null, unaffected)
+     * @return true if contained, otherwise false
+     */
+    private boolean boxContains(int node, Vector3f point) {
+        int base = boxSize * node;
+        boolean result = point.x >= boxes[base]
+                && point.y >= boxes[base + 1]
+                && point.z >= boxes[base + 2]
+                && point.x <= boxes[base + 3]
+                && point.y <= boxes[base + 4]
+                && point.z <= boxes[base + 5];
+
+        return result;
+    }
+
+    /**
+     * Calculate the squared distance from a point to the box of the specified
+     * node. This is a lower bound on the squared distance from the point to
+     * any locus in the node's subtree.
+     *
+     * @param node the node to measure (&ge;0)
+     * @param point the input coordinates (not null, unaffected)
+     * @return the squared distance (&ge;0, zero if the point is in the box)
+     */
+    private double boxDistanceSquared(int node, Vector3f point) {
+        int base = boxSize * node;
+        double dx = Math.max(0.0, Math.max(boxes[base] - point.x,
+                point.x - boxes[base + 3]));
+        double dy = Math.max(0.0, Math.max(boxes[base + 1] - point.y,
+                point.y - boxes[base + 4]));
+        double dz = Math.max(0.0, Math.max(boxes[base + 2] - point.z,
+                point.z - boxes[base + 5]));
+        double result = dx * dx + dy * dy + dz * dz;
+
+        return result;
+    }
+
+    /**
+     * Return a node to the free list.
+     *
+     * @param node the node to free (&ge;0, detached from the tree)
+     */
+    private void freeNode(int node) {
+        child1[node] = nullNode;
+        child2[node] = nullNode;
+        height[node] = -1;
+        parent[node] = freeList;
+        freeList = node;
+    }
+
+    /**
+     * Insert a leaf into the tree, choosing the sibling that minimizes the
+     * increase in total surface area, then rebalancing up to the root.
+     *
+     * @param leaf the leaf to insert (&ge;0, detached, box already set)
+     */
+    private void insertLeaf(int leaf) {
+        if (root == nullNode) {
+            root = leaf;
+            parent[leaf] = nullNode;
+            return;
+        }
+        /*
+         * Descend to the best sibling.
+         */
+        int node = root;
+        while (!isLeaf(node)) {
+            double area = surfaceArea(node);
+            double combinedArea = unionSurfaceArea(node, leaf);
+            double cost = 2.0 * combinedArea;
+            double inheritanceCost = 2.0 * (combinedArea - area);
+
+            double cost1 = descentCost(child1[node], leaf) + inheritanceCost;
+            double cost2 = descentCost(child2[node], leaf) + inheritanceCost;
+            if (cost < cost1 && cost < cost2) {
+                break;
+            }
+            if (cost1 < cost2) {
+                node = child1[node];
+            } else {
+                node = child2[node];
+            }
+        }
+        int sibling = node;
+        /*
+         * Create a new parent for the sibling and the leaf.
+         */
+        int oldParent = parent[sibling];
+        int newParent = allocateNode();
+        parent[newParent] = oldParent;
+        child1[newParent] = sibling;
+        child2[newParent] = leaf;
+        parent[sibling] = newParent;
+        parent[leaf] = newParent;
+        refit(newParent);
+
+        if (oldParent == nullNode) {
+            root = newParent;
+        } else {
+            replaceChild(oldParent, sibling, newParent);
+        }
+
+        refitAncestors(oldParent);
+    }
+
+    /**
+     * Calculate the cost of descending into the specified child while
+     * inserting a leaf.
+     *
+     * @param child the candidate child (&ge;0)
+     * @param leaf the leaf being inserted (&ge;0)
+     * @return the cost (&ge;0)
+     */
+    private double descentCost(int child, int leaf) {
+        double result = unionSurfaceArea(child, leaf);
+        if (!isLeaf(child)) {
+            result -= surfaceArea(child);
+        }
+
+        return result;
+    }
+
+    /**
+     * Test whether the specified node is a leaf.
+     *
+     * @param node the node to test (&ge;0)
+     * @return true if it's a leaf, otherwise false
+     */
+    private boolean isLeaf(int node) {
+        boolean result = (child1[node] == nullNode);
+        return result;
+    }
+
+    /**
+     * Access the reusable query stack, growing it if necessary. Invoke only
+     * while synchronized on this index.
+     *
+     * @param minLength the number of entries needed (&gt;0)
+     * @return the pre-existing array, or a new one (not null, length &ge;
+     * minLength)
+     */
+    private int[] queryStack(int minLength) {
+        assert minLength > 0 : minLength;
+        assert Thread.holdsLock(this);
+
+        if (queryStack.length < minLength) {
+            int newLength = Math.max(2 * queryStack.length, minLength);
+            queryStack = new int[newLength];
+        }
+
+        return queryStack;
+    }
+
+    /**
+     * Recalculate the box and height of a branch node from its children.
+     *
+     * @param node the node to update (&ge;0, not a leaf)
+     */
+    private void refit(int node) {
+        int c1 = child1[node];
+        int c2 = child2[node];
+        int base = boxSize * node;
+        int base1 = boxSize * c1;
+        int base2 = boxSize * c2;
+        for (int i = 0; i < 3; ++i) {
+            boxes[base + i] = Math.min(boxes[base1 + i], boxes[base2 + i]);
+        }
+        for (int i = 3; i < boxSize; ++i) {
+            boxes[base + i] = Math.max(boxes[base1 + i], boxes[base2 + i]);
+        }
+        height[node] = 1 + Math.max(height[c1], height[c2]);
+    }
+
+    /**
+     * Rebalance and refit each node from the specified one up to the root.
+     *
+     * @param startNode the first node to update, or nullNode for none
+     */
+    private void refitAncestors(int startNode) {
+        int node = startNode;
+        while (node != nullNode) {
+            node = balance(node);
+            refit(node);
+            node = parent[node];
+        }
+    }
+
+    /**
+     * Detach a leaf from the tree, replacing its parent with its sibling.
+     *
+     * @param leaf the leaf to detach (&ge;0, in the tree)
+     */
+    private void removeLeaf(int leaf) {
+        if (leaf == root) {
+            root = nullNode;
+            return;
+        }
+
+        int oldParent = parent[leaf];
+        int grandparent = parent[oldParent];
+        int sibling;
+        if (child1[oldParent] == leaf) {
+            sibling = child2[oldParent];
+        } else {
+            sibling = child1[oldParent];
+        }
+
+        if (grandparent == nullNode) {
+            root = sibling;
+            parent[sibling] = nullNode;
+        } else {
+            replaceChild(grandparent, oldParent, sibling);
+            parent[sibling] = grandparent;
+        }
+        freeNode(oldParent);
+        parent[leaf] = nullNode;
+
+        refitAncestors(grandparent);
+    }
+
+    /**
+     * Replace a child link in the specified parent, or the root if there's no
+     * parent.
+     *
+     * @param parentNode the parent, or nullNode for the root
+     * @param oldChild the child to replace (&ge;0)
+     * @param newChild the replacement (&ge;0)
+     */
+    private void replaceChild(int parentNode, int oldChild, int newChild) {
+        if (parentNode == nullNode) {
+            root = newChild;
+        } else if (child1[parentNode] == oldChild) {
+            child1[parentNode] = newChild;
+        } else {
+            assert child2[parentNode] == oldChild : oldChild;
+            child2[parentNode] = newChild;
+        }
+    }
+
+    /**
+     * Copy minima and maxima into the box of the specified node.
+     *
+     * @param node the node to modify (&ge;0)
+     * @param minima the minimum coordinates (not null, unaffected)
+     * @param maxima the maximum coordinates (not null, unaffected)
+     */
+    private void setBox(int node, Vector3f minima, Vector3f maxima) {
+        int base = boxSize * node;
+        boxes[base] = minima.x;
+        boxes[base + 1] = minima.y;
+        boxes[base + 2] = minima.z;
+        boxes[base + 3] = maxima.x;
+        boxes[base + 4] = maxima.y;
+        boxes[base + 5] = maxima.z;
+    }
+
+    /**
+     * Calculate the surface area of the specified node's box.
+     *
+     * @param node the node to measure (&ge;0)
+     * @return the area (&ge;0)
+     */
+    private double surfaceArea(int node) {
+        int base = boxSize * node;
+        double dx = boxes[base + 3] - boxes[base];
+        double dy = boxes[base + 4] - boxes[base + 1];
+        double dz = boxes[base + 5] - boxes[base + 2];
+        double result = 2.0 * (dx * dy + dy * dz + dz * dx);
+
+        return result;
+    }
+
+    /**
+     * Calculate the surface area of the union of 2 nodes' boxes.
+     *
+     * @param node1 the first node (&ge;0)
+     * @param node2 the 2nd node (&ge;0)
+     * @return the area (&ge;0)
+     */
+    private double unionSurfaceArea(int node1, int node2) {
+        int base1 = boxSize * node1;
+        int base2 = boxSize * node2;
+        double dx = Math.max(boxes[base1 + 3], boxes[base2 + 3])
+                - Math.min(boxes[base1], boxes[base2]);
+        double dy = Math.max(boxes[base1 + 4], boxes[base2 + 4])
+                - Math.min(boxes[base1 + 1], boxes[base2 + 1]);
+        double dz = Math.max(boxes[base1 + 5], boxes[base2 + 5])
+                - Math.min(boxes[base1 + 2], boxes[base2 + 2]);
+        double result = 2.0 * (dx * dy + dy * dz + dz * dx);
+
+        return result;
+    }
+}
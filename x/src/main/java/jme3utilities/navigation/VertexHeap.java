@@ -0,0 +1,264 @@
+/*
+ Copyright (c) 2019, Stephen Gold
+ All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright
+ notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright
+ notice, this list of conditions and the following disclaimer in the
+ documentation and/or other materials provided with the distribution.
+ * Neither the name of the copyright holder nor the names of its contributors
+ may be used to endorse or promote products derived from this software without
+ specific prior written permission.
+
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jme3utilities.navigation;
+
+import java.util.Arrays;
+import java.util.logging.Logger;
+
+/**
+ * An indexed binary min-heap of vertex indices, keyed by float priorities. Each
+ * index may appear in the heap at most once, and its priority may be decreased
+ * in place. Storage grows as needed and is retained across calls to
+ * {@link #clear()}, so a single instance can be reused for many searches.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+class VertexHeap {
+    // *************************************************************************
+    // constants
+
+    /**
+     * message logger for this class
+     */
+    final private static Logger logger
+            = Logger.getLogger(VertexHeap.class.getName());
+    // *************************************************************************
+    // fields
+
+    /**
+     * priority of each heap slot (parallel with slotIndex)
+     */
+    private float[] slotPriority;
+    /**
+     * vertex index stored in each heap slot (parallel with slotPriority)
+     */
+    private int[] slotIndex;
+    /**
+     * heap slot of each vertex index, or -1 if not in the heap
+     */
+    private int[] position;
+    /**
+     * number of occupied slots (&ge;0)
+     */
+    private int size = 0;
+    // *************************************************************************
+    // constructors
+
+    /**
+     * Instantiate an empty heap for the specified number of vertex indices.
+     *
+     * @param capacity initial number of vertex indices (&ge;0)
+     */
+    VertexHeap(int capacity) {
+        assert capacity >= 0 : capacity;
+
+        slotPriority = new float[capacity];
+        slotIndex = new int[capacity];
+        position = new int[capacity];
+        Arrays.fill(position, -1);
+    }
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Remove all entries and ensure capacity for the specified number of
+     * vertex indices.
+     *
+     * @param capacity number of vertex indices (&ge;0)
+     */
+    void clear(int capacity) {
+        assert capacity >= 0 : capacity;
+
+        if (capacity > position.length) {
+            slotPriority = new float[capacity];
+            slotIndex = new int[capacity];
+            position = new int[capacity];
+            Arrays.fill(position, -1);
+            size = 0;
+        } else {
+            clear();
+        }
+    }
+
+    /**
+     * Remove all entries.
+     */
+    void clear() {
+        for (int slot = 0; slot < size; ++slot) {
+            int index = slotIndex[slot];
+            position[index] = -1;
+        }
+        size = 0;
+    }
+
+    /**
+     * Test whether the specified vertex index is in the heap.
+     *
+     * @param index vertex index (&ge;0, &lt;capacity)
+     * @return true if present, otherwise false
+     */
+    boolean contains(int index) {
+        boolean result = position[index] >= 0;
+        return result;
+    }
+
+    /**
+     * Test whether the heap is empty.
+     *
+     * @return true if empty, otherwise false
+     */
+    boolean isEmpty() {
+        boolean result = (size == 0);
+        return result;
+    }
+
+    /**
+     * Insert a vertex index or, if it's already present, lower its priority.
+     * An index that's present with a lower priority is unaffected.
+     *
+     * @param index vertex index (&ge;0, &lt;capacity)
+     * @param priority priority value (lower values are removed first)
+     */
+    void offer(int index, float priority) {
+        int slot = position[index];
+        if (slot < 0) {
+            slot = size;
+            ++size;
+            slotIndex[slot] = index;
+            slotPriority[slot] = priority;
+            position[index] = slot;
+            siftUp(slot);
+
+        } else if (priority < slotPriority[slot]) {
+            slotPriority[slot] = priority;
+            siftUp(slot);
+        }
+    }
+
+    /**
+     * Read the priority of the minimum entry.
+     *
+     * @return priority value
+     */
+    float peekPriority() {
+        assert size > 0;
+        float result = slotPriority[0];
+        return result;
+    }
+
+    /**
+     * Remove the entry with the lowest priority.
+     *
+     * @return the vertex index that was removed (&ge;0)
+     */
+    int poll() {
+        assert size > 0;
+
+        int result = slotIndex[0];
+        position[result] = -1;
+        --size;
+        if (size > 0) {
+            slotIndex[0] = slotIndex[size];
+            slotPriority[0] = slotPriority[size];
+            position[slotIndex[0]] = 0;
+            siftDown(0);
+        }
+
+        return result;
+    }
+
+    /**
+     * Count the entries in the heap.
+     *
+     * @return count (&ge;0)
+     */
+    int size() {
+        assert size >= 0 : size;
+        return size;
+    }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Move the entry in the specified slot toward the leaves until the heap
+     * property is restored.
+     *
+     * @param startSlot slot of the entry to move (&ge;0, &lt;size)
+     */
+    private void siftDown(int startSlot) {
+        int index = slotIndex[startSlot];
+        float priority = slotPriority[startSlot];
+
+        int slot = startSlot;
+        int half = size >>> 1;
+        while (slot < half) {
+            int child = 2 * slot + 1;
+            int right = child + 1;
+            if (right < size && slotPriority[right] < slotPriority[child]) {
+                child = right;
+            }
+            if (priority <= slotPriority[child]) {
+                break;
+            }
+            slotIndex[slot] = slotIndex[child];
+            slotPriority[slot] = slotPriority[child];
+            position[slotIndex[slot]] = slot;
+            slot = child;
+        }
+
+        slotIndex[slot] = index;
+        slotPriority[slot] = priority;
+        position[index] = slot;
+    }
+
+    /**
+     * Move the entry in the specified slot toward the root until the heap
+     * property is restored.
+     *
+     * @param startSlot slot of the entry to move (&ge;0, &lt;size)
+     */
+    private void siftUp(int startSlot) {
+        int index = slotIndex[startSlot];
+        float priority = slotPriority[startSlot];
+
+        int slot = startSlot;
+        while (slot > 0) {
+            int parent = (slot - 1) >>> 1;
+            if (slotPriority[parent] <= priority) {
+                break;
+            }
+            slotIndex[slot] = slotIndex[parent];
+            slotPriority[slot] = slotPriority[parent];
+            position[slotIndex[slot]] = slot;
+            slot = parent;
+        }
+
+        slotIndex[slot] = index;
+        slotPriority[slot] = priority;
+        position[index] = slot;
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ Copyright (c) 2019, Stephen Gold
+ All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright
+ notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright
+ notice, this list of conditions and the following disclaimer in the
+ documentation and/or other materials provided with the distribution.
+ * Neither the name of the copyright holder nor the names of its contributors
+ may be used to endorse or promote products derived from this software without
+ specific prior written permission.
+
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jme3utilities.navigation.test;
+
+import com.jme3.math.Vector3f;
+import java.util.List;
+import java.util.logging.Logger;
+import jme3utilities.navigation.CompiledNavGraph;
+import jme3utilities.navigation.NavArc;
+import jme3utilities.navigation.NavGraph;
+import jme3utilities.navigation.NavVertex;
+import org.junit.Test;
+
+/**
+ * JUnit tests for the CompiledNavGraph class.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+public class TestCompiledNavGraph {
+    // *************************************************************************
+    // constants and loggers
+
+    /**
+     * message logger for this class
+     */
+    final private static Logger logger = Logger.getLogger(
+            TestCompiledNavGraph.class.getName());
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Verify that a compiled graph is unaffected by later removal of a vertex
+     * from the original graph, which re-indexes the last vertex.
+     */
+    @Test
+    public void testRemoveAfterCompile() {
+        NavGraph graph = new NavGraph();
+        NavVertex a = graph.addVertex("a", null, new Vector3f(0f, 0f, 0f));
+        NavVertex b = graph.addVertex("b", null, new Vector3f(1f, 0f, 0f));
+        NavVertex c = graph.addVertex("c", null, new Vector3f(2f, 0f, 0f));
+        NavVertex d = graph.addVertex("d", null, new Vector3f(3f, 0f, 0f));
+        graph.addArcPair(a, b, 1f);
+        graph.addArcPair(b, c, 1f);
+        graph.addArcPair(c, d, 1f);
+
+        CompiledNavGraph compiled = graph.compile();
+        assert compiled.indexOf(a) == 0;
+        assert compiled.indexOf(d) == 3;
+        /*
+         * Removing the 1st vertex moves the last one into its index.
+         */
+        graph.remove(a);
+        assert graph.numVertices() == 3;
+
+        assert compiled.numVertices() == 4;
+        assert compiled.indexOf(a) == 0;
+        assert compiled.indexOf(d) == 3;
+        assert compiled.getVertex(3) == d;
+
+        List<NavArc> route = compiled.seek(a, d);
+        assert route.size() == 3 : route.size();
+        assert route.get(0).getFromVertex() == a;
+        assert route.get(2).getToVertex() == d;
+
+        route = compiled.seek(d, b);
+        assert route.size() == 2 : route.size();
+        /*
+         * A vertex added after compilation isn't in the compiled graph.
+         */
+        NavVertex e = graph.addVertex("e", null, new Vector3f(4f, 0f, 0f));
+        try {
+            compiled.indexOf(e);
+            assert false;
+        } catch (IllegalArgumentException exception) {
+            // expected
+        }
+    }
+}